@@ -6,10 +6,6 @@ import us.wthr.jdem846.math.Vector;
 public class SignTrianglePointTest extends PointTest
 {
 
-	//private double[] P = new double[3];
-	
-	private static Vector P = new Vector();
-	
 	public SignTrianglePointTest()
 	{
 		
@@ -23,14 +19,10 @@ public class SignTrianglePointTest extends PointTest
 	
 	public static boolean contains(Vector p0, Vector p1, Vector p2, double x, double y, double z)
 	{
-		//fill(x, y, z, P);
-		P.x = x;
-		P.y = y;
-		P.z = z;
-		
-		boolean b0 = (sign(P, p0, p1) <= 0.0);
-		boolean b1 = (sign(P, p1, p2) <= 0.0);
-		boolean b2 = (sign(P, p2, p0) <= 0.0);
+		// No shared scratch point so that triangles can be tested from several threads
+		boolean b0 = (sign(x, y, p0, p1) <= 0.0);
+		boolean b1 = (sign(x, y, p1, p2) <= 0.0);
+		boolean b2 = (sign(x, y, p2, p0) <= 0.0);
 
 		return ((b0 == b1) && (b1 == b2));
 		
@@ -41,5 +33,10 @@ public class SignTrianglePointTest extends PointTest
 		return (v0.x - v2.x) * (v1.y - v2.y) - (v1.x - v2.x) * (v0.y - v2.y);
 	}
 	
+	protected static double sign(double x, double y, Vector v1, Vector v2)
+	{
+		return (x - v2.x) * (v1.y - v2.y) - (v1.x - v2.x) * (y - v2.y);
+	}
+	
 	
 }
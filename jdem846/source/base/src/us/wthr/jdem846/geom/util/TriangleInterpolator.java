@@ -41,4 +41,19 @@ public class TriangleInterpolator
 		return a*x+b*y+c;
 	}
 	
+	public double getA()
+	{
+		return a;
+	}
+	
+	public double getB()
+	{
+		return b;
+	}
+	
+	public double getC()
+	{
+		return c;
+	}
+	
 }
@@ -2,13 +2,13 @@ package us.wthr.jdem846;
 
 import java.awt.image.BufferedImage;
 import java.awt.image.Raster;
-import java.awt.image.WritableRaster;
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -23,6 +23,7 @@ import us.wthr.jdem846.buffers.IIntBuffer;
 import us.wthr.jdem846.canvas.AbstractBuffer;
 import us.wthr.jdem846.exception.ImageException;
 import us.wthr.jdem846.graphics.ImageCapture;
+import us.wthr.jdem846.image.ImageBuffers;
 import us.wthr.jdem846.image.ImageTypeEnum;
 import us.wthr.jdem846.image.ImageWriter;
 import us.wthr.jdem846.logging.Log;
@@ -79,16 +80,15 @@ public class JDemElevationModel extends AbstractBuffer implements ElevationModel
 	{
 		this(imageCapture.getWidth(), imageCapture.getHeight(), true, true, false, false, false);
 		
+		int[] row = new int[getWidth()];
 		for (int y = 0; y < getHeight(); y++) {
-			for (int x = 0; x < getWidth(); x++) {
-				int index = getIndex(x, y);
-				
-				
-				rgbaBuffer.put(index, imageCapture.get(x, y));
-				maskBuffer[index] = rgbaBuffer.get(index) != 0x0;
-
-			}
+			imageCapture.getRow(y, row, 0);
 			
+			int index = getIndex(0, y);
+			rgbaBuffer.put(row, index, 0, row.length);
+			for (int x = 0; x < row.length; x++) {
+				maskBuffer[index + x] = row[x] != 0x0;
+			}
 		}
 	}
 	
@@ -194,23 +194,22 @@ public class JDemElevationModel extends AbstractBuffer implements ElevationModel
 	@Override
 	public void reset()
 	{
-		for (int i = 0; i < this.getBufferLength(); i++) {
-			
-			if (maskBuffer != null) 
-				maskBuffer[i] = false;
-			
-			if (rgbaBuffer != null) 
-				rgbaBuffer.put(i, 0x0);
-			
-			if (longitudeBuffer != null)
-				longitudeBuffer.put(i, JDemElevationModel.NO_VALUE);
-			
-			if (latitudeBuffer != null)
-				latitudeBuffer.put(i, JDemElevationModel.NO_VALUE);
-			
-			if (elevationBuffer != null)
-				elevationBuffer.put(i, (float) DemConstants.ELEV_NO_DATA);
-		}
+		long length = this.getBufferLength();
+		
+		if (maskBuffer != null) 
+			Arrays.fill(maskBuffer, false);
+		
+		if (rgbaBuffer != null) 
+			rgbaBuffer.fill(0, length, 0x0);
+		
+		if (longitudeBuffer != null)
+			longitudeBuffer.fill(0, length, JDemElevationModel.NO_VALUE);
+		
+		if (latitudeBuffer != null)
+			latitudeBuffer.fill(0, length, JDemElevationModel.NO_VALUE);
+		
+		if (elevationBuffer != null)
+			elevationBuffer.fill(0, length, (float) DemConstants.ELEV_NO_DATA);
 	}
 	
 	public boolean hasProperty(String key)
@@ -238,7 +237,7 @@ public class JDemElevationModel extends AbstractBuffer implements ElevationModel
 	{
 		int index = this.getIndex(x, y);
 		if (rgbaBuffer != null && index >= 0 && index < getBufferLength()) {
-			return rgbaBuffer.get(index);
+			return rgbaBuffer.getInt(index);
 		} else {
 			return 0x0;
 			// TODO: Throw
@@ -257,7 +256,7 @@ public class JDemElevationModel extends AbstractBuffer implements ElevationModel
 	{
 		int index = this.getIndex(x, y);
 		if (latitudeBuffer != null && index >= 0 && index < getBufferLength()) {
-			return latitudeBuffer.get(index);
+			return latitudeBuffer.getFloat(index);
 		} else {
 			return NO_VALUE;
 			// TODO: Throw
@@ -268,7 +267,7 @@ public class JDemElevationModel extends AbstractBuffer implements ElevationModel
 	{
 		int index = this.getIndex(x, y);
 		if (longitudeBuffer != null && index >= 0 && index < getBufferLength()) {
-			return longitudeBuffer.get(index);
+			return longitudeBuffer.getFloat(index);
 		} else {
 			return NO_VALUE;
 			// TODO: Throw
@@ -279,7 +278,7 @@ public class JDemElevationModel extends AbstractBuffer implements ElevationModel
 	{
 		int index = this.getIndex(x, y);
 		if (elevationBuffer != null && index >= 0 && index < getBufferLength()) {
-			return elevationBuffer.get(index);
+			return elevationBuffer.getFloat(index);
 		} else {
 			return NO_VALUE;
 			// TODO: Throw
@@ -297,22 +296,15 @@ public class JDemElevationModel extends AbstractBuffer implements ElevationModel
 		}
 	}
 	
+	/** Creates an image of the model. When the pixels are held on the heap the image shares
+	 * them rather than copying them.
+	 */
 	public BufferedImage getImage()
 	{
-		BufferedImage image = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_ARGB);
-		WritableRaster raster = image.getRaster();
-
-		int[] rgba = new int[4];
-		rgba[3] = 0xFF;
-		
-		for (int y = 0; y < getHeight(); y++) {
-			for (int x = 0; x < getWidth(); x++) {
-				getRgba(x, y, rgba);
-				raster.setPixel(x, y, rgba);
-			}
+		if (rgbaBuffer == null) {
+			return ImageBuffers.createImage(new int[getWidth() * getHeight()], getWidth(), getHeight());
 		}
-		
-		return image;
+		return ImageBuffers.createImage(rgbaBuffer, getWidth(), getHeight());
 	}
 	
 	
@@ -350,7 +342,7 @@ public class JDemElevationModel extends AbstractBuffer implements ElevationModel
 				int i = getIndex(x, y);
 				
 				if (i >= 0 && i < this.rgbaBuffer.capacity()) {
-					this.rgbaBuffer.put(i, ColorUtil.rgbaToInt(rgbaBuffer));
+					this.rgbaBuffer.putInt(i, ColorUtil.rgbaToInt(rgbaBuffer));
 				}
 			}
 		}
@@ -359,10 +351,12 @@ public class JDemElevationModel extends AbstractBuffer implements ElevationModel
 	
 	public void writeImageData(OutputStream out, ImageTypeEnum imageFormat) throws IOException
 	{
-		BufferedImage image = getImage();
+		if (rgbaBuffer == null) {
+			throw new IOException("Model has no image data");
+		}
 		
 		try {
-			ImageWriter.saveImage(image, out, imageFormat);
+			ImageWriter.saveImage(rgbaBuffer, getWidth(), getHeight(), out, imageFormat);
 		} catch (ImageException ex) {
 			throw new IOException("Error writing image to output stream: " + ex.getMessage(), ex);
 		}
@@ -372,10 +366,12 @@ public class JDemElevationModel extends AbstractBuffer implements ElevationModel
 	
 	public void writeImageData(FileImageOutputStream out, ImageTypeEnum imageFormat) throws IOException
 	{
-		BufferedImage image = getImage();
+		if (rgbaBuffer == null) {
+			throw new IOException("Model has no image data");
+		}
 		
 		try {
-			ImageWriter.saveImage(image, out, imageFormat);
+			ImageWriter.saveImage(rgbaBuffer, getWidth(), getHeight(), out, imageFormat);
 		} catch (ImageException ex) {
 			throw new IOException("Error writing image to output stream: " + ex.getMessage(), ex);
 		}
@@ -418,7 +414,7 @@ public class JDemElevationModel extends AbstractBuffer implements ElevationModel
 					ttlRead += 4;
 				}
 				fltValue = ByteConversions.bytesToFloat(buffer4);
-				latitudeBuffer.put(i, fltValue);
+				latitudeBuffer.putFloat(i, fltValue);
 				
 				if ((len = bais.read(buffer4, 0, 4)) != 4) {
 					throw new IOException("Did not read 4 bytes as expected (read: " + len + ", total: " + (ttlRead + len) + ")");
@@ -426,7 +422,7 @@ public class JDemElevationModel extends AbstractBuffer implements ElevationModel
 					ttlRead += 4;
 				}
 				fltValue = ByteConversions.bytesToFloat(buffer4);
-				longitudeBuffer.put(i, fltValue);
+				longitudeBuffer.putFloat(i, fltValue);
 				
 				if ((len = bais.read(buffer4, 0, 4)) != 4) {
 					throw new IOException("Did not read 4 bytes as expected (read: " + len + ", total: " + (ttlRead + len) + ")");
@@ -434,7 +430,7 @@ public class JDemElevationModel extends AbstractBuffer implements ElevationModel
 					ttlRead += 4;
 				}
 				fltValue = ByteConversions.bytesToFloat(buffer4);
-				elevationBuffer.put(i, fltValue);
+				elevationBuffer.putFloat(i, fltValue);
 				
 				maskBuffer[i] = true;
 				ttlRead += 1;
@@ -457,9 +453,9 @@ public class JDemElevationModel extends AbstractBuffer implements ElevationModel
 				//log.info("READ SKIP: " + skipLength);
 				
 				for (int j = i; j < i + skipLength && j < latitudeBuffer.capacity(); j++) {
-					latitudeBuffer.put(j, NO_VALUE);
-					longitudeBuffer.put(j, NO_VALUE);
-					elevationBuffer.put(j, (float) DemConstants.ELEV_NO_DATA);
+					latitudeBuffer.putFloat(j, NO_VALUE);
+					longitudeBuffer.putFloat(j, NO_VALUE);
+					elevationBuffer.putFloat(j, (float) DemConstants.ELEV_NO_DATA);
 					maskBuffer[j] = false;
 				}
 				
@@ -493,21 +489,21 @@ public class JDemElevationModel extends AbstractBuffer implements ElevationModel
 				bufferedOut.write(0x01);
 				
 				if (latitudeBuffer != null) {
-					ByteConversions.floatToBytes(latitudeBuffer.get(i), buffer4);
+					ByteConversions.floatToBytes(latitudeBuffer.getFloat(i), buffer4);
 				} else {
 					ByteConversions.floatToBytes(0.0f, buffer4);
 				}
 				bufferedOut.write(buffer4, 0, 4);
 				
 				if (longitudeBuffer != null) {
-					ByteConversions.floatToBytes(longitudeBuffer.get(i), buffer4);
+					ByteConversions.floatToBytes(longitudeBuffer.getFloat(i), buffer4);
 				} else {
 					ByteConversions.floatToBytes(0.0f, buffer4);
 				}
 				bufferedOut.write(buffer4, 0, 4);
 				
 				if (elevationBuffer != null) {
-					ByteConversions.floatToBytes(elevationBuffer.get(i), buffer4);
+					ByteConversions.floatToBytes(elevationBuffer.getFloat(i), buffer4);
 				} else {
 					ByteConversions.floatToBytes(0.0f, buffer4);
 				}
@@ -1,13 +1,13 @@
 package us.wthr.jdem846;
 
 import java.awt.image.BufferedImage;
-import java.awt.image.WritableRaster;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Map;
 
 import javax.imageio.stream.FileImageOutputStream;
 
+import us.wthr.jdem846.exception.ImageException;
 import us.wthr.jdem846.graphics.ImageCapture;
 import us.wthr.jdem846.image.ImageTypeEnum;
 import us.wthr.jdem846.math.MathExt;
@@ -135,20 +135,7 @@ public class SimpleImageElevationModel implements ElevationModel
 	@Override
 	public BufferedImage getImage()
 	{
-		BufferedImage image = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_ARGB);
-		WritableRaster raster = image.getRaster();
-
-		int[] rgba = new int[4];
-		rgba[3] = 0xFF;
-		
-		for (int y = 0; y < getHeight(); y++) {
-			for (int x = 0; x < getWidth(); x++) {
-				getRgba(x, y, rgba);
-				raster.setPixel(x, y, rgba);
-			}
-		}
-		
-		return image;
+		return imageCapture.getImage();
 	}
 
 	@Override
@@ -167,16 +154,22 @@ public class SimpleImageElevationModel implements ElevationModel
 	@Override
 	public void writeImageData(OutputStream zos,
 			ImageTypeEnum imageTypeFromFormatName) throws IOException {
-		// TODO Auto-generated method stub
-		
+		try {
+			imageCapture.writeImage(zos, imageTypeFromFormatName);
+		} catch (ImageException ex) {
+			throw new IOException("Error writing image to output stream: " + ex.getMessage(), ex);
+		}
 	}
 
 
 	@Override
 	public void writeImageData(FileImageOutputStream zos,
 			ImageTypeEnum imageTypeFromFormatName) throws IOException {
-		// TODO Auto-generated method stub
-		
+		try {
+			imageCapture.writeImage(zos, imageTypeFromFormatName);
+		} catch (ImageException ex) {
+			throw new IOException("Error writing image to output stream: " + ex.getMessage(), ex);
+		}
 	}
 	
 	@Override
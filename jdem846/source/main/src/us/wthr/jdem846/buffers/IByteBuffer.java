@@ -3,5 +3,11 @@ package us.wthr.jdem846.buffers;
 
 public interface IByteBuffer extends IBuffer<Byte>
 {
+	public byte getByte(long index);
+	public void putByte(long index, byte value);
+	
+	public void getBytes(long startIndex, byte[] values, int offset, int count);
 	public void put(byte[] values, long startIndex, int offset, int count);
+	
+	public void fill(long fromIndex, long toIndex, byte value);
 }
@@ -2,5 +2,11 @@ package us.wthr.jdem846.buffers;
 
 public interface IDoubleBuffer extends IBuffer<Double>
 {
+	public double getDouble(long index);
+	public void putDouble(long index, double value);
+	
+	public void getDoubles(long startIndex, double[] values, int offset, int count);
 	public void put(double[] values, long startIndex, int offset, int count);
+	
+	public void fill(long fromIndex, long toIndex, double value);
 }
@@ -2,5 +2,11 @@ package us.wthr.jdem846.buffers;
 
 public interface IFloatBuffer extends IBuffer<Float>
 {
+	public float getFloat(long index);
+	public void putFloat(long index, float value);
+	
+	public void getFloats(long startIndex, float[] values, int offset, int count);
 	public void put(float[] values, long startIndex, int offset, int count);
+	
+	public void fill(long fromIndex, long toIndex, float value);
 }
@@ -2,5 +2,17 @@ package us.wthr.jdem846.buffers;
 
 public interface IIntBuffer extends IBuffer<Integer>
 {
+	public int getInt(long index);
+	public void putInt(long index, int value);
+	
+	public void getInts(long startIndex, int[] values, int offset, int count);
 	public void put(int[] values, long startIndex, int offset, int count);
+	
+	public void fill(long fromIndex, long toIndex, int value);
+	
+	/** Determines if the buffer is held in a heap array which may be used directly, starting
+	 * at the first index of the buffer.
+	 */
+	public boolean hasArray();
+	public int[] array();
 }
@@ -2,5 +2,11 @@ package us.wthr.jdem846.buffers;
 
 public interface ILongBuffer extends IBuffer<Long>
 {
+	public long getLong(long index);
+	public void putLong(long index, long value);
+	
+	public void getLongs(long startIndex, long[] values, int offset, int count);
 	public void put(long[] values, long startIndex, int offset, int count);
+	
+	public void fill(long fromIndex, long toIndex, long value);
 }
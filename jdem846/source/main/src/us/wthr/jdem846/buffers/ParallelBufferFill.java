@@ -0,0 +1,77 @@
+package us.wthr.jdem846.buffers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import us.wthr.jdem846.exception.BufferException;
+
+/** Fills large buffers by dividing the range between threads, each filling its own part
+ * through the buffer's bulk fill. Buffer implementations allow disjoint ranges to be
+ * written concurrently.
+ */
+public class ParallelBufferFill
+{
+	// Below this many elements the cost of starting threads outweighs the fill
+	public static final long MINIMUM_PARALLEL_LENGTH = 1048576;
+
+	public static void fill(IIntBuffer buffer, long fromIndex, long toIndex, int value)
+	{
+		fill(buffer, fromIndex, toIndex, value, Runtime.getRuntime().availableProcessors());
+	}
+
+	public static void fill(final IIntBuffer buffer, long fromIndex, long toIndex, final int value, int threads)
+	{
+		long length = toIndex - fromIndex;
+		if (threads <= 1 || length < MINIMUM_PARALLEL_LENGTH) {
+			buffer.fill(fromIndex, toIndex, value);
+			return;
+		}
+
+		long partLength = (length + threads - 1) / threads;
+
+		List<Callable<Void>> parts = new ArrayList<Callable<Void>>();
+		for (long start = fromIndex; start < toIndex; start += partLength) {
+			final long partStart = start;
+			final long partEnd = Math.min(start + partLength, toIndex);
+			parts.add(new Callable<Void>() {
+				public Void call()
+				{
+					buffer.fill(partStart, partEnd, value);
+					return null;
+				}
+			});
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new BufferFillThreadFactory());
+		try {
+			for (Future<Void> future : executor.invokeAll(parts)) {
+				future.get();
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new BufferException("Interrupted while filling buffer", ex);
+		} catch (ExecutionException ex) {
+			throw new BufferException("Error filling buffer: " + ex.getCause().getMessage(), ex.getCause());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	static class BufferFillThreadFactory implements ThreadFactory
+	{
+		private int threadNumber = 0;
+
+		public synchronized Thread newThread(Runnable runnable)
+		{
+			Thread thread = new Thread(runnable, "ParallelBufferFill #" + (threadNumber++));
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -1,137 +1,240 @@
 package us.wthr.jdem846.buffers.cache;
 
 import us.wthr.jdem846.buffers.IBuffer;
+import us.wthr.jdem846.exception.BufferException;
 import us.wthr.jdem846.logging.Log;
 import us.wthr.jdem846.logging.Logging;
 
-
-public abstract class AbstractTypedMemCachingBuffer<T, B extends IBuffer<T>>
+/** Caches a (typically memory mapped) disk buffer in fixed-size heap pages. Pages
+ * are spread over a number of lock stripes, each of which evicts its least recently
+ * used page on a miss. Dirty pages are written back in bulk on eviction and on flush.
+ *
+ * @param <T> Boxed value type
+ * @param <B> Buffer type
+ * @param <A> Primitive array type holding page data
+ */
+public abstract class AbstractTypedMemCachingBuffer<T, B extends IBuffer<T>, A>
 {
 	private static Log log = Logging.getLog(AbstractTypedMemCachingBuffer.class);
-	
-	private ICacheRangeVisitor cacheRangeVisitor;
-	private CacheRange cacheRange;
-	
-	
-	private boolean isDirty = false;
-	
-	public AbstractTypedMemCachingBuffer(ICacheRangeVisitor cacheRangeVisitor)
-	{
-		this.cacheRangeVisitor = cacheRangeVisitor;
-	}
-	
-	protected abstract B getDiskBuffer();
-	protected abstract B getMemBuffer();
-	
 
-	
-	protected void writeMemBufferToDisk()
+	public final static int DEFAULT_PAGE_SIZE = 65536;
+	public final static int DEFAULT_PAGE_COUNT = 64;
+	public final static int DEFAULT_STRIPE_COUNT = 8;
+
+	private final long capacity;
+	private final int pageSize;
+	private final CacheStripe<A>[] stripes;
+
+	@SuppressWarnings("unchecked")
+	public AbstractTypedMemCachingBuffer(long capacity, int pageSize, int pageCount, int stripeCount)
 	{
-		if (cacheRange == null || isDirty == false) {
-			return;
+		if (pageSize <= 0 || pageCount <= 0 || stripeCount <= 0) {
+			throw new BufferException("Invalid cache configuration: page size " + pageSize + ", page count " + pageCount + ", stripe count " + stripeCount);
 		}
-		
-		log.info("Writing cache to index " + cacheRange.getStartIndex() + " to index " + cacheRange.getEndIndex());
-		for (int i = 0; i < cacheRange.getLength(); i++) {
-			T value = getMemBuffer().get(i);
-			getDiskBuffer().put(cacheRange.getStartIndex() + i, value);
+
+		stripeCount = Math.min(stripeCount, pageCount);
+
+		this.capacity = capacity;
+		this.pageSize = pageSize;
+		this.stripes = (CacheStripe<A>[]) new CacheStripe<?>[stripeCount];
+
+		for (int i = 0; i < stripeCount; i++) {
+			int stripePages = (pageCount / stripeCount) + ((i < pageCount % stripeCount) ? 1 : 0);
+			stripes[i] = new CacheStripe<A>(stripePages);
 		}
-		
-	}
-	
-	protected int diskCacheBufferIndexToMemBufferIndex(long diskBufferIndex)
-	{
-		int memBufferIndex = (int) (diskBufferIndex - cacheRange.getStartIndex());
-		return memBufferIndex;
-	}
-	
-	protected int getMemBufferIndex(long diskBufferIndex)
-	{
-		
-		if (cacheRange == null || diskBufferIndex < cacheRange.getStartIndex() || diskBufferIndex > cacheRange.getEndIndex()) {
-			
-			writeMemBufferToDisk();
-			
-			cacheRange = this.cacheRangeVisitor.getCacheRange(diskBufferIndex);
-			if (cacheRange != null) {
-				log.info("Loading cache from index " + cacheRange.getStartIndex() + " to index " + cacheRange.getEndIndex());
-				
-				for (long i = cacheRange.getStartIndex(); i < cacheRange.getEndIndex(); i++) {
-
-					int memBufferIndex = diskCacheBufferIndexToMemBufferIndex(i);
-					T b = getDiskBuffer().get(i);
-					getMemBuffer().put(memBufferIndex, b);
-					
-				}
-				
-				isDirty = false;
+	}
+
+	protected abstract B getDiskBuffer();
+
+	protected abstract A allocatePage(int pageSize);
+	protected abstract void readPage(long startIndex, A page, int length);
+	protected abstract void writePage(long startIndex, A page, int length);
+
+
+	protected long getPageNumber(long index)
+	{
+		if (index < 0 || index >= capacity) {
+			throw new BufferException("Index out of bounds: " + index + " (capacity is " + capacity + ")");
+		}
+		return index / pageSize;
+	}
+
+	protected CacheStripe<A> getStripe(long pageNumber)
+	{
+		return stripes[(int) (pageNumber % stripes.length)];
+	}
+
+	/** Fetches the requested page, loading it if needed. The caller must hold the
+	 * lock on the stripe.
+	 */
+	protected CachePage<A> getPage(CacheStripe<A> stripe, long pageNumber)
+	{
+		CachePage<A> victim = null;
+		for (CachePage<A> page : stripe.pages) {
+			if (page.pageNumber == pageNumber) {
+				stripe.hits++;
+				page.lastUsed = ++stripe.tick;
+				return page;
 			}
+
+			if (victim == null || page.lastUsed < victim.lastUsed) {
+				victim = page;
+			}
+		}
+
+		stripe.misses++;
+		if (!victim.isEmpty()) {
+			stripe.evictions++;
+			writeBack(victim);
 		}
-		
-		
-		if (cacheRange != null && diskBufferIndex >= cacheRange.getStartIndex() && diskBufferIndex <= cacheRange.getEndIndex()) {
-			return diskCacheBufferIndexToMemBufferIndex(diskBufferIndex);
-		} else {
-			return -1;
+
+		if (victim.data == null) {
+			victim.data = allocatePage(pageSize);
 		}
+
+		victim.pageNumber = pageNumber;
+		victim.startIndex = pageNumber * pageSize;
+		victim.length = (int) Math.min(pageSize, capacity - victim.startIndex);
+		victim.dirty = false;
+		victim.lastUsed = ++stripe.tick;
+
+		readPage(victim.startIndex, victim.data, victim.length);
+
+		return victim;
 	}
-	
-	
 
-	public void close()
+	protected void writeBack(CachePage<A> page)
 	{
-		getDiskBuffer().close();
-		getMemBuffer().close();
+		if (page.dirty) {
+			writePage(page.startIndex, page.data, page.length);
+			page.dirty = false;
+		}
 	}
 
+	protected void copyFromCache(long startIndex, A values, int offset, int count)
+	{
+		while (count > 0) {
+			long pageNumber = getPageNumber(startIndex);
+			CacheStripe<A> stripe = getStripe(pageNumber);
+			int length;
+
+			synchronized (stripe) {
+				CachePage<A> page = getPage(stripe, pageNumber);
+				int indexWithinPage = (int) (startIndex - page.startIndex);
+				length = Math.min(count, page.length - indexWithinPage);
+				System.arraycopy(page.data, indexWithinPage, values, offset, length);
+			}
 
-	public boolean isOpen()
+			startIndex += length;
+			offset += length;
+			count -= length;
+		}
+	}
+
+	protected void copyToCache(A values, long startIndex, int offset, int count)
 	{
-		return getDiskBuffer().isOpen();
+		while (count > 0) {
+			long pageNumber = getPageNumber(startIndex);
+			CacheStripe<A> stripe = getStripe(pageNumber);
+			int length;
+
+			synchronized (stripe) {
+				CachePage<A> page = getPage(stripe, pageNumber);
+				int indexWithinPage = (int) (startIndex - page.startIndex);
+				length = Math.min(count, page.length - indexWithinPage);
+				System.arraycopy(values, offset, page.data, indexWithinPage, length);
+				page.dirty = true;
+			}
+
+			startIndex += length;
+			offset += length;
+			count -= length;
+		}
 	}
 
+	protected int getPageSize()
+	{
+		return pageSize;
+	}
 
-	public T get(long index)
+	/** Writes all dirty pages back to the disk buffer.
+	 */
+	public void flush()
 	{
-		int memBufferIndex = getMemBufferIndex(index);
-		return getMemBuffer().get(memBufferIndex);
+		for (CacheStripe<A> stripe : stripes) {
+			synchronized (stripe) {
+				for (CachePage<A> page : stripe.pages) {
+					if (!page.isEmpty()) {
+						writeBack(page);
+					}
+				}
+			}
+		}
 	}
 
-	
-	public void put(long index, T value)
+	public long getHits()
 	{
-		int memBufferIndex = getMemBufferIndex(index);
-		getMemBuffer().put(memBufferIndex, value);
-		isDirty = true;
-		//getDiskBuffer().put(index, value);
+		long hits = 0;
+		for (CacheStripe<A> stripe : stripes) {
+			synchronized (stripe) {
+				hits += stripe.hits;
+			}
+		}
+		return hits;
 	}
 
-	
-	public void put(T[] values, long startIndex, int offset, int count)
+	public long getMisses()
 	{
-		for (int i = 0; i < count; i++) {
-			put(startIndex + i, values[offset + i]);
+		long misses = 0;
+		for (CacheStripe<A> stripe : stripes) {
+			synchronized (stripe) {
+				misses += stripe.misses;
+			}
 		}
+		return misses;
 	}
-	
 
-	
+	public long getEvictions()
+	{
+		long evictions = 0;
+		for (CacheStripe<A> stripe : stripes) {
+			synchronized (stripe) {
+				evictions += stripe.evictions;
+			}
+		}
+		return evictions;
+	}
+
+
+	public void close()
+	{
+		flush();
+		log.info("Closing cached buffer: " + getHits() + " hits, " + getMisses() + " misses, " + getEvictions() + " evictions");
+		getDiskBuffer().close();
+	}
+
+
+	public boolean isOpen()
+	{
+		return getDiskBuffer().isOpen();
+	}
+
+
 	public long capacity()
 	{
-		return getDiskBuffer().capacity();
+		return capacity;
 	}
 
-	
+
 	public long capacityBytes()
 	{
 		return getDiskBuffer().capacityBytes();
 	}
 
-	
+
 	public void dispose()
 	{
 		getDiskBuffer().dispose();
-		getMemBuffer().dispose();
 	}
 
 
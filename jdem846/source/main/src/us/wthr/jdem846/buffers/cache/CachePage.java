@@ -0,0 +1,22 @@
+package us.wthr.jdem846.buffers.cache;
+
+/** A single fixed-size page held in memory by a caching buffer.
+ * 
+ * @param <A> Primitive array type holding the page data
+ */
+class CachePage<A>
+{
+	long pageNumber = -1;
+	long startIndex = 0;
+	int length = 0;
+	
+	A data = null;
+	
+	boolean dirty = false;
+	long lastUsed = 0;
+	
+	public boolean isEmpty()
+	{
+		return (pageNumber < 0);
+	}
+}
@@ -0,0 +1,27 @@
+package us.wthr.jdem846.buffers.cache;
+
+/** A group of cache pages guarded by a single lock. Pages are assigned to a stripe
+ * by their page number so that threads working on different regions of a buffer
+ * rarely contend.
+ * 
+ * @param <A> Primitive array type holding the page data
+ */
+class CacheStripe<A>
+{
+	final CachePage<A>[] pages;
+	
+	long tick = 0;
+	
+	long hits = 0;
+	long misses = 0;
+	long evictions = 0;
+	
+	@SuppressWarnings("unchecked")
+	public CacheStripe(int pageCount)
+	{
+		pages = (CachePage<A>[]) new CachePage<?>[pageCount];
+		for (int i = 0; i < pageCount; i++) {
+			pages[i] = new CachePage<A>();
+		}
+	}
+}
@@ -1,5 +0,0 @@
-package us.wthr.jdem846.buffers.cache;
-
-public interface ICacheRangeVisitor {
-	public CacheRange getCacheRange(long targetIndex);
-}
@@ -1,45 +1,103 @@
 package us.wthr.jdem846.buffers.cache;
 
+import java.util.Arrays;
+
 import us.wthr.jdem846.buffers.IByteBuffer;
 import us.wthr.jdem846.buffers.impl.HighCapacityMappedByteBuffer;
-import us.wthr.jdem846.buffers.impl.StandardCapacityByteBuffer;
-
 
-public class MemCachingByteBuffer extends AbstractTypedMemCachingBuffer<Byte, IByteBuffer> implements IByteBuffer
+public class MemCachingByteBuffer extends AbstractTypedMemCachingBuffer<Byte, IByteBuffer, byte[]> implements IByteBuffer
 {
 	
-	private ICacheRangeVisitor cacheRangeVisitor;
+	private IByteBuffer diskBuffer;
 	
-	private HighCapacityMappedByteBuffer diskBuffer;
-	private StandardCapacityByteBuffer memBuffer;
+	public MemCachingByteBuffer(long bufferCapacity)
+	{
+		this(bufferCapacity, DEFAULT_PAGE_SIZE, DEFAULT_PAGE_COUNT);
+	}
 	
-	public MemCachingByteBuffer(long bufferCapacity, int cacheCapacity, ICacheRangeVisitor cacheRangeVisitor)
+	public MemCachingByteBuffer(long bufferCapacity, int pageSize, int pageCount)
 	{
-		super(cacheRangeVisitor);
-		this.diskBuffer = new HighCapacityMappedByteBuffer(bufferCapacity);
-		this.memBuffer = new StandardCapacityByteBuffer(cacheCapacity);
+		this(new HighCapacityMappedByteBuffer(bufferCapacity), pageSize, pageCount, DEFAULT_STRIPE_COUNT);
 	}
 	
-	protected MemCachingByteBuffer(HighCapacityMappedByteBuffer diskBuffer, StandardCapacityByteBuffer memBuffer, ICacheRangeVisitor cacheRangeVisitor)
+	public MemCachingByteBuffer(IByteBuffer diskBuffer, int pageSize, int pageCount, int stripeCount)
 	{
-		super(cacheRangeVisitor);
+		super(diskBuffer.capacity(), pageSize, pageCount, stripeCount);
 		this.diskBuffer = diskBuffer;
-		this.memBuffer = memBuffer;
 	}
 	
+	/** Returns this buffer. The pages are shared and access to them is synchronized,
+	 * so a copy would only add a second cache over the same disk buffer.
+	 */
 	@Override
 	public MemCachingByteBuffer duplicate()
 	{
-		return new MemCachingByteBuffer( (HighCapacityMappedByteBuffer) getDiskBuffer().duplicate()
-										, (StandardCapacityByteBuffer) getMemBuffer().duplicate()
-										, cacheRangeVisitor);
+		return this;
+	}
+	
+	@Override
+	public Byte get(long index)
+	{
+		return getByte(index);
+	}
+	
+	@Override
+	public void put(long index, Byte value)
+	{
+		putByte(index, value);
 	}
 
+	@Override
+	public byte getByte(long index)
+	{
+		long pageNumber = getPageNumber(index);
+		CacheStripe<byte[]> stripe = getStripe(pageNumber);
+		synchronized (stripe) {
+			CachePage<byte[]> page = getPage(stripe, pageNumber);
+			return page.data[(int) (index - page.startIndex)];
+		}
+	}
+	
+	@Override
+	public void putByte(long index, byte value)
+	{
+		long pageNumber = getPageNumber(index);
+		CacheStripe<byte[]> stripe = getStripe(pageNumber);
+		synchronized (stripe) {
+			CachePage<byte[]> page = getPage(stripe, pageNumber);
+			page.data[(int) (index - page.startIndex)] = value;
+			page.dirty = true;
+		}
+	}
+	
+	@Override
+	public void getBytes(long startIndex, byte[] values, int offset, int count)
+	{
+		copyFromCache(startIndex, values, offset, count);
+	}
+	
 	@Override
 	public void put(byte[] values, long startIndex, int offset, int count)
+	{
+		copyToCache(values, startIndex, offset, count);
+	}
+	
+	@Override
+	public void put(Byte[] values, long startIndex, int offset, int count)
 	{
 		for (int i = 0; i < count; i++) {
-			put(startIndex + i, values[offset + i]);
+			putByte(startIndex + i, values[offset + i]);
+		}
+	}
+	
+	@Override
+	public void fill(long fromIndex, long toIndex, byte value)
+	{
+		byte[] block = new byte[(int) Math.min(toIndex - fromIndex, getPageSize())];
+		Arrays.fill(block, value);
+		
+		for (long i = fromIndex; i < toIndex; i += block.length) {
+			copyToCache(block, i, 0, (int) Math.min(block.length, toIndex - i));
 		}
 	}
 
@@ -50,11 +108,21 @@ public class MemCachingByteBuffer extends AbstractTypedMemCachingBuffer<Byte, IB
 	}
 
 	@Override
-	protected IByteBuffer getMemBuffer()
+	protected byte[] allocatePage(int pageSize)
 	{
-		return memBuffer;
+		return new byte[pageSize];
 	}
 
-	
+	@Override
+	protected void readPage(long startIndex, byte[] page, int length)
+	{
+		diskBuffer.getBytes(startIndex, page, 0, length);
+	}
+
+	@Override
+	protected void writePage(long startIndex, byte[] page, int length)
+	{
+		diskBuffer.put(page, startIndex, 0, length);
+	}
 
 }
@@ -1,45 +1,103 @@
 package us.wthr.jdem846.buffers.cache;
 
+import java.util.Arrays;
+
 import us.wthr.jdem846.buffers.IDoubleBuffer;
 import us.wthr.jdem846.buffers.impl.HighCapacityMappedDoubleBuffer;
-import us.wthr.jdem846.buffers.impl.StandardCapacityDoubleBuffer;
-
 
-public class MemCachingDoubleBuffer extends AbstractTypedMemCachingBuffer<Double, IDoubleBuffer> implements IDoubleBuffer
+public class MemCachingDoubleBuffer extends AbstractTypedMemCachingBuffer<Double, IDoubleBuffer, double[]> implements IDoubleBuffer
 {
 	
-	private ICacheRangeVisitor cacheRangeVisitor;
+	private IDoubleBuffer diskBuffer;
 	
-	private HighCapacityMappedDoubleBuffer diskBuffer;
-	private StandardCapacityDoubleBuffer memBuffer;
+	public MemCachingDoubleBuffer(long bufferCapacity)
+	{
+		this(bufferCapacity, DEFAULT_PAGE_SIZE, DEFAULT_PAGE_COUNT);
+	}
 	
-	public MemCachingDoubleBuffer(long bufferCapacity, int cacheCapacity, ICacheRangeVisitor cacheRangeVisitor)
+	public MemCachingDoubleBuffer(long bufferCapacity, int pageSize, int pageCount)
 	{
-		super(cacheRangeVisitor);
-		this.diskBuffer = new HighCapacityMappedDoubleBuffer(bufferCapacity);
-		this.memBuffer = new StandardCapacityDoubleBuffer(cacheCapacity);
+		this(new HighCapacityMappedDoubleBuffer(bufferCapacity), pageSize, pageCount, DEFAULT_STRIPE_COUNT);
 	}
 	
-	protected MemCachingDoubleBuffer(HighCapacityMappedDoubleBuffer diskBuffer, StandardCapacityDoubleBuffer memBuffer, ICacheRangeVisitor cacheRangeVisitor)
+	public MemCachingDoubleBuffer(IDoubleBuffer diskBuffer, int pageSize, int pageCount, int stripeCount)
 	{
-		super(cacheRangeVisitor);
+		super(diskBuffer.capacity(), pageSize, pageCount, stripeCount);
 		this.diskBuffer = diskBuffer;
-		this.memBuffer = memBuffer;
 	}
 	
+	/** Returns this buffer. The pages are shared and access to them is synchronized,
+	 * so a copy would only add a second cache over the same disk buffer.
+	 */
 	@Override
 	public MemCachingDoubleBuffer duplicate()
 	{
-		return new MemCachingDoubleBuffer( (HighCapacityMappedDoubleBuffer) getDiskBuffer().duplicate()
-										, (StandardCapacityDoubleBuffer) getMemBuffer().duplicate()
-										, cacheRangeVisitor);
+		return this;
+	}
+	
+	@Override
+	public Double get(long index)
+	{
+		return getDouble(index);
+	}
+	
+	@Override
+	public void put(long index, Double value)
+	{
+		putDouble(index, value);
 	}
 
+	@Override
+	public double getDouble(long index)
+	{
+		long pageNumber = getPageNumber(index);
+		CacheStripe<double[]> stripe = getStripe(pageNumber);
+		synchronized (stripe) {
+			CachePage<double[]> page = getPage(stripe, pageNumber);
+			return page.data[(int) (index - page.startIndex)];
+		}
+	}
+	
+	@Override
+	public void putDouble(long index, double value)
+	{
+		long pageNumber = getPageNumber(index);
+		CacheStripe<double[]> stripe = getStripe(pageNumber);
+		synchronized (stripe) {
+			CachePage<double[]> page = getPage(stripe, pageNumber);
+			page.data[(int) (index - page.startIndex)] = value;
+			page.dirty = true;
+		}
+	}
+	
+	@Override
+	public void getDoubles(long startIndex, double[] values, int offset, int count)
+	{
+		copyFromCache(startIndex, values, offset, count);
+	}
+	
 	@Override
 	public void put(double[] values, long startIndex, int offset, int count)
+	{
+		copyToCache(values, startIndex, offset, count);
+	}
+	
+	@Override
+	public void put(Double[] values, long startIndex, int offset, int count)
 	{
 		for (int i = 0; i < count; i++) {
-			put(startIndex + i, values[offset + i]);
+			putDouble(startIndex + i, values[offset + i]);
+		}
+	}
+	
+	@Override
+	public void fill(long fromIndex, long toIndex, double value)
+	{
+		double[] block = new double[(int) Math.min(toIndex - fromIndex, getPageSize())];
+		Arrays.fill(block, value);
+		
+		for (long i = fromIndex; i < toIndex; i += block.length) {
+			copyToCache(block, i, 0, (int) Math.min(block.length, toIndex - i));
 		}
 	}
 
@@ -50,12 +108,21 @@ public class MemCachingDoubleBuffer extends AbstractTypedMemCachingBuffer<Double
 	}
 
 	@Override
-	protected IDoubleBuffer getMemBuffer()
+	protected double[] allocatePage(int pageSize)
 	{
-		return memBuffer;
+		return new double[pageSize];
 	}
 
-	
-	
+	@Override
+	protected void readPage(long startIndex, double[] page, int length)
+	{
+		diskBuffer.getDoubles(startIndex, page, 0, length);
+	}
+
+	@Override
+	protected void writePage(long startIndex, double[] page, int length)
+	{
+		diskBuffer.put(page, startIndex, 0, length);
+	}
 
-}
\ No newline at end of file
+}
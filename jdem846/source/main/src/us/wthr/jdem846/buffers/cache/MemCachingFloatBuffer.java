@@ -1,44 +1,103 @@
 package us.wthr.jdem846.buffers.cache;
 
+import java.util.Arrays;
+
 import us.wthr.jdem846.buffers.IFloatBuffer;
 import us.wthr.jdem846.buffers.impl.HighCapacityMappedFloatBuffer;
-import us.wthr.jdem846.buffers.impl.StandardCapacityFloatBuffer;
 
-public class MemCachingFloatBuffer extends AbstractTypedMemCachingBuffer<Float, IFloatBuffer> implements IFloatBuffer
+public class MemCachingFloatBuffer extends AbstractTypedMemCachingBuffer<Float, IFloatBuffer, float[]> implements IFloatBuffer
 {
 	
-	private ICacheRangeVisitor cacheRangeVisitor;
+	private IFloatBuffer diskBuffer;
 	
-	private HighCapacityMappedFloatBuffer diskBuffer;
-	private StandardCapacityFloatBuffer memBuffer;
+	public MemCachingFloatBuffer(long bufferCapacity)
+	{
+		this(bufferCapacity, DEFAULT_PAGE_SIZE, DEFAULT_PAGE_COUNT);
+	}
 	
-	public MemCachingFloatBuffer(long bufferCapacity, int cacheCapacity, ICacheRangeVisitor cacheRangeVisitor)
+	public MemCachingFloatBuffer(long bufferCapacity, int pageSize, int pageCount)
 	{
-		super(cacheRangeVisitor);
-		this.diskBuffer = new HighCapacityMappedFloatBuffer(bufferCapacity);
-		this.memBuffer = new StandardCapacityFloatBuffer(cacheCapacity);
+		this(new HighCapacityMappedFloatBuffer(bufferCapacity), pageSize, pageCount, DEFAULT_STRIPE_COUNT);
 	}
 	
-	protected MemCachingFloatBuffer(HighCapacityMappedFloatBuffer diskBuffer, StandardCapacityFloatBuffer memBuffer, ICacheRangeVisitor cacheRangeVisitor)
+	public MemCachingFloatBuffer(IFloatBuffer diskBuffer, int pageSize, int pageCount, int stripeCount)
 	{
-		super(cacheRangeVisitor);
+		super(diskBuffer.capacity(), pageSize, pageCount, stripeCount);
 		this.diskBuffer = diskBuffer;
-		this.memBuffer = memBuffer;
 	}
 	
+	/** Returns this buffer. The pages are shared and access to them is synchronized,
+	 * so a copy would only add a second cache over the same disk buffer.
+	 */
 	@Override
 	public MemCachingFloatBuffer duplicate()
 	{
-		return new MemCachingFloatBuffer( (HighCapacityMappedFloatBuffer) getDiskBuffer().duplicate()
-										, (StandardCapacityFloatBuffer) getMemBuffer().duplicate()
-										, cacheRangeVisitor);
+		return this;
+	}
+	
+	@Override
+	public Float get(long index)
+	{
+		return getFloat(index);
+	}
+	
+	@Override
+	public void put(long index, Float value)
+	{
+		putFloat(index, value);
 	}
 
+	@Override
+	public float getFloat(long index)
+	{
+		long pageNumber = getPageNumber(index);
+		CacheStripe<float[]> stripe = getStripe(pageNumber);
+		synchronized (stripe) {
+			CachePage<float[]> page = getPage(stripe, pageNumber);
+			return page.data[(int) (index - page.startIndex)];
+		}
+	}
+	
+	@Override
+	public void putFloat(long index, float value)
+	{
+		long pageNumber = getPageNumber(index);
+		CacheStripe<float[]> stripe = getStripe(pageNumber);
+		synchronized (stripe) {
+			CachePage<float[]> page = getPage(stripe, pageNumber);
+			page.data[(int) (index - page.startIndex)] = value;
+			page.dirty = true;
+		}
+	}
+	
+	@Override
+	public void getFloats(long startIndex, float[] values, int offset, int count)
+	{
+		copyFromCache(startIndex, values, offset, count);
+	}
+	
 	@Override
 	public void put(float[] values, long startIndex, int offset, int count)
+	{
+		copyToCache(values, startIndex, offset, count);
+	}
+	
+	@Override
+	public void put(Float[] values, long startIndex, int offset, int count)
 	{
 		for (int i = 0; i < count; i++) {
-			put(startIndex + i, values[offset + i]);
+			putFloat(startIndex + i, values[offset + i]);
+		}
+	}
+	
+	@Override
+	public void fill(long fromIndex, long toIndex, float value)
+	{
+		float[] block = new float[(int) Math.min(toIndex - fromIndex, getPageSize())];
+		Arrays.fill(block, value);
+		
+		for (long i = fromIndex; i < toIndex; i += block.length) {
+			copyToCache(block, i, 0, (int) Math.min(block.length, toIndex - i));
 		}
 	}
 
@@ -49,12 +108,21 @@ public class MemCachingFloatBuffer extends AbstractTypedMemCachingBuffer<Float,
 	}
 
 	@Override
-	protected IFloatBuffer getMemBuffer()
+	protected float[] allocatePage(int pageSize)
 	{
-		return memBuffer;
+		return new float[pageSize];
 	}
 
-	
-	
+	@Override
+	protected void readPage(long startIndex, float[] page, int length)
+	{
+		diskBuffer.getFloats(startIndex, page, 0, length);
+	}
+
+	@Override
+	protected void writePage(long startIndex, float[] page, int length)
+	{
+		diskBuffer.put(page, startIndex, 0, length);
+	}
 
-}
\ No newline at end of file
+}
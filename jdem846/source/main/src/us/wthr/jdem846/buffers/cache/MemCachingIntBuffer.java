@@ -1,47 +1,119 @@
 package us.wthr.jdem846.buffers.cache;
 
+import java.util.Arrays;
+
 import us.wthr.jdem846.buffers.IIntBuffer;
 import us.wthr.jdem846.buffers.impl.HighCapacityMappedIntBuffer;
-import us.wthr.jdem846.buffers.impl.StandardCapacityIntBuffer;
+import us.wthr.jdem846.exception.BufferException;
 
-public class MemCachingIntBuffer extends AbstractTypedMemCachingBuffer<Integer, IIntBuffer> implements IIntBuffer
+public class MemCachingIntBuffer extends AbstractTypedMemCachingBuffer<Integer, IIntBuffer, int[]> implements IIntBuffer
 {
 	
-	private ICacheRangeVisitor cacheRangeVisitor;
+	private IIntBuffer diskBuffer;
 	
-	private HighCapacityMappedIntBuffer diskBuffer;
-	private StandardCapacityIntBuffer memBuffer;
+	public MemCachingIntBuffer(long bufferCapacity)
+	{
+		this(bufferCapacity, DEFAULT_PAGE_SIZE, DEFAULT_PAGE_COUNT);
+	}
 	
-	public MemCachingIntBuffer(long bufferCapacity, int cacheCapacity, ICacheRangeVisitor cacheRangeVisitor)
+	public MemCachingIntBuffer(long bufferCapacity, int pageSize, int pageCount)
 	{
-		super(cacheRangeVisitor);
-		this.diskBuffer = new HighCapacityMappedIntBuffer(bufferCapacity);
-		this.memBuffer = new StandardCapacityIntBuffer(cacheCapacity);
+		this(new HighCapacityMappedIntBuffer(bufferCapacity), pageSize, pageCount, DEFAULT_STRIPE_COUNT);
 	}
 	
-	protected MemCachingIntBuffer(HighCapacityMappedIntBuffer diskBuffer, StandardCapacityIntBuffer memBuffer, ICacheRangeVisitor cacheRangeVisitor)
+	public MemCachingIntBuffer(IIntBuffer diskBuffer, int pageSize, int pageCount, int stripeCount)
 	{
-		super(cacheRangeVisitor);
+		super(diskBuffer.capacity(), pageSize, pageCount, stripeCount);
 		this.diskBuffer = diskBuffer;
-		this.memBuffer = memBuffer;
 	}
 	
+	/** Returns this buffer. The pages are shared and access to them is synchronized,
+	 * so a copy would only add a second cache over the same disk buffer.
+	 */
 	@Override
 	public MemCachingIntBuffer duplicate()
 	{
-		return new MemCachingIntBuffer( (HighCapacityMappedIntBuffer) getDiskBuffer().duplicate()
-										, (StandardCapacityIntBuffer) getMemBuffer().duplicate()
-										, cacheRangeVisitor);
+		return this;
+	}
+	
+	@Override
+	public Integer get(long index)
+	{
+		return getInt(index);
+	}
+	
+	@Override
+	public void put(long index, Integer value)
+	{
+		putInt(index, value);
 	}
 
+	@Override
+	public int getInt(long index)
+	{
+		long pageNumber = getPageNumber(index);
+		CacheStripe<int[]> stripe = getStripe(pageNumber);
+		synchronized (stripe) {
+			CachePage<int[]> page = getPage(stripe, pageNumber);
+			return page.data[(int) (index - page.startIndex)];
+		}
+	}
+	
+	@Override
+	public void putInt(long index, int value)
+	{
+		long pageNumber = getPageNumber(index);
+		CacheStripe<int[]> stripe = getStripe(pageNumber);
+		synchronized (stripe) {
+			CachePage<int[]> page = getPage(stripe, pageNumber);
+			page.data[(int) (index - page.startIndex)] = value;
+			page.dirty = true;
+		}
+	}
+	
+	@Override
+	public void getInts(long startIndex, int[] values, int offset, int count)
+	{
+		copyFromCache(startIndex, values, offset, count);
+	}
+	
 	@Override
 	public void put(int[] values, long startIndex, int offset, int count)
+	{
+		copyToCache(values, startIndex, offset, count);
+	}
+	
+	@Override
+	public void put(Integer[] values, long startIndex, int offset, int count)
 	{
 		for (int i = 0; i < count; i++) {
-			put(startIndex + i, values[offset + i]);
+			putInt(startIndex + i, values[offset + i]);
+		}
+	}
+	
+	@Override
+	public void fill(long fromIndex, long toIndex, int value)
+	{
+		int[] block = new int[(int) Math.min(toIndex - fromIndex, getPageSize())];
+		Arrays.fill(block, value);
+		
+		for (long i = fromIndex; i < toIndex; i += block.length) {
+			copyToCache(block, i, 0, (int) Math.min(block.length, toIndex - i));
 		}
 	}
 
+	@Override
+	public boolean hasArray()
+	{
+		return false;
+	}
+	
+	@Override
+	public int[] array()
+	{
+		throw new BufferException("Buffer is not backed by an array");
+	}
+
 	@Override
 	protected IIntBuffer getDiskBuffer()
 	{
@@ -49,12 +121,21 @@ public class MemCachingIntBuffer extends AbstractTypedMemCachingBuffer<Integer,
 	}
 
 	@Override
-	protected IIntBuffer getMemBuffer()
+	protected int[] allocatePage(int pageSize)
 	{
-		return memBuffer;
+		return new int[pageSize];
 	}
 
-	
-	
+	@Override
+	protected void readPage(long startIndex, int[] page, int length)
+	{
+		diskBuffer.getInts(startIndex, page, 0, length);
+	}
+
+	@Override
+	protected void writePage(long startIndex, int[] page, int length)
+	{
+		diskBuffer.put(page, startIndex, 0, length);
+	}
 
 }
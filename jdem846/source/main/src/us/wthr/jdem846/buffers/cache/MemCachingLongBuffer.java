@@ -1,45 +1,103 @@
 package us.wthr.jdem846.buffers.cache;
 
+import java.util.Arrays;
+
 import us.wthr.jdem846.buffers.ILongBuffer;
 import us.wthr.jdem846.buffers.impl.HighCapacityMappedLongBuffer;
-import us.wthr.jdem846.buffers.impl.StandardCapacityLongBuffer;
-
 
-public class MemCachingLongBuffer extends AbstractTypedMemCachingBuffer<Long, ILongBuffer> implements ILongBuffer
+public class MemCachingLongBuffer extends AbstractTypedMemCachingBuffer<Long, ILongBuffer, long[]> implements ILongBuffer
 {
 	
-	private ICacheRangeVisitor cacheRangeVisitor;
+	private ILongBuffer diskBuffer;
 	
-	private HighCapacityMappedLongBuffer diskBuffer;
-	private StandardCapacityLongBuffer memBuffer;
+	public MemCachingLongBuffer(long bufferCapacity)
+	{
+		this(bufferCapacity, DEFAULT_PAGE_SIZE, DEFAULT_PAGE_COUNT);
+	}
 	
-	public MemCachingLongBuffer(long bufferCapacity, int cacheCapacity, ICacheRangeVisitor cacheRangeVisitor)
+	public MemCachingLongBuffer(long bufferCapacity, int pageSize, int pageCount)
 	{
-		super(cacheRangeVisitor);
-		this.diskBuffer = new HighCapacityMappedLongBuffer(bufferCapacity);
-		this.memBuffer = new StandardCapacityLongBuffer(cacheCapacity);
+		this(new HighCapacityMappedLongBuffer(bufferCapacity), pageSize, pageCount, DEFAULT_STRIPE_COUNT);
 	}
 	
-	protected MemCachingLongBuffer(HighCapacityMappedLongBuffer diskBuffer, StandardCapacityLongBuffer memBuffer, ICacheRangeVisitor cacheRangeVisitor)
+	public MemCachingLongBuffer(ILongBuffer diskBuffer, int pageSize, int pageCount, int stripeCount)
 	{
-		super(cacheRangeVisitor);
+		super(diskBuffer.capacity(), pageSize, pageCount, stripeCount);
 		this.diskBuffer = diskBuffer;
-		this.memBuffer = memBuffer;
 	}
 	
+	/** Returns this buffer. The pages are shared and access to them is synchronized,
+	 * so a copy would only add a second cache over the same disk buffer.
+	 */
 	@Override
 	public MemCachingLongBuffer duplicate()
 	{
-		return new MemCachingLongBuffer( (HighCapacityMappedLongBuffer) getDiskBuffer().duplicate()
-										, (StandardCapacityLongBuffer) getMemBuffer().duplicate()
-										, cacheRangeVisitor);
+		return this;
+	}
+	
+	@Override
+	public Long get(long index)
+	{
+		return getLong(index);
+	}
+	
+	@Override
+	public void put(long index, Long value)
+	{
+		putLong(index, value);
 	}
 
+	@Override
+	public long getLong(long index)
+	{
+		long pageNumber = getPageNumber(index);
+		CacheStripe<long[]> stripe = getStripe(pageNumber);
+		synchronized (stripe) {
+			CachePage<long[]> page = getPage(stripe, pageNumber);
+			return page.data[(int) (index - page.startIndex)];
+		}
+	}
+	
+	@Override
+	public void putLong(long index, long value)
+	{
+		long pageNumber = getPageNumber(index);
+		CacheStripe<long[]> stripe = getStripe(pageNumber);
+		synchronized (stripe) {
+			CachePage<long[]> page = getPage(stripe, pageNumber);
+			page.data[(int) (index - page.startIndex)] = value;
+			page.dirty = true;
+		}
+	}
+	
+	@Override
+	public void getLongs(long startIndex, long[] values, int offset, int count)
+	{
+		copyFromCache(startIndex, values, offset, count);
+	}
+	
 	@Override
 	public void put(long[] values, long startIndex, int offset, int count)
+	{
+		copyToCache(values, startIndex, offset, count);
+	}
+	
+	@Override
+	public void put(Long[] values, long startIndex, int offset, int count)
 	{
 		for (int i = 0; i < count; i++) {
-			put(startIndex + i, values[offset + i]);
+			putLong(startIndex + i, values[offset + i]);
+		}
+	}
+	
+	@Override
+	public void fill(long fromIndex, long toIndex, long value)
+	{
+		long[] block = new long[(int) Math.min(toIndex - fromIndex, getPageSize())];
+		Arrays.fill(block, value);
+		
+		for (long i = fromIndex; i < toIndex; i += block.length) {
+			copyToCache(block, i, 0, (int) Math.min(block.length, toIndex - i));
 		}
 	}
 
@@ -50,12 +108,21 @@ public class MemCachingLongBuffer extends AbstractTypedMemCachingBuffer<Long, IL
 	}
 
 	@Override
-	protected ILongBuffer getMemBuffer()
+	protected long[] allocatePage(int pageSize)
 	{
-		return memBuffer;
+		return new long[pageSize];
 	}
 
-	
-	
+	@Override
+	protected void readPage(long startIndex, long[] page, int length)
+	{
+		diskBuffer.getLongs(startIndex, page, 0, length);
+	}
+
+	@Override
+	protected void writePage(long startIndex, long[] page, int length)
+	{
+		diskBuffer.put(page, startIndex, 0, length);
+	}
 
-}
\ No newline at end of file
+}
@@ -1,6 +1,8 @@
 package us.wthr.jdem846.buffers.impl;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import us.wthr.jdem846.buffers.IByteBuffer;
 import us.wthr.jdem846.exception.BufferException;
@@ -16,7 +18,10 @@ public class HighCapacityMappedByteBuffer implements IByteBuffer
 	
 	protected static long MAX_CHUNK_CAPACITY = 1073741824; // 1GB
 	
+	private final static int FILL_BLOCK_SIZE = 16384;
+	
 	private long capacity;
+	private long chunkCapacity;
 	private int chunkCount = 0;
 	
 	private MMapBufferContainer[] buffers;
@@ -26,10 +31,24 @@ public class HighCapacityMappedByteBuffer implements IByteBuffer
 
 	
 	public HighCapacityMappedByteBuffer(long capacity)
+	{
+		this(capacity, 1);
+	}
+	
+	/** Allocates a mapped buffer whose chunks are a multiple of <code>elementSize</code>
+	 * bytes so that typed views over each chunk never split a value.
+	 */
+	public HighCapacityMappedByteBuffer(long capacity, int elementSize)
+	{
+		this(capacity, elementSize, MAX_CHUNK_CAPACITY);
+	}
+	
+	protected HighCapacityMappedByteBuffer(long capacity, int elementSize, long maxChunkCapacity)
 	{
 		this.capacity = capacity;
+		this.chunkCapacity = (maxChunkCapacity / elementSize) * elementSize;
 		
-		chunkCount = (int) MathExt.ceil((double)capacity / (double)MAX_CHUNK_CAPACITY);
+		chunkCount = (int) MathExt.ceil((double)capacity / (double)chunkCapacity);
 		
 		buffers = new MMapBufferContainer[chunkCount];
 		
@@ -37,7 +56,7 @@ public class HighCapacityMappedByteBuffer implements IByteBuffer
 		
 		int chunkNum = 0;
 		while (allocatesNeeded > 0) {
-			int chunkSize = (int)MathExt.min(allocatesNeeded, MAX_CHUNK_CAPACITY);
+			int chunkSize = (int)MathExt.min(allocatesNeeded, chunkCapacity);
 			
 			MMapBufferContainer chunk = null;
 			
@@ -59,6 +78,9 @@ public class HighCapacityMappedByteBuffer implements IByteBuffer
 	
 	
 	
+	/** Maps a new, empty temporary file. Its pages read as zero until they are written, so
+	 * new buffers need not be cleared.
+	 */
 	protected MMapBufferContainer createMappedByteBuffer(int capacity) throws IOException
 	{
 		LocalFile temp = TempFiles.getTemporaryFile("jdem-mmap");
@@ -91,13 +113,13 @@ public class HighCapacityMappedByteBuffer implements IByteBuffer
 	
 	protected int getIndexOfChunk(long byteIndex)
 	{
-		int index = (int) MathExt.floor(byteIndex / MAX_CHUNK_CAPACITY);
+		int index = (int) (byteIndex / chunkCapacity);
 		return index;
 	}
 	
 	protected int getIndexWithinChunk(long byteIndex) 
 	{
-		int index = (int) (byteIndex % MAX_CHUNK_CAPACITY);
+		int index = (int) (byteIndex % chunkCapacity);
 		return index;
 	}
 	
@@ -117,37 +139,119 @@ public class HighCapacityMappedByteBuffer implements IByteBuffer
 	
 	@Override
 	public Byte get(long index)
+	{
+		return getByte(index);
+	}
+
+	@Override
+	public void put(long index, Byte value)
+	{
+		putByte(index, value);
+	}
+	
+	@Override
+	public byte getByte(long index)
 	{
 		MMapBufferContainer buffer = getBuffer(index);
 		int indexWithinChunk = getIndexWithinChunk(index);
 		return buffer.getBuffer().get(indexWithinChunk);
 	}
-
+	
 	@Override
-	public void put(long index, Byte value)
+	public void putByte(long index, byte value)
 	{
 		MMapBufferContainer buffer = getBuffer(index);
 		int indexWithinChunk = getIndexWithinChunk(index);
-		
 		buffer.getBuffer().put(indexWithinChunk, value);
 	}
 	
+	@Override
+	public void getBytes(long startIndex, byte[] values, int offset, int count)
+	{
+		checkRange(startIndex, count);
+		
+		while (count > 0) {
+			ByteBuffer chunk = getBuffer(startIndex).getBuffer().duplicate();
+			int indexWithinChunk = getIndexWithinChunk(startIndex);
+			int length = (int) MathExt.min(count, chunk.capacity() - indexWithinChunk);
+			
+			chunk.position(indexWithinChunk);
+			chunk.get(values, offset, length);
+			
+			startIndex += length;
+			offset += length;
+			count -= length;
+		}
+	}
+	
 	@Override
 	public void put(byte[] values, long startIndex, int offset, int count)
 	{
-		// Really Slow & inefficient
-		for (int i = 0; i < count; i++) {
-			put(startIndex + i, values[offset + i]);
+		checkRange(startIndex, count);
+		
+		while (count > 0) {
+			ByteBuffer chunk = getBuffer(startIndex).getBuffer().duplicate();
+			int indexWithinChunk = getIndexWithinChunk(startIndex);
+			int length = (int) MathExt.min(count, chunk.capacity() - indexWithinChunk);
+			
+			chunk.position(indexWithinChunk);
+			chunk.put(values, offset, length);
+			
+			startIndex += length;
+			offset += length;
+			count -= length;
 		}
 	}
 	
 	@Override
 	public void put(Byte[] values, long startIndex, int offset, int count)
 	{
-		// Really Slow & inefficient
 		for (int i = 0; i < count; i++) {
-			put(startIndex + i, values[offset + i]);
+			putByte(startIndex + i, values[offset + i]);
+		}
+	}
+	
+	@Override
+	public void fill(long fromIndex, long toIndex, byte value)
+	{
+		if (fromIndex < 0 || toIndex < fromIndex || toIndex > this.capacity) {
+			throw new BufferException("Range out of bounds: " + fromIndex + " to " + toIndex + " (capacity is " + capacity + " bytes)");
 		}
+		
+		byte[] block = new byte[(int) MathExt.min(toIndex - fromIndex, FILL_BLOCK_SIZE)];
+		Arrays.fill(block, value);
+		
+		for (long i = fromIndex; i < toIndex; i += block.length) {
+			put(block, i, 0, (int) MathExt.min(block.length, toIndex - i));
+		}
+	}
+	
+	protected void checkRange(long startIndex, int count)
+	{
+		if (startIndex < 0 || count < 0 || startIndex + count > this.capacity) {
+			throw new BufferException("Range out of bounds: " + startIndex + " + " + count + " (capacity is " + capacity + " bytes)");
+		}
+	}
+	
+	/** Fetches the mapped buffer backing the specified chunk. Typed buffers use this
+	 * to create their views.
+	 */
+	protected ByteBuffer getChunk(int chunkNumber)
+	{
+		if (!isOpen()) {
+			throw new BufferException("Cannot fetch chunk: Buffer is closed");
+		}
+		return buffers[chunkNumber].getBuffer();
+	}
+	
+	protected int getChunkCount()
+	{
+		return chunkCount;
+	}
+	
+	protected long getChunkCapacity()
+	{
+		return chunkCapacity;
 	}
 
 	@Override
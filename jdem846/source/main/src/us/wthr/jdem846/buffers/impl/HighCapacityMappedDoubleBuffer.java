@@ -1,19 +1,40 @@
 package us.wthr.jdem846.buffers.impl;
 
+import java.nio.DoubleBuffer;
+
 import us.wthr.jdem846.buffers.IDoubleBuffer;
-import us.wthr.jdem846.util.ByteConversions;
+import us.wthr.jdem846.exception.BufferException;
+import us.wthr.jdem846.math.MathExt;
 
+/** double buffer over a memory mapped byte buffer. Each mapped chunk is accessed through
+ * a typed view, so reads and writes move whole values rather than individual bytes.
+ */
 public class HighCapacityMappedDoubleBuffer implements IDoubleBuffer
 {
 	private final static int DOUBLE_SIZE_BYTES = (Double.SIZE / 8);
+	private final static int FILL_BLOCK_SIZE = 4096;
+	
 	private HighCapacityMappedByteBuffer byteBuffer;
+	private DoubleBuffer[] chunks;
+	private int chunkCapacity;
 	private long capacity = 0;
 	
 	public HighCapacityMappedDoubleBuffer(long capacity)
+	{
+		this(capacity, HighCapacityMappedByteBuffer.MAX_CHUNK_CAPACITY);
+	}
+	
+	protected HighCapacityMappedDoubleBuffer(long capacity, long maxChunkCapacity)
 	{
 		this.capacity = capacity;
 		
-		byteBuffer = new HighCapacityMappedByteBuffer(capacity * DOUBLE_SIZE_BYTES);
+		byteBuffer = new HighCapacityMappedByteBuffer(capacity * DOUBLE_SIZE_BYTES, DOUBLE_SIZE_BYTES, maxChunkCapacity);
+		chunkCapacity = (int) (byteBuffer.getChunkCapacity() / DOUBLE_SIZE_BYTES);
+		
+		chunks = new DoubleBuffer[byteBuffer.getChunkCount()];
+		for (int i = 0; i < chunks.length; i++) {
+			chunks[i] = byteBuffer.getChunk(i).asDoubleBuffer();
+		}
 	}
 	
 	
@@ -21,6 +42,7 @@ public class HighCapacityMappedDoubleBuffer implements IDoubleBuffer
 	public void close()
 	{
 		byteBuffer.close();
+		chunks = null;
 	}
 
 	@Override
@@ -28,47 +50,114 @@ public class HighCapacityMappedDoubleBuffer implements IDoubleBuffer
 	{
 		return byteBuffer.isOpen();
 	}
+	
+	protected DoubleBuffer getChunk(long index)
+	{
+		if (chunks == null) {
+			throw new BufferException("Cannot fetch value: Buffer is closed");
+		}
+		
+		if (index < 0 || index >= this.capacity) {
+			throw new BufferException("Index out of bounds: " + index + " (capacity is " + capacity + ")");
+		}
+		
+		return chunks[(int) (index / chunkCapacity)];
+	}
+	
+	protected void checkRange(long startIndex, long count)
+	{
+		if (chunks == null) {
+			throw new BufferException("Cannot transfer values: Buffer is closed");
+		}
+		
+		if (startIndex < 0 || count < 0 || startIndex + count > this.capacity) {
+			throw new BufferException("Range out of bounds: " + startIndex + " + " + count + " (capacity is " + capacity + ")");
+		}
+	}
 
 	@Override
 	public Double get(long index)
 	{
-		byte buffer[] = {0x0, 0x0, 0x0, 0x0,  0x0, 0x0, 0x0, 0x0};
-		long byteIndex = index * DOUBLE_SIZE_BYTES;
-		
-		for (int i = 0; i < 8; i++)
-			buffer[i] = byteBuffer.get(byteIndex + i);
-		
-		double v = ByteConversions.bytesToDouble(buffer);
-		return v;
+		return getDouble(index);
 	}
 
 	@Override
 	public void put(long index, Double value)
 	{
-		byte buffer[] = {0x0, 0x0, 0x0, 0x0,  0x0, 0x0, 0x0, 0x0};
-		ByteConversions.doubleToBytes(value, buffer);
+		putDouble(index, value);
+	}
+	
+	@Override
+	public double getDouble(long index)
+	{
+		return getChunk(index).get((int) (index % chunkCapacity));
+	}
+	
+	@Override
+	public void putDouble(long index, double value)
+	{
+		getChunk(index).put((int) (index % chunkCapacity), value);
+	}
+	
+	@Override
+	public void getDoubles(long startIndex, double[] values, int offset, int count)
+	{
+		checkRange(startIndex, count);
 		
-		long byteIndex = index * DOUBLE_SIZE_BYTES;
-		byteBuffer.put(buffer, byteIndex, 0, DOUBLE_SIZE_BYTES);
+		while (count > 0) {
+			int indexWithinChunk = (int) (startIndex % chunkCapacity);
+			DoubleBuffer chunk = chunks[(int) (startIndex / chunkCapacity)].duplicate();
+			int length = (int) MathExt.min(count, chunk.capacity() - indexWithinChunk);
+			
+			chunk.position(indexWithinChunk);
+			chunk.get(values, offset, length);
+			
+			startIndex += length;
+			offset += length;
+			count -= length;
+		}
 	}
 	
 	@Override
 	public void put(double[] values, long startIndex, int offset, int count)
 	{
-		// Really Slow & inefficient
-		for (int i = 0; i < count; i++) {
-			put(startIndex + i, values[offset + i]);
+		checkRange(startIndex, count);
+		
+		while (count > 0) {
+			int indexWithinChunk = (int) (startIndex % chunkCapacity);
+			DoubleBuffer chunk = chunks[(int) (startIndex / chunkCapacity)].duplicate();
+			int length = (int) MathExt.min(count, chunk.capacity() - indexWithinChunk);
+			
+			chunk.position(indexWithinChunk);
+			chunk.put(values, offset, length);
+			
+			startIndex += length;
+			offset += length;
+			count -= length;
 		}
 	}
 	
 	@Override
 	public void put(Double[] values, long startIndex, int offset, int count)
 	{
-		// Really Slow & inefficient
 		for (int i = 0; i < count; i++) {
-			put(startIndex + i, values[offset + i]);
+			putDouble(startIndex + i, values[offset + i]);
 		}
+	}
+	
+	@Override
+	public void fill(long fromIndex, long toIndex, double value)
+	{
+		checkRange(fromIndex, toIndex - fromIndex);
 		
+		double[] block = new double[(int) MathExt.min(toIndex - fromIndex, FILL_BLOCK_SIZE)];
+		for (int i = 0; i < block.length; i++) {
+			block[i] = value;
+		}
+		
+		for (long i = fromIndex; i < toIndex; i += block.length) {
+			put(block, i, 0, (int) MathExt.min(block.length, toIndex - i));
+		}
 	}
 
 	@Override
@@ -88,12 +177,11 @@ public class HighCapacityMappedDoubleBuffer implements IDoubleBuffer
 	{
 		this.close();
 	}
-	
+
 	@Override
 	public IDoubleBuffer duplicate()
 	{
 		return null;
 	}
 
-	
 }
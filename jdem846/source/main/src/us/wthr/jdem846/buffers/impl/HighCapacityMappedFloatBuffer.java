@@ -1,19 +1,40 @@
 package us.wthr.jdem846.buffers.impl;
 
+import java.nio.FloatBuffer;
+
 import us.wthr.jdem846.buffers.IFloatBuffer;
-import us.wthr.jdem846.util.ByteConversions;
+import us.wthr.jdem846.exception.BufferException;
+import us.wthr.jdem846.math.MathExt;
 
+/** float buffer over a memory mapped byte buffer. Each mapped chunk is accessed through
+ * a typed view, so reads and writes move whole values rather than individual bytes.
+ */
 public class HighCapacityMappedFloatBuffer implements IFloatBuffer
 {
 	private final static int FLOAT_SIZE_BYTES = (Float.SIZE / 8);
+	private final static int FILL_BLOCK_SIZE = 4096;
+	
 	private HighCapacityMappedByteBuffer byteBuffer;
+	private FloatBuffer[] chunks;
+	private int chunkCapacity;
 	private long capacity = 0;
 	
 	public HighCapacityMappedFloatBuffer(long capacity)
+	{
+		this(capacity, HighCapacityMappedByteBuffer.MAX_CHUNK_CAPACITY);
+	}
+	
+	protected HighCapacityMappedFloatBuffer(long capacity, long maxChunkCapacity)
 	{
 		this.capacity = capacity;
 		
-		byteBuffer = new HighCapacityMappedByteBuffer(capacity * FLOAT_SIZE_BYTES);
+		byteBuffer = new HighCapacityMappedByteBuffer(capacity * FLOAT_SIZE_BYTES, FLOAT_SIZE_BYTES, maxChunkCapacity);
+		chunkCapacity = (int) (byteBuffer.getChunkCapacity() / FLOAT_SIZE_BYTES);
+		
+		chunks = new FloatBuffer[byteBuffer.getChunkCount()];
+		for (int i = 0; i < chunks.length; i++) {
+			chunks[i] = byteBuffer.getChunk(i).asFloatBuffer();
+		}
 	}
 	
 	
@@ -21,6 +42,7 @@ public class HighCapacityMappedFloatBuffer implements IFloatBuffer
 	public void close()
 	{
 		byteBuffer.close();
+		chunks = null;
 	}
 
 	@Override
@@ -28,48 +50,114 @@ public class HighCapacityMappedFloatBuffer implements IFloatBuffer
 	{
 		return byteBuffer.isOpen();
 	}
+	
+	protected FloatBuffer getChunk(long index)
+	{
+		if (chunks == null) {
+			throw new BufferException("Cannot fetch value: Buffer is closed");
+		}
+		
+		if (index < 0 || index >= this.capacity) {
+			throw new BufferException("Index out of bounds: " + index + " (capacity is " + capacity + ")");
+		}
+		
+		return chunks[(int) (index / chunkCapacity)];
+	}
+	
+	protected void checkRange(long startIndex, long count)
+	{
+		if (chunks == null) {
+			throw new BufferException("Cannot transfer values: Buffer is closed");
+		}
+		
+		if (startIndex < 0 || count < 0 || startIndex + count > this.capacity) {
+			throw new BufferException("Range out of bounds: " + startIndex + " + " + count + " (capacity is " + capacity + ")");
+		}
+	}
 
 	@Override
 	public Float get(long index)
 	{
-		byte buffer[] = {0x0, 0x0, 0x0, 0x0};
-		long byteIndex = index * FLOAT_SIZE_BYTES;
-		buffer[0] = byteBuffer.get(byteIndex);
-		buffer[1] = byteBuffer.get(byteIndex + 1);
-		buffer[2] = byteBuffer.get(byteIndex + 2);
-		buffer[3] = byteBuffer.get(byteIndex + 3);
-		
-		float v = ByteConversions.bytesToFloat(buffer);
-		return v;
+		return getFloat(index);
 	}
 
 	@Override
 	public void put(long index, Float value)
 	{
-		byte buffer[] = {0x0, 0x0, 0x0, 0x0};
-		ByteConversions.floatToBytes(value, buffer);
+		putFloat(index, value);
+	}
+	
+	@Override
+	public float getFloat(long index)
+	{
+		return getChunk(index).get((int) (index % chunkCapacity));
+	}
+	
+	@Override
+	public void putFloat(long index, float value)
+	{
+		getChunk(index).put((int) (index % chunkCapacity), value);
+	}
+	
+	@Override
+	public void getFloats(long startIndex, float[] values, int offset, int count)
+	{
+		checkRange(startIndex, count);
 		
-		long byteIndex = index * FLOAT_SIZE_BYTES;
-		byteBuffer.put(buffer, byteIndex, 0, 4);
+		while (count > 0) {
+			int indexWithinChunk = (int) (startIndex % chunkCapacity);
+			FloatBuffer chunk = chunks[(int) (startIndex / chunkCapacity)].duplicate();
+			int length = (int) MathExt.min(count, chunk.capacity() - indexWithinChunk);
+			
+			chunk.position(indexWithinChunk);
+			chunk.get(values, offset, length);
+			
+			startIndex += length;
+			offset += length;
+			count -= length;
+		}
 	}
 	
 	@Override
 	public void put(float[] values, long startIndex, int offset, int count)
 	{
-		// Really Slow & inefficient
-		for (int i = 0; i < count; i++) {
-			put(startIndex + i, values[offset + i]);
+		checkRange(startIndex, count);
+		
+		while (count > 0) {
+			int indexWithinChunk = (int) (startIndex % chunkCapacity);
+			FloatBuffer chunk = chunks[(int) (startIndex / chunkCapacity)].duplicate();
+			int length = (int) MathExt.min(count, chunk.capacity() - indexWithinChunk);
+			
+			chunk.position(indexWithinChunk);
+			chunk.put(values, offset, length);
+			
+			startIndex += length;
+			offset += length;
+			count -= length;
 		}
 	}
 	
 	@Override
 	public void put(Float[] values, long startIndex, int offset, int count)
 	{
-		// Really Slow & inefficient
 		for (int i = 0; i < count; i++) {
-			put(startIndex + i, values[offset + i]);
+			putFloat(startIndex + i, values[offset + i]);
+		}
+	}
+	
+	@Override
+	public void fill(long fromIndex, long toIndex, float value)
+	{
+		checkRange(fromIndex, toIndex - fromIndex);
+		
+		float[] block = new float[(int) MathExt.min(toIndex - fromIndex, FILL_BLOCK_SIZE)];
+		for (int i = 0; i < block.length; i++) {
+			block[i] = value;
 		}
 		
+		for (long i = fromIndex; i < toIndex; i += block.length) {
+			put(block, i, 0, (int) MathExt.min(block.length, toIndex - i));
+		}
 	}
 
 	@Override
@@ -1,19 +1,40 @@
 package us.wthr.jdem846.buffers.impl;
 
+import java.nio.IntBuffer;
+
 import us.wthr.jdem846.buffers.IIntBuffer;
-import us.wthr.jdem846.util.ByteConversions;
+import us.wthr.jdem846.exception.BufferException;
+import us.wthr.jdem846.math.MathExt;
 
+/** int buffer over a memory mapped byte buffer. Each mapped chunk is accessed through
+ * a typed view, so reads and writes move whole values rather than individual bytes.
+ */
 public class HighCapacityMappedIntBuffer implements IIntBuffer
 {
 	private final static int INT_SIZE_BYTES = (Integer.SIZE / 8);
+	private final static int FILL_BLOCK_SIZE = 4096;
+	
 	private HighCapacityMappedByteBuffer byteBuffer;
+	private IntBuffer[] chunks;
+	private int chunkCapacity;
 	private long capacity = 0;
 	
 	public HighCapacityMappedIntBuffer(long capacity)
+	{
+		this(capacity, HighCapacityMappedByteBuffer.MAX_CHUNK_CAPACITY);
+	}
+	
+	protected HighCapacityMappedIntBuffer(long capacity, long maxChunkCapacity)
 	{
 		this.capacity = capacity;
 		
-		byteBuffer = new HighCapacityMappedByteBuffer(capacity * INT_SIZE_BYTES);
+		byteBuffer = new HighCapacityMappedByteBuffer(capacity * INT_SIZE_BYTES, INT_SIZE_BYTES, maxChunkCapacity);
+		chunkCapacity = (int) (byteBuffer.getChunkCapacity() / INT_SIZE_BYTES);
+		
+		chunks = new IntBuffer[byteBuffer.getChunkCount()];
+		for (int i = 0; i < chunks.length; i++) {
+			chunks[i] = byteBuffer.getChunk(i).asIntBuffer();
+		}
 	}
 	
 	
@@ -21,6 +42,7 @@ public class HighCapacityMappedIntBuffer implements IIntBuffer
 	public void close()
 	{
 		byteBuffer.close();
+		chunks = null;
 	}
 
 	@Override
@@ -28,48 +50,114 @@ public class HighCapacityMappedIntBuffer implements IIntBuffer
 	{
 		return byteBuffer.isOpen();
 	}
+	
+	protected IntBuffer getChunk(long index)
+	{
+		if (chunks == null) {
+			throw new BufferException("Cannot fetch value: Buffer is closed");
+		}
+		
+		if (index < 0 || index >= this.capacity) {
+			throw new BufferException("Index out of bounds: " + index + " (capacity is " + capacity + ")");
+		}
+		
+		return chunks[(int) (index / chunkCapacity)];
+	}
+	
+	protected void checkRange(long startIndex, long count)
+	{
+		if (chunks == null) {
+			throw new BufferException("Cannot transfer values: Buffer is closed");
+		}
+		
+		if (startIndex < 0 || count < 0 || startIndex + count > this.capacity) {
+			throw new BufferException("Range out of bounds: " + startIndex + " + " + count + " (capacity is " + capacity + ")");
+		}
+	}
 
 	@Override
 	public Integer get(long index)
 	{
-		byte buffer[] = {0x0, 0x0, 0x0, 0x0};
-		long byteIndex = index * INT_SIZE_BYTES;
-		buffer[0] = byteBuffer.get(byteIndex);
-		buffer[1] = byteBuffer.get(byteIndex + 1);
-		buffer[2] = byteBuffer.get(byteIndex + 2);
-		buffer[3] = byteBuffer.get(byteIndex + 3);
-		
-		int v = ByteConversions.bytesToInt(buffer);
-		return v;
+		return getInt(index);
 	}
 
 	@Override
 	public void put(long index, Integer value)
 	{
-		byte buffer[] = {0x0, 0x0, 0x0, 0x0};
-		ByteConversions.intToBytes(value, buffer);
+		putInt(index, value);
+	}
+	
+	@Override
+	public int getInt(long index)
+	{
+		return getChunk(index).get((int) (index % chunkCapacity));
+	}
+	
+	@Override
+	public void putInt(long index, int value)
+	{
+		getChunk(index).put((int) (index % chunkCapacity), value);
+	}
+	
+	@Override
+	public void getInts(long startIndex, int[] values, int offset, int count)
+	{
+		checkRange(startIndex, count);
 		
-		long byteIndex = index * INT_SIZE_BYTES;
-		byteBuffer.put(buffer, byteIndex, 0, 4);
+		while (count > 0) {
+			int indexWithinChunk = (int) (startIndex % chunkCapacity);
+			IntBuffer chunk = chunks[(int) (startIndex / chunkCapacity)].duplicate();
+			int length = (int) MathExt.min(count, chunk.capacity() - indexWithinChunk);
+			
+			chunk.position(indexWithinChunk);
+			chunk.get(values, offset, length);
+			
+			startIndex += length;
+			offset += length;
+			count -= length;
+		}
 	}
 	
 	@Override
 	public void put(int[] values, long startIndex, int offset, int count)
 	{
-		// Really Slow & inefficient
-		for (int i = 0; i < count; i++) {
-			put(startIndex + i, values[offset + i]);
+		checkRange(startIndex, count);
+		
+		while (count > 0) {
+			int indexWithinChunk = (int) (startIndex % chunkCapacity);
+			IntBuffer chunk = chunks[(int) (startIndex / chunkCapacity)].duplicate();
+			int length = (int) MathExt.min(count, chunk.capacity() - indexWithinChunk);
+			
+			chunk.position(indexWithinChunk);
+			chunk.put(values, offset, length);
+			
+			startIndex += length;
+			offset += length;
+			count -= length;
 		}
 	}
 	
 	@Override
 	public void put(Integer[] values, long startIndex, int offset, int count)
 	{
-		// Really Slow & inefficient
 		for (int i = 0; i < count; i++) {
-			put(startIndex + i, values[offset + i]);
+			putInt(startIndex + i, values[offset + i]);
+		}
+	}
+	
+	@Override
+	public void fill(long fromIndex, long toIndex, int value)
+	{
+		checkRange(fromIndex, toIndex - fromIndex);
+		
+		int[] block = new int[(int) MathExt.min(toIndex - fromIndex, FILL_BLOCK_SIZE)];
+		for (int i = 0; i < block.length; i++) {
+			block[i] = value;
 		}
 		
+		for (long i = fromIndex; i < toIndex; i += block.length) {
+			put(block, i, 0, (int) MathExt.min(block.length, toIndex - i));
+		}
 	}
 
 	@Override
@@ -83,19 +171,29 @@ public class HighCapacityMappedIntBuffer implements IIntBuffer
 	{
 		return byteBuffer.capacityBytes();
 	}
-	
-	
+
 	@Override
 	public void dispose()
 	{
 		this.close();
 	}
 
+	@Override
+	public boolean hasArray()
+	{
+		return false;
+	}
+	
+	@Override
+	public int[] array()
+	{
+		throw new BufferException("Buffer is not backed by an array");
+	}
+
 	@Override
 	public IIntBuffer duplicate()
 	{
 		return null;
 	}
 
-	
 }
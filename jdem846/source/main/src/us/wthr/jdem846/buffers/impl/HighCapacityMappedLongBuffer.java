@@ -1,19 +1,40 @@
 package us.wthr.jdem846.buffers.impl;
 
+import java.nio.LongBuffer;
+
 import us.wthr.jdem846.buffers.ILongBuffer;
-import us.wthr.jdem846.util.ByteConversions;
+import us.wthr.jdem846.exception.BufferException;
+import us.wthr.jdem846.math.MathExt;
 
+/** long buffer over a memory mapped byte buffer. Each mapped chunk is accessed through
+ * a typed view, so reads and writes move whole values rather than individual bytes.
+ */
 public class HighCapacityMappedLongBuffer implements ILongBuffer
 {
 	private final static int LONG_SIZE_BYTES = (Long.SIZE / 8);
+	private final static int FILL_BLOCK_SIZE = 4096;
+	
 	private HighCapacityMappedByteBuffer byteBuffer;
+	private LongBuffer[] chunks;
+	private int chunkCapacity;
 	private long capacity = 0;
 	
 	public HighCapacityMappedLongBuffer(long capacity)
+	{
+		this(capacity, HighCapacityMappedByteBuffer.MAX_CHUNK_CAPACITY);
+	}
+	
+	protected HighCapacityMappedLongBuffer(long capacity, long maxChunkCapacity)
 	{
 		this.capacity = capacity;
 		
-		byteBuffer = new HighCapacityMappedByteBuffer(capacity * LONG_SIZE_BYTES);
+		byteBuffer = new HighCapacityMappedByteBuffer(capacity * LONG_SIZE_BYTES, LONG_SIZE_BYTES, maxChunkCapacity);
+		chunkCapacity = (int) (byteBuffer.getChunkCapacity() / LONG_SIZE_BYTES);
+		
+		chunks = new LongBuffer[byteBuffer.getChunkCount()];
+		for (int i = 0; i < chunks.length; i++) {
+			chunks[i] = byteBuffer.getChunk(i).asLongBuffer();
+		}
 	}
 	
 	
@@ -21,6 +42,7 @@ public class HighCapacityMappedLongBuffer implements ILongBuffer
 	public void close()
 	{
 		byteBuffer.close();
+		chunks = null;
 	}
 
 	@Override
@@ -28,47 +50,114 @@ public class HighCapacityMappedLongBuffer implements ILongBuffer
 	{
 		return byteBuffer.isOpen();
 	}
+	
+	protected LongBuffer getChunk(long index)
+	{
+		if (chunks == null) {
+			throw new BufferException("Cannot fetch value: Buffer is closed");
+		}
+		
+		if (index < 0 || index >= this.capacity) {
+			throw new BufferException("Index out of bounds: " + index + " (capacity is " + capacity + ")");
+		}
+		
+		return chunks[(int) (index / chunkCapacity)];
+	}
+	
+	protected void checkRange(long startIndex, long count)
+	{
+		if (chunks == null) {
+			throw new BufferException("Cannot transfer values: Buffer is closed");
+		}
+		
+		if (startIndex < 0 || count < 0 || startIndex + count > this.capacity) {
+			throw new BufferException("Range out of bounds: " + startIndex + " + " + count + " (capacity is " + capacity + ")");
+		}
+	}
 
 	@Override
 	public Long get(long index)
 	{
-		byte buffer[] = new byte[LONG_SIZE_BYTES];
-		long byteIndex = index * LONG_SIZE_BYTES;
-		for (int i = 0; i < LONG_SIZE_BYTES; i++) {
-			buffer[i] = byteBuffer.get(byteIndex + i);
-		}
-		
-		long v = ByteConversions.bytesToLong(buffer);
-		return v;
+		return getLong(index);
 	}
 
 	@Override
 	public void put(long index, Long value)
 	{
-		byte buffer[] = new byte[LONG_SIZE_BYTES];
-		ByteConversions.longToBytes(value, buffer);
+		putLong(index, value);
+	}
+	
+	@Override
+	public long getLong(long index)
+	{
+		return getChunk(index).get((int) (index % chunkCapacity));
+	}
+	
+	@Override
+	public void putLong(long index, long value)
+	{
+		getChunk(index).put((int) (index % chunkCapacity), value);
+	}
+	
+	@Override
+	public void getLongs(long startIndex, long[] values, int offset, int count)
+	{
+		checkRange(startIndex, count);
 		
-		long byteIndex = index * LONG_SIZE_BYTES;
-		byteBuffer.put(buffer, byteIndex, 0, LONG_SIZE_BYTES);
+		while (count > 0) {
+			int indexWithinChunk = (int) (startIndex % chunkCapacity);
+			LongBuffer chunk = chunks[(int) (startIndex / chunkCapacity)].duplicate();
+			int length = (int) MathExt.min(count, chunk.capacity() - indexWithinChunk);
+			
+			chunk.position(indexWithinChunk);
+			chunk.get(values, offset, length);
+			
+			startIndex += length;
+			offset += length;
+			count -= length;
+		}
 	}
 	
 	@Override
 	public void put(long[] values, long startIndex, int offset, int count)
 	{
-		// Really Slow & inefficient
-		for (int i = 0; i < count; i++) {
-			put(startIndex + i, values[offset + i]);
+		checkRange(startIndex, count);
+		
+		while (count > 0) {
+			int indexWithinChunk = (int) (startIndex % chunkCapacity);
+			LongBuffer chunk = chunks[(int) (startIndex / chunkCapacity)].duplicate();
+			int length = (int) MathExt.min(count, chunk.capacity() - indexWithinChunk);
+			
+			chunk.position(indexWithinChunk);
+			chunk.put(values, offset, length);
+			
+			startIndex += length;
+			offset += length;
+			count -= length;
 		}
 	}
 	
 	@Override
 	public void put(Long[] values, long startIndex, int offset, int count)
 	{
-		// Really Slow & inefficient
 		for (int i = 0; i < count; i++) {
-			put(startIndex + i, values[offset + i]);
+			putLong(startIndex + i, values[offset + i]);
+		}
+	}
+	
+	@Override
+	public void fill(long fromIndex, long toIndex, long value)
+	{
+		checkRange(fromIndex, toIndex - fromIndex);
+		
+		long[] block = new long[(int) MathExt.min(toIndex - fromIndex, FILL_BLOCK_SIZE)];
+		for (int i = 0; i < block.length; i++) {
+			block[i] = value;
 		}
 		
+		for (long i = fromIndex; i < toIndex; i += block.length) {
+			put(block, i, 0, (int) MathExt.min(block.length, toIndex - i));
+		}
 	}
 
 	@Override
@@ -82,8 +171,7 @@ public class HighCapacityMappedLongBuffer implements ILongBuffer
 	{
 		return byteBuffer.capacityBytes();
 	}
-	
-	
+
 	@Override
 	public void dispose()
 	{
@@ -95,4 +183,5 @@ public class HighCapacityMappedLongBuffer implements ILongBuffer
 	{
 		return null;
 	}
+
 }
@@ -3,6 +3,7 @@ package us.wthr.jdem846.buffers.impl;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 
@@ -43,6 +44,7 @@ public class MMapBufferContainer
 		
 		try {
 			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+			buffer.order(ByteOrder.LITTLE_ENDIAN); // Same layout as ByteConversions.DEFAULT_BYTE_ORDER
 		} catch (IOException ex) {
 			throw new BufferException("Error mapping mmap buffer: " + ex.getMessage(), ex);
 		}
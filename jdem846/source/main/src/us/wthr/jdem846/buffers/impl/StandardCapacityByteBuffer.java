@@ -1,6 +1,7 @@
 package us.wthr.jdem846.buffers.impl;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import us.wthr.jdem846.buffers.IByteBuffer;
 import us.wthr.jdem846.exception.BufferException;
@@ -47,30 +48,61 @@ public class StandardCapacityByteBuffer implements IByteBuffer
 	@Override
 	public Byte get(long index)
 	{
-		return buffer.get((int)index);
+		return getByte(index);
 	}
 
 	@Override
 	public void put(long index, Byte value)
+	{
+		putByte(index, value);
+	}
+	
+	@Override
+	public byte getByte(long index)
+	{
+		return buffer.get((int)index);
+	}
+	
+	@Override
+	public void putByte(long index, byte value)
 	{
 		buffer.put((int)index, value);
 	}
 	
+	@Override
+	public void getBytes(long startIndex, byte[] values, int offset, int count)
+	{
+		// Work on a duplicate so concurrent bulk transfers don't share a position
+		ByteBuffer view = buffer.duplicate();
+		view.position((int)startIndex);
+		view.get(values, offset, count);
+	}
+	
 	@Override
 	public void put(byte[] values, long startIndex, int offset, int count)
 	{
-		// Really Slow & inefficient
-		for (int i = 0; i < count; i++) {
-			put(startIndex + i, values[offset + i]);
-		}
+		ByteBuffer view = buffer.duplicate();
+		view.position((int)startIndex);
+		view.put(values, offset, count);
 	}
 	
 	@Override
 	public void put(Byte[] values, long startIndex, int offset, int count)
 	{
-		// Really Slow & inefficient
 		for (int i = 0; i < count; i++) {
-			put(startIndex + i, values[offset + i]);
+			buffer.put((int)(startIndex + i), values[offset + i]);
+		}
+	}
+	
+	@Override
+	public void fill(long fromIndex, long toIndex, byte value)
+	{
+		if (buffer.hasArray()) {
+			Arrays.fill(buffer.array(), buffer.arrayOffset() + (int)fromIndex, buffer.arrayOffset() + (int)toIndex, value);
+		} else {
+			for (int i = (int)fromIndex; i < (int)toIndex; i++) {
+				buffer.put(i, value);
+			}
 		}
 	}
 
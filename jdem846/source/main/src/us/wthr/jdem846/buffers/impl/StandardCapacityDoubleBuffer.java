@@ -2,6 +2,7 @@ package us.wthr.jdem846.buffers.impl;
 
 import java.nio.ByteBuffer;
 import java.nio.DoubleBuffer;
+import java.util.Arrays;
 
 import us.wthr.jdem846.buffers.IDoubleBuffer;
 import us.wthr.jdem846.exception.BufferException;
@@ -48,30 +49,61 @@ public class StandardCapacityDoubleBuffer implements IDoubleBuffer
 	@Override
 	public Double get(long index)
 	{
-		return buffer.get((int)index);
+		return getDouble(index);
 	}
 
 	@Override
 	public void put(long index, Double value)
+	{
+		putDouble(index, value);
+	}
+	
+	@Override
+	public double getDouble(long index)
+	{
+		return buffer.get((int)index);
+	}
+	
+	@Override
+	public void putDouble(long index, double value)
 	{
 		buffer.put((int)index, value);
 	}
 	
+	@Override
+	public void getDoubles(long startIndex, double[] values, int offset, int count)
+	{
+		// Work on a duplicate so concurrent bulk transfers don't share a position
+		DoubleBuffer view = buffer.duplicate();
+		view.position((int)startIndex);
+		view.get(values, offset, count);
+	}
+	
 	@Override
 	public void put(double[] values, long startIndex, int offset, int count)
 	{
-		// Really Slow & inefficient
-		for (int i = 0; i < count; i++) {
-			put(startIndex + i, values[offset + i]);
-		}
+		DoubleBuffer view = buffer.duplicate();
+		view.position((int)startIndex);
+		view.put(values, offset, count);
 	}
 	
 	@Override
 	public void put(Double[] values, long startIndex, int offset, int count)
 	{
-		// Really Slow & inefficient
 		for (int i = 0; i < count; i++) {
-			put(startIndex + i, values[offset + i]);
+			buffer.put((int)(startIndex + i), values[offset + i]);
+		}
+	}
+	
+	@Override
+	public void fill(long fromIndex, long toIndex, double value)
+	{
+		if (buffer.hasArray()) {
+			Arrays.fill(buffer.array(), buffer.arrayOffset() + (int)fromIndex, buffer.arrayOffset() + (int)toIndex, value);
+		} else {
+			for (int i = (int)fromIndex; i < (int)toIndex; i++) {
+				buffer.put(i, value);
+			}
 		}
 	}
 
@@ -2,6 +2,7 @@ package us.wthr.jdem846.buffers.impl;
 
 import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
+import java.util.Arrays;
 
 import us.wthr.jdem846.buffers.IFloatBuffer;
 import us.wthr.jdem846.exception.BufferException;
@@ -48,30 +49,61 @@ public class StandardCapacityFloatBuffer implements IFloatBuffer
 	@Override
 	public Float get(long index)
 	{
-		return buffer.get((int)index);
+		return getFloat(index);
 	}
 
 	@Override
 	public void put(long index, Float value)
+	{
+		putFloat(index, value);
+	}
+	
+	@Override
+	public float getFloat(long index)
+	{
+		return buffer.get((int)index);
+	}
+	
+	@Override
+	public void putFloat(long index, float value)
 	{
 		buffer.put((int)index, value);
 	}
 	
+	@Override
+	public void getFloats(long startIndex, float[] values, int offset, int count)
+	{
+		// Work on a duplicate so concurrent bulk transfers don't share a position
+		FloatBuffer view = buffer.duplicate();
+		view.position((int)startIndex);
+		view.get(values, offset, count);
+	}
+	
 	@Override
 	public void put(float[] values, long startIndex, int offset, int count)
 	{
-		// Really Slow & inefficient
-		for (int i = 0; i < count; i++) {
-			put(startIndex + i, values[offset + i]);
-		}
+		FloatBuffer view = buffer.duplicate();
+		view.position((int)startIndex);
+		view.put(values, offset, count);
 	}
 	
 	@Override
 	public void put(Float[] values, long startIndex, int offset, int count)
 	{
-		// Really Slow & inefficient
 		for (int i = 0; i < count; i++) {
-			put(startIndex + i, values[offset + i]);
+			buffer.put((int)(startIndex + i), values[offset + i]);
+		}
+	}
+	
+	@Override
+	public void fill(long fromIndex, long toIndex, float value)
+	{
+		if (buffer.hasArray()) {
+			Arrays.fill(buffer.array(), buffer.arrayOffset() + (int)fromIndex, buffer.arrayOffset() + (int)toIndex, value);
+		} else {
+			for (int i = (int)fromIndex; i < (int)toIndex; i++) {
+				buffer.put(i, value);
+			}
 		}
 	}
 
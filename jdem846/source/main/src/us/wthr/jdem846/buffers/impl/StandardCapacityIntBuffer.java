@@ -2,6 +2,7 @@ package us.wthr.jdem846.buffers.impl;
 
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
+import java.util.Arrays;
 
 import us.wthr.jdem846.buffers.IIntBuffer;
 import us.wthr.jdem846.exception.BufferException;
@@ -48,31 +49,77 @@ public class StandardCapacityIntBuffer implements IIntBuffer
 	@Override
 	public Integer get(long index)
 	{
-		return buffer.get((int)index);
+		return getInt(index);
 	}
 
 	@Override
 	public void put(long index, Integer value)
+	{
+		putInt(index, value);
+	}
+	
+	@Override
+	public int getInt(long index)
+	{
+		return buffer.get((int)index);
+	}
+	
+	@Override
+	public void putInt(long index, int value)
 	{
 		buffer.put((int)index, value);
 	}
 	
+	@Override
+	public void getInts(long startIndex, int[] values, int offset, int count)
+	{
+		// Work on a duplicate so concurrent bulk transfers don't share a position
+		IntBuffer view = buffer.duplicate();
+		view.position((int)startIndex);
+		view.get(values, offset, count);
+	}
+	
 	@Override
 	public void put(int[] values, long startIndex, int offset, int count)
 	{
-		// Really Slow & inefficient
-		for (int i = 0; i < count; i++) {
-			put(startIndex + i, values[offset + i]);
-		}
+		IntBuffer view = buffer.duplicate();
+		view.position((int)startIndex);
+		view.put(values, offset, count);
 	}
 	
 	@Override
 	public void put(Integer[] values, long startIndex, int offset, int count)
 	{
-		// Really Slow & inefficient
 		for (int i = 0; i < count; i++) {
-			put(startIndex + i, values[offset + i]);
+			buffer.put((int)(startIndex + i), values[offset + i]);
+		}
+	}
+	
+	@Override
+	public void fill(long fromIndex, long toIndex, int value)
+	{
+		if (buffer.hasArray()) {
+			Arrays.fill(buffer.array(), buffer.arrayOffset() + (int)fromIndex, buffer.arrayOffset() + (int)toIndex, value);
+		} else {
+			for (int i = (int)fromIndex; i < (int)toIndex; i++) {
+				buffer.put(i, value);
+			}
+		}
+	}
+
+	@Override
+	public boolean hasArray()
+	{
+		return buffer.hasArray() && buffer.arrayOffset() == 0;
+	}
+	
+	@Override
+	public int[] array()
+	{
+		if (!hasArray()) {
+			throw new BufferException("Buffer is not backed by an array");
 		}
+		return buffer.array();
 	}
 
 	@Override
@@ -2,6 +2,7 @@ package us.wthr.jdem846.buffers.impl;
 
 import java.nio.ByteBuffer;
 import java.nio.LongBuffer;
+import java.util.Arrays;
 
 import us.wthr.jdem846.buffers.ILongBuffer;
 import us.wthr.jdem846.exception.BufferException;
@@ -48,30 +49,61 @@ public class StandardCapacityLongBuffer implements ILongBuffer
 	@Override
 	public Long get(long index)
 	{
-		return buffer.get((int)index);
+		return getLong(index);
 	}
 
 	@Override
 	public void put(long index, Long value)
+	{
+		putLong(index, value);
+	}
+	
+	@Override
+	public long getLong(long index)
+	{
+		return buffer.get((int)index);
+	}
+	
+	@Override
+	public void putLong(long index, long value)
 	{
 		buffer.put((int)index, value);
 	}
 	
+	@Override
+	public void getLongs(long startIndex, long[] values, int offset, int count)
+	{
+		// Work on a duplicate so concurrent bulk transfers don't share a position
+		LongBuffer view = buffer.duplicate();
+		view.position((int)startIndex);
+		view.get(values, offset, count);
+	}
+	
 	@Override
 	public void put(long[] values, long startIndex, int offset, int count)
 	{
-		// Really Slow & inefficient
-		for (int i = 0; i < count; i++) {
-			put(startIndex + i, values[offset + i]);
-		}
+		LongBuffer view = buffer.duplicate();
+		view.position((int)startIndex);
+		view.put(values, offset, count);
 	}
 	
 	@Override
 	public void put(Long[] values, long startIndex, int offset, int count)
 	{
-		// Really Slow & inefficient
 		for (int i = 0; i < count; i++) {
-			put(startIndex + i, values[offset + i]);
+			buffer.put((int)(startIndex + i), values[offset + i]);
+		}
+	}
+	
+	@Override
+	public void fill(long fromIndex, long toIndex, long value)
+	{
+		if (buffer.hasArray()) {
+			Arrays.fill(buffer.array(), buffer.arrayOffset() + (int)fromIndex, buffer.arrayOffset() + (int)toIndex, value);
+		} else {
+			for (int i = (int)fromIndex; i < (int)toIndex; i++) {
+				buffer.put(i, value);
+			}
 		}
 	}
 
@@ -1,13 +1,16 @@
 package us.wthr.jdem846.export;
 
-import java.awt.image.BufferedImage;
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
 
+import javax.imageio.stream.FileImageOutputStream;
+
 import us.wthr.jdem846.ElevationModel;
 import us.wthr.jdem846.exception.InvalidFileFormatException;
-import us.wthr.jdem846.image.ImageWriter;
 import us.wthr.jdem846.logging.Log;
 import us.wthr.jdem846.logging.Logging;
 import us.wthr.jdem846.project.ProjectFiles;
@@ -96,19 +99,35 @@ public class ModelImageExporter
 	
 	protected void saveBasicImage()
 	{
-		String formatName = getFormatType(type);
-
 		File writeFile = new File(path);
+		Closeable out = null;
 		try {
-			
-			ImageWriter.saveImage((BufferedImage)elevationModel.getImage(), path);
+			// The model writes its own pixels so that large images need not be copied into memory first
+			if (type == ImageTypeEnum.JPEG) {
+				FileImageOutputStream imageOut = new FileImageOutputStream(writeFile);
+				out = imageOut;
+				elevationModel.writeImageData(imageOut, us.wthr.jdem846.image.ImageTypeEnum.JPEG);
+			} else {
+				// PNG images are compressed in parallel and written through the file's channel
+				FileOutputStream fileOut = new FileOutputStream(writeFile);
+				out = fileOut;
+				elevationModel.writeImageData(fileOut, us.wthr.jdem846.image.ImageTypeEnum.PNG);
+			}
 			//ImageIO.write((BufferedImage)elevationModel.getImage(), formatName, writeFile);
 			//SharedStatusBar.setStatus("Image exported to " + writeFile);
 			this.fireExportSuccessfulListeners();
 		} catch (Exception e) {
 			log.error("Failed to write image to disk: " + e.getMessage(), e);
 			this.fireExportFailedListeners(e);
-		} 
+		} finally {
+			if (out != null) {
+				try {
+					out.close();
+				} catch (IOException ex) {
+					log.warn("Error closing image file: " + ex.getMessage(), ex);
+				}
+			}
+		}
 	}
 	
 	protected void validateSavePath() throws IllegalArgumentException, InvalidFileFormatException
@@ -10,6 +10,7 @@ import us.wthr.jdem846.math.Ellipsoid;
 import us.wthr.jdem846.math.Vector;
 import us.wthr.jdem846.model.GlobalOptionModel;
 import us.wthr.jdem846.modelgrid.IModelGrid;
+import us.wthr.jdem846.modelgrid.NormalPlane;
 import us.wthr.jdem846.scaling.ElevationScaler;
 import us.wthr.jdem846.scripting.ScriptProxy;
 
@@ -114,7 +115,9 @@ public abstract class AbstractView implements View
 	public void getNormal(double latitude, double longitude, Vector normal, boolean useModelElevation)
 	{
 		if (useModelElevation) {
-			getNormalsCalculator().calculateNormal(latitude, longitude, normal);
+			if (!getPrecomputedNormal(modelGrid, scaler, latitude, longitude, normal)) {
+				getNormalsCalculator().calculateNormal(latitude, longitude, normal);
+			}
 		} else {
 			getNormalsCalculator().calculateNormal(latitude, longitude, radius(), normal);
 		}
@@ -133,6 +136,13 @@ public abstract class AbstractView implements View
 	
 	public void getNormal(double latitude, double longitude, Vector normal, final ElevationFetchCallback elevationFetchCallback)
 	{
+		if (elevationFetchCallback instanceof ScaledElevationFetchCallback) {
+			ScaledElevationFetchCallback scaledCallback = (ScaledElevationFetchCallback) elevationFetchCallback;
+			if (getPrecomputedNormal(scaledCallback.getModelGrid(), scaledCallback.getScaler(), latitude, longitude, normal)) {
+				return;
+			}
+		}
+		
 		getNormalsCalculator().calculateNormal(latitude, longitude, normal, new ElevationFetchCallback() {
 
 			@Override
@@ -144,6 +154,28 @@ public abstract class AbstractView implements View
 	}
 	
 	
+	/** Fetches the normal from the grid's normal plane when one was computed with the
+	 * settings of this view's normals calculator.
+	 */
+	protected boolean getPrecomputedNormal(IModelGrid modelGrid, ElevationScaler scaler, double latitude, double longitude, Vector normal)
+	{
+		if (modelGrid == null || modelDimensions == null) {
+			return false;
+		}
+		
+		NormalPlane normalPlane = modelGrid.getNormalPlane(useFlatNormals
+														, scaler
+														, planet
+														, modelDimensions.getModelLatitudeResolution()
+														, modelDimensions.getModelLongitudeResolution());
+		return (normalPlane != null && normalPlane.getNormal(latitude, longitude, normal));
+	}
+	
+	public double getOccluderRadius(double minimumElevation)
+	{
+		return 0.0;
+	}
+	
 	public void setModelContext(ModelContext arg)
 	{
 		modelContext = arg;
@@ -0,0 +1,218 @@
+package us.wthr.jdem846.graphics;
+
+/** Levels of detail for the terrain mesh of a texture, chosen for square blocks of grid
+ * cells. A block at level n keeps every 2^n-th row and column of vertices. Vertices along
+ * an edge shared with a finer block are taken at the finer block's step so that both
+ * sides of the edge meet at the same vertices and transitions leave no cracks.
+ */
+public class AdaptiveMesh
+{
+	public static final int BLOCK_SIZE = 32;
+	public static final int MAX_LEVEL = 5;
+
+	private int rows;
+	private int columns;
+	private int blockRows;
+	private int blockColumns;
+	private int[] levels;
+	private boolean[] culled;
+
+	/**
+	 * @param rows The number of rows of vertices
+	 * @param columns The number of columns of vertices
+	 */
+	public AdaptiveMesh(int rows, int columns)
+	{
+		this.rows = rows;
+		this.columns = columns;
+		this.blockRows = (rows > 1) ? (rows - 2) / BLOCK_SIZE + 1 : 0;
+		this.blockColumns = (columns > 1) ? (columns - 2) / BLOCK_SIZE + 1 : 0;
+		this.levels = new int[blockRows * blockColumns];
+		this.culled = new boolean[blockRows * blockColumns];
+	}
+
+	public int getBlockRows()
+	{
+		return blockRows;
+	}
+
+	public int getBlockColumns()
+	{
+		return blockColumns;
+	}
+
+	public int getFirstRow(int blockRow)
+	{
+		return blockRow * BLOCK_SIZE;
+	}
+
+	public int getLastRow(int blockRow)
+	{
+		return Math.min((blockRow + 1) * BLOCK_SIZE, rows - 1);
+	}
+
+	public int getFirstColumn(int blockColumn)
+	{
+		return blockColumn * BLOCK_SIZE;
+	}
+
+	public int getLastColumn(int blockColumn)
+	{
+		return Math.min((blockColumn + 1) * BLOCK_SIZE, columns - 1);
+	}
+
+	public int getLevel(int blockRow, int blockColumn)
+	{
+		return levels[blockRow * blockColumns + blockColumn];
+	}
+
+	public void setLevel(int blockRow, int blockColumn, int level)
+	{
+		levels[blockRow * blockColumns + blockColumn] = level;
+	}
+
+	/** Determines if a block is not rendered, being out of view.
+	 */
+	public boolean isCulled(int blockRow, int blockColumn)
+	{
+		return culled[blockRow * blockColumns + blockColumn];
+	}
+
+	public void setCulled(int blockRow, int blockColumn, boolean isCulled)
+	{
+		culled[blockRow * blockColumns + blockColumn] = isCulled;
+	}
+
+	/** The step between vertices of a block. Culled blocks place no constraint on the edges
+	 * of their neighbors, which lie out of view as well.
+	 */
+	public int getStep(int blockRow, int blockColumn)
+	{
+		return 1 << (isCulled(blockRow, blockColumn) ? MAX_LEVEL : getLevel(blockRow, blockColumn));
+	}
+
+	// Edges on the border of the mesh are kept at full resolution so that they meet
+	// neighboring regions, which are meshed separately
+
+	public int getNorthStep(int blockRow, int blockColumn)
+	{
+		return (blockRow == 0) ? 1 : Math.min(getStep(blockRow, blockColumn), getStep(blockRow - 1, blockColumn));
+	}
+
+	public int getSouthStep(int blockRow, int blockColumn)
+	{
+		return (blockRow == blockRows - 1) ? 1 : Math.min(getStep(blockRow, blockColumn), getStep(blockRow + 1, blockColumn));
+	}
+
+	public int getWestStep(int blockRow, int blockColumn)
+	{
+		return (blockColumn == 0) ? 1 : Math.min(getStep(blockRow, blockColumn), getStep(blockRow, blockColumn - 1));
+	}
+
+	public int getEastStep(int blockRow, int blockColumn)
+	{
+		return (blockColumn == blockColumns - 1) ? 1 : Math.min(getStep(blockRow, blockColumn), getStep(blockRow, blockColumn + 1));
+	}
+
+	/** Lists the indices from first to last at the given step, always ending with last.
+	 */
+	public static int[] getIndices(int first, int last, int step)
+	{
+		int count = (last - first + step - 1) / step + 1;
+		int[] indices = new int[count];
+		for (int i = 0; i < count - 1; i++) {
+			indices[i] = first + i * step;
+		}
+		indices[count - 1] = last;
+		return indices;
+	}
+
+	/** Computes, for each level, the greatest distance between a vertex of a block and the
+	 * triangles of that level covering it. Levels above zero are given an infinite error
+	 * when the block has vertices without data.
+	 *
+	 * @param points Projected vertices, with the x, y and z of each column interleaved in each row
+	 * @param longitudes The longitudes of the columns, which need not be evenly spaced
+	 */
+	public static double[] getLevelErrors(double[][] points, boolean[][] valid, int firstRow, int lastRow, int firstColumn, int lastColumn, double[] longitudes)
+	{
+		double[] errors = new double[MAX_LEVEL + 1];
+
+		for (int row = firstRow; row <= lastRow; row++) {
+			for (int column = firstColumn; column <= lastColumn; column++) {
+				if (!valid[row][column]) {
+					for (int level = 1; level <= MAX_LEVEL; level++) {
+						errors[level] = Double.POSITIVE_INFINITY;
+					}
+					return errors;
+				}
+			}
+		}
+
+		for (int level = 1; level <= MAX_LEVEL; level++) {
+			int step = 1 << level;
+			int[] rowIndices = getIndices(firstRow, lastRow, step);
+			int[] columnIndices = getIndices(firstColumn, lastColumn, step);
+
+			double error = 0;
+			for (int i = 0; i < rowIndices.length - 1; i++) {
+				for (int j = 0; j < columnIndices.length - 1; j++) {
+					error = Math.max(error, getCellError(points, rowIndices[i], rowIndices[i + 1], columnIndices[j], columnIndices[j + 1], longitudes));
+				}
+			}
+			errors[level] = Math.max(error, errors[level - 1]);
+		}
+
+		return errors;
+	}
+
+	/** The error of a cell split as a triangle strip would split it, along the diagonal
+	 * from its lower left to its upper right vertex.
+	 */
+	protected static double getCellError(double[][] points, int upperRow, int lowerRow, int westColumn, int eastColumn, double[] longitudes)
+	{
+		double error = 0;
+
+		for (int row = upperRow; row <= lowerRow; row++) {
+			double fy = (double) (row - upperRow) / (double) (lowerRow - upperRow);
+
+			for (int column = westColumn; column <= eastColumn; column++) {
+				double fx = (longitudes[column] - longitudes[westColumn]) / (longitudes[eastColumn] - longitudes[westColumn]);
+
+				double distance = 0;
+				for (int k = 0; k < 3; k++) {
+					double upperWest = points[upperRow][westColumn * 3 + k];
+					double upperEast = points[upperRow][eastColumn * 3 + k];
+					double lowerWest = points[lowerRow][westColumn * 3 + k];
+					double lowerEast = points[lowerRow][eastColumn * 3 + k];
+
+					double interpolated;
+					if (fx + fy <= 1.0) {
+						interpolated = upperWest + fx * (upperEast - upperWest) + fy * (lowerWest - upperWest);
+					} else {
+						interpolated = lowerEast + (1.0 - fx) * (lowerWest - lowerEast) + (1.0 - fy) * (upperEast - lowerEast);
+					}
+
+					double d = points[row][column * 3 + k] - interpolated;
+					distance += d * d;
+				}
+
+				error = Math.max(error, distance);
+			}
+		}
+
+		return Math.sqrt(error);
+	}
+
+	/** Selects the coarsest level whose error, scaled to pixels, is within the allowed error.
+	 */
+	public static int selectLevel(double[] errors, double pixelsPerUnit, double maximumPixelError)
+	{
+		for (int level = MAX_LEVEL; level > 0; level--) {
+			if (errors[level] * pixelsPerUnit <= maximumPixelError) {
+				return level;
+			}
+		}
+		return 0;
+	}
+}
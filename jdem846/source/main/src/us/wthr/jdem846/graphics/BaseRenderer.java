@@ -51,6 +51,18 @@ public abstract class BaseRenderer implements IRenderer
 		setMaterial(emissionColor, ambientColor, diffuseColor, specularColor, shininess);
 	}
 	
+	@Override
+	public boolean isVisible(Vector center, double radius)
+	{
+		return true;
+	}
+	
+	@Override
+	public boolean isOccluded(Vector center, double radius, Vector occluderCenter, double occluderRadius)
+	{
+		return false;
+	}
+	
 	@Override
 	public boolean bindTexture(Texture texture)
 	{
@@ -0,0 +1,488 @@
+package us.wthr.jdem846.graphics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import us.wthr.jdem846.graphics.framebuffer.FrameBuffer;
+import us.wthr.jdem846.logging.Log;
+import us.wthr.jdem846.logging.Logging;
+import us.wthr.jdem846.math.MathExt;
+import us.wthr.jdem846.math.Matrix;
+import us.wthr.jdem846.math.Vector;
+
+/** Defers triangle strip rasterization so that it can be spread over a pool of worker
+ * threads. Vertices are recorded untransformed along with the matrices in effect when
+ * they were submitted. On flush, vertices are projected in parallel, the resulting
+ * triangles are binned into screen tiles and each tile is then rasterized by a single
+ * worker. Triangles within a tile are drawn in submission order, so the frame buffer
+ * receives exactly the same fragments, in the same per-pixel order, as it would from
+ * TriangleStripDraw.
+ */
+public class BinnedRasterizer
+{
+	private static Log log = Logging.getLog(BinnedRasterizer.class);
+
+	public static final int TILE_SIZE = 64;
+
+	/** Pending vertex count above which GraphicsRenderer flushes at the end of a strip. */
+	public static final int FLUSH_VERTEX_COUNT = 262144;
+
+	private final int threads;
+	private ExecutorService executor = null;
+
+	private FrameBuffer frameBuffer = null;
+
+	// Vertex attributes. Coordinates are replaced by their window coordinates on flush.
+	private double[] x = new double[1024];
+	private double[] y = new double[1024];
+	private double[] z = new double[1024];
+	private double[] left = new double[1024];
+	private double[] front = new double[1024];
+	private int[] rgba = new int[1024];
+	private boolean[] useTexture = new boolean[1024];
+	private int[] textureIndex = new int[1024];
+	private int[] transformIndex = new int[1024];
+	private boolean[] projected = new boolean[1024];
+	private int vertexCount = 0;
+
+	private int[] stripStarts = new int[64];
+	private int stripCount = 0;
+
+	private List<Texture> textures = new ArrayList<Texture>();
+	private List<Transform> transforms = new ArrayList<Transform>();
+
+	private int[] triangles = new int[0];
+	private int triangleCount = 0;
+
+	public BinnedRasterizer(int threads)
+	{
+		this.threads = threads;
+	}
+
+	public void setFrameBuffer(FrameBuffer frameBuffer)
+	{
+		if (this.frameBuffer != frameBuffer && vertexCount > 0) {
+			flush();
+		}
+		this.frameBuffer = frameBuffer;
+	}
+
+	public FrameBuffer getFrameBuffer()
+	{
+		return frameBuffer;
+	}
+
+	/** Snapshots the model view and projection matrices and the viewport. Vertices
+	 * submitted afterwards refer to the returned index.
+	 */
+	public int addTransform(Matrix modelView, Matrix projection, ViewPort viewPort)
+	{
+		transforms.add(new Transform(modelView.copy(), projection.copy(), viewPort));
+		return transforms.size() - 1;
+	}
+
+	public void beginStrip()
+	{
+		if (stripCount == stripStarts.length) {
+			int[] grown = new int[stripStarts.length * 2];
+			System.arraycopy(stripStarts, 0, grown, 0, stripCount);
+			stripStarts = grown;
+		}
+		stripStarts[stripCount++] = vertexCount;
+	}
+
+	public void vertex(double x, double y, double z, int rgba, Texture texture, int transform)
+	{
+		if (vertexCount == this.x.length) {
+			grow(vertexCount * 2);
+		}
+
+		int i = vertexCount++;
+		this.x[i] = x;
+		this.y[i] = y;
+		this.z[i] = z;
+		this.rgba[i] = rgba;
+
+		if (texture != null) {
+			this.useTexture[i] = true;
+			this.left[i] = texture.left;
+			this.front[i] = texture.front;
+		} else {
+			this.useTexture[i] = false;
+			this.left[i] = 0;
+			this.front[i] = 0;
+		}
+
+		this.textureIndex[i] = getTextureIndex(texture);
+		this.transformIndex[i] = transform;
+	}
+
+	public int getVertexCount()
+	{
+		return vertexCount;
+	}
+
+	protected int getTextureIndex(Texture texture)
+	{
+		if (texture == null) {
+			return -1;
+		}
+
+		int last = textures.size() - 1;
+		if (last < 0 || textures.get(last) != texture) {
+			textures.add(texture);
+			last++;
+		}
+		return last;
+	}
+
+	protected void grow(int capacity)
+	{
+		x = copyOf(x, capacity);
+		y = copyOf(y, capacity);
+		z = copyOf(z, capacity);
+		left = copyOf(left, capacity);
+		front = copyOf(front, capacity);
+
+		int[] ints = new int[capacity];
+		System.arraycopy(rgba, 0, ints, 0, vertexCount);
+		rgba = ints;
+
+		ints = new int[capacity];
+		System.arraycopy(textureIndex, 0, ints, 0, vertexCount);
+		textureIndex = ints;
+
+		ints = new int[capacity];
+		System.arraycopy(transformIndex, 0, ints, 0, vertexCount);
+		transformIndex = ints;
+
+		boolean[] flags = new boolean[capacity];
+		System.arraycopy(useTexture, 0, flags, 0, vertexCount);
+		useTexture = flags;
+
+		projected = new boolean[capacity];
+	}
+
+	protected double[] copyOf(double[] values, int capacity)
+	{
+		double[] grown = new double[capacity];
+		System.arraycopy(values, 0, grown, 0, vertexCount);
+		return grown;
+	}
+
+	/** Rasterizes and discards all pending vertices.
+	 *
+	 * @return False if interrupted before all tiles were drawn.
+	 */
+	public boolean flush()
+	{
+		if (vertexCount == 0 || frameBuffer == null) {
+			clear();
+			return true;
+		}
+
+		boolean completed = false;
+		try {
+			projectVertices();
+			assembleTriangles();
+
+			if (triangleCount > 0) {
+				rasterize(bin());
+			}
+			completed = true;
+		} catch (InterruptedException ex) {
+			log.warn("Interrupted while rasterizing binned triangles");
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ex.getCause();
+			} else if (ex.getCause() instanceof Error) {
+				throw (Error) ex.getCause();
+			} else {
+				throw new RuntimeException("Error rasterizing binned triangles: " + ex.getMessage(), ex);
+			}
+		} finally {
+			clear();
+		}
+
+		return completed;
+	}
+
+	/** Discards all pending vertices without drawing them.
+	 */
+	public void clear()
+	{
+		vertexCount = 0;
+		stripCount = 0;
+		triangleCount = 0;
+		textures.clear();
+		transforms.clear();
+	}
+
+	public void dispose()
+	{
+		clear();
+		if (executor != null) {
+			executor.shutdown();
+			executor = null;
+		}
+	}
+
+	protected void projectVertices() throws InterruptedException, ExecutionException
+	{
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		int chunk = (vertexCount + threads - 1) / threads;
+		for (int start = 0; start < vertexCount; start += chunk) {
+			final int from = start;
+			final int to = Math.min(vertexCount, start + chunk);
+			tasks.add(new Callable<Void>() {
+				public Void call()
+				{
+					Vector v = new Vector();
+					Vector in = new Vector();
+					Vector out = new Vector();
+					for (int i = from; i < to; i++) {
+						Transform transform = transforms.get(transformIndex[i]);
+						v.x = x[i];
+						v.y = y[i];
+						v.z = z[i];
+						v.w = 1.0;
+
+						projected[i] = GraphicsRenderer.project(transform.modelView, transform.projection, transform.viewPort, v, in, out);
+						if (projected[i]) {
+							x[i] = v.x;
+							y[i] = v.y;
+							z[i] = v.z;
+						}
+					}
+					return null;
+				}
+			});
+		}
+		invokeAll(tasks);
+	}
+
+	/** Forms triangles the way TriangleStripDraw does: each vertex after the second closes
+	 * a triangle with the two before it. Vertices that failed projection are skipped.
+	 */
+	protected void assembleTriangles()
+	{
+		if (triangles.length < vertexCount * 3) {
+			triangles = new int[vertexCount * 3];
+		}
+
+		triangleCount = 0;
+		for (int s = 0; s < stripCount; s++) {
+			int from = stripStarts[s];
+			int to = (s + 1 < stripCount) ? stripStarts[s + 1] : vertexCount;
+
+			int v0 = -1;
+			int v1 = -1;
+			int advances = 0;
+			for (int i = from; i < to; i++) {
+				if (!projected[i]) {
+					continue;
+				}
+
+				if (++advances > 2) {
+					int t = triangleCount++ * 3;
+					triangles[t] = v0;
+					triangles[t + 1] = v1;
+					triangles[t + 2] = i;
+				}
+				v0 = v1;
+				v1 = i;
+			}
+		}
+	}
+
+	/** Sorts triangles into per-tile lists. Each worker bins a contiguous range of
+	 * triangles, so walking the ranges in order preserves submission order.
+	 */
+	protected TileBins[] bin() throws InterruptedException, ExecutionException
+	{
+		final int tileColumns = (frameBuffer.getWidth() + TILE_SIZE - 1) / TILE_SIZE;
+		final int tileRows = (frameBuffer.getHeight() + TILE_SIZE - 1) / TILE_SIZE;
+
+		int chunk = (triangleCount + threads - 1) / threads;
+		int chunks = (triangleCount + chunk - 1) / chunk;
+		final TileBins[] bins = new TileBins[chunks];
+
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (int c = 0; c < chunks; c++) {
+			final int index = c;
+			final int from = c * chunk;
+			final int to = Math.min(triangleCount, from + chunk);
+			tasks.add(new Callable<Void>() {
+				public Void call()
+				{
+					TileBins tileBins = new TileBins(tileColumns * tileRows);
+					int width = frameBuffer.getWidth();
+					int height = frameBuffer.getHeight();
+
+					for (int t = from; t < to; t++) {
+						int a = triangles[t * 3];
+						int b = triangles[t * 3 + 1];
+						int c = triangles[t * 3 + 2];
+
+						double minX = MathExt.floor(MathExt.min(x[a], x[b], x[c]));
+						double minY = MathExt.floor(MathExt.min(y[a], y[b], y[c]));
+						double maxX = MathExt.ceil(MathExt.max(x[a], x[b], x[c]));
+						double maxY = MathExt.ceil(MathExt.max(y[a], y[b], y[c]));
+
+						if (maxX < 0 || minX >= width || maxY < 0 || minY >= height) {
+							continue;
+						}
+
+						int firstColumn = (int) MathExt.max(0, minX) / TILE_SIZE;
+						int lastColumn = (int) MathExt.min(width - 1, maxX) / TILE_SIZE;
+						int firstRow = (int) MathExt.max(0, minY) / TILE_SIZE;
+						int lastRow = (int) MathExt.min(height - 1, maxY) / TILE_SIZE;
+
+						for (int row = firstRow; row <= lastRow; row++) {
+							for (int column = firstColumn; column <= lastColumn; column++) {
+								tileBins.add(row * tileColumns + column, t);
+							}
+						}
+					}
+
+					bins[index] = tileBins;
+					return null;
+				}
+			});
+		}
+		invokeAll(tasks);
+
+		return bins;
+	}
+
+	protected void rasterize(final TileBins[] bins) throws InterruptedException, ExecutionException
+	{
+		final int tileColumns = (frameBuffer.getWidth() + TILE_SIZE - 1) / TILE_SIZE;
+		final int tileCount = tileColumns * ((frameBuffer.getHeight() + TILE_SIZE - 1) / TILE_SIZE);
+		final AtomicInteger nextTile = new AtomicInteger(0);
+
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (int i = 0; i < threads; i++) {
+			tasks.add(new Callable<Void>() {
+				public Void call()
+				{
+					// Everything mutable here is private to this worker; tiles never share pixels
+					TriangleStripDraw drawer = new TriangleStripDraw(frameBuffer);
+					TexTriangle triangle = new TexTriangle();
+					TexVertex p0 = new TexVertex();
+					TexVertex p1 = new TexVertex();
+					TexVertex p2 = new TexVertex();
+
+					int tile;
+					while ((tile = nextTile.getAndIncrement()) < tileCount) {
+						int tileX = (tile % tileColumns) * TILE_SIZE;
+						int tileY = (tile / tileColumns) * TILE_SIZE;
+
+						for (TileBins tileBins : bins) {
+							int[] list = tileBins.lists[tile];
+							int count = tileBins.counts[tile];
+
+							for (int j = 0; j < count; j++) {
+								int t = list[j] * 3;
+								setVertex(p0, triangles[t]);
+								setVertex(p1, triangles[t + 1]);
+								setVertex(p2, triangles[t + 2]);
+
+								int texture = textureIndex[triangles[t + 2]];
+								drawer.setTexture((texture >= 0) ? textures.get(texture) : null);
+
+								triangle.setVerteces(p0, p1, p2);
+								drawer.fill(triangle, tileX, tileY, tileX + TILE_SIZE - 1, tileY + TILE_SIZE - 1);
+							}
+						}
+					}
+					return null;
+				}
+			});
+		}
+		invokeAll(tasks);
+	}
+
+	protected void setVertex(TexVertex v, int i)
+	{
+		v.vector.x = x[i];
+		v.vector.y = y[i];
+		v.vector.z = z[i];
+		v.rgba = rgba[i];
+		v.useTexture = useTexture[i];
+		v.left = left[i];
+		v.front = front[i];
+	}
+
+	protected void invokeAll(List<Callable<Void>> tasks) throws InterruptedException, ExecutionException
+	{
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(threads, new RasterizerThreadFactory());
+		}
+
+		List<Future<Void>> futures = executor.invokeAll(tasks);
+		for (Future<Void> future : futures) {
+			future.get();
+		}
+	}
+
+
+	static class Transform
+	{
+		final Matrix modelView;
+		final Matrix projection;
+		final ViewPort viewPort;
+
+		Transform(Matrix modelView, Matrix projection, ViewPort viewPort)
+		{
+			this.modelView = modelView;
+			this.projection = projection;
+			this.viewPort = viewPort;
+		}
+	}
+
+	static class TileBins
+	{
+		final int[][] lists;
+		final int[] counts;
+
+		TileBins(int tileCount)
+		{
+			lists = new int[tileCount][];
+			counts = new int[tileCount];
+		}
+
+		void add(int tile, int triangle)
+		{
+			int[] list = lists[tile];
+			if (list == null) {
+				list = lists[tile] = new int[16];
+			} else if (counts[tile] == list.length) {
+				int[] grown = new int[list.length * 2];
+				System.arraycopy(list, 0, grown, 0, list.length);
+				list = lists[tile] = grown;
+			}
+			list[counts[tile]++] = triangle;
+		}
+	}
+
+	static class RasterizerThreadFactory implements ThreadFactory
+	{
+		private int threadNumber = 0;
+
+		public synchronized Thread newThread(Runnable runnable)
+		{
+			Thread thread = new Thread(runnable, "Rasterizer #" + (threadNumber++));
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
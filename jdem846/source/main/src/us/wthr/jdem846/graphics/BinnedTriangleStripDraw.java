@@ -0,0 +1,36 @@
+package us.wthr.jdem846.graphics;
+
+/** Records triangle strip vertices for a BinnedRasterizer rather than drawing them.
+ * Vertices are untransformed and are projected when the rasterizer is flushed, using
+ * the rasterizer transform current when they were recorded.
+ */
+public class BinnedTriangleStripDraw extends PrimitiveDraw
+{
+	private BinnedRasterizer rasterizer;
+	private int transformIndex;
+	
+	public BinnedTriangleStripDraw(BinnedRasterizer rasterizer, int transformIndex)
+	{
+		super(rasterizer.getFrameBuffer());
+		this.rasterizer = rasterizer;
+		this.transformIndex = transformIndex;
+	}
+	
+	/** Sets the rasterizer transform, as returned by BinnedRasterizer.addTransform(), applied to subsequent vertices.
+	 */
+	public void setTransformIndex(int transformIndex)
+	{
+		this.transformIndex = transformIndex;
+	}
+	
+	public int getTransformIndex()
+	{
+		return transformIndex;
+	}
+	
+	public void vertex(double x, double y, double z)
+	{
+		rasterizer.vertex(x, y, z, this.color, this.texture, this.transformIndex);
+	}
+	
+}
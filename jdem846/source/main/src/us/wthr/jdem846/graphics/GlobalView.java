@@ -47,6 +47,14 @@ public class GlobalView extends AbstractView implements View
 	
 
 	
+	@Override
+	public double getOccluderRadius(double minimumElevation)
+	{
+		double radius = MathExt.min(getEllipsoid().getPolarRadius(), getEllipsoid().getEquitorialRadius());
+		radius += MathExt.min(0.0, scaleElevation(minimumElevation));
+		return MathExt.max(0.0, radius);
+	}
+	
 	@Override
 	public double radiusTrue()
 	{
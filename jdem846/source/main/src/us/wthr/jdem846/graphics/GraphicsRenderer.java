@@ -40,10 +40,27 @@ public class GraphicsRenderer extends BaseRenderer implements IRenderer
 	protected MatrixStack projectionStack = null;
 	protected MatrixStack currentMatrixStack = null;
 	
+	// Set when triangle strips are rasterized by a pool of worker threads
+	protected BinnedRasterizer rasterizer = null;
+	protected boolean transformChanged = true;
+	protected int transformIndex = -1;
+	
 	public GraphicsRenderer()
+	{
+		this(1);
+	}
+	
+	/** @param rasterizerThreads Number of threads used to rasterize triangle strips. Strips are
+	 * drawn immediately on the calling thread when this is one.
+	 */
+	public GraphicsRenderer(int rasterizerThreads)
 	{
 		modelViewStack = new MatrixStack(true);
 		projectionStack = new MatrixStack(true);
+		
+		if (rasterizerThreads > 1) {
+			rasterizer = new BinnedRasterizer(rasterizerThreads);
+		}
 	}
 	
 	public void initialize(int width, int height)
@@ -111,6 +128,7 @@ public class GraphicsRenderer extends BaseRenderer implements IRenderer
 	{
 		if (tgt != null && with != null) {
 			tgt.multiply(with);
+			this.transformChanged = true;
 		}
 	}
 	
@@ -128,6 +146,7 @@ public class GraphicsRenderer extends BaseRenderer implements IRenderer
 	{
 		if (this.currentMatrixStack != null) {
 			this.currentMatrixStack.push();
+			this.transformChanged = true;
 		}
 	}
 	
@@ -136,12 +155,14 @@ public class GraphicsRenderer extends BaseRenderer implements IRenderer
 	{
 		if (this.currentMatrixStack != null) {
 			this.currentMatrixStack.pop();
+			this.transformChanged = true;
 		}
 	}
 	
 	@Override
 	public void setFrameBuffer(FrameBuffer frameBuffer)
 	{
+		this.flush();
 		this.frameBuffer = frameBuffer;
 		if (this.frameBuffer != null) {
 			frameBufferProvided = true;
@@ -158,7 +179,9 @@ public class GraphicsRenderer extends BaseRenderer implements IRenderer
 			this.error = RenderCodesEnum.RENDER_ERR_INVALID_DIMENSIONS;
 			return;
 		}
+		this.flush();
 		this.viewPort = new ViewPort(x, y, width, height);
+		this.transformChanged = true;
 
 		if (!frameBufferProvided) {
 			this.frameBuffer = FrameBufferFactory.createFrameBufferInstance(width, height, bufferMode);
@@ -186,6 +209,7 @@ public class GraphicsRenderer extends BaseRenderer implements IRenderer
 	{
 		if (this.currentMatrixStack != null && this.currentMatrixStack.depth() > 0) {
 			this.currentMatrixStack.top().loadIdentity();
+			this.transformChanged = true;
 		}
 	}
 	
@@ -353,6 +377,7 @@ public class GraphicsRenderer extends BaseRenderer implements IRenderer
 	public void clearColorBuffer(int backgroundColor)
 	{
 		if (this.frameBuffer != null) {
+			this.flush();
 			this.frameBuffer.reset(true, backgroundColor);
 		} else {
 			this.error = RenderCodesEnum.RENDER_ERR_NO_FRAME_BUFFER_DEFINED;
@@ -412,6 +437,7 @@ public class GraphicsRenderer extends BaseRenderer implements IRenderer
 	{
 		if (this.currentMatrixStack != null && this.currentMatrixStack.top() != null) {
 			this.currentMatrixStack.top().translate(x, y, z);
+			this.transformChanged = true;
 		}
 	}
 	
@@ -420,6 +446,7 @@ public class GraphicsRenderer extends BaseRenderer implements IRenderer
 	{
 		if (this.currentMatrixStack != null && this.currentMatrixStack.top() != null) {
 			this.currentMatrixStack.top().scale(x, y, z);
+			this.transformChanged = true;
 		}
 	}
 	
@@ -430,7 +457,13 @@ public class GraphicsRenderer extends BaseRenderer implements IRenderer
 			this.error = RenderCodesEnum.RENDER_ERR_INVALID_OPERATION;
 		} else {
 			
-			if (mode == PrimitiveModeEnum.TRIANGLE_STRIP) {
+			if (mode == PrimitiveModeEnum.TRIANGLE_STRIP && this.rasterizer != null && this.frameBuffer != null) {
+				this.rasterizer.setFrameBuffer(this.frameBuffer);
+				this.rasterizer.beginStrip();
+				this.primitiveDrawer = new BinnedTriangleStripDraw(this.rasterizer, this.transformIndex);
+				this.primitiveDrawer.setColor(currentColor);
+				this.primitiveDrawer.setTexture(currentTexture);
+			} else if (mode == PrimitiveModeEnum.TRIANGLE_STRIP) {
 				this.primitiveDrawer = new TriangleStripDraw(this.frameBuffer);
 				this.primitiveDrawer.setColor(currentColor);
 				this.primitiveDrawer.setTexture(currentTexture);
@@ -450,6 +483,23 @@ public class GraphicsRenderer extends BaseRenderer implements IRenderer
 	{
 		this.primitiveDrawer = null;
 		this.inPrimitiveDraw = false;
+		
+		if (this.rasterizer != null && this.rasterizer.getVertexCount() >= BinnedRasterizer.FLUSH_VERTEX_COUNT) {
+			this.flush();
+		}
+	}
+	
+	/** Draws any triangles deferred to the binned rasterizer.
+	 */
+	protected void flush()
+	{
+		if (this.rasterizer != null) {
+			if (!this.rasterizer.flush()) {
+				this.error = RenderCodesEnum.RENDER_ERR_UNSPECIFIED;
+			}
+			// Transform snapshots are discarded with the flushed vertices
+			this.transformChanged = true;
+		}
 	}
 	
 
@@ -484,7 +534,15 @@ public class GraphicsRenderer extends BaseRenderer implements IRenderer
 			v0.y = y;
 			v0.z = z;
 			v0.w = 1.0;
-			if (this.project(v0)) {
+			if (this.primitiveDrawer instanceof BinnedTriangleStripDraw) {
+				// Projected later by the rasterizer, using the matrices in effect now
+				if (this.transformChanged) {
+					this.transformIndex = this.rasterizer.addTransform(this.modelViewStack.top(), this.projectionStack.top(), this.viewPort);
+					this.transformChanged = false;
+					((BinnedTriangleStripDraw) this.primitiveDrawer).setTransformIndex(this.transformIndex);
+				}
+				this.primitiveDrawer.vertex(x, y, z);
+			} else if (this.project(v0)) {
 				this.primitiveDrawer.vertex(v0.x, v0.y, v0.z);
 			}
 			
@@ -494,15 +552,117 @@ public class GraphicsRenderer extends BaseRenderer implements IRenderer
 	@Override
 	public boolean project(Vector v)
 	{
-
-		Vector in = new Vector(v);
-		in.w = 1.0;
+		return project(this.modelViewStack.top(), this.projectionStack.top(), this.viewPort, v, new Vector(), new Vector());
+	}
+	
+	/** Tests the sphere against the six planes of the view volume, which are taken from the
+	 * rows of the combined projection and model view matrix.
+	 */
+	@Override
+	public boolean isVisible(Vector center, double radius)
+	{
+		double[] modelView = this.modelViewStack.top().matrix;
+		double[] projection = this.projectionStack.top().matrix;
 		
-		Vector out = new Vector();
+		// Matrices are column major, so element (row, column) is at column * 4 + row
+		double[] rows = new double[16];
+		for (int row = 0; row < 4; row++) {
+			for (int column = 0; column < 4; column++) {
+				double value = 0;
+				for (int k = 0; k < 4; k++) {
+					value += projection[k * 4 + row] * modelView[column * 4 + k];
+				}
+				rows[row * 4 + column] = value;
+			}
+		}
 		
+		for (int plane = 0; plane < 6; plane++) {
+			int axis = plane / 2;
+			double sign = (plane % 2 == 0) ? 1.0 : -1.0;
+			
+			double a = rows[12] + sign * rows[axis * 4];
+			double b = rows[13] + sign * rows[axis * 4 + 1];
+			double c = rows[14] + sign * rows[axis * 4 + 2];
+			double d = rows[15] + sign * rows[axis * 4 + 3];
+			
+			double length = Math.sqrt(a * a + b * b + c * c);
+			if (length == 0) {
+				continue;
+			}
+			
+			if ((a * center.x + b * center.y + c * center.z + d) / length < -radius) {
+				return false;
+			}
+		}
 		
-		this.modelViewStack.top().multiply(in, out);
-		this.projectionStack.top().multiply(out, in);
+		return true;
+	}
+	
+	/** Tests the sphere against the shadow the occluder casts from the eye, which is at the
+	 * origin of eye space for perspective projections and infinitely far along positive z
+	 * for orthographic ones.
+	 */
+	@Override
+	public boolean isOccluded(Vector center, double radius, Vector occluderCenter, double occluderRadius)
+	{
+		Matrix modelView = this.modelViewStack.top();
+		Matrix projection = this.projectionStack.top();
+		
+		// Take the smallest scale for the occluder and the largest for the sphere, in case
+		// the model view scales unevenly
+		double[] m = modelView.matrix;
+		double scaleX = Math.sqrt(m[0] * m[0] + m[1] * m[1] + m[2] * m[2]);
+		double scaleY = Math.sqrt(m[4] * m[4] + m[5] * m[5] + m[6] * m[6]);
+		double scaleZ = Math.sqrt(m[8] * m[8] + m[9] * m[9] + m[10] * m[10]);
+		double r = radius * Math.max(scaleX, Math.max(scaleY, scaleZ));
+		double occluder = occluderRadius * Math.min(scaleX, Math.min(scaleY, scaleZ));
+		
+		if (occluder <= 0) {
+			return false;
+		}
+		
+		Vector b = new Vector();
+		Vector c = new Vector();
+		modelView.multiply(new Vector(center.x, center.y, center.z, 1.0), b);
+		modelView.multiply(new Vector(occluderCenter.x, occluderCenter.y, occluderCenter.z, 1.0), c);
+		
+		if (projection.matrix[2 * 4 + 3] == 0.0) {
+			double offset = Math.sqrt((b.x - c.x) * (b.x - c.x) + (b.y - c.y) * (b.y - c.y));
+			return (offset + r <= occluder && -b.z - r >= -c.z);
+		}
+		
+		double occluderDistance = Math.sqrt(c.x * c.x + c.y * c.y + c.z * c.z);
+		double distance = Math.sqrt(b.x * b.x + b.y * b.y + b.z * b.z);
+		if (occluderDistance <= occluder || distance <= r) {
+			return false;
+		}
+		
+		// Everything within the cone tangent to the occluder and beyond the tangent points
+		// is hidden
+		double tangentLength = Math.sqrt(occluderDistance * occluderDistance - occluder * occluder);
+		if (distance - r < tangentLength) {
+			return false;
+		}
+		
+		double coneAngle = Math.asin(occluder / occluderDistance);
+		double cosAngle = (b.x * c.x + b.y * c.y + b.z * c.z) / (distance * occluderDistance);
+		double angle = Math.acos(Math.max(-1.0, Math.min(1.0, cosAngle)));
+		
+		return (angle + Math.asin(r / distance) <= coneAngle);
+	}
+	
+	/** Projects a vertex to window coordinates, using the caller's scratch vectors so that
+	 * it may be called concurrently.
+	 */
+	protected static boolean project(Matrix modelView, Matrix projection, ViewPort viewPort, Vector v, Vector in, Vector out)
+	{
+		in.x = v.x;
+		in.y = v.y;
+		in.z = v.z;
+		in.w = 1.0;
+		
+		modelView.multiply(in, out);
+		projection.multiply(out, in);
 		
 		if (in.w == 0.0) {
 			return false;
@@ -518,8 +678,8 @@ public class GraphicsRenderer extends BaseRenderer implements IRenderer
 		
 
 		
-		in.x = in.x * (double)this.viewPort.getWidth() + this.viewPort.getX();
-		in.y = in.y * (double)this.viewPort.getHeight() + this.viewPort.getY();
+		in.x = in.x * (double)viewPort.getWidth() + viewPort.getX();
+		in.y = in.y * (double)viewPort.getHeight() + viewPort.getY();
 		
 		v.x = in.x;
 		v.y = in.y;
@@ -539,25 +699,29 @@ public class GraphicsRenderer extends BaseRenderer implements IRenderer
 	@Override
 	public ImageCapture captureImage()
 	{
+		this.flush();
 		return frameBuffer.captureImage();
 	}
 	
 	
 	public FrameBuffer getFrameBuffer()
 	{
+		this.flush();
 		return frameBuffer;
 	}
 	
 	@Override
 	public void finish()
 	{
-		
+		this.flush();
 	}
 	
 	@Override
 	public void dispose()
 	{
-		
+		if (this.rasterizer != null) {
+			this.rasterizer.dispose();
+		}
 	}
 	
 	@Override
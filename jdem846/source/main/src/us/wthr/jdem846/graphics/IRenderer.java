@@ -90,6 +90,15 @@ public interface IRenderer
 	public void vertex(double x, double y, double z);
 
 	public boolean project(Vector v);
+	
+	/** Determines if any part of a sphere, in model coordinates, may be within the view volume.
+	 */
+	public boolean isVisible(Vector center, double radius);
+	
+	/** Determines if a sphere, in model coordinates, is entirely hidden from the eye behind
+	 * an opaque occluding sphere.
+	 */
+	public boolean isOccluded(Vector center, double radius, Vector occluderCenter, double occluderRadius);
 
 	public ImageCapture captureImage();
 	
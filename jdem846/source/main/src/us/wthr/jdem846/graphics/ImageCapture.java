@@ -1,7 +1,16 @@
 package us.wthr.jdem846.graphics;
 
+import java.awt.image.BufferedImage;
+import java.io.OutputStream;
+
+import javax.imageio.stream.FileImageOutputStream;
+
 import us.wthr.jdem846.buffers.BufferFactory;
 import us.wthr.jdem846.buffers.IIntBuffer;
+import us.wthr.jdem846.exception.ImageException;
+import us.wthr.jdem846.image.ImageBuffers;
+import us.wthr.jdem846.image.ImageTypeEnum;
+import us.wthr.jdem846.image.ImageWriter;
 
 public class ImageCapture
 {
@@ -19,14 +28,19 @@ public class ImageCapture
 		this.height = height;
 		this.backgroundColor = backgroundColor;
 		
-		int capacity = width * height;
+		long capacity = (long) width * (long) height;
 		buffer = BufferFactory.allocateIntBuffer(capacity);
-		for (int i = 0; i < capacity; i++) {
-			buffer.put(i, backgroundColor);
-		}
+		buffer.fill(0, capacity, backgroundColor);
 
 	}
 	
+	/** Sets every pixel to the same color.
+	 */
+	public void fill(int rgba)
+	{
+		buffer.fill(0, (long) width * (long) height, rgba);
+	}
+	
 	public void dispose()
 	{
 		if (buffer != null) {
@@ -41,8 +55,29 @@ public class ImageCapture
 			return;
 		}
 		
-		int index = (y * this.width) + x;
-		buffer.put(index, rgba);
+		long index = ((long) y * this.width) + x;
+		buffer.putInt(index, rgba);
+	}
+	
+	
+	/** Copies a run of pixels along a row, clipping to the image bounds.
+	 */
+	public void set(int x, int y, int[] rgba, int offset, int length)
+	{
+		if (y < 0 || y >= this.height) {
+			return;
+		}
+		
+		if (x < 0) {
+			offset -= x;
+			length += x;
+			x = 0;
+		}
+		length = Math.min(length, this.width - x);
+		
+		if (length > 0) {
+			buffer.put(rgba, ((long) y * this.width) + x, offset, length);
+		}
 	}
 	
 	
@@ -52,8 +87,37 @@ public class ImageCapture
 			return backgroundColor;
 		}
 		
-		int index = (y * this.width) + x;
-		return buffer.get(index);
+		long index = ((long) y * this.width) + x;
+		return buffer.getInt(index);
+	}
+	
+	
+	/** Copies a row of pixels.
+	 */
+	public void getRow(int y, int[] rgba, int offset)
+	{
+		buffer.getInts((long) y * this.width, rgba, offset, this.width);
+	}
+	
+	
+	/** Creates an image over the captured pixels. When the pixels are held on the heap the
+	 * image shares them rather than copying them.
+	 */
+	public BufferedImage getImage()
+	{
+		return ImageBuffers.createImage(buffer, width, height);
+	}
+	
+	
+	public void writeImage(OutputStream out, ImageTypeEnum format) throws ImageException
+	{
+		ImageWriter.saveImage(buffer, width, height, out, format);
+	}
+	
+	
+	public void writeImage(FileImageOutputStream out, ImageTypeEnum format) throws ImageException
+	{
+		ImageWriter.saveImage(buffer, width, height, out, format);
 	}
 	
 	
@@ -0,0 +1,10 @@
+package us.wthr.jdem846.graphics;
+
+import us.wthr.jdem846.exception.GraphicsRenderException;
+
+public interface RegionRenderCallback
+{
+	/** Renders a rectangle of the output image, given in window coordinates, and captures it.
+	 */
+	public ImageCapture renderRegion(int x, int y, int width, int height) throws GraphicsRenderException;
+}
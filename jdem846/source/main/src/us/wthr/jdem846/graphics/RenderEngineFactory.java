@@ -26,7 +26,7 @@ public class RenderEngineFactory
 		
 		if (renderEngine.equalsIgnoreCase("software")) {
 			log.info("Initializing software renderer");
-			renderer = new GraphicsRenderer();
+			renderer = new GraphicsRenderer(getRasterizerThreads());
 		} else if (renderEngine.equalsIgnoreCase("opengl")) {
 			log.info("Initializing OpenGL renderer");
 			renderer = new OpenGlRenderer(isPreview);
@@ -37,5 +37,18 @@ public class RenderEngineFactory
 		return renderer;
 	}
 	
+	protected static int getRasterizerThreads()
+	{
+		int threads = 1;
+		if (JDem846Properties.hasProperty("us.wthr.jdem846.performance.rasterizerThreads")) {
+			threads = JDem846Properties.getIntProperty("us.wthr.jdem846.performance.rasterizerThreads");
+		}
+		
+		if (threads <= 0) {
+			threads = Runtime.getRuntime().availableProcessors();
+		}
+		return threads;
+	}
+	
 	
 }
@@ -1,5 +1,8 @@
 package us.wthr.jdem846.graphics;
 
+import java.io.File;
+
+import us.wthr.jdem846.JDem846Properties;
 import us.wthr.jdem846.ModelContext;
 import us.wthr.jdem846.ModelDimensions;
 import us.wthr.jdem846.exception.GraphicsRenderException;
@@ -14,6 +17,7 @@ import us.wthr.jdem846.graphics.TextureMapConfiguration.TextureWrapTypeEnum;
 import us.wthr.jdem846.graphics.framebuffer.FrameBufferModeEnum;
 import us.wthr.jdem846.logging.Log;
 import us.wthr.jdem846.logging.Logging;
+import us.wthr.jdem846.math.MathExt;
 import us.wthr.jdem846.math.Vector;
 import us.wthr.jdem846.model.GlobalOptionModel;
 import us.wthr.jdem846.model.RgbaColor;
@@ -95,7 +99,11 @@ public class RenderProcess
 	public void run() throws GraphicsRenderException
 	{
 		try {
-			render();
+			if (isTiled()) {
+				renderTiles();
+			} else {
+				render();
+			}
 		} catch (GraphicsRenderException ex) {
 			throw new GraphicsRenderException("Error rendering model: " + ex.getMessage(), ex, ex.getRenderCode());
 		}
@@ -103,16 +111,74 @@ public class RenderProcess
 		capture();
 		setRenderCompleted(true);
 	}
+	
+	/** Determines if the output is rendered in tiles, which it must be when larger than the
+	 * renderer allows.
+	 */
+	protected boolean isTiled()
+	{
+		if (this.globalOptionModel.getWidth() > GraphicsRenderer.RENDER_MAXIMUM_WIDTH || this.globalOptionModel.getHeight() > GraphicsRenderer.RENDER_MAXIMUM_HEIGHT) {
+			return true;
+		}
+		return JDem846Properties.hasProperty("us.wthr.jdem846.performance.tiledRender") 
+				&& JDem846Properties.getBooleanProperty("us.wthr.jdem846.performance.tiledRender");
+	}
+	
+	protected void renderTiles() throws GraphicsRenderException
+	{
+		int width = this.globalOptionModel.getWidth();
+		int height = this.globalOptionModel.getHeight();
+		
+		int tileSize = TiledRender.DEFAULT_TILE_SIZE;
+		if (JDem846Properties.hasProperty("us.wthr.jdem846.performance.tiledRenderTileSize")) {
+			tileSize = JDem846Properties.getIntProperty("us.wthr.jdem846.performance.tiledRenderTileSize");
+		}
+		
+		int guardBand = TiledRender.DEFAULT_GUARD_BAND;
+		if (JDem846Properties.hasProperty("us.wthr.jdem846.performance.tiledRenderGuardBand")) {
+			guardBand = JDem846Properties.getIntProperty("us.wthr.jdem846.performance.tiledRenderGuardBand");
+		}
+		tileSize = Math.min(tileSize, Math.min(GraphicsRenderer.RENDER_MAXIMUM_WIDTH, GraphicsRenderer.RENDER_MAXIMUM_HEIGHT) - 2 * guardBand);
+		
+		TiledRender tiledRender = null;
+		try {
+			tiledRender = new TiledRender(width, height, tileSize, guardBand);
+		} catch (IllegalArgumentException ex) {
+			throw new GraphicsRenderException("Invalid tiled render settings: " + ex.getMessage(), ex);
+		}
+		
+		String tileDirectory = JDem846Properties.getProperty("us.wthr.jdem846.performance.tiledRenderDirectory");
+		if (tileDirectory != null && tileDirectory.length() > 0) {
+			tiledRender.setTileDirectory(new File(tileDirectory));
+		}
+		
+		log.info("Rendering " + width + "x" + height + " model in " + tiledRender.getTileColumns() + "x" + tiledRender.getTileRows() + " tiles of " + tileSize + " pixels");
+		this.image = tiledRender.render(new RegionRenderCallback() {
+			public ImageCapture renderRegion(int x, int y, int width, int height) throws GraphicsRenderException
+			{
+				render(x, y, width, height);
+				return renderer.captureImage();
+			}
+		});
+	}
 
 	protected void setPerspective() throws GraphicsRenderException
+	{
+		setPerspective(0, 0, this.globalOptionModel.getWidth(), this.globalOptionModel.getHeight());
+	}
+	
+	/** Sets the projection for a rectangle of the output, given in window coordinates, which
+	 * is rendered to a viewport of its own size.
+	 */
+	protected void setPerspective(int x, int y, int regionWidth, int regionHeight) throws GraphicsRenderException
 	{
 		int width = this.globalOptionModel.getWidth();
 		int height = this.globalOptionModel.getHeight();
 
 		double horizFieldOfView = this.modelView.horizFieldOfView();
 
-		FrameBufferModeEnum bufferMode = FrameBufferModeEnum.CONCURRENT_PARTIAL_FRAME_BUFFER;// FrameBufferModeEnum.getBufferModeFromIdentifier(this.globalOptionModel.getFrameBufferMode());
-		this.renderer.viewPort(0, 0, width, height, bufferMode);
+		FrameBufferModeEnum bufferMode = FrameBufferModeEnum.TILED_Z_BUFFER;// FrameBufferModeEnum.getBufferModeFromIdentifier(this.globalOptionModel.getFrameBufferMode());
+		this.renderer.viewPort(0, 0, regionWidth, regionHeight, bufferMode);
 
 		this.renderer.matrixMode(MatrixModeEnum.MODELVIEW);
 		this.renderer.loadIdentity();
@@ -120,6 +186,10 @@ public class RenderProcess
 		this.renderer.matrixMode(MatrixModeEnum.PROJECTION);
 		this.renderer.loadIdentity();
 		
+		if (regionWidth != width || regionHeight != height) {
+			this.renderer.multMatrix(TiledRender.getRegionMatrix(x, y, regionWidth, regionHeight, width, height));
+		}
+		
 		ViewerPosition viewer = globalOptionModel.getViewerPosition();
 		
 		double aspect = (double) width / (double) height;
@@ -185,10 +255,15 @@ public class RenderProcess
 	}
 	
 	protected void render() throws GraphicsRenderException
+	{
+		render(0, 0, this.globalOptionModel.getWidth(), this.globalOptionModel.getHeight());
+	}
+	
+	protected void render(int x, int y, int regionWidth, int regionHeight) throws GraphicsRenderException
 	{
 		
 		
-		this.setPerspective();
+		this.setPerspective(x, y, regionWidth, regionHeight);
 		
 		this.renderer.pushMatrix();
 
@@ -251,6 +326,26 @@ public class RenderProcess
 															, (globalOptionModel.getUseScripting()) ? scriptProxy : null
 															, textureMapConfig
 															, new ScaledElevationFetchCallback(modelGrid, scaler));
+		// Scripts are called for each vertex, which the adaptive mesh and culling leave out.
+		// Scripts may also change elevations while rendering, so the elevation range of the
+		// grid is only a bound without them
+		if (JDem846Properties.hasProperty("us.wthr.jdem846.performance.adaptiveMesh") 
+				&& JDem846Properties.getBooleanProperty("us.wthr.jdem846.performance.adaptiveMesh")
+				&& JDem846Properties.hasProperty("us.wthr.jdem846.performance.adaptiveMeshPixelError")
+				&& !globalOptionModel.getUseScripting()) {
+			textureRenderer.setMaximumPixelError(JDem846Properties.getDoubleProperty("us.wthr.jdem846.performance.adaptiveMeshPixelError"));
+		}
+		if (JDem846Properties.hasProperty("us.wthr.jdem846.performance.culling") 
+				&& JDem846Properties.getBooleanProperty("us.wthr.jdem846.performance.culling")
+				&& !globalOptionModel.getUseScripting()) {
+			double minimum = modelGrid.getMinimum();
+			double maximum = modelGrid.getMaximum();
+			if (scaler != null) {
+				minimum = scaler.scale(modelGrid.getMinimum());
+				maximum = scaler.scale(modelGrid.getMaximum());
+			}
+			textureRenderer.enableCulling(MathExt.min(minimum, maximum), MathExt.max(minimum, maximum));
+		}
 		textureRenderer.render();
 		
 		
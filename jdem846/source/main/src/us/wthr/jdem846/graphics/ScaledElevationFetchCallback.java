@@ -25,5 +25,15 @@ public class ScaledElevationFetchCallback implements ElevationFetchCallback
 		}
 		return elevation;
 	}
+	
+	public IModelGrid getModelGrid()
+	{
+		return modelGrid;
+	}
+	
+	public ElevationScaler getScaler()
+	{
+		return scaler;
+	}
 
 }
@@ -1,6 +1,7 @@
 package us.wthr.jdem846.graphics;
 
 import us.wthr.jdem846.buffers.IIntBuffer;
+import us.wthr.jdem846.exception.BufferException;
 import us.wthr.jdem846.math.MathExt;
 
 public class SubTextureIntBuffer implements IIntBuffer
@@ -57,31 +58,56 @@ public class SubTextureIntBuffer implements IIntBuffer
 	@Override
 	public Integer get(long index)
 	{
-		return parentBuffer.get(indexToParentBufferIndex(index));
+		return getInt(index);
 	}
 
 	@Override
 	public void put(long index, Integer value)
 	{
-		parentBuffer.put(indexToParentBufferIndex(index), value);
+		putInt(index, value);
+	}
+	
+	@Override
+	public int getInt(long index)
+	{
+		return parentBuffer.getInt(indexToParentBufferIndex(index));
+	}
+	
+	@Override
+	public void putInt(long index, int value)
+	{
+		parentBuffer.putInt(indexToParentBufferIndex(index), value);
+	}
+	
+	@Override
+	public void getInts(long startIndex, int[] values, int offset, int count)
+	{
+		for (int i = 0; i < count; i++) {
+			values[offset + i] = getInt(startIndex + i);
+		}
 	}
-
 	
 	@Override
 	public void put(int[] values, long startIndex, int offset, int count)
 	{
-		// Really Slow & inefficient
 		for (int i = 0; i < count; i++) {
-			put(indexToParentBufferIndex(startIndex + i), values[offset + i]);
+			putInt(startIndex + i, values[offset + i]);
 		}
 	}
 	
 	@Override
 	public void put(Integer[] values, long startIndex, int offset, int count)
 	{
-		// Really Slow & inefficient
 		for (int i = 0; i < count; i++) {
-			put(indexToParentBufferIndex(startIndex + i), values[offset + i]);
+			putInt(startIndex + i, values[offset + i]);
+		}
+	}
+	
+	@Override
+	public void fill(long fromIndex, long toIndex, int value)
+	{
+		for (long i = fromIndex; i < toIndex; i++) {
+			putInt(i, value);
 		}
 	}
 
@@ -103,6 +129,18 @@ public class SubTextureIntBuffer implements IIntBuffer
 		close();
 	}
 
+	@Override
+	public boolean hasArray()
+	{
+		return false;
+	}
+	
+	@Override
+	public int[] array()
+	{
+		throw new BufferException("Buffer is not backed by an array");
+	}
+
 	@Override
 	public IIntBuffer duplicate()
 	{
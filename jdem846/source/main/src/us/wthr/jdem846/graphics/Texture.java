@@ -165,7 +165,7 @@ public class Texture {
 	protected void setColor(int index, IColor color)
 	{
 		if (index >= 0 && index < texture.capacity()) {
-			texture.put(index, color.asInt());
+			texture.putInt(index, color.asInt());
 		} 
 	}
 	
@@ -186,7 +186,7 @@ public class Texture {
 	public IColor getColor(int index)
 	{
 		if (index >= 0 && index < texture.capacity()) {
-			return new Color(texture.get(index));
+			return new Color(texture.getInt(index));
 		} else {
 			return Colors.TRANSPARENT;
 		}
@@ -351,9 +351,12 @@ public class Texture {
 		ByteBuffer byteBuffer = ByteBuffer.allocateDirect(capacityBytes);
 		IntBuffer intBuffer = byteBuffer.asIntBuffer();
 		
-		for (int i = 0; i < texture.capacity(); i++) {
-			int value = texture.get(i);
-			intBuffer.put(i, value);
+		int capacity = (int) texture.capacity();
+		int[] chunk = new int[Math.min(capacity, 4096)];
+		for (int i = 0; i < capacity; i += chunk.length) {
+			int count = Math.min(chunk.length, capacity - i);
+			texture.getInts(i, chunk, 0, count);
+			intBuffer.put(chunk, 0, count);
 		}
 
 		return byteBuffer;
@@ -1,5 +1,7 @@
 package us.wthr.jdem846.graphics;
 
+import java.util.Arrays;
+
 import us.wthr.jdem846.DemConstants;
 import us.wthr.jdem846.exception.ScriptingException;
 import us.wthr.jdem846.gis.planets.Planet;
@@ -36,6 +38,19 @@ public class TextureRenderer
 	
 	protected TextureMapConfiguration textureMapConfig = null;
 	
+	protected double maximumPixelError = 0.0;
+	
+	public static final int CULLING_SEGMENT_COLUMNS = 128;
+	
+	protected boolean culling = false;
+	protected double minimumElevation;
+	protected double maximumElevation;
+	protected Vector occluderCenter = new Vector();
+	protected double occluderRadius = 0.0;
+	
+	private int culledRegions = 0;
+	private int testedRegions = 0;
+	
 	public TextureRenderer(Texture texture, IRenderer renderer, View view, double modelLatitudeResolution, double modelLongitudeResolution, GlobalOptionModel globalOptionModel)
 	{
 		this(texture, renderer, view, modelLatitudeResolution, modelLongitudeResolution, globalOptionModel, null, null, null);
@@ -131,6 +146,9 @@ public class TextureRenderer
 			}
 
 
+		} else if (culling && !isRegionVisible(globalOptionModel.getNorthLimit(), globalOptionModel.getSouthLimit(), globalOptionModel.getEastLimit(), globalOptionModel.getWestLimit(), 9, 9)) {
+			log.info("Culled model texture");
+			logCulling();
 		} else {
 			renderTexture(texture, globalOptionModel.getNorthLimit(), globalOptionModel.getSouthLimit(), globalOptionModel.getEastLimit(), globalOptionModel.getWestLimit());
 			//renderTexture(texture, texture.getNorth(), texture.getSouth(), texture.getEast(), texture.getWest());
@@ -163,6 +181,11 @@ public class TextureRenderer
 			return DemConstants.ELEV_NO_DATA;
 		}
 		
+		if (culling && !isRegionVisible(north - modelLatitudeResolution, south + modelLatitudeResolution, east + modelLongitudeResolution, west - modelLongitudeResolution, 9, 9)) {
+			log.info("Culled sub region N/S/E/W: " + north + "/" + south + "/" + east + "/" + west);
+			return east;
+		}
+		
 		Texture subTexture = texture.getSubTexture(north + modelLatitudeResolution
 												, south - modelLatitudeResolution
 												, east + modelLongitudeResolution
@@ -197,63 +220,398 @@ public class TextureRenderer
 	{
 		renderer.bindTexture(texture, textureMapConfig);
 		
+		double[] longitudes = getStripLongitudes(east, west);
+		
 		try {
-			for (double latitude = north; latitude > south; latitude -= modelLatitudeResolution) {
+			if (maximumPixelError > 0) {
+				renderAdaptiveStrips(texture, getStripLatitudes(north, south), longitudes);
+			} else {
+				renderStrips(texture, north, south, longitudes);
+			}
+		} catch (Exception ex) {
+			ex.printStackTrace();
+		}
+		this.renderer.unbindTexture();
+	}
+	
+	protected void renderStrips(Texture texture, double north, double south, double[] longitudes)
+	{
+		// Adjacent strips share a row of vertices, so each row is loaded once and kept
+		// for the strip below it
+		VertexRow upper = new VertexRow(longitudes.length);
+		VertexRow lower = new VertexRow(longitudes.length);
+		
+		for (double latitude = north; latitude > south; latitude -= modelLatitudeResolution) {
+
+			if (lower.latitude == latitude) {
+				VertexRow swap = upper;
+				upper = lower;
+				lower = swap;
+			} else {
+				upper.reset(latitude);
+			}
+			lower.reset(latitude - modelLatitudeResolution);
+			
+			if (!culling) {
+				renderStrip(upper, lower, 0, longitudes.length - 1, longitudes, texture);
+				continue;
+			}
+			
+			// Rows are broken into segments which are culled separately. Segments share
+			// their end columns so that they meet
+			for (int first = 0; first < longitudes.length - 1; first += CULLING_SEGMENT_COLUMNS) {
+				int last = Math.min(first + CULLING_SEGMENT_COLUMNS, longitudes.length - 1);
+				if (isRegionVisible(upper.latitude, lower.latitude, longitudes[last], longitudes[first], 2, 3)) {
+					renderStrip(upper, lower, first, last, longitudes, texture);
+				}
+			}
+		}
+		
+		logCulling();
+	}
 	
-				this.renderer.begin(PrimitiveModeEnum.TRIANGLE_STRIP);
+	protected void renderStrip(VertexRow upper, VertexRow lower, int firstColumn, int lastColumn, double[] longitudes, Texture texture)
+	{
+		this.renderer.begin(PrimitiveModeEnum.TRIANGLE_STRIP);
+
+		for (int column = firstColumn; column <= lastColumn; column++) {
+			renderPointVertex(upper, column, longitudes[column], texture);
+			renderPointVertex(lower, column, longitudes[column], texture);
+		}
+		
+		this.renderer.end();
+	}
 	
-				boolean didEast = false;
+	/** Renders the texture with a mesh whose level of detail varies by block, leaving out
+	 * vertices wherever that moves the surface by less than the maximum pixel error.
+	 */
+	protected void renderAdaptiveStrips(Texture texture, double[] latitudes, double[] longitudes)
+	{
+		AdaptiveMesh mesh = new AdaptiveMesh(latitudes.length, longitudes.length);
+		
+		int blocks = 0;
+		int levels = 0;
+		
+		// Rows of vertices of the current and next bands of blocks. The edges of a band depend
+		// on the levels of the band below it, so those are selected first. The last row of a
+		// band is the first of the next, so it is shared
+		VertexRow[] band = new VertexRow[AdaptiveMesh.BLOCK_SIZE + 1];
+		VertexRow[] nextBand = new VertexRow[AdaptiveMesh.BLOCK_SIZE + 1];
+		
+		double[][] points = new double[AdaptiveMesh.BLOCK_SIZE + 1][longitudes.length * 3];
+		boolean[][] valid = new boolean[AdaptiveMesh.BLOCK_SIZE + 1][longitudes.length];
+		
+		if (mesh.getBlockRows() > 0) {
+			selectLevels(mesh, 0, band, points, valid, latitudes, longitudes);
+		}
+		
+		for (int blockRow = 0; blockRow < mesh.getBlockRows(); blockRow++) {
+			if (blockRow + 1 < mesh.getBlockRows()) {
+				nextBand[0] = band[AdaptiveMesh.BLOCK_SIZE];
+				selectLevels(mesh, blockRow + 1, nextBand, points, valid, latitudes, longitudes);
+			}
+			
+			for (int blockColumn = 0; blockColumn < mesh.getBlockColumns(); blockColumn++) {
+				if (mesh.isCulled(blockRow, blockColumn)) {
+					continue;
+				}
+				
+				renderBlock(mesh, blockRow, blockColumn, band, longitudes, texture);
 				
-				for (double longitude = west; longitude <= east; longitude += modelLongitudeResolution) {
+				blocks++;
+				levels += mesh.getLevel(blockRow, blockColumn);
+			}
+			
+			// The first row of the finished band is free, while its last is now in use
+			VertexRow[] swap = band;
+			band = nextBand;
+			nextBand = swap;
+			nextBand[AdaptiveMesh.BLOCK_SIZE] = nextBand[0];
+		}
+		
+		if (blocks > 0) {
+			log.info("Rendered " + blocks + " mesh blocks at an average level of detail of " + ((double) levels / (double) blocks));
+		}
+		logCulling();
+	}
 	
-					renderPointVertex(latitude, longitude, texture);
-					renderPointVertex(latitude - modelLatitudeResolution, longitude, texture);
-					
-					if (longitude == east) {
-						didEast = true;
+	/** Chooses the level of detail of each block of a band from its projected vertices,
+	 * which are kept in the band's rows to be emitted. The error of a level is scaled to
+	 * pixels by the block's largest ratio of screen to model distance across its diagonals.
+	 */
+	protected void selectLevels(AdaptiveMesh mesh, int blockRow, VertexRow[] band, double[][] points, boolean[][] valid, double[] latitudes, double[] longitudes)
+	{
+		int firstRow = mesh.getFirstRow(blockRow);
+		int lastRow = mesh.getLastRow(blockRow);
+		
+		for (int i = (blockRow > 0) ? 1 : 0; i <= lastRow - firstRow; i++) {
+			if (band[i] == null) {
+				band[i] = new VertexRow(longitudes.length);
+			}
+			band[i].reset(latitudes[firstRow + i]);
+		}
+		
+		boolean[] projectColumn = new boolean[longitudes.length];
+		for (int blockColumn = 0; blockColumn < mesh.getBlockColumns(); blockColumn++) {
+			int firstColumn = mesh.getFirstColumn(blockColumn);
+			int lastColumn = mesh.getLastColumn(blockColumn);
+			
+			if (culling && !isRegionVisible(latitudes[firstRow], latitudes[lastRow], longitudes[lastColumn], longitudes[firstColumn], 3, 3)) {
+				mesh.setCulled(blockRow, blockColumn, true);
+			} else {
+				Arrays.fill(projectColumn, firstColumn, lastColumn + 1, true);
+			}
+		}
+		
+		for (int row = firstRow; row <= lastRow; row++) {
+			VertexRow vertexRow = band[row - firstRow];
+			for (int column = 0; column < longitudes.length; column++) {
+				if (!projectColumn[column]) {
+					continue;
+				}
+				
+				projectPointVertex(vertexRow, column, longitudes[column]);
+				valid[row - firstRow][column] = vertexRow.valid[column];
+				points[row - firstRow][column * 3] = vertexRow.x[column];
+				points[row - firstRow][column * 3 + 1] = vertexRow.y[column];
+				points[row - firstRow][column * 3 + 2] = vertexRow.z[column];
+			}
+		}
+		
+		for (int blockColumn = 0; blockColumn < mesh.getBlockColumns(); blockColumn++) {
+			int firstColumn = mesh.getFirstColumn(blockColumn);
+			int lastColumn = mesh.getLastColumn(blockColumn);
+			
+			if (mesh.isCulled(blockRow, blockColumn)) {
+				continue;
+			}
+			
+			double[] errors = AdaptiveMesh.getLevelErrors(points, valid, 0, lastRow - firstRow, firstColumn, lastColumn, longitudes);
+			double pixelsPerUnit = Math.max(getPixelsPerUnit(points, valid, 0, firstColumn, lastRow - firstRow, lastColumn)
+											, getPixelsPerUnit(points, valid, 0, lastColumn, lastRow - firstRow, firstColumn));
+			
+			mesh.setLevel(blockRow, blockColumn, AdaptiveMesh.selectLevel(errors, pixelsPerUnit, maximumPixelError));
+		}
+	}
+	
+	protected double getPixelsPerUnit(double[][] points, boolean[][] valid, int row0, int column0, int row1, int column1)
+	{
+		if (!valid[row0][column0] || !valid[row1][column1]) {
+			return Double.POSITIVE_INFINITY;
+		}
+		
+		Vector a = new Vector(points[row0][column0 * 3], points[row0][column0 * 3 + 1], points[row0][column0 * 3 + 2]);
+		Vector b = new Vector(points[row1][column1 * 3], points[row1][column1 * 3 + 1], points[row1][column1 * 3 + 2]);
+		double modelDistance = Math.sqrt(MathExt.sqr(a.x - b.x) + MathExt.sqr(a.y - b.y) + MathExt.sqr(a.z - b.z));
+		
+		if (!renderer.project(a) || !renderer.project(b)) {
+			return Double.POSITIVE_INFINITY;
+		}
+		double screenDistance = Math.sqrt(MathExt.sqr(a.x - b.x) + MathExt.sqr(a.y - b.y));
+		
+		return (modelDistance > 0) ? screenDistance / modelDistance : 0;
+	}
+	
+	/** Emits the strips of one block. Each strip runs between two of the block's rows of
+	 * vertices, whose columns may differ where an edge takes a finer neighbor's step.
+	 * Vertices on the west and east edges between the two rows are fanned from the
+	 * second upper and second to last lower vertices, using repeated vertices so that
+	 * the strip stays a single primitive with consistent winding.
+	 */
+	protected void renderBlock(AdaptiveMesh mesh, int blockRow, int blockColumn, VertexRow[] band, double[] longitudes, Texture texture)
+	{
+		int step = mesh.getStep(blockRow, blockColumn);
+		int firstRow = mesh.getFirstRow(blockRow);
+		int lastRow = mesh.getLastRow(blockRow);
+		int firstColumn = mesh.getFirstColumn(blockColumn);
+		int lastColumn = mesh.getLastColumn(blockColumn);
+		
+		int[] rows = AdaptiveMesh.getIndices(firstRow, lastRow, step);
+		int[] columns = AdaptiveMesh.getIndices(firstColumn, lastColumn, step);
+		int[] northColumns = AdaptiveMesh.getIndices(firstColumn, lastColumn, mesh.getNorthStep(blockRow, blockColumn));
+		int[] southColumns = AdaptiveMesh.getIndices(firstColumn, lastColumn, mesh.getSouthStep(blockRow, blockColumn));
+		int westStep = mesh.getWestStep(blockRow, blockColumn);
+		int eastStep = mesh.getEastStep(blockRow, blockColumn);
+		
+		for (int r = 0; r < rows.length - 1; r++) {
+			int upperRow = rows[r];
+			int lowerRow = rows[r + 1];
+			int[] upper = (r == 0) ? northColumns : columns;
+			int[] lower = (r == rows.length - 2) ? southColumns : columns;
+			
+			this.renderer.begin(PrimitiveModeEnum.TRIANGLE_STRIP);
+			
+			int i = 0;
+			int j = 0;
+			
+			renderMeshVertex(band, firstRow, upperRow, upper[0], longitudes, texture);
+			if (westStep < step) {
+				boolean fanned = false;
+				for (int row = upperRow + westStep; row < lowerRow; row += westStep) {
+					if (fanned) {
+						renderMeshVertex(band, firstRow, upperRow, upper[1], longitudes, texture);
 					}
+					renderMeshVertex(band, firstRow, row, firstColumn, longitudes, texture);
+					fanned = true;
 				}
-
-				if (!didEast) {
-					renderPointVertex(latitude, east, texture);
-					renderPointVertex(latitude - modelLatitudeResolution, east, texture);
+				if (fanned) {
+					renderMeshVertex(band, firstRow, upperRow, upper[1], longitudes, texture);
+					i = 1;
 				}
+			}
+			renderMeshVertex(band, firstRow, lowerRow, lower[0], longitudes, texture);
+			
+			boolean eastFan = (eastStep < step && upperRow + eastStep < lowerRow);
+			int lowerEnd = (eastFan) ? lower.length - 2 : lower.length - 1;
+			
+			while (i < upper.length - 1 || j < lowerEnd) {
+				boolean advanceUpper = (i < upper.length - 1) && (j == lowerEnd || upper[i + 1] <= lower[j + 1]);
+				boolean advanceLower = (j < lowerEnd) && (i == upper.length - 1 || lower[j + 1] <= upper[i + 1]);
 				
-				this.renderer.end();
-	
+				if (advanceUpper) {
+					i++;
+				}
+				if (advanceLower) {
+					j++;
+				}
+				renderMeshVertex(band, firstRow, upperRow, upper[i], longitudes, texture);
+				renderMeshVertex(band, firstRow, lowerRow, lower[j], longitudes, texture);
 			}
 			
-		} catch (Exception ex) {
-			ex.printStackTrace();
+			if (eastFan) {
+				for (int row = upperRow + eastStep; row < lowerRow; row += eastStep) {
+					renderMeshVertex(band, firstRow, row, lastColumn, longitudes, texture);
+					renderMeshVertex(band, firstRow, lowerRow, lower[j], longitudes, texture);
+				}
+				renderMeshVertex(band, firstRow, lowerRow, lower[lower.length - 1], longitudes, texture);
+			}
+			
+			this.renderer.end();
 		}
-		this.renderer.unbindTexture();
 	}
 	
+	protected void renderMeshVertex(VertexRow[] band, int firstRow, int row, int column, double[] longitudes, Texture texture)
+	{
+		renderPointVertex(band[row - firstRow], column, longitudes[column], texture);
+	}
 	
-
-	protected void renderPointVertex(double latitude, double longitude, Texture subTexture)
+	/** Lists the latitudes of the vertex rows of the strips, the upper row of each strip
+	 * followed by the lower row of the last.
+	 */
+	protected double[] getStripLatitudes(double north, double south)
 	{
-		double elevation = elevationFetchCallback.getElevation(latitude, longitude);
+		int count = 0;
+		double[] latitudes = new double[16];
 		
-		if (elevation == DemConstants.ELEV_NO_DATA) {
-			// elevation = this.lastElevation;
-			return;
-		} else {
-			this.lastElevation = elevation;
+		for (double latitude = north; latitude > south; latitude -= modelLatitudeResolution) {
+			if (count + 2 > latitudes.length) {
+				double[] grown = new double[latitudes.length * 2];
+				System.arraycopy(latitudes, 0, grown, 0, count);
+				latitudes = grown;
+			}
+			latitudes[count++] = latitude;
 		}
 		
+		if (count == 0) {
+			return new double[0];
+		}
+		latitudes[count] = latitudes[count - 1] - modelLatitudeResolution;
 		
-		if (scriptProxy != null) {
-			try {
-				scriptProxy.onBeforeVertex(latitude, longitude, elevation, renderer, view);
-			} catch (ScriptingException ex) {
-				// TODO Throw!!
-				ex.printStackTrace();
+		double[] rows = new double[count + 1];
+		System.arraycopy(latitudes, 0, rows, 0, count + 1);
+		return rows;
+	}
+	
+	/** Lists the longitudes of the vertex columns of each strip, the last of which is
+	 * always the eastern edge.
+	 */
+	protected double[] getStripLongitudes(double east, double west)
+	{
+		int count = 0;
+		double[] longitudes = new double[16];
+		
+		boolean didEast = false;
+		for (double longitude = west; longitude <= east; longitude += modelLongitudeResolution) {
+			if (count == longitudes.length) {
+				double[] grown = new double[longitudes.length * 2];
+				System.arraycopy(longitudes, 0, grown, 0, count);
+				longitudes = grown;
+			}
+			longitudes[count++] = longitude;
+			
+			if (longitude == east) {
+				didEast = true;
 			}
 		}
+		
+		double[] columns = new double[count + (didEast ? 0 : 1)];
+		System.arraycopy(longitudes, 0, columns, 0, count);
+		if (!didEast) {
+			columns[count] = east;
+		}
+		return columns;
+	}
+	
+	/** Emits the vertex in the given column of a row, loading it on first use. The
+	 * script hook, which may alter renderer state, still runs before every emission.
+	 */
+	protected void renderPointVertex(VertexRow row, int column, double longitude, Texture subTexture)
+	{
+		if (!row.loaded[column]) {
+			loadPointVertex(row, column, row.latitude, longitude, subTexture);
+		} else if (row.valid[column]) {
+			onBeforeVertex(row.latitude, longitude, row.elevation[column]);
+		}
+		
+		if (!row.valid[column]) {
+			return;
+		}
+		
+		pointVector.x = row.x[column];
+		pointVector.y = row.y[column];
+		pointVector.z = row.z[column];
+		
+		normal.x = row.normalX[column];
+		normal.y = row.normalY[column];
+		normal.z = row.normalZ[column];
+		
+		this.renderer.normal(normal);
+		this.renderer.texCoord(row.left[column], row.front[column]);
+		this.renderer.vertex(pointVector);
+	}
 
-		view.project(latitude, longitude, elevation, pointVector);
-
+	protected void loadPointVertex(VertexRow row, int column, double latitude, double longitude, Texture subTexture)
+	{
+		row.loaded[column] = true;
+		
+		double elevation;
+		if (row.projected[column]) {
+			if (!row.valid[column]) {
+				return;
+			}
+			elevation = row.elevation[column];
+			onBeforeVertex(latitude, longitude, elevation);
+			
+			pointVector.x = row.x[column];
+			pointVector.y = row.y[column];
+			pointVector.z = row.z[column];
+		} else {
+			row.valid[column] = false;
+			
+			elevation = elevationFetchCallback.getElevation(latitude, longitude);
+			
+			if (elevation == DemConstants.ELEV_NO_DATA) {
+				// elevation = this.lastElevation;
+				return;
+			} else {
+				this.lastElevation = elevation;
+			}
+			
+			onBeforeVertex(latitude, longitude, elevation);
+	
+			view.project(latitude, longitude, elevation, pointVector);
+		}
+		
 		
 		double north = subTexture.getNorth();
 		double south = subTexture.getSouth();
@@ -264,31 +622,202 @@ public class TextureRenderer
 		double left = (longitude - west) / (east - west);
 		double front = (north - latitude) / (north - south);
 
-		if (left < 0.0) {
-			//left = left + 1.0;
-			//return;
+		view.getNormal(latitude, longitude, normal, elevationFetchCallback);
+		
+		row.valid[column] = true;
+		row.elevation[column] = elevation;
+		row.x[column] = pointVector.x;
+		row.y[column] = pointVector.y;
+		row.z[column] = pointVector.z;
+		row.normalX[column] = normal.x;
+		row.normalY[column] = normal.y;
+		row.normalZ[column] = normal.z;
+		row.left[column] = left;
+		row.front[column] = front;
+	}
+	
+	/** Fetches and projects the vertex in the given column of a row without emitting it,
+	 * leaving its normal and texture coordinates to be loaded when it is.
+	 */
+	protected void projectPointVertex(VertexRow row, int column, double longitude)
+	{
+		if (row.loaded[column] || row.projected[column]) {
+			return;
 		}
+		row.projected[column] = true;
+		row.valid[column] = false;
 		
-		if (left > 1.0) {
-			//left = left - 1.0;
-			//return;
+		double elevation = elevationFetchCallback.getElevation(row.latitude, longitude);
+		if (elevation == DemConstants.ELEV_NO_DATA) {
+			return;
 		}
 		
-		if (front < 0.0) {
-			//front = front + 1.0;
-			//return;
+		view.project(row.latitude, longitude, elevation, pointVector);
+		
+		row.valid[column] = true;
+		row.elevation[column] = elevation;
+		row.x[column] = pointVector.x;
+		row.y[column] = pointVector.y;
+		row.z[column] = pointVector.z;
+	}
+	
+	/** Enables skipping terrain which is outside of the view volume or behind the horizon,
+	 * before its elevations are fetched or its vertices projected. 
+	 * 
+	 * @param minimumElevation The lowest elevation of the terrain, in the units of the elevation fetch callback
+	 * @param maximumElevation The highest elevation of the terrain
+	 */
+	public void enableCulling(double minimumElevation, double maximumElevation)
+	{
+		this.culling = true;
+		this.minimumElevation = minimumElevation;
+		this.maximumElevation = maximumElevation;
+		this.occluderRadius = view.getOccluderRadius(minimumElevation);
+	}
+	
+	public void disableCulling()
+	{
+		this.culling = false;
+	}
+	
+	/** Determines if any part of a region may be visible. The region is bounded by a sphere
+	 * around a grid of samples taken at the lowest and highest elevations, enlarged by how
+	 * far the surface bulges away from the samples at the middle of a grid cell.
+	 */
+	protected boolean isRegionVisible(double north, double south, double east, double west, int latitudeSamples, int longitudeSamples)
+	{
+		testedRegions++;
+		
+		Vector[] samples = new Vector[latitudeSamples * longitudeSamples * 2];
+		Vector center = new Vector();
+		
+		int count = 0;
+		for (int i = 0; i < latitudeSamples; i++) {
+			double latitude = north - (north - south) * i / (latitudeSamples - 1);
+			for (int j = 0; j < longitudeSamples; j++) {
+				double longitude = west + (east - west) * j / (longitudeSamples - 1);
+				for (int k = 0; k < 2; k++) {
+					Vector sample = new Vector();
+					view.project(latitude, longitude, (k == 0) ? minimumElevation : maximumElevation, sample);
+					center.x += sample.x;
+					center.y += sample.y;
+					center.z += sample.z;
+					samples[count++] = sample;
+				}
+			}
 		}
 		
-		if (front > 1.0) {
-			//front = front - 1.0;
-			//return;
+		center.x /= count;
+		center.y /= count;
+		center.z /= count;
+		
+		double radius = 0;
+		for (Vector sample : samples) {
+			radius = MathExt.max(radius, distance(center, sample));
 		}
 		
-		view.getNormal(latitude, longitude, normal, elevationFetchCallback);
-		this.renderer.normal(normal);
+		// Compare the middle of the first cell with the average of its corners, all at the
+		// highest elevation
+		Vector middle = new Vector();
+		view.project(north - (north - south) / (2 * (latitudeSamples - 1)), west + (east - west) / (2 * (longitudeSamples - 1)), maximumElevation, middle);
+		Vector corners = new Vector();
+		int[] cornerIndices = { 1, 3, longitudeSamples * 2 + 1, longitudeSamples * 2 + 3 };
+		for (int index : cornerIndices) {
+			corners.x += samples[index].x / 4.0;
+			corners.y += samples[index].y / 4.0;
+			corners.z += samples[index].z / 4.0;
+		}
+		radius += 2.0 * distance(middle, corners);
 		
-		this.renderer.texCoord(left, front);
-		this.renderer.vertex(pointVector);
+		boolean visible = renderer.isVisible(center, radius) 
+					&& !(occluderRadius > 0 && renderer.isOccluded(center, radius, occluderCenter, occluderRadius));
+		if (!visible) {
+			culledRegions++;
+		}
+		return visible;
+	}
+	
+	protected double distance(Vector a, Vector b)
+	{
+		return Math.sqrt(MathExt.sqr(a.x - b.x) + MathExt.sqr(a.y - b.y) + MathExt.sqr(a.z - b.z));
+	}
+	
+	protected void logCulling()
+	{
+		if (culling && testedRegions > 0) {
+			log.info("Culled " + culledRegions + " of " + testedRegions + " regions");
+		}
+		culledRegions = 0;
+		testedRegions = 0;
+	}
+	
+	/** Sets the largest distance, in pixels, that the surface may be moved by leaving
+	 * out vertices. Zero, the default, renders every vertex of the model grid.
+	 */
+	public void setMaximumPixelError(double maximumPixelError)
+	{
+		this.maximumPixelError = maximumPixelError;
+	}
+	
+	public double getMaximumPixelError()
+	{
+		return maximumPixelError;
+	}
+	
+	protected void onBeforeVertex(double latitude, double longitude, double elevation)
+	{
+		if (scriptProxy != null) {
+			try {
+				scriptProxy.onBeforeVertex(latitude, longitude, elevation, renderer, view);
+			} catch (ScriptingException ex) {
+				// TODO Throw!!
+				ex.printStackTrace();
+			}
+		}
+	}
+	
+	
+	/** Projected vertices, normals and texture coordinates for one row of a texture.
+	 */
+	protected static class VertexRow
+	{
+		protected double latitude = Double.NaN;
+		
+		protected boolean[] loaded;
+		protected boolean[] projected;
+		protected boolean[] valid;
+		protected double[] elevation;
+		protected double[] x;
+		protected double[] y;
+		protected double[] z;
+		protected double[] normalX;
+		protected double[] normalY;
+		protected double[] normalZ;
+		protected double[] left;
+		protected double[] front;
+		
+		public VertexRow(int columns)
+		{
+			loaded = new boolean[columns];
+			projected = new boolean[columns];
+			valid = new boolean[columns];
+			elevation = new double[columns];
+			x = new double[columns];
+			y = new double[columns];
+			z = new double[columns];
+			normalX = new double[columns];
+			normalY = new double[columns];
+			normalZ = new double[columns];
+			left = new double[columns];
+			front = new double[columns];
+		}
+		
+		public void reset(double latitude)
+		{
+			this.latitude = latitude;
+			Arrays.fill(loaded, false);
+			Arrays.fill(projected, false);
+		}
 	}
 	
 	
@@ -0,0 +1,136 @@
+package us.wthr.jdem846.graphics;
+
+import java.io.File;
+
+import us.wthr.jdem846.exception.GraphicsRenderException;
+import us.wthr.jdem846.exception.ImageException;
+import us.wthr.jdem846.image.ImageBuffers;
+import us.wthr.jdem846.image.ImageWriter;
+import us.wthr.jdem846.logging.Log;
+import us.wthr.jdem846.logging.Logging;
+import us.wthr.jdem846.math.Matrix;
+
+/** Renders an output image as a grid of tiles, so that the renderer's frame buffer need
+ * only hold one tile. Each tile is rendered with a guard band of extra pixels on each side
+ * which is then discarded, and its interior copied into the output image. The output
+ * image is allocated by the buffer factory and so is file mapped when large. Tiles may
+ * also be written to a directory as they are finished.
+ */
+public class TiledRender
+{
+	private static Log log = Logging.getLog(TiledRender.class);
+	
+	public static final int DEFAULT_TILE_SIZE = 4096;
+	public static final int DEFAULT_GUARD_BAND = 16;
+
+	private int width;
+	private int height;
+	private int tileSize;
+	private int guardBand;
+	private File tileDirectory = null;
+
+	public TiledRender(int width, int height, int tileSize, int guardBand)
+	{
+		if (tileSize <= 0) {
+			throw new IllegalArgumentException("Invalid tile size: " + tileSize);
+		}
+		if (guardBand < 0) {
+			throw new IllegalArgumentException("Invalid guard band: " + guardBand);
+		}
+		this.width = width;
+		this.height = height;
+		this.tileSize = tileSize;
+		this.guardBand = guardBand;
+	}
+
+	/** Writes each tile to the directory, named by its row and column, as it is finished.
+	 */
+	public void setTileDirectory(File tileDirectory)
+	{
+		this.tileDirectory = tileDirectory;
+	}
+
+	public int getTileColumns()
+	{
+		return (width + tileSize - 1) / tileSize;
+	}
+
+	public int getTileRows()
+	{
+		return (height + tileSize - 1) / tileSize;
+	}
+
+	public ImageCapture render(RegionRenderCallback callback) throws GraphicsRenderException
+	{
+		if (tileDirectory != null && !tileDirectory.isDirectory() && !tileDirectory.mkdirs()) {
+			throw new GraphicsRenderException("Cannot create tile directory " + tileDirectory.getAbsolutePath());
+		}
+
+		ImageCapture output = new ImageCapture(width, height, 0x0);
+		int[] row = new int[tileSize + 2 * guardBand];
+
+		long start = System.currentTimeMillis();
+		for (int tileRow = 0; tileRow < getTileRows(); tileRow++) {
+			for (int tileColumn = 0; tileColumn < getTileColumns(); tileColumn++) {
+				int x = tileColumn * tileSize;
+				int y = tileRow * tileSize;
+				int columns = Math.min(tileSize, width - x);
+				int rows = Math.min(tileSize, height - y);
+
+				int regionX = Math.max(0, x - guardBand);
+				int regionY = Math.max(0, y - guardBand);
+				int regionWidth = Math.min(width, x + columns + guardBand) - regionX;
+				int regionHeight = Math.min(height, y + rows + guardBand) - regionY;
+
+				log.info("Rendering tile " + (tileRow * getTileColumns() + tileColumn + 1) + " of " + (getTileRows() * getTileColumns()));
+				ImageCapture region = callback.renderRegion(regionX, regionY, regionWidth, regionHeight);
+
+				int[] tile = (tileDirectory != null) ? new int[columns * rows] : null;
+				for (int r = 0; r < rows; r++) {
+					region.getRow(y + r - regionY, row, 0);
+					output.set(x, y + r, row, x - regionX, columns);
+					if (tile != null) {
+						System.arraycopy(row, x - regionX, tile, r * columns, columns);
+					}
+				}
+				region.dispose();
+
+				if (tile != null) {
+					writeTile(tile, columns, rows, tileRow, tileColumn);
+				}
+			}
+		}
+
+		log.info("Rendered " + (getTileRows() * getTileColumns()) + " tiles in " + (System.currentTimeMillis() - start) + " ms");
+		return output;
+	}
+
+	protected void writeTile(int[] tile, int columns, int rows, int tileRow, int tileColumn) throws GraphicsRenderException
+	{
+		File file = new File(tileDirectory, "tile_" + tileRow + "_" + tileColumn + ".png");
+		try {
+			ImageWriter.saveImage(ImageBuffers.createImage(tile, columns, rows), file.getAbsolutePath());
+		} catch (ImageException ex) {
+			throw new GraphicsRenderException("Error writing tile " + file.getAbsolutePath() + ": " + ex.getMessage(), ex);
+		}
+	}
+
+	/** Creates the matrix which, applied after a projection for the whole output, maps the
+	 * given rectangle of the output onto the full clip volume. It works in homogeneous
+	 * coordinates and so applies to orthographic and perspective projections alike.
+	 */
+	public static Matrix getRegionMatrix(int x, int y, int regionWidth, int regionHeight, int width, int height)
+	{
+		double scaleX = (double) width / (double) regionWidth;
+		double scaleY = (double) height / (double) regionHeight;
+		double centerX = 2.0 * (x + regionWidth / 2.0) / width - 1.0;
+		double centerY = 2.0 * (y + regionHeight / 2.0) / height - 1.0;
+
+		Matrix m = new Matrix(true);
+		m.set(0, 0, scaleX);
+		m.set(0, 3, -centerX * scaleX);
+		m.set(1, 1, scaleY);
+		m.set(1, 3, -centerY * scaleY);
+		return m;
+	}
+}
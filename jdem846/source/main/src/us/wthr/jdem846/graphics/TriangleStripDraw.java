@@ -1,8 +1,12 @@
 package us.wthr.jdem846.graphics;
 
+import us.wthr.jdem846.geom.Vertex;
 import us.wthr.jdem846.geom.util.SignTrianglePointTest;
+import us.wthr.jdem846.geom.util.TriangleInterpolator;
 import us.wthr.jdem846.graphics.framebuffer.FrameBuffer;
 import us.wthr.jdem846.math.MathExt;
+import us.wthr.jdem846.math.Vector;
+import us.wthr.jdem846.util.ColorUtil;
 
 public class TriangleStripDraw extends PrimitiveDraw
 {
@@ -15,6 +19,37 @@ public class TriangleStripDraw extends PrimitiveDraw
 	private TexVertex vtx2 = new TexVertex();
 	private int advances = 0;
 	
+	protected static final int BLOCK_SIZE = 8;
+	
+	// Vertex coordinates are snapped to 1/256th of a pixel
+	protected static final int FIXED_BITS = 8;
+	protected static final double FIXED_ONE = 1 << FIXED_BITS;
+	
+	// Keeps edge function products within a long
+	protected static final double MAXIMUM_COORDINATE = 1 << 20;
+	
+	protected static final int PLANE_Z = 0;
+	protected static final int PLANE_LEFT = 1;
+	protected static final int PLANE_FRONT = 2;
+	protected static final int PLANE_RED = 3;
+	protected static final int PLANE_GREEN = 4;
+	protected static final int PLANE_BLUE = 5;
+	protected static final int PLANE_ALPHA = 6;
+	
+	private long[] edgeA = new long[3];
+	private long[] edgeB = new long[3];
+	private long[] edgeC = new long[3];
+	private long[] edgeStepX = new long[3];
+	private long[] edgeStepY = new long[3];
+	
+	private double[] planeA = new double[7];
+	private double[] planeB = new double[7];
+	private double[] planeC = new double[7];
+	
+	private int[] rgba0 = new int[4];
+	private int[] rgba1 = new int[4];
+	private int[] rgba2 = new int[4];
+	
 	
 	public TriangleStripDraw(FrameBuffer frameBuffer)
 	{
@@ -73,54 +108,276 @@ public class TriangleStripDraw extends PrimitiveDraw
 	}
 	
 	protected void fill(TexTriangle tri)
+	{
+		fill(tri, 0, 0, frameBuffer.getWidth() - 1, frameBuffer.getHeight() - 1);
+	}
+	
+	/** Fills the part of the triangle lying within the inclusive pixel bounds given.
+	 * Pixels are sampled at their integer coordinates against edge functions evaluated
+	 * in fixed point. A top-left fill rule assigns pixels on an edge shared by two
+	 * triangles to exactly one of them. Coverage is first tested for 8x8 pixel blocks so
+	 * that the empty parts of the bounding boxes of long, thin triangles are skipped.
+	 */
+	protected void fill(TexTriangle tri, int clipMinX, int clipMinY, int clipMaxX, int clipMaxY)
 	{
 		
 		if (tri == null) {
 			return;
 		}
 		
-		double minX = MathExt.floor(MathExt.min(tri.p0.vector.x, tri.p1.vector.x, tri.p2.vector.x));
-		double minY = MathExt.floor(MathExt.min(tri.p0.vector.y, tri.p1.vector.y, tri.p2.vector.y));
-		double maxX = MathExt.ceil(MathExt.max(tri.p0.vector.x, tri.p1.vector.x, tri.p2.vector.x));
-		double maxY = MathExt.ceil(MathExt.max(tri.p0.vector.y, tri.p1.vector.y, tri.p2.vector.y));
+		Vector v0 = tri.p0.vector;
+		Vector v1 = tri.p1.vector;
+		Vector v2 = tri.p2.vector;
+		
+		double minX = MathExt.floor(MathExt.min(v0.x, v1.x, v2.x));
+		double minY = MathExt.floor(MathExt.min(v0.y, v1.y, v2.y));
+		double maxX = MathExt.ceil(MathExt.max(v0.x, v1.x, v2.x));
+		double maxY = MathExt.ceil(MathExt.max(v0.y, v1.y, v2.y));
 
 
 		if (maxX < 0 || minX >= frameBuffer.getWidth() || maxY < 0 || minY >= frameBuffer.getHeight()) {
 			return;
 		}
 
-		minX = MathExt.max(0, minX);
-		maxX = MathExt.min(frameBuffer.getWidth() - 1, maxX);
-		minY = MathExt.max(0, minY);
-		maxY = MathExt.min(frameBuffer.getHeight() - 1, maxY);
-
+		int x0 = (int) MathExt.max(MathExt.max(0, clipMinX), minX);
+		int x1 = (int) MathExt.min(MathExt.min(frameBuffer.getWidth() - 1, clipMaxX), maxX);
+		int y0 = (int) MathExt.max(MathExt.max(0, clipMinY), minY);
+		int y1 = (int) MathExt.min(MathExt.min(frameBuffer.getHeight() - 1, clipMaxY), maxY);
+		
+		if (x0 > x1 || y0 > y1) {
+			return;
+		}
+		
+		if (!setupPlanes(tri)) {
+			return;
+		}
+		
+		if (!isFixedPointSafe(v0) || !isFixedPointSafe(v1) || !isFixedPointSafe(v2)) {
+			fillSampled(tri, x0, y0, x1, y1);
+			return;
+		}
+		
+		if (!setupEdges(v0, v1, v2)) {
+			return;
+		}
 		
-		for (double y = minY; y <= maxY; y += 1.0) {
-			for (double x = minX; x <= maxX; x += 1.0) {
+		for (int by = y0; by <= y1; by += BLOCK_SIZE) {
+			int byMax = Math.min(by + BLOCK_SIZE - 1, y1);
 			
-				if (SignTrianglePointTest.contains(tri.p0.vector, tri.p1.vector, tri.p2.vector, x, y, 0)) {
-					double z = tri.getInterpolatedZ(x, y);
-
-					double left = tri.getInterpolatedLeft(x, y);
-					double front = tri.getInterpolatedFront(x, y);
+			for (int bx = x0; bx <= x1; bx += BLOCK_SIZE) {
+				int bxMax = Math.min(bx + BLOCK_SIZE - 1, x1);
+				
+				boolean covered = true;
+				boolean rejected = false;
+				for (int e = 0; e < 3 && !rejected; e++) {
+					long corner = edgeValue(e, bx, by);
+					long dx = edgeStepX[e] * (bxMax - bx);
+					long dy = edgeStepY[e] * (byMax - by);
 					
-					IColor c = Colors.TRANSPARENT;
-					if (left >= 0 && front >= 0 && texture != null) {
-						c = this.textureColor(left, front, true);
-					} else {
-						int c0 = tri.getInterpolatedColor(x, y); // Temporary. Being lazy at the moment since I need to do something else
-						c = new Color(c0); 
-					}
+					long high = corner + Math.max(dx, 0) + Math.max(dy, 0);
+					long low = corner + Math.min(dx, 0) + Math.min(dy, 0);
 					
-					frameBuffer.set(x, y, z, c.asInt());
+					if (high < 0) {
+						rejected = true;
+					} else if (low < 0) {
+						covered = false;
+					}
+				}
+				
+				if (!rejected) {
+					fillBlock(bx, by, bxMax, byMax, covered);
 				}
 			}
 		}
-
 		
 	}
 	
+	/** Tests each pixel against the triangle in floating point. Used for triangles too
+	 * large for the fixed point edge functions.
+	 */
+	protected void fillSampled(TexTriangle tri, int x0, int y0, int x1, int y1)
+	{
+		for (int y = y0; y <= y1; y++) {
+			for (int x = x0; x <= x1; x++) {
+				if (SignTrianglePointTest.contains(tri.p0.vector, tri.p1.vector, tri.p2.vector, x, y, 0)) {
+					shade(x, y, planeValue(PLANE_Z, x, y), planeValue(PLANE_LEFT, x, y), planeValue(PLANE_FRONT, x, y)
+							, planeValue(PLANE_RED, x, y), planeValue(PLANE_GREEN, x, y), planeValue(PLANE_BLUE, x, y), planeValue(PLANE_ALPHA, x, y));
+				}
+			}
+		}
+	}
 	
+	protected void shade(int x, int y, double z, double left, double front, double r, double g, double b, double a)
+	{
+		int c;
+		if (left >= 0 && front >= 0 && texture != null) {
+			c = this.textureColor(left, front, true).asInt();
+		} else {
+			c = ColorUtil.rgbaToInt((int) MathExt.round(r), (int) MathExt.round(g), (int) MathExt.round(b), (int) MathExt.round(a));
+		}
+		
+		frameBuffer.set(x, y, z, c);
+	}
 	
+	protected void fillBlock(int bx, int by, int bxMax, int byMax, boolean covered)
+	{
+		long e0Row = edgeValue(0, bx, by);
+		long e1Row = edgeValue(1, bx, by);
+		long e2Row = edgeValue(2, bx, by);
+		
+		for (int y = by; y <= byMax; y++) {
+			long e0 = e0Row;
+			long e1 = e1Row;
+			long e2 = e2Row;
+			
+			// Attribute planes are evaluated at the row start and stepped across it
+			double z = planeValue(PLANE_Z, bx, y);
+			double left = planeValue(PLANE_LEFT, bx, y);
+			double front = planeValue(PLANE_FRONT, bx, y);
+			double r = planeValue(PLANE_RED, bx, y);
+			double g = planeValue(PLANE_GREEN, bx, y);
+			double b = planeValue(PLANE_BLUE, bx, y);
+			double a = planeValue(PLANE_ALPHA, bx, y);
+			
+			for (int x = bx; x <= bxMax; x++) {
+				
+				if (covered || (e0 | e1 | e2) >= 0) {
+					shade(x, y, z, left, front, r, g, b, a);
+				}
+				
+				e0 += edgeStepX[0];
+				e1 += edgeStepX[1];
+				e2 += edgeStepX[2];
+				
+				z += planeA[PLANE_Z];
+				left += planeA[PLANE_LEFT];
+				front += planeA[PLANE_FRONT];
+				r += planeA[PLANE_RED];
+				g += planeA[PLANE_GREEN];
+				b += planeA[PLANE_BLUE];
+				a += planeA[PLANE_ALPHA];
+			}
+			
+			e0Row += edgeStepY[0];
+			e1Row += edgeStepY[1];
+			e2Row += edgeStepY[2];
+		}
+	}
+	
+	protected boolean isFixedPointSafe(Vector v)
+	{
+		return (v.x > -MAXIMUM_COORDINATE && v.x < MAXIMUM_COORDINATE && v.y > -MAXIMUM_COORDINATE && v.y < MAXIMUM_COORDINATE);
+	}
+	
+	protected static long toFixed(double v)
+	{
+		return (long) MathExt.round(v * FIXED_ONE);
+	}
+	
+	/** Sets up the edge functions, oriented so that they are positive inside the
+	 * triangle and biased so that pixels on edges that are not top or left edges fail.
+	 * 
+	 * @return False for degenerate triangles.
+	 */
+	protected boolean setupEdges(Vector v0, Vector v1, Vector v2)
+	{
+		long x0 = toFixed(v0.x);
+		long y0 = toFixed(v0.y);
+		long x1 = toFixed(v1.x);
+		long y1 = toFixed(v1.y);
+		long x2 = toFixed(v2.x);
+		long y2 = toFixed(v2.y);
+		
+		long area = (x1 - x0) * (y2 - y0) - (y1 - y0) * (x2 - x0);
+		if (area == 0) {
+			return false;
+		}
+		
+		setupEdge(0, x1, y1, x2, y2, area > 0);
+		setupEdge(1, x2, y2, x0, y0, area > 0);
+		setupEdge(2, x0, y0, x1, y1, area > 0);
+		return true;
+	}
+	
+	protected void setupEdge(int e, long xa, long ya, long xb, long yb, boolean positive)
+	{
+		long a = ya - yb;
+		long b = xb - xa;
+		long c = xa * yb - ya * xb;
+		
+		if (!positive) {
+			a = -a;
+			b = -b;
+			c = -c;
+		}
+		
+		// The edge owns its pixels if the inward normal points right, or down when horizontal
+		if (!(a > 0 || (a == 0 && b > 0))) {
+			c -= 1;
+		}
+		
+		edgeA[e] = a;
+		edgeB[e] = b;
+		edgeC[e] = c;
+		edgeStepX[e] = a << FIXED_BITS;
+		edgeStepY[e] = b << FIXED_BITS;
+	}
+	
+	protected long edgeValue(int e, int x, int y)
+	{
+		return (edgeA[e] * x << FIXED_BITS) + (edgeB[e] * y << FIXED_BITS) + edgeC[e];
+	}
+	
+	/** Fits planes of the form a*x + b*y + c to the interpolated vertex attributes.
+	 */
+	protected boolean setupPlanes(TexTriangle tri)
+	{
+		Vertex p0 = tri.p0;
+		Vertex p1 = tri.p1;
+		Vertex p2 = tri.p2;
+		
+		double x0 = p0.vector.x;
+		double y0 = p0.vector.y;
+		double x1 = p1.vector.x;
+		double y1 = p1.vector.y;
+		double x2 = p2.vector.x;
+		double y2 = p2.vector.y;
+		
+		double det = x0*y1-x1*y0+x1*y2-x2*y1+x2*y0-x0*y2;
+		if (det == 0) {
+			return false;
+		}
+		
+		ColorUtil.intToRGBA(p0.rgba, rgba0);
+		ColorUtil.intToRGBA(p1.rgba, rgba1);
+		ColorUtil.intToRGBA(p2.rgba, rgba2);
+		
+		setupPlane(PLANE_Z, det, x0, y0, p0.vector.z, x1, y1, p1.vector.z, x2, y2, p2.vector.z);
+		setupPlane(PLANE_LEFT, tri.leftInterpolator);
+		setupPlane(PLANE_FRONT, tri.frontInterpolator);
+		for (int i = 0; i < 4; i++) {
+			setupPlane(PLANE_RED + i, det, x0, y0, rgba0[i], x1, y1, rgba1[i], x2, y2, rgba2[i]);
+		}
+		return true;
+	}
+	
+	protected void setupPlane(int plane, double det, double x0, double y0, double m0, double x1, double y1, double m1, double x2, double y2, double m2)
+	{
+		planeA[plane] = ((y1-y2)*m0+(y2-y0)*m1+(y0-y1)*m2) / det;
+		planeB[plane] = ((x2-x1)*m0+(x0-x2)*m1+(x1-x0)*m2) / det;
+		planeC[plane] = ((x1*y2-x2*y1)*m0+(x2*y0-x0*y2)*m1+(x0*y1-x1*y0)*m2) / det;
+	}
+	
+	protected void setupPlane(int plane, TriangleInterpolator interpolator)
+	{
+		planeA[plane] = interpolator.getA();
+		planeB[plane] = interpolator.getB();
+		planeC[plane] = interpolator.getC();
+	}
+	
+	protected double planeValue(int plane, double x, double y)
+	{
+		return planeA[plane] * x + planeB[plane] * y + planeC[plane];
+	}
 	
 }
@@ -49,6 +49,11 @@ public interface View
 	public void getNormal(double latitude, double longitude, double midElev, double nElev, double sElev, double eElev, double wElev, Vector normal);
 	public void getNormal(double latitude, double longitude, Vector normal, ElevationFetchCallback elevationFetchCallback);
 	
+	/** The radius of a sphere about the model origin that terrain no lower than the given
+	 * elevation never dips beneath, or zero if the view has no such sphere.
+	 */
+	public double getOccluderRadius(double minimumElevation);
+	
 	public boolean getUseFlatNormals();
 	public void setUseFlatNormals(boolean useFlatNormals);
 }
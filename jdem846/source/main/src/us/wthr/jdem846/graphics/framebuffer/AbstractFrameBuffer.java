@@ -51,11 +51,12 @@ public abstract class AbstractFrameBuffer implements FrameBuffer
 		ImageCapture image = new ImageCapture(width, height, backgroundColor);
 		
 
-		for (int x = 0; x < width; x++) {
-			for (int y = 0; y < height; y++) {
-				int c = get(x, y);
-				image.set(x, y, c);
+		int[] row = new int[width];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				row[x] = get(x, y);
 			}
+			image.set(0, y, row, 0, width);
 		}
 		return image;
 	}
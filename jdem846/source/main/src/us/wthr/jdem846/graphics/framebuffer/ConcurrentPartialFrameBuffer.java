@@ -208,11 +208,7 @@ public class ConcurrentPartialFrameBuffer extends AbstractFrameBuffer implements
 		ImageCapture image = new ImageCapture(width, height, backgroundColor);
 		
 		if (setBackground) {
-			for (int y = 0; y < getHeight(); y++) {
-				for (int x = 0; x < getWidth(); x++) {
-					image.set(x, y, background);
-				}
-			}
+			image.fill(background);
 		}
 		
 		synchronized(mutex) {
@@ -13,6 +13,8 @@ public class FrameBufferFactory {
 			buffer = new BinarySpacePartitioningFrameBuffer(width, height);
 		} else if (bufferMode == FrameBufferModeEnum.CONCURRENT_PARTIAL_FRAME_BUFFER) {
 			buffer = new ConcurrentPartialFrameBuffer(width, height);
+		} else if (bufferMode == FrameBufferModeEnum.TILED_Z_BUFFER) {
+			buffer = new TiledZBufferFrameBuffer(width, height);
 		} else {
 			
 		}
@@ -0,0 +1,246 @@
+package us.wthr.jdem846.graphics.framebuffer;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import us.wthr.jdem846.graphics.ImageCapture;
+import us.wthr.jdem846.util.ColorUtil;
+
+/** Frame buffer holding a double depth plane and an int color plane split into
+ * square screen tiles. Fragments are depth tested and alpha composited in place
+ * under a lock on their tile, so writers to different areas of the screen never
+ * contend. Tiles are allocated on first write.
+ * <p>
+ * Translucent fragments are blended with whatever is already stored for the pixel
+ * regardless of arrival order, which is exact for translucent fragments drawn over
+ * opaque ones and an approximation for stacks of translucent fragments.
+ */
+public class TiledZBufferFrameBuffer extends AbstractFrameBuffer implements FrameBuffer
+{
+	public static final int DEFAULT_TILE_SIZE = 64;
+
+	private static final double EMPTY_DEPTH = FB_MINIMUM_Z_INDEX;
+
+	private final int tileSize;
+	private final int tileColumns;
+	private final int tileRows;
+
+	private final AtomicReferenceArray<Tile> tiles;
+
+	private volatile boolean setBackground = false;
+	private volatile int background = 0x0;
+
+	public TiledZBufferFrameBuffer(int width, int height)
+	{
+		this(width, height, DEFAULT_TILE_SIZE);
+	}
+
+	public TiledZBufferFrameBuffer(int width, int height, int tileSize)
+	{
+		super(width, height);
+		this.tileSize = tileSize;
+		this.tileColumns = (width + tileSize - 1) / tileSize;
+		this.tileRows = (height + tileSize - 1) / tileSize;
+		this.tiles = new AtomicReferenceArray<Tile>(tileColumns * tileRows);
+	}
+
+	protected Tile getTile(int x, int y, boolean create)
+	{
+		int index = (y / tileSize) * tileColumns + (x / tileSize);
+		Tile tile = tiles.get(index);
+		if (tile == null && create) {
+			tiles.compareAndSet(index, null, new Tile(tileSize));
+			tile = tiles.get(index);
+		}
+		return tile;
+	}
+
+	protected int indexWithinTile(int x, int y)
+	{
+		return ((y % tileSize) * tileSize) + (x % tileSize);
+	}
+
+	protected static boolean isOpaque(int rgba)
+	{
+		return (rgba >>> 24) == 0xFF;
+	}
+
+	protected static boolean isTransparent(int rgba)
+	{
+		return (rgba >>> 24) == 0x0;
+	}
+
+	/** Places rgbaA over rgbaB, avoiding the general blend for the common cases.
+	 */
+	protected static int overlay(int rgbaA, int rgbaB)
+	{
+		if (isOpaque(rgbaA) || isTransparent(rgbaB)) {
+			return rgbaA;
+		} else if (isTransparent(rgbaA)) {
+			return rgbaB;
+		} else {
+			return ColorUtil.overlayColor(rgbaA, rgbaB);
+		}
+	}
+
+	@Override
+	public boolean isVisible(double x, double y, double z, int rgba)
+	{
+		return isVisible((int) Math.floor(x), (int) Math.floor(y), z, rgba);
+	}
+
+	public boolean isVisible(int x, int y, double z, int rgba)
+	{
+		if (isTransparent(rgba) || index(x, y) < 0) {
+			return false;
+		}
+
+		Tile tile = getTile(x, y, false);
+		if (tile == null) {
+			return true;
+		}
+
+		int i = indexWithinTile(x, y);
+		synchronized (tile) {
+			return !(tile.depth[i] > z && isOpaque(tile.color[i]));
+		}
+	}
+
+	@Override
+	public void set(int x, int y, double z, int rgba)
+	{
+		if (isTransparent(rgba) || index(x, y) < 0) {
+			return;
+		}
+
+		Tile tile = getTile(x, y, true);
+		int i = indexWithinTile(x, y);
+
+		synchronized (tile) {
+			if (z >= tile.depth[i]) {
+				tile.color[i] = overlay(rgba, tile.color[i]);
+				tile.depth[i] = z;
+			} else if (!isOpaque(tile.color[i])) {
+				tile.color[i] = overlay(tile.color[i], rgba);
+			}
+		}
+	}
+
+	@Override
+	public void set(int x, int y, BufferPoint point)
+	{
+		if (point != null) {
+			set(x, y, point.z, point.rgba);
+		}
+	}
+
+	@Override
+	public int get(double x, double y)
+	{
+		return get((int) Math.floor(x), (int) Math.floor(y));
+	}
+
+	public int get(int x, int y)
+	{
+		if (index(x, y) < 0) {
+			return 0x0;
+		}
+
+		int rgba = 0x0;
+		Tile tile = getTile(x, y, false);
+		if (tile != null) {
+			synchronized (tile) {
+				rgba = tile.color[indexWithinTile(x, y)];
+			}
+		}
+
+		return (setBackground) ? overlay(rgba, background) : rgba;
+	}
+
+	public double getDepth(int x, int y)
+	{
+		Tile tile = (index(x, y) >= 0) ? getTile(x, y, false) : null;
+		if (tile == null) {
+			return FB_MINIMUM_Z_INDEX;
+		}
+
+		synchronized (tile) {
+			return tile.depth[indexWithinTile(x, y)];
+		}
+	}
+
+	@Override
+	public void reset(boolean setBackground, int background)
+	{
+		this.setBackground = setBackground;
+		this.background = background;
+
+		for (int i = 0; i < tiles.length(); i++) {
+			Tile tile = tiles.get(i);
+			if (tile != null) {
+				synchronized (tile) {
+					tile.clear();
+				}
+			}
+		}
+	}
+
+	@Override
+	public ImageCapture captureImage(int backgroundColor)
+	{
+		int background = (setBackground) ? overlay(this.background, backgroundColor) : backgroundColor;
+		ImageCapture image = new ImageCapture(width, height, background);
+
+		int[] row = new int[tileSize];
+		for (int tileRow = 0; tileRow < tileRows; tileRow++) {
+			for (int tileColumn = 0; tileColumn < tileColumns; tileColumn++) {
+				Tile tile = tiles.get(tileRow * tileColumns + tileColumn);
+				if (tile == null) {
+					continue;
+				}
+
+				int x = tileColumn * tileSize;
+				int y = tileRow * tileSize;
+				int columns = Math.min(tileSize, width - x);
+				int rows = Math.min(tileSize, height - y);
+
+				synchronized (tile) {
+					for (int r = 0; r < rows; r++) {
+						int offset = r * tileSize;
+						for (int c = 0; c < columns; c++) {
+							row[c] = overlay(tile.color[offset + c], background);
+						}
+						image.set(x, y + r, row, 0, columns);
+					}
+				}
+			}
+		}
+
+		return image;
+	}
+
+	public int getTileSize()
+	{
+		return tileSize;
+	}
+
+
+	static class Tile
+	{
+		final double[] depth;
+		final int[] color;
+
+		Tile(int tileSize)
+		{
+			depth = new double[tileSize * tileSize];
+			color = new int[tileSize * tileSize];
+			clear();
+		}
+
+		void clear()
+		{
+			Arrays.fill(depth, EMPTY_DEPTH);
+			Arrays.fill(color, 0x0);
+		}
+	}
+}
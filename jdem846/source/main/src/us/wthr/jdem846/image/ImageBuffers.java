@@ -0,0 +1,54 @@
+package us.wthr.jdem846.image;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+import us.wthr.jdem846.buffers.IIntBuffer;
+
+/** Presents buffers of packed pixels as images. Pixels are packed as by 
+ * ColorUtil.rgbaToInt, with red in the highest byte and alpha in the lowest.
+ */
+public class ImageBuffers
+{
+	
+	private static final int RED_MASK = 0xFF000000;
+	private static final int GREEN_MASK = 0x00FF0000;
+	private static final int BLUE_MASK = 0x0000FF00;
+	private static final int ALPHA_MASK = 0x000000FF;
+	
+	private static final DirectColorModel RGBA_COLOR_MODEL = new DirectColorModel(32, RED_MASK, GREEN_MASK, BLUE_MASK, ALPHA_MASK);
+	
+	
+	/** Creates an image over the pixels of a buffer. The image shares the buffer's array
+	 * when it has one, so that changes to either are seen by both. Otherwise the pixels are
+	 * copied, a row at a time.
+	 */
+	public static BufferedImage createImage(IIntBuffer buffer, int width, int height)
+	{
+		int[] pixels;
+		if (buffer.hasArray() && buffer.array().length == width * height) {
+			pixels = buffer.array();
+		} else {
+			pixels = new int[width * height];
+			for (int y = 0; y < height; y++) {
+				buffer.getInts((long) y * width, pixels, y * width, width);
+			}
+		}
+		return createImage(pixels, width, height);
+	}
+	
+	/** Creates an image over an array of packed pixels, without copying them.
+	 */
+	public static BufferedImage createImage(int[] pixels, int width, int height)
+	{
+		DataBufferInt dataBuffer = new DataBufferInt(pixels, width * height);
+		SinglePixelPackedSampleModel sampleModel = new SinglePixelPackedSampleModel(dataBuffer.getDataType(), width, height, new int[] { RED_MASK, GREEN_MASK, BLUE_MASK, ALPHA_MASK });
+		WritableRaster raster = Raster.createWritableRaster(sampleModel, dataBuffer, null);
+		return new BufferedImage(RGBA_COLOR_MODEL, raster, false, null);
+	}
+	
+}
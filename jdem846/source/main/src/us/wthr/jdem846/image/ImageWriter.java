@@ -15,6 +15,7 @@ import javax.imageio.ImageIO;
 import javax.imageio.ImageWriteParam;
 import javax.imageio.stream.FileImageOutputStream;
 
+import us.wthr.jdem846.buffers.IIntBuffer;
 import us.wthr.jdem846.exception.ImageException;
 import us.wthr.jdem846.logging.Log;
 import us.wthr.jdem846.logging.Logging;
@@ -165,6 +166,45 @@ public class ImageWriter
 
 	}
 	
+	/** Saves a buffer of packed pixels. PNG images are encoded straight from the buffer by
+	 * PngStreamWriter, compressing bands of rows on every processor, rather than first being
+	 * copied into an image.
+	 * 
+	 * @param pixels Pixels packed as by ColorUtil.rgbaToInt, row by row
+	 * @param out Target output stream
+	 * @param format Format number.
+	 * @throws ImageException If the format is invalid or there is a write error.
+	 */
+	public static void saveImage(IIntBuffer pixels, int width, int height, FileImageOutputStream out, ImageTypeEnum format) throws ImageException
+	{
+		if (format == ImageTypeEnum.PNG) {
+			try {
+				new PngStreamWriter().write(pixels, width, height, out);
+			} catch (IOException ex) {
+				throw new ImageException("Error writing image to disk: " + ex.getMessage(), ex);
+			}
+		} else {
+			saveImage(ImageBuffers.createImage(pixels, width, height), out, format);
+		}
+	}
+	
+	/** Saves a buffer of packed pixels. 
+	 * 
+	 * @see #saveImage(IIntBuffer, int, int, FileImageOutputStream, ImageTypeEnum)
+	 */
+	public static void saveImage(IIntBuffer pixels, int width, int height, OutputStream out, ImageTypeEnum format) throws ImageException
+	{
+		if (format == ImageTypeEnum.PNG) {
+			try {
+				new PngStreamWriter().write(pixels, width, height, out);
+			} catch (IOException ex) {
+				throw new ImageException("Error writing image to output stream: " + ex.getMessage(), ex);
+			}
+		} else {
+			saveImage(ImageBuffers.createImage(pixels, width, height), out, format);
+		}
+	}
+	
 	/**
 	 * See: http://www.universalwebservices.net/web-programming-resources/java/adjust-jpeg-image-compression-quality-when-saving-images-in-java
 	 * @param image
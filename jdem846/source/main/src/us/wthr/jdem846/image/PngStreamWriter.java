@@ -0,0 +1,524 @@
+package us.wthr.jdem846.image;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import us.wthr.jdem846.buffers.IIntBuffer;
+
+/** Writes a buffer of packed pixels as an 8 bit RGBA PNG. The image is divided into bands
+ * of rows which are filtered and compressed concurrently. Each band is compressed as its
+ * own run of DEFLATE blocks, primed with the end of the band before it and ended on a byte
+ * boundary, so that the bands join into a single zlib stream. Only the bands in flight are
+ * held in memory, so images which only fit in mapped buffers may be written.
+ * <p>
+ * Ending a band on a byte boundary needs the sync flush added to Deflater in Java 7. On
+ * earlier runtimes the bands are compressed one after another as a single stream.
+ */
+public class PngStreamWriter
+{
+
+	private static final byte[] SIGNATURE = { (byte) 137, 80, 78, 71, 13, 10, 26, 10 };
+
+	private static final int COLOR_TYPE_RGBA = 6;
+	private static final int BYTES_PER_PIXEL = 4;
+
+	private static final int FILTER_NONE = 0;
+	private static final int FILTER_SUB = 1;
+	private static final int FILTER_UP = 2;
+	private static final int FILTER_AVERAGE = 3;
+	private static final int FILTER_PAETH = 4;
+
+	// Deflater.SYNC_FLUSH, which is not defined before Java 7
+	private static final int SYNC_FLUSH = 2;
+	private static final Method SYNC_FLUSH_DEFLATE = findSyncFlushDeflate();
+
+	private static final int DICTIONARY_SIZE = 32768;
+	private static final int ADLER_BASE = 65521;
+
+	public static final int DEFAULT_BAND_SIZE = 524288;
+	public static final int DEFAULT_CHUNK_SIZE = 65536;
+
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private int bandSize = DEFAULT_BAND_SIZE;
+	private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+
+	public PngStreamWriter()
+	{
+
+	}
+
+	/**
+	 * @param threads The number of bands compressed at once
+	 * @param bandSize The approximate size of a band of filtered rows, in bytes
+	 * @param compressionLevel The DEFLATE compression level
+	 */
+	public PngStreamWriter(int threads, int bandSize, int compressionLevel)
+	{
+		this.threads = Math.max(1, threads);
+		this.bandSize = bandSize;
+		this.compressionLevel = compressionLevel;
+	}
+
+
+	/** Writes the image. The output stream is left open. Files are written through their
+	 * channel.
+	 *
+	 * @param pixels Pixels packed as by ColorUtil.rgbaToInt, row by row
+	 */
+	public void write(IIntBuffer pixels, int width, int height, OutputStream out) throws IOException
+	{
+		if (out instanceof FileOutputStream) {
+			write(pixels, width, height, ((FileOutputStream) out).getChannel());
+			return;
+		}
+
+		DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(out, DEFAULT_CHUNK_SIZE));
+		write(pixels, width, height, (DataOutput) dataOut);
+		dataOut.flush();
+	}
+
+	/** Writes the image to a file channel, from its current position. The channel is left open.
+	 */
+	public void write(IIntBuffer pixels, int width, int height, FileChannel channel) throws IOException
+	{
+		DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), DEFAULT_CHUNK_SIZE));
+		write(pixels, width, height, (DataOutput) dataOut);
+		dataOut.flush();
+	}
+
+	/** Writes the image to any data output, such as an ImageOutputStream.
+	 */
+	public void write(IIntBuffer pixels, int width, int height, DataOutput out) throws IOException
+	{
+		if (width <= 0 || height <= 0 || (long) width * height > pixels.capacity()) {
+			throw new IOException("Invalid image dimensions: " + width + "x" + height);
+		}
+
+		out.write(SIGNATURE);
+
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		DataOutputStream headerData = new DataOutputStream(header);
+		headerData.writeInt(width);
+		headerData.writeInt(height);
+		headerData.writeByte(8);
+		headerData.writeByte(COLOR_TYPE_RGBA);
+		headerData.writeByte(0); // Deflate
+		headerData.writeByte(0); // Adaptive filtering
+		headerData.writeByte(0); // No interlace
+		writeChunk(out, "IHDR", header.toByteArray(), header.size());
+
+		ChunkOutputStream idat = new ChunkOutputStream(out, "IDAT", DEFAULT_CHUNK_SIZE);
+		writeImageData(pixels, width, height, idat);
+		idat.close();
+
+		writeChunk(out, "IEND", new byte[0], 0);
+	}
+
+	private static Method findSyncFlushDeflate()
+	{
+		try {
+			return Deflater.class.getMethod("deflate", byte[].class, int.class, int.class, int.class);
+		} catch (NoSuchMethodException ex) {
+			return null;
+		}
+	}
+
+	/** Whether the runtime can end a band of compressed data on a byte boundary without
+	 * ending the stream, which compressing bands concurrently depends on.
+	 */
+	protected boolean isBandFlushSupported()
+	{
+		return (SYNC_FLUSH_DEFLATE != null);
+	}
+
+	protected static int deflateSyncFlush(Deflater deflater, byte[] buffer)
+	{
+		try {
+			return ((Integer) SYNC_FLUSH_DEFLATE.invoke(deflater, buffer, 0, buffer.length, SYNC_FLUSH)).intValue();
+		} catch (IllegalAccessException ex) {
+			throw new IllegalStateException("Error flushing deflater: " + ex.getMessage(), ex);
+		} catch (InvocationTargetException ex) {
+			throw new IllegalStateException("Error flushing deflater: " + ex.getCause().getMessage(), ex.getCause());
+		}
+	}
+
+	/** Writes the zlib stream of filtered rows, compressing bands on a pool of threads and
+	 * writing them in order. At most two bands per thread are in flight at once.
+	 */
+	protected void writeImageData(IIntBuffer pixels, int width, int height, OutputStream out) throws IOException
+	{
+		if (!isBandFlushSupported()) {
+			writeImageDataSerially(pixels, width, height, out);
+			return;
+		}
+
+		int lineLength = 1 + width * BYTES_PER_PIXEL;
+		int bandRows = Math.max(1, bandSize / lineLength);
+		int bands = (height + bandRows - 1) / bandRows;
+
+		// Deflate with a 32K window, without a preset dictionary
+		out.write(0x78);
+		out.write(0x9C);
+
+		long adler = 1L;
+
+		ExecutorService executor = (threads > 1) ? Executors.newFixedThreadPool(threads, new PngWriterThreadFactory()) : null;
+		LinkedList<Future<CompressedBand>> pending = new LinkedList<Future<CompressedBand>>();
+		try {
+			int next = 0;
+			for (int band = 0; band < bands; band++) {
+				CompressedBand compressed;
+				if (executor != null) {
+					while (next < bands && next < band + threads * 2) {
+						pending.add(executor.submit(new BandCompressor(pixels, width, height, next * bandRows, bandRows)));
+						next++;
+					}
+					compressed = pending.removeFirst().get();
+				} else {
+					compressed = new BandCompressor(pixels, width, height, band * bandRows, bandRows).call();
+				}
+
+				out.write(compressed.data, 0, compressed.length);
+				adler = combineAdler32(adler, compressed.adler, compressed.filteredLength);
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while compressing image", ex);
+		} catch (ExecutionException ex) {
+			throw new IOException("Error compressing image: " + ex.getCause().getMessage(), ex.getCause());
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+		}
+
+		out.write((int) (adler >>> 24) & 0xFF);
+		out.write((int) (adler >>> 16) & 0xFF);
+		out.write((int) (adler >>> 8) & 0xFF);
+		out.write((int) adler & 0xFF);
+	}
+
+	/** Writes the zlib stream of filtered rows through a single deflater, a band at a time.
+	 */
+	protected void writeImageDataSerially(IIntBuffer pixels, int width, int height, OutputStream out) throws IOException
+	{
+		int lineLength = 1 + width * BYTES_PER_PIXEL;
+		int bandRows = Math.max(1, bandSize / lineLength);
+
+		Deflater deflater = new Deflater(compressionLevel);
+		try {
+			DeflaterOutputStream deflaterOut = new DeflaterOutputStream(out, deflater, DEFAULT_CHUNK_SIZE);
+			for (int firstRow = 0; firstRow < height; firstRow += bandRows) {
+				deflaterOut.write(filterRows(pixels, width, firstRow, Math.min(bandRows, height - firstRow)));
+			}
+			deflaterOut.finish();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/** Filters a run of rows, choosing for each row the filter which leaves the smallest sum
+	 * of absolute differences, as the PNG specification suggests.
+	 *
+	 * @return The filtered rows, each beginning with its filter type
+	 */
+	protected static byte[] filterRows(IIntBuffer pixels, int width, int firstRow, int rows)
+	{
+		int stride = width * BYTES_PER_PIXEL;
+		byte[] filtered = new byte[rows * (stride + 1)];
+
+		int[] row = new int[width];
+		byte[] previous = new byte[stride];
+		byte[] current = new byte[stride];
+
+		if (firstRow > 0) {
+			pixels.getInts((long) (firstRow - 1) * width, row, 0, width);
+			unpackRow(row, previous);
+		}
+
+		for (int r = 0; r < rows; r++) {
+			pixels.getInts((long) (firstRow + r) * width, row, 0, width);
+			unpackRow(row, current);
+
+			int offset = r * (stride + 1);
+			int filter = selectFilter(current, previous);
+			filtered[offset] = (byte) filter;
+			for (int i = 0; i < stride; i++) {
+				filtered[offset + 1 + i] = (byte) applyFilter(filter, current, previous, i);
+			}
+
+			byte[] swap = previous;
+			previous = current;
+			current = swap;
+		}
+
+		return filtered;
+	}
+
+	protected static void unpackRow(int[] row, byte[] bytes)
+	{
+		int index = 0;
+		for (int x = 0; x < row.length; x++) {
+			int pixel = row[x];
+			bytes[index++] = (byte) (pixel >>> 24);
+			bytes[index++] = (byte) (pixel >>> 16);
+			bytes[index++] = (byte) (pixel >>> 8);
+			bytes[index++] = (byte) pixel;
+		}
+	}
+
+	protected static int selectFilter(byte[] current, byte[] previous)
+	{
+		long[] sums = new long[5];
+		for (int i = 0; i < current.length; i++) {
+			for (int filter = FILTER_NONE; filter <= FILTER_PAETH; filter++) {
+				sums[filter] += Math.abs((byte) applyFilter(filter, current, previous, i));
+			}
+		}
+
+		int best = FILTER_NONE;
+		for (int filter = FILTER_SUB; filter <= FILTER_PAETH; filter++) {
+			if (sums[filter] < sums[best]) {
+				best = filter;
+			}
+		}
+		return best;
+	}
+
+	protected static int applyFilter(int filter, byte[] current, byte[] previous, int i)
+	{
+		int x = current[i] & 0xFF;
+		int a = (i >= BYTES_PER_PIXEL) ? current[i - BYTES_PER_PIXEL] & 0xFF : 0;
+		int b = previous[i] & 0xFF;
+		int c = (i >= BYTES_PER_PIXEL) ? previous[i - BYTES_PER_PIXEL] & 0xFF : 0;
+
+		switch (filter) {
+		case FILTER_SUB:
+			return x - a;
+		case FILTER_UP:
+			return x - b;
+		case FILTER_AVERAGE:
+			return x - ((a + b) >> 1);
+		case FILTER_PAETH:
+			int p = a + b - c;
+			int pa = Math.abs(p - a);
+			int pb = Math.abs(p - b);
+			int pc = Math.abs(p - c);
+			if (pa <= pb && pa <= pc) {
+				return x - a;
+			} else if (pb <= pc) {
+				return x - b;
+			} else {
+				return x - c;
+			}
+		default:
+			return x;
+		}
+	}
+
+	/** Computes the Adler-32 checksum of two runs of data from the checksum of each, as
+	 * zlib's adler32_combine does.
+	 */
+	protected static long combineAdler32(long adler1, long adler2, long length2)
+	{
+		long remainder = length2 % ADLER_BASE;
+		long sum1 = adler1 & 0xFFFF;
+		long sum2 = (remainder * sum1) % ADLER_BASE;
+		sum1 += (adler2 & 0xFFFF) + ADLER_BASE - 1;
+		sum2 += ((adler1 >>> 16) & 0xFFFF) + ((adler2 >>> 16) & 0xFFFF) + ADLER_BASE - remainder;
+		if (sum1 >= ADLER_BASE) {
+			sum1 -= ADLER_BASE;
+		}
+		if (sum1 >= ADLER_BASE) {
+			sum1 -= ADLER_BASE;
+		}
+		if (sum2 >= ((long) ADLER_BASE << 1)) {
+			sum2 -= ((long) ADLER_BASE << 1);
+		}
+		if (sum2 >= ADLER_BASE) {
+			sum2 -= ADLER_BASE;
+		}
+		return sum1 | (sum2 << 16);
+	}
+
+	protected static void writeChunk(DataOutput out, String type, byte[] data, int length) throws IOException
+	{
+		byte[] typeBytes = type.getBytes("US-ASCII");
+
+		CRC32 crc = new CRC32();
+		crc.update(typeBytes);
+		crc.update(data, 0, length);
+
+		out.writeInt(length);
+		out.write(typeBytes);
+		out.write(data, 0, length);
+		out.writeInt((int) crc.getValue());
+	}
+
+
+	static class CompressedBand
+	{
+		byte[] data;
+		int length;
+		long adler;
+		long filteredLength;
+	}
+
+	/** Filters and compresses one band of rows. Bands other than the last end with a sync
+	 * flush, which leaves the stream open and byte aligned for the next band.
+	 */
+	class BandCompressor implements Callable<CompressedBand>
+	{
+		private IIntBuffer pixels;
+		private int width;
+		private int height;
+		private int firstRow;
+		private int rows;
+
+		public BandCompressor(IIntBuffer pixels, int width, int height, int firstRow, int bandRows)
+		{
+			this.pixels = pixels;
+			this.width = width;
+			this.height = height;
+			this.firstRow = firstRow;
+			this.rows = Math.min(bandRows, height - firstRow);
+		}
+
+		public CompressedBand call()
+		{
+			byte[] filtered = filterRows(pixels, width, firstRow, rows);
+			boolean last = (firstRow + rows >= height);
+
+			Deflater deflater = new Deflater(compressionLevel, true);
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream(filtered.length / 2 + 64);
+			try {
+				if (firstRow > 0) {
+					int lineLength = 1 + width * BYTES_PER_PIXEL;
+					int dictionaryRows = Math.min(firstRow, (DICTIONARY_SIZE + lineLength - 1) / lineLength);
+					byte[] dictionary = filterRows(pixels, width, firstRow - dictionaryRows, dictionaryRows);
+					int length = Math.min(DICTIONARY_SIZE, dictionary.length);
+					deflater.setDictionary(dictionary, dictionary.length - length, length);
+				}
+
+				deflater.setInput(filtered);
+				byte[] buffer = new byte[DEFAULT_CHUNK_SIZE];
+				if (last) {
+					deflater.finish();
+					while (!deflater.finished()) {
+						int length = deflater.deflate(buffer);
+						compressed.write(buffer, 0, length);
+					}
+				} else {
+					int length;
+					do {
+						length = deflateSyncFlush(deflater, buffer);
+						compressed.write(buffer, 0, length);
+					} while (length == buffer.length);
+				}
+			} finally {
+				deflater.end();
+			}
+
+			Adler32 adler = new Adler32();
+			adler.update(filtered);
+
+			CompressedBand band = new CompressedBand();
+			band.data = compressed.toByteArray();
+			band.length = band.data.length;
+			band.adler = adler.getValue();
+			band.filteredLength = filtered.length;
+			return band;
+		}
+	}
+
+	/** Collects bytes into chunks of a fixed maximum size.
+	 */
+	static class ChunkOutputStream extends OutputStream
+	{
+		private DataOutput out;
+		private String type;
+		private byte[] buffer;
+		private int length = 0;
+
+		public ChunkOutputStream(DataOutput out, String type, int chunkSize)
+		{
+			this.out = out;
+			this.type = type;
+			this.buffer = new byte[chunkSize];
+		}
+
+		@Override
+		public void write(int b) throws IOException
+		{
+			if (length == buffer.length) {
+				flush();
+			}
+			buffer[length++] = (byte) b;
+		}
+
+		@Override
+		public void write(byte[] b, int offset, int count) throws IOException
+		{
+			while (count > 0) {
+				if (length == buffer.length) {
+					flush();
+				}
+				int copy = Math.min(count, buffer.length - length);
+				System.arraycopy(b, offset, buffer, length, copy);
+				length += copy;
+				offset += copy;
+				count -= copy;
+			}
+		}
+
+		@Override
+		public void flush() throws IOException
+		{
+			if (length > 0) {
+				writeChunk(out, type, buffer, length);
+				length = 0;
+			}
+		}
+
+		/** Flushes the last chunk, leaving the underlying stream open.
+		 */
+		@Override
+		public void close() throws IOException
+		{
+			flush();
+		}
+	}
+
+	static class PngWriterThreadFactory implements ThreadFactory
+	{
+		private int threadNumber = 0;
+
+		public synchronized Thread newThread(Runnable runnable)
+		{
+			Thread thread = new Thread(runnable, "PngStreamWriter #" + (threadNumber++));
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
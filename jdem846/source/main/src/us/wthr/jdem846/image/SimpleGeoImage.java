@@ -157,6 +157,7 @@ public class SimpleGeoImage implements InputSourceData, ISimpleGeoImage
 		}
 		
 		int[] rgba = {0, 0, 0, 0};
+		int[] line = new int[raster.getWidth()];
 
 		long capacity = raster.getWidth() * raster.getHeight();
 		
@@ -174,11 +175,12 @@ public class SimpleGeoImage implements InputSourceData, ISimpleGeoImage
 					rgba[3] = 0xFF;
 				} 
 				
-				long index = ((long) y * (long)raster.getWidth()) + ((long)x);
-				int c = ColorUtil.rgbaToInt(rgba);
-				rasterBuffer.put(index, c);
+				line[x] = ColorUtil.rgbaToInt(rgba);
 				
 			}
+			
+			long index = (long) y * (long)raster.getWidth();
+			rasterBuffer.put(line, index, 0, line.length);
 		}
 		
 		image = null;
@@ -469,7 +471,7 @@ public class SimpleGeoImage implements InputSourceData, ISimpleGeoImage
 			return null; // Throw?
 		}
 		
-		int c = rasterBuffer.get(index);
+		int c = rasterBuffer.getInt(index);
 		
 		IColor color = new Color(c);
 		
@@ -96,7 +96,8 @@ public class BufferControlledRasterDataContainer extends RasterDataContext
 				}
 
 				try {
-					clearBuffers();
+					// Refilling swaps the pinned tiles in place so that tiles shared with the
+					// previous band stay resident in the shared raster tile cache
 					rasterDataContext.fillBuffers(northCache, southCache, east, west);
 				} catch (Exception ex) {
 					// TODO: Add better handling
@@ -5,16 +5,36 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import us.wthr.jdem846.math.MathExt;
 import us.wthr.jdem846.util.ByteConversions;
 
+/** Counts of elevations within evenly sized bins. Each thread adding elevations counts
+ * them in its own stripe, which is merged into the distribution when the counts are
+ * read. Counts are read once the threads adding them have finished, as when a grid
+ * pass completes.
+ */
 public class ElevationHistogramModel
 {
 	
 	private int[] distribution;
 	
+	private final List<int[]> stripes = new ArrayList<int[]>();
+	private final ThreadLocal<int[]> stripe = new ThreadLocal<int[]>() {
+		@Override
+		protected int[] initialValue()
+		{
+			synchronized (stripes) {
+				int[] counts = new int[distribution.length];
+				stripes.add(counts);
+				return counts;
+			}
+		}
+	};
+	
 	private int minimum;
 	private int maximum;
 	private int bins;
@@ -48,11 +68,41 @@ public class ElevationHistogramModel
 	{
 		int index = getIndex(elevation);
 		if (index >= 0 && index < distribution.length)
-			distribution[index]++;
+			stripe.get()[index]++;
+	}
+	
+	public void addAll(float[] elevations)
+	{
+		addAll(elevations, 0, elevations.length);
+	}
+	
+	public void addAll(float[] elevations, int offset, int length)
+	{
+		int[] counts = stripe.get();
+		for (int i = offset; i < offset + length; i++) {
+			int index = getIndex(elevations[i]);
+			if (index >= 0 && index < counts.length)
+				counts[index]++;
+		}
+	}
+	
+	/** Adds the counts of each thread's stripe into the distribution.
+	 */
+	public void merge()
+	{
+		synchronized (stripes) {
+			for (int[] counts : stripes) {
+				for (int i = 0; i < counts.length; i++) {
+					distribution[i] += counts[i];
+					counts[i] = 0;
+				}
+			}
+		}
 	}
 	
 	public int[] getDistribution()
 	{
+		merge();
 		return distribution;
 	}
 
@@ -75,6 +125,7 @@ public class ElevationHistogramModel
 	
 	public int getCountAtElevation(double elevation)
 	{
+		merge();
 		int index = getIndex(elevation);
 		if (index >= 0 && index < distribution.length)
 			return distribution[index];
@@ -89,8 +140,9 @@ public class ElevationHistogramModel
 		
 		int max = 0;
 		
+		merge();
 		for (int e = start; e <= stop; e+=step) {
-			int c = getCountWithinElevationRange(e, e+step-1);
+			int c = countWithinElevationRange(e, e+step-1);
 			max = (int) MathExt.max(c, max);
 		}
 		
@@ -104,8 +156,9 @@ public class ElevationHistogramModel
 		
 		int min = 100000000;
 		
+		merge();
 		for (int e = start; e <= stop; e+=step) {
-			int c = getCountWithinElevationRange(e, e+step-1);
+			int c = countWithinElevationRange(e, e+step-1);
 			min = (int) MathExt.min(c, min);
 		}
 		
@@ -113,6 +166,12 @@ public class ElevationHistogramModel
 	}
 	
 	public int getCountWithinElevationRange(double min, double max)
+	{
+		merge();
+		return countWithinElevationRange(min, max);
+	}
+	
+	protected int countWithinElevationRange(double min, double max)
 	{
 		
 		int start = getIndex(min);
@@ -161,6 +220,7 @@ public class ElevationHistogramModel
 	
 	public void write(OutputStream out) throws IOException
 	{
+		merge();
 		
 		byte[] buffer4 = new byte[4];
 		
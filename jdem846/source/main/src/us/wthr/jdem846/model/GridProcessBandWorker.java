@@ -0,0 +1,135 @@
+package us.wthr.jdem846.model;
+
+import java.util.concurrent.Callable;
+
+import us.wthr.jdem846.exception.DataSourceException;
+import us.wthr.jdem846.exception.RenderEngineException;
+import us.wthr.jdem846.model.processing.GridProcessMethodStack;
+import us.wthr.jdem846.modelgrid.IFillControlledModelGrid;
+import us.wthr.jdem846.modelgrid.IModelGrid;
+import us.wthr.jdem846.modelgrid.ModelGridRow;
+
+public class GridProcessBandWorker implements Callable<Void>
+{
+
+	protected RowBandScheduler scheduler;
+	protected ModelProgram modelProgram;
+	protected int workerNumber;
+	protected double north;
+	protected double west;
+	protected double latitudeResolution;
+	protected double longitudeResolution;
+
+	public GridProcessBandWorker(RowBandScheduler scheduler, ModelProgram modelProgram, int workerNumber, double north, double west, double latitudeResolution, double longitudeResolution)
+	{
+		this.scheduler = scheduler;
+		this.modelProgram = modelProgram;
+		this.workerNumber = workerNumber;
+		this.north = north;
+		this.west = west;
+		this.latitudeResolution = latitudeResolution;
+		this.longitudeResolution = longitudeResolution;
+	}
+
+	@Override
+	public Void call() throws RenderEngineException
+	{
+		GridProcessMethodStack processStack = modelProgram.getProcessStack();
+
+		IModelGrid modelGrid = modelProgram.getModelGrid();
+		int width = modelGrid.getWidth();
+
+		ModelGridRow row = null;
+		if (modelGrid instanceof IFillControlledModelGrid && (processStack.hasRowWorkers() || modelProgram.getFilterStack().hasRowWorkers())) {
+			row = new ModelGridRow(width, west, longitudeResolution);
+		}
+
+		RowBandScheduler.Band band = new RowBandScheduler.Band();
+
+		RenderEngineException exception = null;
+
+		try {
+			while (scheduler.next(workerNumber, band)) {
+				for (int y = band.start; y < band.end && !scheduler.isAborted(); y++) {
+					if (row != null) {
+						processRow(processStack, (IFillControlledModelGrid) modelGrid, row, y);
+					} else {
+						processRow(processStack, y, width);
+					}
+				}
+			}
+		} catch (RenderEngineException ex) {
+			scheduler.abort();
+			exception = ex;
+		} catch (RuntimeException ex) {
+			scheduler.abort();
+			exception = new RenderEngineException("Error processing model grid: " + ex.getMessage(), ex);
+		}
+
+		try {
+			modelProgram.getRasterDataContext().clearBuffers();
+		} catch (DataSourceException ex) {
+			if (exception == null) {
+				exception = new RenderEngineException("Error clearing raster buffers: " + ex.getMessage(), ex);
+			}
+		}
+
+		if (exception != null) {
+			throw exception;
+		}
+
+		return null;
+	}
+
+	protected void processRow(GridProcessMethodStack processStack, IFillControlledModelGrid modelGrid, ModelGridRow row, int y) throws RenderEngineException
+	{
+		double latitude = north - ((double) y * latitudeResolution);
+
+		try {
+			processStack.onLatitudeStart(latitude);
+		} catch (Exception ex) {
+			throw new RenderEngineException("Error invoking onLatitudeStart: " + ex.getMessage(), ex);
+		}
+
+		try {
+			row.setLatitude(latitude);
+			modelGrid.loadRow(row);
+			processStack.onModelRow(row, modelGrid);
+		} catch (Exception ex) {
+			throw new RenderEngineException("Error invoking onModelRow: " + ex.getMessage(), ex);
+		}
+
+		try {
+			processStack.onLatitudeEnd(latitude);
+		} catch (Exception ex) {
+			throw new RenderEngineException("Error invoking onLatitudeEnd: " + ex.getMessage(), ex);
+		}
+	}
+
+	protected void processRow(GridProcessMethodStack processStack, int y, int width) throws RenderEngineException
+	{
+		double latitude = north - ((double) y * latitudeResolution);
+
+		try {
+			processStack.onLatitudeStart(latitude);
+		} catch (Exception ex) {
+			throw new RenderEngineException("Error invoking onLatitudeStart: " + ex.getMessage(), ex);
+		}
+
+		for (int x = 0; x <= width; x++) {
+			double longitude = west + ((double) x) * longitudeResolution;
+			try {
+				processStack.onModelPoint(latitude, longitude);
+			} catch (Exception ex) {
+				throw new RenderEngineException("Error invoking onModelPoint: " + ex.getMessage(), ex);
+			}
+		}
+
+		try {
+			processStack.onLatitudeEnd(latitude);
+		} catch (Exception ex) {
+			throw new RenderEngineException("Error invoking onLatitudeEnd: " + ex.getMessage(), ex);
+		}
+	}
+
+}
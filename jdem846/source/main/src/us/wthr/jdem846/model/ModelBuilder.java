@@ -3,6 +3,12 @@ package us.wthr.jdem846.model;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import us.wthr.jdem846.ElevationModel;
 import us.wthr.jdem846.JDem846Properties;
@@ -14,6 +20,8 @@ import us.wthr.jdem846.exception.GraphicsRenderException;
 import us.wthr.jdem846.exception.RenderEngineException;
 import us.wthr.jdem846.exception.ScriptingException;
 import us.wthr.jdem846.gis.exceptions.MapProjectionException;
+import us.wthr.jdem846.gis.planets.Planet;
+import us.wthr.jdem846.gis.planets.PlanetsRegistry;
 import us.wthr.jdem846.gis.projections.MapProjection;
 import us.wthr.jdem846.graphics.ImageCapture;
 import us.wthr.jdem846.graphics.RenderProcess;
@@ -21,14 +29,15 @@ import us.wthr.jdem846.graphics.View;
 import us.wthr.jdem846.graphics.ViewFactory;
 import us.wthr.jdem846.logging.Log;
 import us.wthr.jdem846.logging.Logging;
-import us.wthr.jdem846.math.MathExt;
 import us.wthr.jdem846.model.exceptions.ModelContainerException;
 import us.wthr.jdem846.model.processing.GridFilterMethodStack;
 import us.wthr.jdem846.model.processing.GridProcessMethodStack;
+import us.wthr.jdem846.model.processing.shading.RenderLightingOptionModel;
 import us.wthr.jdem846.modelgrid.IFillControlledModelGrid;
 import us.wthr.jdem846.modelgrid.IModelGrid;
 import us.wthr.jdem846.modelgrid.ModelGridFactory;
 import us.wthr.jdem846.modelgrid.ModelGridWriter;
+import us.wthr.jdem846.modelgrid.NormalPlane;
 import us.wthr.jdem846.rasterdata.RasterDataContext;
 import us.wthr.jdem846.render.InterruptibleProcess;
 import us.wthr.jdem846.render.ProcessInterruptListener;
@@ -51,7 +60,6 @@ public class ModelBuilder extends InterruptibleProcess implements IModelBuilder
 	private ElevationScaler elevationScaler = null;
 	private ModelGridDimensions modelDimensions;
 	private GlobalOptionModel globalOptionModel;
-	private LatitudeProcessedList latitudeProcessedList = null;
 	// private ModelCanvas modelCanvas;
 	private BufferControlledRasterDataContainer bufferControlledRasterDataContainer;
 	//private ManagedConcurrentFrameBufferController frameBufferController;
@@ -165,12 +173,6 @@ public class ModelBuilder extends InterruptibleProcess implements IModelBuilder
 			
 		} 
 		
-		if (this.latitudeProcessedList == null) {
-			this.latitudeProcessedList = new LatitudeProcessedList(globalOptionModel.getNorthLimit(), modelDimensions.getTextureLatitudeResolution(), modelGrid.getHeight());
-		} else {
-			this.latitudeProcessedList.reset();
-		}
-	
 
 		// +
 		if (progressTracker != null) {
@@ -328,81 +330,63 @@ public class ModelBuilder extends InterruptibleProcess implements IModelBuilder
 		// setProcessing(true);
 		// onProcessBefore();
 
-		int numberOfThreads = globalOptionModel.getNumberOfThreads();
 		double north = globalOptionModel.getNorthLimit();
-		double south = globalOptionModel.getSouthLimit();
-		double east = globalOptionModel.getEastLimit();
 		double west = globalOptionModel.getWestLimit();
 
 		double latitudeResolution = modelDimensions.getTextureLatitudeResolution();
 		double longitudeResolution = modelDimensions.getTextureLongitudeResolution();
 
-		if (numberOfThreads == 1) {
-			ModelProgram modelProgram = this.modelPrograms.get(0);
-			GridProcessChunkThread chunkThread = new GridProcessChunkThread(this.latitudeProcessedList, modelProgram, 0, north, south, east, west, latitudeResolution, longitudeResolution);
-			chunkThread.run();
+		RowBandScheduler scheduler = new RowBandScheduler(modelGrid.getHeight(), modelPrograms.size());
+
+		if (modelPrograms.size() == 1) {
+			GridProcessBandWorker worker = new GridProcessBandWorker(scheduler, this.modelPrograms.get(0), 0, north, west, latitudeResolution, longitudeResolution);
+			worker.call();
 
 			if (progressTracker != null) {
 				progressTracker.worked(1);
 			}
 
 		} else {
-			GridProcessChunkThread[] threads = new GridProcessChunkThread[numberOfThreads];
-
-			int dataRows = (int) MathExt.ceil((north - south) / latitudeResolution);
-
-			int rowsPerThread = (int) MathExt.ceil((double) dataRows / (double) numberOfThreads);
-
-			double chunkNorth = 0;
-			double chunkSouth = 0;
-
-			int threadNumber = 0;
-			for (int y = 0; y <= dataRows; y += rowsPerThread) {
-
-				chunkNorth = north - ((double) y * latitudeResolution);
-				chunkSouth = chunkNorth - ((double) rowsPerThread * latitudeResolution);
-
-				if (chunkSouth < south) {
-					chunkSouth = south;
-				}
-
-				if (threadNumber >= 0 && threadNumber < modelPrograms.size()) {
-					ModelProgram modelProgram = this.modelPrograms.get(threadNumber);
-					threads[threadNumber] = new GridProcessChunkThread(this.latitudeProcessedList, modelProgram, threadNumber, chunkNorth, chunkSouth, east, west, latitudeResolution, longitudeResolution);
-
-					threads[threadNumber].start();
-				} else {
-					log.warn("Invalid thread number: " + threadNumber);
-				}
-
-				threadNumber++;
+			ExecutorService executor = Executors.newFixedThreadPool(modelPrograms.size(), new GridProcessThreadFactory());
+			CompletionService<Void> completionService = new ExecutorCompletionService<Void>(executor);
 
+			for (int i = 0; i < modelPrograms.size(); i++) {
+				completionService.submit(new GridProcessBandWorker(scheduler, this.modelPrograms.get(i), i, north, west, latitudeResolution, longitudeResolution));
 			}
 
-			boolean threadsActive = true;
+			RenderEngineException exception = null;
 
-			while (threadsActive) {
-				threadsActive = false;
-
-				for (GridProcessChunkThread thread : threads) {
-					if (thread != null && !thread.isCompleted()) {
-						threadsActive = true;
-						break;
+			try {
+				for (int i = 0; i < modelPrograms.size(); i++) {
+					try {
+						completionService.take().get();
+					} catch (ExecutionException ex) {
+						if (exception == null) {
+							scheduler.abort();
+							exception = toRenderEngineException(ex.getCause());
+						}
 					}
 				}
-				try {
-					Thread.sleep(50);
-				} catch (InterruptedException ex) {
-					log.warn("Thread sleep interrupted while waiting for grid process threads to complete: " + ex.getMessage(), ex);
-				}
+			} catch (InterruptedException ex) {
+				scheduler.abort();
+				Thread.currentThread().interrupt();
+				exception = new RenderEngineException("Interrupted while waiting for grid process workers to complete", ex);
+			} finally {
+				executor.shutdown();
+			}
+
+			if (exception != null) {
+				throw exception;
 			}
 
 			if (progressTracker != null) {
-				progressTracker.worked(threads.length);
+				progressTracker.worked(modelPrograms.size());
 			}
 		}
 		
 		this.modelGrid.setCompleted(true);
+		this.precomputeNormals();
+		
 		if (!globalOptionModel.isPreviewRendering() && globalOptionModel.getSaveModelGrid()) {
 			
 			FilePath saveTo = globalOptionModel.getModelGridSavePath();
@@ -424,6 +408,43 @@ public class ModelBuilder extends InterruptibleProcess implements IModelBuilder
 
 	}
 
+	/** Computes the surface normals the final render will light the model with, so that
+	 * the view reads them from the grid instead of sampling five elevations per vertex.
+	 */
+	protected void precomputeNormals() throws RenderEngineException
+	{
+		if (JDem846Properties.hasProperty("us.wthr.jdem846.performance.precomputeNormals") 
+				&& !JDem846Properties.getBooleanProperty("us.wthr.jdem846.performance.precomputeNormals")) {
+			return;
+		}
+		
+		// The view only samples normals on grid points when rendering at the grid's resolution
+		if (modelDimensions.getModelLatitudeResolution() != modelGrid.getLatitudeResolution()
+				|| modelDimensions.getModelLongitudeResolution() != modelGrid.getLongitudeResolution()) {
+			return;
+		}
+		
+		RenderLightingOptionModel lightingOptionModel = (RenderLightingOptionModel) modelProcessManifest.getOptionModelByProcessId("us.wthr.jdem846.model.processing.lighting.RenderLightingProcessor");
+		boolean flat = (lightingOptionModel != null && lightingOptionModel.getFlatLighting());
+		Planet planet = PlanetsRegistry.getPlanet(globalOptionModel.getPlanet());
+		
+		if (modelGrid.getNormalPlane(flat, elevationScaler, planet, modelGrid.getLatitudeResolution(), modelGrid.getLongitudeResolution()) != null) {
+			return;
+		}
+		
+		int bits = NormalPlane.BITS_32;
+		if (JDem846Properties.hasProperty("us.wthr.jdem846.performance.normalPlaneBits")) {
+			bits = JDem846Properties.getIntProperty("us.wthr.jdem846.performance.normalPlaneBits");
+		}
+		
+		try {
+			NormalPlane normalPlane = NormalPlane.compute(modelGrid, bits, flat, elevationScaler, planet, Math.max(1, modelPrograms.size()));
+			modelGrid.addNormalPlane(normalPlane);
+		} catch (DataSourceException ex) {
+			throw new RenderEngineException("Error computing surface normals: " + ex.getMessage(), ex);
+		}
+	}
+
 	@Override
 	public ImageCapture processModelRender() throws RenderEngineException
 	{
@@ -432,8 +453,6 @@ public class ModelBuilder extends InterruptibleProcess implements IModelBuilder
 		}
 		// onProcessAfter();
 
-		// Reset the lat processed list to prepare for the render stage
-		this.latitudeProcessedList.reset();
 		//frameBufferController.start();
 
 		log.info("Initializing final rendering...");
@@ -740,6 +759,27 @@ public class ModelBuilder extends InterruptibleProcess implements IModelBuilder
 
 	}
 
+	protected RenderEngineException toRenderEngineException(Throwable thrown)
+	{
+		if (thrown instanceof RenderEngineException) {
+			return (RenderEngineException) thrown;
+		} else {
+			return new RenderEngineException("Error processing model grid: " + thrown.getMessage(), thrown);
+		}
+	}
+
+	static class GridProcessThreadFactory implements ThreadFactory
+	{
+		private int threadNumber = 0;
+
+		public synchronized Thread newThread(Runnable runnable)
+		{
+			Thread thread = new Thread(runnable, "GridProcessChunk #" + (threadNumber++));
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
 	protected boolean modelContainsData()
 	{
 		boolean hasRasterData = modelContext.getRasterDataContext().getRasterDataListSize() > 0;
@@ -0,0 +1,150 @@
+package us.wthr.jdem846.model;
+
+/**
+ * Hands out contiguous bands of grid rows to a fixed set of workers. Each
+ * worker starts out owning an equal, contiguous share of the rows and claims
+ * bands from the front of it. Once a worker's share is exhausted it steals
+ * the back half of whichever share has the most rows remaining, so uneven
+ * latitude bands do not leave workers idle.
+ */
+public class RowBandScheduler
+{
+	public static final int DEFAULT_BANDS_PER_WORKER = 16;
+
+	private RowRange[] ranges;
+	private int bandSize;
+	private volatile boolean aborted = false;
+
+	public RowBandScheduler(int rows, int workers)
+	{
+		this(rows, workers, Math.max(1, rows / (Math.max(1, workers) * DEFAULT_BANDS_PER_WORKER)));
+	}
+
+	public RowBandScheduler(int rows, int workers, int bandSize)
+	{
+		if (workers < 1) {
+			workers = 1;
+		}
+
+		this.bandSize = Math.max(1, bandSize);
+		this.ranges = new RowRange[workers];
+
+		for (int i = 0; i < workers; i++) {
+			int start = (int) (((long) rows * i) / workers);
+			int end = (int) (((long) rows * (i + 1)) / workers);
+			ranges[i] = new RowRange(start, end);
+		}
+	}
+
+	/**
+	 * Claims the next band of rows for the specified worker.
+	 * 
+	 * @return False if there are no rows left to process or the scheduler has
+	 *         been aborted.
+	 */
+	public boolean next(int worker, Band band)
+	{
+		RowRange own = ranges[worker];
+
+		while (!aborted) {
+			if (own.claimFront(bandSize, band)) {
+				return true;
+			}
+
+			RowRange victim = null;
+			int mostRemaining = 0;
+			for (int i = 0; i < ranges.length; i++) {
+				int remaining = ranges[i].remaining();
+				if (i != worker && remaining > mostRemaining) {
+					mostRemaining = remaining;
+					victim = ranges[i];
+				}
+			}
+
+			if (victim == null) {
+				return false;
+			}
+
+			victim.stealBackInto(own);
+		}
+
+		return false;
+	}
+
+	public void abort()
+	{
+		aborted = true;
+	}
+
+	public boolean isAborted()
+	{
+		return aborted;
+	}
+
+	public int getWorkers()
+	{
+		return ranges.length;
+	}
+
+	public int getBandSize()
+	{
+		return bandSize;
+	}
+
+	public static class Band
+	{
+		public int start;
+		public int end;
+	}
+
+	private static class RowRange
+	{
+		private int next;
+		private int end;
+
+		public RowRange(int next, int end)
+		{
+			this.next = next;
+			this.end = end;
+		}
+
+		public synchronized int remaining()
+		{
+			return end - next;
+		}
+
+		public synchronized boolean claimFront(int size, Band band)
+		{
+			if (next >= end) {
+				return false;
+			}
+
+			band.start = next;
+			band.end = Math.min(next + size, end);
+			next = band.end;
+			return true;
+		}
+
+		public void stealBackInto(RowRange thief)
+		{
+			int stolenStart;
+			int stolenEnd;
+
+			synchronized (this) {
+				int remaining = end - next;
+				if (remaining <= 0) {
+					return;
+				}
+
+				stolenEnd = end;
+				stolenStart = end - ((remaining + 1) / 2);
+				end = stolenStart;
+			}
+
+			synchronized (thief) {
+				thief.next = stolenStart;
+				thief.end = stolenEnd;
+			}
+		}
+	}
+}
@@ -1,39 +1,43 @@
 package us.wthr.jdem846.model.processing;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import us.wthr.jdem846.exception.RenderEngineException;
+
 public class GridProcessMethodStack extends GridWorkerMethodStack
 {
 
-	private GridMethodStack onLatitudeStartStack = new GridMethodStack();
-	private GridMethodStack onLatitudeEndStack = new GridMethodStack();
+	private IGridProcessor[] processors = new IGridProcessor[0];
 
 	@Override
-	public void add(IGridWorker worker)
+	protected void bind()
 	{
-		super.add(worker);
-
-		if (worker instanceof IGridProcessor) {
-			IGridProcessor gridProcessor = (IGridProcessor) worker;
-
-			try {
-				onLatitudeStartStack.addMethod(worker, gridProcessor.getClass().getMethod("onLatitudeStart", double.class));
-				onLatitudeEndStack.addMethod(worker, gridProcessor.getClass().getMethod("onLatitudeEnd", double.class));
-			} catch (NoSuchMethodException ex) {
+		super.bind();
 
-				ex.printStackTrace();
+		List<IGridProcessor> processorList = new ArrayList<IGridProcessor>();
+		for (IGridWorker worker : getWorkerList()) {
+			if (worker instanceof IGridProcessor) {
+				processorList.add((IGridProcessor) worker);
 			}
-
 		}
-
+		processors = processorList.toArray(new IGridProcessor[processorList.size()]);
 	}
 
-	public void onLatitudeStart(double latitude) throws Exception
+	public void onLatitudeStart(double latitude) throws RenderEngineException
 	{
-		onLatitudeStartStack.invoke(latitude);
+		final IGridProcessor[] processors = this.processors;
+		for (int i = 0; i < processors.length; i++) {
+			processors[i].onLatitudeStart(latitude);
+		}
 	}
 
-	public void onLatitudeEnd(double latitude) throws Exception
+	public void onLatitudeEnd(double latitude) throws RenderEngineException
 	{
-		onLatitudeEndStack.invoke(latitude);
+		final IGridProcessor[] processors = this.processors;
+		for (int i = 0; i < processors.length; i++) {
+			processors[i].onLatitudeEnd(latitude);
+		}
 	}
 
 }
@@ -1,26 +1,28 @@
 package us.wthr.jdem846.model.processing;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import us.wthr.jdem846.ModelContext;
 import us.wthr.jdem846.ModelDimensions;
+import us.wthr.jdem846.exception.RenderEngineException;
 import us.wthr.jdem846.model.GlobalOptionModel;
-import us.wthr.jdem846.model.OptionModel;
 import us.wthr.jdem846.modelgrid.IModelGrid;
+import us.wthr.jdem846.modelgrid.ModelGridRow;
 import us.wthr.jdem846.scripting.ScriptProxy;
 
+/**
+ * Dispatches the grid worker lifecycle to each added worker, in the order
+ * they were added. Workers are bound into a typed array when the stack is
+ * prepared so per-point dispatch is a plain interface call rather than a
+ * reflective one.
+ */
 public class GridWorkerMethodStack
 {
-	private GridMethodStack prepareStack = new GridMethodStack();
-	private GridMethodStack onProcessBeforeStack = new GridMethodStack();
-	private GridMethodStack onModelPointStack = new GridMethodStack();
-	private GridMethodStack onProcessAfterStack = new GridMethodStack();
-	private GridMethodStack disposeStack = new GridMethodStack();
-
-	private GridMethodStack modelContextStack = new GridMethodStack();
-	private GridMethodStack modelGridStack = new GridMethodStack();
-	private GridMethodStack globalOptionModelStack = new GridMethodStack();
-	private GridMethodStack optionModelStack = new GridMethodStack();
-	private GridMethodStack modelDimensionsStack = new GridMethodStack();
-	private GridMethodStack scriptStack = new GridMethodStack();
+	private List<IGridWorker> workerList = new ArrayList<IGridWorker>();
+	private IGridWorker[] workers = new IGridWorker[0];
+	private IGridRowProcessor[] rowWorkers = new IGridRowProcessor[0];
+	private boolean hasRowWorkers = false;
 
 	public GridWorkerMethodStack()
 	{
@@ -29,76 +31,156 @@ public class GridWorkerMethodStack
 
 	public void add(IGridWorker worker)
 	{
+		if (worker == null) {
+			return;
+		}
 
-		try {
-			prepareStack.addMethod(worker, worker.getClass().getMethod("prepare"));
-			onProcessBeforeStack.addMethod(worker, worker.getClass().getMethod("onProcessBefore"));
-			onModelPointStack.addMethod(worker, worker.getClass().getMethod("onModelPoint", double.class, double.class));
-			onProcessAfterStack.addMethod(worker, worker.getClass().getMethod("onProcessAfter"));
-			disposeStack.addMethod(worker, worker.getClass().getMethod("dispose"));
+		workerList.add(worker);
+		bind();
+	}
 
-			modelContextStack.addMethod(worker, worker.getClass().getMethod("setModelContext", ModelContext.class));
-			modelGridStack.addMethod(worker, worker.getClass().getMethod("setModelGrid", IModelGrid.class));
-			globalOptionModelStack.addMethod(worker, worker.getClass().getMethod("setGlobalOptionModel", GlobalOptionModel.class));
-			optionModelStack.addMethod(worker, worker.getClass().getMethod("setOptionModel", OptionModel.class));
-			modelDimensionsStack.addMethod(worker, worker.getClass().getMethod("setModelDimensions", ModelDimensions.class));
-			scriptStack.addMethod(worker, worker.getClass().getMethod("setScript", ScriptProxy.class));
+	protected void bind()
+	{
+		workers = workerList.toArray(new IGridWorker[workerList.size()]);
+		rowWorkers = new IGridRowProcessor[workers.length];
+		hasRowWorkers = false;
+
+		for (int i = 0; i < workers.length; i++) {
+			if (workers[i] instanceof IGridRowProcessor) {
+				rowWorkers[i] = (IGridRowProcessor) workers[i];
+				hasRowWorkers = true;
+			}
+		}
+	}
 
-		} catch (NoSuchMethodException ex) {
+	protected List<IGridWorker> getWorkerList()
+	{
+		return workerList;
+	}
 
-			ex.printStackTrace();
-		}
+	public int size()
+	{
+		return workers.length;
+	}
 
+	public boolean hasRowWorkers()
+	{
+		return hasRowWorkers;
 	}
 
-	public void prepare() throws Exception
+	public void prepare() throws RenderEngineException
 	{
-		prepareStack.invoke();
+		bind();
+
+		for (int i = 0; i < workers.length; i++) {
+			workers[i].prepare();
+		}
 	}
 
-	public void onProcessBefore() throws Exception
+	public void onProcessBefore() throws RenderEngineException
 	{
-		onProcessBeforeStack.invoke();
+		for (int i = 0; i < workers.length; i++) {
+			workers[i].onProcessBefore();
+		}
 	}
 
-	public void onModelPoint(double latitude, double longitude) throws Exception
+	public void onModelPoint(double latitude, double longitude) throws RenderEngineException
 	{
-		onModelPointStack.invoke(latitude, longitude);
+		final IGridWorker[] workers = this.workers;
+		for (int i = 0; i < workers.length; i++) {
+			workers[i].onModelPoint(latitude, longitude);
+		}
+	}
+
+	/**
+	 * Runs each worker over a full row, in order. Row processors receive the
+	 * row buffers directly while other workers are called once per column.
+	 * The row's rgba values are read from, and written back to, the model grid
+	 * around runs of row processors so both kinds of worker see each other's
+	 * changes.
+	 */
+	public void onModelRow(ModelGridRow row, IModelGrid modelGrid) throws RenderEngineException
+	{
+		final IGridWorker[] workers = this.workers;
+		final double latitude = row.getLatitude();
+		final int columns = row.getColumns();
+
+		boolean rgbaCurrent = false;
+		boolean rgbaModified = false;
+
+		for (int i = 0; i < workers.length; i++) {
+			if (rowWorkers[i] != null) {
+				if (!rgbaCurrent) {
+					modelGrid.getRgbaRow(latitude, 0, row.rgba, 0, columns);
+					rgbaCurrent = true;
+				}
+				rowWorkers[i].onModelRow(row);
+				rgbaModified = true;
+			} else {
+				if (rgbaModified) {
+					modelGrid.setRgbaRow(latitude, 0, row.rgba, 0, columns);
+					rgbaModified = false;
+				}
+				rgbaCurrent = false;
+
+				for (int x = 0; x < columns; x++) {
+					workers[i].onModelPoint(latitude, row.getLongitude(x));
+				}
+			}
+		}
+
+		if (rgbaModified) {
+			modelGrid.setRgbaRow(latitude, 0, row.rgba, 0, columns);
+		}
 	}
 
-	public void onProcessAfter() throws Exception
+	public void onProcessAfter() throws RenderEngineException
 	{
-		onProcessAfterStack.invoke();
+		for (int i = 0; i < workers.length; i++) {
+			workers[i].onProcessAfter();
+		}
 	}
 
-	public void dispose() throws Exception
+	public void dispose() throws RenderEngineException
 	{
-		disposeStack.invoke();
+		for (int i = 0; i < workers.length; i++) {
+			workers[i].dispose();
+		}
 	}
 
-	public void setModelContext(ModelContext modelContext) throws Exception
+	public void setModelContext(ModelContext modelContext)
 	{
-		modelContextStack.invoke(modelContext);
+		for (int i = 0; i < workers.length; i++) {
+			workers[i].setModelContext(modelContext);
+		}
 	}
 
-	public void setModelGrid(IModelGrid modelGrid) throws Exception
+	public void setModelGrid(IModelGrid modelGrid)
 	{
-		modelGridStack.invoke(modelGrid);
+		for (int i = 0; i < workers.length; i++) {
+			workers[i].setModelGrid(modelGrid);
+		}
 	}
 
-	public void setModelDimensions(ModelDimensions modelDimensions) throws Exception
+	public void setModelDimensions(ModelDimensions modelDimensions)
 	{
-		modelDimensionsStack.invoke(modelDimensions);
+		for (int i = 0; i < workers.length; i++) {
+			workers[i].setModelDimensions(modelDimensions);
+		}
 	}
 
-	public void setGlobalOptionModel(GlobalOptionModel globalOptionModel) throws Exception
+	public void setGlobalOptionModel(GlobalOptionModel globalOptionModel)
 	{
-		globalOptionModelStack.invoke(globalOptionModel);
+		for (int i = 0; i < workers.length; i++) {
+			workers[i].setGlobalOptionModel(globalOptionModel);
+		}
 	}
 
-	public void setScript(ScriptProxy script) throws Exception
+	public void setScript(ScriptProxy script)
 	{
-		scriptStack.invoke(script);
+		for (int i = 0; i < workers.length; i++) {
+			workers[i].setScript(script);
+		}
 	}
 
 }
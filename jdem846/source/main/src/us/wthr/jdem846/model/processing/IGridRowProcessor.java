@@ -0,0 +1,17 @@
+package us.wthr.jdem846.model.processing;
+
+import us.wthr.jdem846.exception.RenderEngineException;
+import us.wthr.jdem846.modelgrid.ModelGridRow;
+
+/**
+ * Optional contract for grid workers that can process an entire latitude row
+ * at once. When a worker implements this, the method stack calls onModelRow
+ * once per row in place of calling onModelPoint for every column. Colors
+ * written to the row's rgba array are stored back to the model grid.
+ */
+public interface IGridRowProcessor extends IGridWorker
+{
+
+	public void onModelRow(ModelGridRow row) throws RenderEngineException;
+
+}
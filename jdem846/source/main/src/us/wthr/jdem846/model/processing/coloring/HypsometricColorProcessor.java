@@ -11,11 +11,13 @@ import us.wthr.jdem846.logging.Logging;
 import us.wthr.jdem846.model.annotations.GridProcessing;
 import us.wthr.jdem846.model.processing.GridFilter;
 import us.wthr.jdem846.model.processing.GridProcessingTypesEnum;
+import us.wthr.jdem846.model.processing.IGridRowProcessor;
+import us.wthr.jdem846.modelgrid.ModelGridRow;
 import us.wthr.jdem846.scripting.ScriptProxy;
 import us.wthr.jdem846.util.ColorUtil;
 
 @GridProcessing(id = "us.wthr.jdem846.model.processing.coloring.HypsometricColorProcessor", name = "Hypsometric Color Process", type = GridProcessingTypesEnum.COLORING, optionModel = HypsometricColorOptionModel.class, enabled = true, isFilter = true)
-public class HypsometricColorProcessor extends GridFilter
+public class HypsometricColorProcessor extends GridFilter implements IGridRowProcessor
 {
 	@SuppressWarnings("unused")
 	private static Log log = Logging.getLog(HypsometricColorProcessor.class);
@@ -82,6 +84,22 @@ public class HypsometricColorProcessor extends GridFilter
 
 	}
 
+	@Override
+	public void onModelRow(ModelGridRow row) throws RenderEngineException
+	{
+		final double latitude = row.getLatitude();
+		final int[] colors = row.rgba;
+		final int columns = row.getColumns();
+
+		for (int x = 0; x < columns; x++) {
+			try {
+				colors[x] = getPointColor(latitude, row.getLongitude(x), row.getElevation(x)).asInt();
+			} catch (DataSourceException ex) {
+				throw new RenderEngineException("Error getting point color: " + ex.getMessage(), ex);
+			}
+		}
+	}
+
 	protected IColor getPointColor(double latitude, double longitude, double elevation) throws DataSourceException, RenderEngineException
 	{
 
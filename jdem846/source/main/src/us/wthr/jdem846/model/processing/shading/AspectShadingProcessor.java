@@ -10,12 +10,14 @@ import us.wthr.jdem846.math.Vector;
 import us.wthr.jdem846.model.annotations.GridProcessing;
 import us.wthr.jdem846.model.processing.GridProcessingTypesEnum;
 import us.wthr.jdem846.model.processing.GridProcessor;
+import us.wthr.jdem846.model.processing.IGridRowProcessor;
 import us.wthr.jdem846.model.processing.util.Aspect;
 import us.wthr.jdem846.model.processing.util.SurfaceNormalCalculator;
+import us.wthr.jdem846.modelgrid.ModelGridRow;
 import us.wthr.jdem846.util.ColorUtil;
 
 @GridProcessing(id = "us.wthr.jdem846.model.processing.shading.AspectShadingProcessor", name = "Aspect Shading Process", type = GridProcessingTypesEnum.SHADING, optionModel = AspectShadingOptionModel.class, enabled = true)
-public class AspectShadingProcessor extends GridProcessor
+public class AspectShadingProcessor extends GridProcessor implements IGridRowProcessor
 {
 	private static Log log = Logging.getLog(AspectShadingProcessor.class);
 
@@ -58,6 +60,29 @@ public class AspectShadingProcessor extends GridProcessor
 			
 		normalsCalculator.calculateNormal(latitude, longitude, normal);
 		// modelPoint.getNormal(normal);
+
+		processPointColor(latitude, longitude, calculateShade(normal));
+
+	}
+
+	@Override
+	public void onModelRow(ModelGridRow row) throws RenderEngineException
+	{
+		final int[] colors = row.rgba;
+		final int columns = row.getColumns();
+
+		for (int x = 0; x < columns; x++) {
+			row.calculateNormal(x, normalsCalculator, normal);
+			double shade = calculateShade(normal);
+
+			ColorUtil.intToRGBA(colors[x], rgbaBuffer);
+			ColorUtil.adjustBrightness(rgbaBuffer, shade);
+			colors[x] = ColorUtil.rgbaToInt(rgbaBuffer);
+		}
+	}
+
+	protected double calculateShade(Vector normal)
+	{
 		double degrees = Aspect.aspectInDegrees(normal);
 		if (degrees > 180) {
 			degrees = 180 - (degrees - 180);
@@ -77,8 +102,7 @@ public class AspectShadingProcessor extends GridProcessor
 			shade = MathExt.pow(shade, spotExponent);
 		}
 
-		processPointColor(latitude, longitude, shade);
-
+		return shade;
 	}
 
 	protected void processPointColor(double latitude, double longitude, double shade) throws RenderEngineException
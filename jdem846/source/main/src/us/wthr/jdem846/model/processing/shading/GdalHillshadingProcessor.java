@@ -8,6 +8,8 @@ import us.wthr.jdem846.math.MathExt;
 import us.wthr.jdem846.model.annotations.GridProcessing;
 import us.wthr.jdem846.model.processing.GridProcessingTypesEnum;
 import us.wthr.jdem846.model.processing.GridProcessor;
+import us.wthr.jdem846.model.processing.IGridRowProcessor;
+import us.wthr.jdem846.modelgrid.ModelGridRow;
 import us.wthr.jdem846.util.ColorUtil;
 
 /** Implements the GDAL hillshading algorithm from gdaldem.cpp
@@ -21,7 +23,7 @@ import us.wthr.jdem846.util.ColorUtil;
 				optionModel=GdalHillshadingOptionModel.class,
 				enabled=true
 				)
-public class GdalHillshadingProcessor extends GridProcessor
+public class GdalHillshadingProcessor extends GridProcessor implements IGridRowProcessor
 {
 	@SuppressWarnings("unused")
 	private static Log log = Logging.getLog(GdalHillshadingProcessor.class);
@@ -63,30 +65,54 @@ public class GdalHillshadingProcessor extends GridProcessor
 			throws RenderEngineException
 	{
 		
-		double x, y, slope, aspect, cang;
-		
 		modelGrid.getElevation(latitude, longitude, false);
 		
-		// First Slope ...
-		x = ((
-				this.modelGrid.getElevation(latitude + this.latitudeResolution, longitude - this.longitudeResolution, true)
-				+ (this.modelGrid.getElevation(latitude, longitude - this.longitudeResolution, true) * 2)
-				+ this.modelGrid.getElevation(latitude - this.latitudeResolution, longitude - this.longitudeResolution, true)
-			) - (
-				this.modelGrid.getElevation(latitude + this.latitudeResolution, longitude + this.longitudeResolution, true)
-				+ (this.modelGrid.getElevation(latitude, longitude + this.longitudeResolution, true) * 2)
-				+ this.modelGrid.getElevation(latitude - this.latitudeResolution, longitude + this.longitudeResolution, true)
-			)) / (8.0 * this.longitudeResolution * this.scale);
-
-		y = ((
-				this.modelGrid.getElevation(latitude - this.latitudeResolution, longitude - this.longitudeResolution, true)
-				+ (this.modelGrid.getElevation(latitude - this.latitudeResolution, longitude, true) * 2)
-				+ this.modelGrid.getElevation(latitude - this.latitudeResolution, longitude + this.longitudeResolution, true)
-			) - (
+		double f = calculateBrightness(
 				this.modelGrid.getElevation(latitude + this.latitudeResolution, longitude - this.longitudeResolution, true)
-				+ (this.modelGrid.getElevation(latitude + this.latitudeResolution, longitude, true) * 2)
-				+ this.modelGrid.getElevation(latitude + this.latitudeResolution, longitude + this.longitudeResolution, true)
-			)) / (8.0 * this.latitudeResolution * this.scale);
+				, this.modelGrid.getElevation(latitude + this.latitudeResolution, longitude, true)
+				, this.modelGrid.getElevation(latitude + this.latitudeResolution, longitude + this.longitudeResolution, true)
+				, this.modelGrid.getElevation(latitude, longitude - this.longitudeResolution, true)
+				, this.modelGrid.getElevation(latitude, longitude + this.longitudeResolution, true)
+				, this.modelGrid.getElevation(latitude - this.latitudeResolution, longitude - this.longitudeResolution, true)
+				, this.modelGrid.getElevation(latitude - this.latitudeResolution, longitude, true)
+				, this.modelGrid.getElevation(latitude - this.latitudeResolution, longitude + this.longitudeResolution, true));
+		
+		this.modelGrid.getRgba(latitude, longitude, rgba);
+		applyBrightness(rgba, f);
+		this.modelGrid.setRgba(latitude, longitude, rgba);
+		//this->_modelGrid->color(latitude, longitude, c);
+	}
+
+	@Override
+	public void onModelRow(ModelGridRow row) throws RenderEngineException
+	{
+		final float[] north = row.northElevations;
+		final float[] middle = row.elevations;
+		final float[] south = row.southElevations;
+		final int[] colors = row.rgba;
+		final int columns = row.getColumns();
+		
+		for (int x = 0; x < columns; x++) {
+			int i = x + ModelGridRow.PADDING;
+			
+			double f = calculateBrightness(north[i - 1], north[i], north[i + 1]
+										, middle[i - 1], middle[i + 1]
+										, south[i - 1], south[i], south[i + 1]);
+			
+			ColorUtil.intToRGBA(colors[x], rgba);
+			applyBrightness(rgba, f);
+			colors[x] = ColorUtil.rgbaToInt(rgba);
+		}
+	}
+	
+	protected double calculateBrightness(double nw, double n, double ne, double w, double e, double sw, double s, double se)
+	{
+		double x, y, slope, aspect, cang;
+		
+		// First Slope ...
+		x = ((nw + (w * 2) + sw) - (ne + (e * 2) + se)) / (8.0 * this.longitudeResolution * this.scale);
+
+		y = ((sw + (s * 2) + se) - (nw + (n * 2) + ne)) / (8.0 * this.latitudeResolution * this.scale);
 
 		slope = MathExt.HALFPI - MathExt.atan(MathExt.sqrt(x * x + y * y));
 		aspect = MathExt.atan2(y, x);
@@ -105,9 +131,11 @@ public class GdalHillshadingProcessor extends GridProcessor
 			f *= darkIntensity;
 		}
 		
-		this.modelGrid.getRgba(latitude, longitude, rgba);
-
-
+		return f;
+	}
+	
+	protected void applyBrightness(int[] rgba, double f)
+	{
 		if (!this.preserveColor) {
 			rgba[0] = 0x7F;
 			rgba[1] = 0x7F;
@@ -116,8 +144,6 @@ public class GdalHillshadingProcessor extends GridProcessor
 
 		//color::adjustBrightness(c, f);
 		ColorUtil.adjustBrightness(rgba, f);
-		this.modelGrid.setRgba(latitude, longitude, rgba);
-		//this->_modelGrid->color(latitude, longitude, c);
 	}
 
 
@@ -12,9 +12,11 @@ import us.wthr.jdem846.math.Vector;
 import us.wthr.jdem846.model.annotations.GridProcessing;
 import us.wthr.jdem846.model.processing.GridProcessingTypesEnum;
 import us.wthr.jdem846.model.processing.GridProcessor;
+import us.wthr.jdem846.model.processing.IGridRowProcessor;
+import us.wthr.jdem846.modelgrid.ModelGridRow;
 
 @GridProcessing(id = "us.wthr.jdem846.model.processing.shading.SlopeShadingProcessor", name = "Slope Shading Process", type = GridProcessingTypesEnum.SHADING, optionModel = SlopeShadingOptionModel.class, enabled = false)
-public class SlopeShadingProcessor extends GridProcessor
+public class SlopeShadingProcessor extends GridProcessor implements IGridRowProcessor
 {
 	private static Log log = Logging.getLog(SlopeShadingProcessor.class);
 
@@ -93,6 +95,22 @@ public class SlopeShadingProcessor extends GridProcessor
 
 	}
 
+	@Override
+	public void onModelRow(ModelGridRow row) throws RenderEngineException
+	{
+		final int columns = row.getColumns();
+
+		for (int x = 0; x < columns; x++) {
+			row.calculateNormal(x, normalsCalculator, normal);
+
+			if (pass == 0) {
+				onNormalFirstPass(normal);
+			} else {
+				onNormalSecondPass(normal);
+			}
+		}
+	}
+
 	public void onModelPointFirstPass(double latitude, double longitude) throws RenderEngineException
 	{
 
@@ -100,11 +118,16 @@ public class SlopeShadingProcessor extends GridProcessor
 
 		// modelPoint.getNormal(normal);
 		normalsCalculator.calculateNormal(latitude, longitude, normal);
+		onNormalFirstPass(normal);
+
+	}
+
+	protected void onNormalFirstPass(Vector normal)
+	{
 		double slope = MathExt.degrees(MathExt.pow(MathExt.cos(normal.z), -1));
 
 		minSlope = MathExt.min(minSlope, slope);
 		maxSlope = MathExt.max(maxSlope, slope);
-
 	}
 
 	public void onModelPointSecondPass(double latitude, double longitude) throws RenderEngineException
@@ -113,6 +136,13 @@ public class SlopeShadingProcessor extends GridProcessor
 
 		// modelPoint.getNormal(normal);
 		normalsCalculator.calculateNormal(latitude, longitude, normal);
+		onNormalSecondPass(normal);
+		// TODO: Reimplement sans ModelPoint
+		//processPointColor(modelPoint, latitude, longitude, shade);
+	}
+
+	protected double onNormalSecondPass(Vector normal)
+	{
 		double slope = MathExt.degrees(MathExt.pow(MathExt.cos(normal.z), -1));
 
 		double shade = 1.0 - (2.0 * ((slope - minSlope) / (maxSlope - minSlope)));
@@ -126,8 +156,8 @@ public class SlopeShadingProcessor extends GridProcessor
 		if (spotExponent != 1) {
 			shade = MathExt.pow(shade, spotExponent);
 		}
-		// TODO: Reimplement sans ModelPoint
-		//processPointColor(modelPoint, latitude, longitude, shade);
+
+		return shade;
 	}
 
 //	protected void processPointColor(ModelPoint modelPoint, double latitude, double longitude, double shade) throws RenderEngineException
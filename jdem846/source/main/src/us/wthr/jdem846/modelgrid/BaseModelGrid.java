@@ -1,10 +1,15 @@
 package us.wthr.jdem846.modelgrid;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import us.wthr.jdem846.exception.DataSourceException;
+import us.wthr.jdem846.gis.planets.Planet;
 import us.wthr.jdem846.logging.Log;
 import us.wthr.jdem846.logging.Logging;
 import us.wthr.jdem846.math.MathExt;
 import us.wthr.jdem846.model.ElevationHistogramModel;
+import us.wthr.jdem846.scaling.ElevationScaler;
 
 public abstract class BaseModelGrid implements IModelGrid
 {
@@ -29,6 +34,8 @@ public abstract class BaseModelGrid implements IModelGrid
 
 	private boolean isCompleted = false;
 	
+	private List<NormalPlane> normalPlanes = new CopyOnWriteArrayList<NormalPlane>();
+	
 	
 	
 	
@@ -109,6 +116,22 @@ public abstract class BaseModelGrid implements IModelGrid
 		return index;
 	}
 	
+	protected int getRow(double latitude)
+	{
+		int row = (int) Math.round((north - latitude) / latitudeResolution);
+
+		if (row < 0 || row >= height) {
+			return -1;
+		}
+
+		return row;
+	}
+
+	protected double getLongitude(int column)
+	{
+		return west + ((double) column * longitudeResolution);
+	}
+	
 	protected int getIndex(int x, int y)
 	{
 		int index = y * width + x;
@@ -198,5 +221,32 @@ public abstract class BaseModelGrid implements IModelGrid
 	{
 		this.maximum = maximum;
 	}
+	
+	@Override
+	public NormalPlane getNormalPlane(boolean flat, ElevationScaler scaler, Planet planet, double latitudeResolution, double longitudeResolution)
+	{
+		for (NormalPlane normalPlane : normalPlanes) {
+			if (normalPlane.matches(flat, scaler, planet, latitudeResolution, longitudeResolution)) {
+				return normalPlane;
+			}
+		}
+		return null;
+	}
+	
+	@Override
+	public void addNormalPlane(NormalPlane normalPlane)
+	{
+		normalPlanes.add(normalPlane);
+	}
+	
+	/** Drops precomputed normals, which no longer hold once elevations change.
+	 */
+	protected void clearNormalPlanes()
+	{
+		for (NormalPlane normalPlane : normalPlanes) {
+			normalPlane.dispose();
+		}
+		normalPlanes.clear();
+	}
 
 }
@@ -1,25 +1,41 @@
 package us.wthr.jdem846.modelgrid;
 
+import java.util.Arrays;
+
 import us.wthr.jdem846.DemConstants;
+import us.wthr.jdem846.JDem846Properties;
 import us.wthr.jdem846.buffers.BufferFactory;
-import us.wthr.jdem846.buffers.IFloatBuffer;
 import us.wthr.jdem846.buffers.IIntBuffer;
-import us.wthr.jdem846.buffers.cache.CacheRange;
-import us.wthr.jdem846.buffers.cache.ICacheRangeVisitor;
+import us.wthr.jdem846.buffers.ParallelBufferFill;
 import us.wthr.jdem846.exception.DataSourceException;
 import us.wthr.jdem846.graphics.Color;
 import us.wthr.jdem846.graphics.IColor;
 import us.wthr.jdem846.logging.Log;
 import us.wthr.jdem846.logging.Logging;
-import us.wthr.jdem846.math.MathExt;
 
 public class BufferedModelGrid extends BaseModelGrid
 {
 	private static Log log = Logging.getLog(BufferedModelGrid.class);
 
-	private IFloatBuffer elevationGrid;
+	public static final int ELEVATION_BITS_32 = 32;
+	public static final int ELEVATION_BITS_16 = 16;
+
+	// Elevations are stored so that cleared memory reads as undetermined, letting freshly
+	// allocated buffers, which are all zero, stand in for a reset grid
+	private static final int UNDETERMINED_FLOAT_BITS = Float.floatToRawIntBits((float)DemConstants.ELEV_UNDETERMINED);
+
+	// Float bits, or pairs of 16 bit codes when elevations are quantized
+	private IIntBuffer elevationGrid;
 	private IIntBuffer rgbaGrid;
 
+	private ElevationQuantizer elevationQuantizer;
+	
+	// Set while the buffers hold nothing but zeros
+	private volatile boolean isCleared = true;
+
+	// Elevations may be tiled. Colors are shared as the model texture and stay row by row.
+	private GridLayout elevationLayout;
+
 	private boolean isDisposed = false;
 	
 	
@@ -30,11 +46,22 @@ public class BufferedModelGrid extends BaseModelGrid
 	}
 	
 	public BufferedModelGrid(double north, double south, double east, double west, double latitudeResolution, double longitudeResolution, double minimum, double maximum, int width, int height, boolean useHeap)
+	{
+		this(north, south, east, west, latitudeResolution, longitudeResolution, minimum, maximum, width, height, useHeap, GridLayout.getDefaultTileSize(), getDefaultElevationBits());
+	}
+	
+	/**
+	 * @param tileSize The size of the tiles elevations are stored in, or GridLayout.ROW_MAJOR
+	 * @param elevationBits ELEVATION_BITS_32 to store elevations as floats or ELEVATION_BITS_16 to
+	 * quantize them between the minimum and maximum
+	 */
+	public BufferedModelGrid(double north, double south, double east, double west, double latitudeResolution, double longitudeResolution, double minimum, double maximum, int width, int height, boolean useHeap, int tileSize, int elevationBits)
 	{
 		super(north, south, east, west, latitudeResolution, longitudeResolution, minimum, maximum, width, height);
 
 		log.info("Allocating elevation and RGBA grid buffers of length " + gridLength);
 		
+		initializeLayout(tileSize, elevationBits);
 		initializeBuffers(useHeap);
 
 	}
@@ -45,52 +72,55 @@ public class BufferedModelGrid extends BaseModelGrid
 
 		log.info("Allocating elevation and RGBA grid buffers of length " + gridLength);
 		
+		initializeLayout(GridLayout.getDefaultTileSize(), getDefaultElevationBits());
 		initializeBuffers(false);
 	}
 
+	/** The elevation size set by the us.wthr.jdem846.performance.modelGridElevationBits property.
+	 */
+	public static int getDefaultElevationBits()
+	{
+		if (JDem846Properties.hasProperty("us.wthr.jdem846.performance.modelGridElevationBits")) {
+			return JDem846Properties.getIntProperty("us.wthr.jdem846.performance.modelGridElevationBits");
+		} else {
+			return ELEVATION_BITS_32;
+		}
+	}
+	
+	protected void initializeLayout(int tileSize, int elevationBits)
+	{
+		if (elevationBits == ELEVATION_BITS_16) {
+			elevationQuantizer = new ElevationQuantizer(minimum, maximum);
+			
+			// Two elevations share an int, but never across rows so that rows may be written concurrently
+			int layoutWidth = (tileSize <= 1) ? width + (width & 1) : width;
+			elevationLayout = new GridLayout(layoutWidth, height, tileSize);
+			
+			log.info("Storing elevations in 16 bits, to within " + elevationQuantizer.getMaximumError() + " of their values");
+		} else if (elevationBits == ELEVATION_BITS_32) {
+			elevationLayout = new GridLayout(width, height, tileSize);
+		} else {
+			throw new DataSourceException("Invalid elevation storage size: " + elevationBits);
+		}
+	}
 	
 	protected void initializeBuffers(boolean useHeap)
 	{
-		final int cacheRows = 200;
-		int memCapacity = cacheRows * this.getWidth();
-		ICacheRangeVisitor cacheRangeVisitor = new ICacheRangeVisitor() {
-			public CacheRange getCacheRange(long targetIndex)
-			{
-				
-				long row = (long) MathExt.floor((double)targetIndex / (double)getWidth());
-				//long column = (long) MathExt.floor((double)targetIndex - ((double) row * (double)getWidth()));
-				
-				long startCacheRow = row - (cacheRows / 2);
-				if (startCacheRow < 0) {
-					startCacheRow = 0;
-				}
-				
-				long endCacheRow = startCacheRow + cacheRows;
-				if (endCacheRow >= getHeight()) {
-					endCacheRow = getHeight() - 1;
-				}
-				
-				long startCacheIndex = getIndex((int)0, (int)startCacheRow);
-				long endCacheIndex = getIndex((int)getWidth() - 1, (int)endCacheRow);
-				long cacheLength = endCacheIndex - startCacheIndex;
-				
-				
-				
-				return new CacheRange(startCacheIndex, (int) cacheLength);
-			}
-		};
-		
-		//this.rgbaGrid = new MemCachingIntBuffer(gridLength, memCapacity * 2, cacheRangeVisitor);
-		//this.elevationGrid = new MemCachingFloatBuffer(gridLength, memCapacity * 2, cacheRangeVisitor);
+		//this.rgbaGrid = new MemCachingIntBuffer(gridLength);
+		//this.elevationGrid = new MemCachingFloatBuffer(gridLength);
 		//elevationGrid = BufferFactory.allocateFloatBuffer(gridLength);
 		
-		if (useHeap && (((int)gridLength) > 0)) {
+		long elevationLength = (elevationQuantizer != null) ? elevationLayout.getLength() / 2 : elevationLayout.getLength();
+		
+		// Heap arrays and newly mapped temporary files both start out zeroed
+		if (useHeap && (((int)gridLength) > 0) && elevationLength <= Integer.MAX_VALUE) {
 			rgbaGrid = BufferFactory.allocateStandardCapacityIntBuffer((int)gridLength);
-			elevationGrid = BufferFactory.allocateStandardCapacityFloatBuffer((int)gridLength);
+			elevationGrid = BufferFactory.allocateStandardCapacityIntBuffer((int)elevationLength);
 		} else {
 			rgbaGrid = BufferFactory.allocateIntBuffer(gridLength);
-			elevationGrid = BufferFactory.allocateFloatBuffer(gridLength);
+			elevationGrid = BufferFactory.allocateIntBuffer(elevationLength);
 		}
+		isCleared = true;
 		
 	}
 	
@@ -98,6 +128,7 @@ public class BufferedModelGrid extends BaseModelGrid
 	@Override
 	public void dispose()
 	{
+		clearNormalPlanes();
 		elevationGrid = null;
 		rgbaGrid = null;
 	}
@@ -108,20 +139,33 @@ public class BufferedModelGrid extends BaseModelGrid
 		return isDisposed;
 	}
 
+	/** Clears every elevation to undetermined and every color to transparent. Grids which
+	 * have not been written to since they were allocated or last reset are left as they are.
+	 */
 	@Override
 	public void reset()
 	{
+		clearNormalPlanes();
 
-		for (long i = 0; i < gridLength; i++) {
-			elevationGrid.put(i, (float)DemConstants.ELEV_UNDETERMINED);
-			rgbaGrid.put(i, 0x0);
+		if (!isCleared) {
+			ParallelBufferFill.fill(elevationGrid, 0, elevationGrid.capacity(), 0x0);
+			ParallelBufferFill.fill(rgbaGrid, 0, gridLength, 0x0);
+			isCleared = true;
+		}
+	}
+	
+	protected void markWritten()
+	{
+		if (isCleared) {
+			isCleared = false;
 		}
-
 	}
 
 	@Override
 	public IIntBuffer getModelTexture()
 	{
+		// The texture may be written through directly
+		markWritten();
 		return rgbaGrid;
 	}
 
@@ -129,7 +173,7 @@ public class BufferedModelGrid extends BaseModelGrid
 	public double getElevationByIndex(int index) throws DataSourceException
 	{
 		if (index >= 0 && index < this.gridLength) {
-			return elevationGrid.get(index);
+			return getStoredElevation(getElevationOffset(index));
 		} else {
 			return DemConstants.ELEV_NO_DATA;
 		}
@@ -139,14 +183,60 @@ public class BufferedModelGrid extends BaseModelGrid
 	public void setElevationByIndex(int index, double elevation) throws DataSourceException 
 	{
 		if (index >= 0 && index < this.gridLength) {
-			elevationGrid.put(index, (float)elevation);
-			getElevationHistogramModel().add(elevation);
+			putStoredElevation(getElevationOffset(index), elevation);
+			
+			if (this.getElevationHistogramModel() != null) {
+				this.getElevationHistogramModel().add(elevation);
+			}
 		}
+	}
+
+	protected long getElevationOffset(int index)
+	{
+		int row = index / width;
+		return elevationLayout.getOffset(index - row * width, row);
+	}
+	
+	protected float getStoredElevation(long offset)
+	{
+		if (elevationQuantizer != null) {
+			int codes = elevationGrid.getInt(offset >> 1);
+			return decodeQuantized(codes, offset);
+		} else {
+			return Float.intBitsToFloat(elevationGrid.getInt(offset) ^ UNDETERMINED_FLOAT_BITS);
+		}
+	}
+	
+	protected void putStoredElevation(long offset, double elevation)
+	{
+		markWritten();
 		
-		if (this.getElevationHistogramModel() != null) {
-			this.getElevationHistogramModel().add(elevation);
+		if (elevationQuantizer != null) {
+			int shift = (int)(offset & 1) << 4;
+			int codes = elevationGrid.getInt(offset >> 1);
+			int code = elevationQuantizer.encode(elevation) ^ ElevationQuantizer.UNDETERMINED;
+			codes = (codes & ~(0xFFFF << shift)) | (code << shift);
+			elevationGrid.putInt(offset >> 1, codes);
+		} else {
+			elevationGrid.putInt(offset, Float.floatToRawIntBits((float)elevation) ^ UNDETERMINED_FLOAT_BITS);
 		}
 	}
+	
+	/** Decodes the one of a pair of quantized elevations at the given cell offset.
+	 */
+	protected float decodeQuantized(int codes, long offset)
+	{
+		int code = ((codes >>> ((int)(offset & 1) << 4)) & 0xFFFF) ^ ElevationQuantizer.UNDETERMINED;
+		return (float) elevationQuantizer.decode(code);
+	}
+	
+	/** The greatest difference between an elevation within the grid's minimum and maximum
+	 * and the value stored for it.
+	 */
+	public double getElevationError()
+	{
+		return (elevationQuantizer != null) ? elevationQuantizer.getMaximumError() : 0.0;
+	}
 
 	@Override
 	public double getElevation(double latitude, double longitude, boolean basic) 
@@ -177,7 +267,7 @@ public class BufferedModelGrid extends BaseModelGrid
 	public IColor getRgbaByIndex(int index) throws DataSourceException
 	{
 		if (index >= 0 && index < this.gridLength) {
-			return new Color(rgbaGrid.get(index));
+			return new Color(rgbaGrid.getInt(index));
 		} else {
 			return new Color(0x0);
 		}
@@ -187,7 +277,8 @@ public class BufferedModelGrid extends BaseModelGrid
 	public void setRgbaByIndex(int index, IColor rgba) throws DataSourceException
 	{
 		if (index >= 0 && index < this.gridLength) {
-			rgbaGrid.put(index, rgba.asInt());
+			markWritten();
+			rgbaGrid.putInt(index, rgba.asInt());
 		}
 	}
 
@@ -233,5 +324,93 @@ public class BufferedModelGrid extends BaseModelGrid
 		this.setRgba(latitude, longitude, new Color(rgba));
 	}
 
+	@Override
+	public void getElevationRow(double latitude, int column, float[] fill, int offset, int length, boolean basic)
+	{
+		int row = getRow(latitude);
+		int first = getFirstColumnInRange(row, column);
+		int last = getLastColumnInRange(row, column, length);
+		
+		Arrays.fill(fill, offset, offset + length, (float) DemConstants.ELEV_NO_DATA);
+		if (first < last) {
+			getElevations(row, first, last, fill, offset + (first - column));
+		}
+	}
+	
+	/** Copies the elevations of a row between two columns, a tile's width at a time when
+	 * elevations are tiled.
+	 */
+	protected void getElevations(int row, int first, int last, float[] fill, int offset)
+	{
+		int[] codes = new int[(elevationQuantizer != null) ? (last - first) / 2 + 2 : last - first];
+		
+		int column = first;
+		while (column < last) {
+			int count = Math.min(elevationLayout.getRunLength(column), last - column);
+			long runOffset = elevationLayout.getOffset(column, row);
+			
+			if (elevationQuantizer != null) {
+				long firstInt = runOffset >> 1;
+				elevationGrid.getInts(firstInt, codes, 0, (int)(((runOffset + count - 1) >> 1) - firstInt + 1));
+				for (int i = 0; i < count; i++) {
+					long cell = runOffset + i;
+					fill[offset + (column - first) + i] = decodeQuantized(codes[(int)((cell >> 1) - firstInt)], cell);
+				}
+			} else {
+				elevationGrid.getInts(runOffset, codes, 0, count);
+				for (int i = 0; i < count; i++) {
+					fill[offset + (column - first) + i] = Float.intBitsToFloat(codes[i] ^ UNDETERMINED_FLOAT_BITS);
+				}
+			}
+			column += count;
+		}
+	}
+	
+	public GridLayout getElevationLayout()
+	{
+		return elevationLayout;
+	}
+
+	@Override
+	public void getRgbaRow(double latitude, int column, int[] fill, int offset, int length)
+	{
+		int row = getRow(latitude);
+		int first = getFirstColumnInRange(row, column);
+		int last = getLastColumnInRange(row, column, length);
+		
+		Arrays.fill(fill, offset, offset + length, 0x0);
+		if (first < last) {
+			rgbaGrid.getInts(getIndex(first, row), fill, offset + (first - column), last - first);
+		}
+	}
+
+	@Override
+	public void setRgbaRow(double latitude, int column, int[] rgba, int offset, int length)
+	{
+		int row = getRow(latitude);
+		int first = getFirstColumnInRange(row, column);
+		int last = getLastColumnInRange(row, column, length);
+		
+		if (first < last) {
+			markWritten();
+			rgbaGrid.put(rgba, getIndex(first, row), offset + (first - column), last - first);
+		}
+	}
+	
+	protected int getFirstColumnInRange(int row, int column)
+	{
+		if (row < 0) {
+			return 0;
+		}
+		return Math.max(column, 0);
+	}
+	
+	protected int getLastColumnInRange(int row, int column, int length)
+	{
+		if (row < 0) {
+			return 0;
+		}
+		return Math.min(column + length, width);
+	}
 
 }
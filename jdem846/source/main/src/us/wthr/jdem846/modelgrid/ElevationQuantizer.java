@@ -0,0 +1,53 @@
+package us.wthr.jdem846.modelgrid;
+
+import us.wthr.jdem846.DemConstants;
+
+/** Encodes elevations as 16 bit steps between the minimum and maximum of the source
+ * data. Each elevation within that range is kept to within half a step. Elevations
+ * outside of it are clamped to the nearest end.
+ */
+public class ElevationQuantizer
+{
+	public static final int NO_DATA = 0xFFFF;
+	public static final int UNDETERMINED = 0xFFFE;
+	public static final int MAXIMUM_CODE = 0xFFFD;
+
+	private final double minimum;
+	private final double step;
+
+	public ElevationQuantizer(double minimum, double maximum)
+	{
+		this.minimum = minimum;
+		this.step = (maximum > minimum) ? (maximum - minimum) / MAXIMUM_CODE : 1.0;
+	}
+
+	public int encode(double elevation)
+	{
+		if (elevation == DemConstants.ELEV_NO_DATA) {
+			return NO_DATA;
+		} else if (elevation == DemConstants.ELEV_UNDETERMINED) {
+			return UNDETERMINED;
+		}
+
+		long code = Math.round((elevation - minimum) / step);
+		return (int) Math.max(0, Math.min(MAXIMUM_CODE, code));
+	}
+
+	public double decode(int code)
+	{
+		if (code == NO_DATA) {
+			return DemConstants.ELEV_NO_DATA;
+		} else if (code == UNDETERMINED) {
+			return DemConstants.ELEV_UNDETERMINED;
+		} else {
+			return minimum + code * step;
+		}
+	}
+
+	/** The greatest difference between an elevation within range and its decoded value.
+	 */
+	public double getMaximumError()
+	{
+		return step / 2.0;
+	}
+}
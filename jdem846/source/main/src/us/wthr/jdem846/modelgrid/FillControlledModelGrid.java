@@ -6,6 +6,7 @@ import us.wthr.jdem846.DemConstants;
 import us.wthr.jdem846.buffers.IIntBuffer;
 import us.wthr.jdem846.exception.DataSourceException;
 import us.wthr.jdem846.exception.RenderEngineException;
+import us.wthr.jdem846.gis.planets.Planet;
 import us.wthr.jdem846.graphics.Colors;
 import us.wthr.jdem846.graphics.IColor;
 import us.wthr.jdem846.logging.Log;
@@ -14,6 +15,7 @@ import us.wthr.jdem846.model.ElevationHistogramModel;
 import us.wthr.jdem846.model.processing.GridFilter;
 import us.wthr.jdem846.model.processing.GridFilterMethodStack;
 import us.wthr.jdem846.rasterdata.RasterDataContext;
+import us.wthr.jdem846.scaling.ElevationScaler;
 import us.wthr.jdem846.scripting.ScriptProxy;
 
 public class FillControlledModelGrid extends BaseModelGrid implements IFillControlledModelGrid
@@ -32,6 +34,8 @@ public class FillControlledModelGrid extends BaseModelGrid implements IFillContr
 
 	private boolean zeroInCaseOfNoRaster = false;
 
+	private boolean[] rowLoadedBuffer = null;
+
 	public FillControlledModelGrid(double north, double south, double east, double west, double latitudeResolution, double longitudeResolution, double minimum, double maximum,
 			boolean zeroInCaseOfNoRaster, RasterDataContext rasterDataContext, IModelGrid modelGrid, ScriptProxy scriptProxy)
 	{
@@ -151,6 +155,89 @@ public class FillControlledModelGrid extends BaseModelGrid implements IFillContr
 		modelGrid.setElevation(latitude, longitude, elevation);
 	}
 
+	@Override
+	public void getElevationRow(double latitude, int column, float[] fill, int offset, int length, boolean basic) throws DataSourceException
+	{
+		modelGrid.getElevationRow(latitude, column, fill, offset, length, true);
+
+		for (int i = 0; i < length; i++) {
+			if (fill[offset + i] == (float) DemConstants.ELEV_UNDETERMINED || (forceResetAndRunFilters && !basic)) {
+				fill[offset + i] = (float) getElevation(latitude, getLongitude(column + i), basic);
+			}
+		}
+	}
+
+	@Override
+	public void loadRow(ModelGridRow row) throws DataSourceException
+	{
+		double latitude = row.getLatitude();
+		int columns = row.getColumns();
+		int length = columns + (ModelGridRow.PADDING * 2);
+
+		getElevationRow(latitude + latitudeResolution, -ModelGridRow.PADDING, row.northElevations, 0, length, true);
+		getElevationRow(latitude - latitudeResolution, -ModelGridRow.PADDING, row.southElevations, 0, length, true);
+		getElevationRow(latitude, -ModelGridRow.PADDING, row.elevations, 0, ModelGridRow.PADDING, true);
+		getElevationRow(latitude, columns, row.elevations, columns + ModelGridRow.PADDING, ModelGridRow.PADDING, true);
+
+		if (rowLoadedBuffer == null || rowLoadedBuffer.length < columns) {
+			rowLoadedBuffer = new boolean[columns];
+		}
+
+		int loaded = 0;
+		for (int x = 0; x < columns; x++) {
+			rowLoadedBuffer[x] = false;
+		}
+
+		// Same as getElevation(latitude, longitude, false), except that the
+		// filters are run once for the row rather than once per point.
+		modelGrid.getElevationRow(latitude, 0, row.elevations, ModelGridRow.PADDING, columns, true);
+		for (int x = 0; x < columns; x++) {
+			if (row.elevations[x + ModelGridRow.PADDING] == (float) DemConstants.ELEV_UNDETERMINED) {
+				double longitude = row.getLongitude(x);
+				double elevation = DemConstants.ELEV_NO_DATA;
+				try {
+					elevation = getRasterData(latitude, longitude);
+				} catch (Exception ex) {
+					log.warn("Error fetching elevation: " + ex.getMessage(), ex);
+				}
+				modelGrid.setElevation(latitude, longitude, elevation);
+				row.elevations[x + ModelGridRow.PADDING] = (float) elevation;
+
+				rowLoadedBuffer[x] = true;
+				loaded++;
+			}
+		}
+
+		if (forceResetAndRunFilters || loaded == columns) {
+			if (forceResetAndRunFilters) {
+				for (int x = 0; x < columns; x++) {
+					row.rgba[x] = Colors.TRANSPARENT.asInt();
+				}
+				modelGrid.setRgbaRow(latitude, 0, row.rgba, 0, columns);
+			}
+			processFiltersOnRow(row);
+		} else if (loaded > 0) {
+			for (int x = 0; x < columns; x++) {
+				if (rowLoadedBuffer[x]) {
+					processFiltersOnPoint(latitude, row.getLongitude(x));
+				}
+			}
+		}
+	}
+
+	protected void processFiltersOnRow(ModelGridRow row)
+	{
+		boolean f = forceResetAndRunFilters;
+		forceResetAndRunFilters = false;
+		try {
+			gridFilters.onModelRow(row, modelGrid);
+		} catch (Exception ex) {
+			throw new DataSourceException("Error running grid filters on row at " + row.getLatitude() + ": " + ex.getMessage(), ex);
+		} finally {
+			forceResetAndRunFilters = f;
+		}
+	}
+
 	@Override
 	public void getRgbaByIndex(int index, int[] fill) throws DataSourceException
 	{
@@ -205,6 +292,30 @@ public class FillControlledModelGrid extends BaseModelGrid implements IFillContr
 		modelGrid.setRgba(latitude, longitude, rgba);
 	}
 
+	@Override
+	public void getRgbaRow(double latitude, int column, int[] fill, int offset, int length) throws DataSourceException
+	{
+		modelGrid.getRgbaRow(latitude, column, fill, offset, length);
+	}
+
+	@Override
+	public void setRgbaRow(double latitude, int column, int[] rgba, int offset, int length) throws DataSourceException
+	{
+		modelGrid.setRgbaRow(latitude, column, rgba, offset, length);
+	}
+
+	@Override
+	public NormalPlane getNormalPlane(boolean flat, ElevationScaler scaler, Planet planet, double latitudeResolution, double longitudeResolution)
+	{
+		return modelGrid.getNormalPlane(flat, scaler, planet, latitudeResolution, longitudeResolution);
+	}
+	
+	@Override
+	public void addNormalPlane(NormalPlane normalPlane)
+	{
+		modelGrid.addNormalPlane(normalPlane);
+	}
+
 	@Override
 	public boolean getForceResetAndRunFilters()
 	{
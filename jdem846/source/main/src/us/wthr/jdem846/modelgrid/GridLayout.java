@@ -0,0 +1,122 @@
+package us.wthr.jdem846.modelgrid;
+
+import us.wthr.jdem846.JDem846Properties;
+
+/** Maps the cells of a grid onto offsets in a buffer, either row by row or in square
+ * tiles whose cells are stored together. In a tiled layout the cells around any cell
+ * mostly lie within the same few kilobytes, rather than a full grid row apart, at the
+ * cost of padding the grid out to whole tiles.
+ */
+public class GridLayout
+{
+	public static final int ROW_MAJOR = 0;
+	public static final int DEFAULT_TILE_SIZE = 64;
+
+	private final int width;
+	private final int height;
+	private final int tileSize;
+	private final int tileShift;
+	private final int tileMask;
+	private final int tileColumns;
+	private final int tileRows;
+
+	/**
+	 * @param tileSize The width and height of each tile, a power of two, or ROW_MAJOR
+	 */
+	public GridLayout(int width, int height, int tileSize)
+	{
+		if (tileSize < 0 || (tileSize & (tileSize - 1)) != 0) {
+			throw new IllegalArgumentException("Invalid grid tile size: " + tileSize);
+		}
+
+		this.width = width;
+		this.height = height;
+		this.tileSize = tileSize;
+
+		if (tileSize != ROW_MAJOR) {
+			tileShift = Integer.numberOfTrailingZeros(tileSize);
+			tileMask = tileSize - 1;
+			tileColumns = (width + tileMask) >> tileShift;
+			tileRows = (height + tileMask) >> tileShift;
+		} else {
+			tileShift = 0;
+			tileMask = 0;
+			tileColumns = 1;
+			tileRows = 1;
+		}
+	}
+
+	/** The tile size set by the us.wthr.jdem846.performance.modelGridTileSize property.
+	 */
+	public static int getDefaultTileSize()
+	{
+		if (JDem846Properties.hasProperty("us.wthr.jdem846.performance.modelGridTileSize")) {
+			return JDem846Properties.getIntProperty("us.wthr.jdem846.performance.modelGridTileSize");
+		} else {
+			return DEFAULT_TILE_SIZE;
+		}
+	}
+
+	public boolean isTiled()
+	{
+		return tileSize != ROW_MAJOR;
+	}
+
+	public int getTileSize()
+	{
+		return tileSize;
+	}
+
+	public int getWidth()
+	{
+		return width;
+	}
+
+	public int getHeight()
+	{
+		return height;
+	}
+
+	/** The length of buffer needed to hold the grid, including the padding of partial tiles.
+	 */
+	public long getLength()
+	{
+		if (isTiled()) {
+			return ((long) tileColumns * (long) tileRows) << (tileShift * 2);
+		} else {
+			return (long) width * (long) height;
+		}
+	}
+
+	public long getOffset(int column, int row)
+	{
+		if (isTiled()) {
+			long tile = (long) (row >> tileShift) * tileColumns + (column >> tileShift);
+			return (tile << (tileShift * 2)) + ((row & tileMask) << tileShift) + (column & tileMask);
+		} else {
+			return (long) row * width + column;
+		}
+	}
+
+	/** Maps an index into the grid, counted row by row, onto an offset in the buffer.
+	 */
+	public long getOffset(long index)
+	{
+		if (isTiled()) {
+			return getOffset((int) (index % width), (int) (index / width));
+		} else {
+			return index;
+		}
+	}
+
+	/** The number of cells of a row, starting at the given column, stored one after another.
+	 */
+	public int getRunLength(int column)
+	{
+		if (isTiled()) {
+			return Math.min(tileSize - (column & tileMask), width - column);
+		} else {
+			return width - column;
+		}
+	}
+}
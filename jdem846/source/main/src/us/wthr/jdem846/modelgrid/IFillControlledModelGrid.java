@@ -15,6 +15,8 @@ public interface IFillControlledModelGrid extends IModelGrid
 
 	public void processFiltersOnPoint(double latitude, double longitude);
 
+	public void loadRow(ModelGridRow row) throws DataSourceException;
+
 	public void setGridFilters(GridFilterMethodStack gridFilters);
 
 	public void addGridFilter(GridFilter gridFilter);
@@ -2,9 +2,11 @@ package us.wthr.jdem846.modelgrid;
 
 import us.wthr.jdem846.buffers.IIntBuffer;
 import us.wthr.jdem846.exception.DataSourceException;
+import us.wthr.jdem846.gis.planets.Planet;
 import us.wthr.jdem846.graphics.IColor;
 import us.wthr.jdem846.input.InputSourceData;
 import us.wthr.jdem846.model.ElevationHistogramModel;
+import us.wthr.jdem846.scaling.ElevationScaler;
 
 public interface IModelGrid extends InputSourceData
 {
@@ -50,6 +52,12 @@ public interface IModelGrid extends InputSourceData
 
 	public void setRgba(double latitude, double longitude, int[] rgba) throws DataSourceException;
 
+	public void getElevationRow(double latitude, int column, float[] fill, int offset, int length, boolean basic) throws DataSourceException;
+
+	public void getRgbaRow(double latitude, int column, int[] fill, int offset, int length) throws DataSourceException;
+
+	public void setRgbaRow(double latitude, int column, int[] rgba, int offset, int length) throws DataSourceException;
+
 	public ElevationHistogramModel getElevationHistogramModel() throws DataSourceException;
 
 	public int getWidth();
@@ -77,4 +85,12 @@ public interface IModelGrid extends InputSourceData
 	public double getMaximum();
 
 	public void setMaximum(double maximum);
+
+	/** Fetches precomputed surface normals matching the given normals calculator settings.
+	 * 
+	 * @return The normal plane or null if none has been computed for these settings.
+	 */
+	public NormalPlane getNormalPlane(boolean flat, ElevationScaler scaler, Planet planet, double latitudeResolution, double longitudeResolution);
+
+	public void addNormalPlane(NormalPlane normalPlane);
 }
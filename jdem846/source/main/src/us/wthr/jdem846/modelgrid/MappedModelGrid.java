@@ -0,0 +1,474 @@
+package us.wthr.jdem846.modelgrid;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+
+import us.wthr.jdem846.DemConstants;
+import us.wthr.jdem846.buffers.BufferFactory;
+import us.wthr.jdem846.buffers.IIntBuffer;
+import us.wthr.jdem846.exception.DataSourceException;
+import us.wthr.jdem846.graphics.Color;
+import us.wthr.jdem846.graphics.IColor;
+import us.wthr.jdem846.logging.Log;
+import us.wthr.jdem846.logging.Logging;
+import us.wthr.jdem846.model.ElevationHistogramModel;
+
+/** A read-only grid over a mapped version 2 grid file. Tiles are decoded as they are
+ * first accessed and the most recently used are kept, so that reading a window of the
+ * grid reads little more of the file than the tiles the window covers.
+ */
+public class MappedModelGrid extends BaseModelGrid
+{
+	private static Log log = Logging.getLog(MappedModelGrid.class);
+
+	// Each mapping overlaps the next by the longest tile, so every tile lies whole within one
+	public static final long MAP_WINDOW_SIZE = 1L << 30;
+	public static final long DEFAULT_CACHE_SIZE = 256L * 1024L * 1024L;
+
+	private File file;
+	private RandomAccessFile randomAccessFile;
+	private MappedByteBuffer[] windows;
+
+	private int tileSize;
+	private int tileColumns;
+	private int tileRows;
+
+	private long[] tileOffsets;
+	private int[] elevationLengths;
+	private int[] rgbaLengths;
+	private int maximumTileLength = 0;
+
+	private Map<Integer, DecodedTile> tileCache;
+	private ElevationHistogramModel elevationHistogramModel;
+	private IIntBuffer modelTexture;
+
+	private boolean isDisposed = false;
+
+	public MappedModelGrid(File file) throws IOException
+	{
+		this(file, ModelGridReader.readHeader(file), DEFAULT_CACHE_SIZE);
+	}
+
+	public MappedModelGrid(File file, ModelGridHeader header, long cacheSize) throws IOException
+	{
+		super(header.north, header.south, header.east, header.west, header.latitudeResolution, header.longitudeResolution, header.minimum, header.maximum, header.width, header.height);
+
+		if (header.version != ModelGridFileIO.VERSION_2) {
+			throw new IOException("Model grid file is not version 2: " + file.getPath());
+		}
+		if (header.tileSize <= 0) {
+			throw new IOException("Invalid model grid tile size: " + header.tileSize);
+		}
+
+		this.file = file;
+		this.tileSize = header.tileSize;
+		this.tileColumns = (width + tileSize - 1) / tileSize;
+		this.tileRows = (height + tileSize - 1) / tileSize;
+
+		// Keep at least a band of tiles so that reading row by row does not decode each tile once per row
+		final int maximumCachedTiles = (int) Math.max(cacheSize / ((long) tileSize * tileSize * 8), tileColumns + 1);
+		tileCache = new LinkedHashMap<Integer, DecodedTile>(16, 0.75f, true) {
+			protected boolean removeEldestEntry(Map.Entry<Integer, DecodedTile> eldest)
+			{
+				return size() > maximumCachedTiles;
+			}
+		};
+
+		randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			readIndex(randomAccessFile.getChannel());
+			mapWindows(randomAccessFile.getChannel());
+		} catch (IOException ex) {
+			randomAccessFile.close();
+			throw ex;
+		}
+
+		log.info("Mapped model grid file " + file.getPath() + " of " + (tileColumns * tileRows) + " tiles");
+	}
+
+	/** Locates each tile by skipping from band to band through the lengths at the start of each.
+	 */
+	protected void readIndex(FileChannel channel) throws IOException
+	{
+		long position = ModelGridFileIO.HEADER_LENGTH_V2;
+		long size = channel.size();
+
+		int histogramLength = readBytes(channel, position, 4).getInt();
+		if (histogramLength < 0 || position + 4 + histogramLength > size) {
+			throw new IOException("Invalid model grid histogram length: " + histogramLength);
+		}
+		if (histogramLength > 0) {
+			elevationHistogramModel = new ElevationHistogramModel(new ByteArrayInputStream(readBytes(channel, position + 4, histogramLength).array()));
+		}
+		position += 4 + histogramLength;
+
+		int tileCount = tileColumns * tileRows;
+		tileOffsets = new long[tileCount];
+		elevationLengths = new int[tileCount];
+		rgbaLengths = new int[tileCount];
+
+		for (int tileRow = 0; tileRow < tileRows; tileRow++) {
+			ByteBuffer lengths = readBytes(channel, position, tileColumns * 8);
+			position += tileColumns * 8;
+
+			for (int tileColumn = 0; tileColumn < tileColumns; tileColumn++) {
+				int tile = tileRow * tileColumns + tileColumn;
+				int count = getTileWidth(tileColumn) * getTileHeight(tileRow);
+				elevationLengths[tile] = lengths.getInt();
+				rgbaLengths[tile] = lengths.getInt();
+				ModelGridFileIO.checkTileLength(elevationLengths[tile], count);
+				ModelGridFileIO.checkTileLength(rgbaLengths[tile], count);
+				tileOffsets[tile] = position;
+
+				long tileLength = (long) elevationLengths[tile] + (long) rgbaLengths[tile];
+				if (tileLength > Integer.MAX_VALUE - MAP_WINDOW_SIZE) {
+					throw new IOException("Model grid tile is too long to map: " + tileLength);
+				}
+				maximumTileLength = (int) Math.max(maximumTileLength, tileLength);
+				position += tileLength;
+			}
+
+			if (position > size) {
+				throw new EOFException("Model grid file is truncated: " + file.getPath());
+			}
+		}
+	}
+
+	protected void mapWindows(FileChannel channel) throws IOException
+	{
+		long size = channel.size();
+		int count = (int) ((size + MAP_WINDOW_SIZE - 1) / MAP_WINDOW_SIZE);
+
+		windows = new MappedByteBuffer[count];
+		for (int i = 0; i < count; i++) {
+			long start = i * MAP_WINDOW_SIZE;
+			long length = Math.min(MAP_WINDOW_SIZE + maximumTileLength, size - start);
+			windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+		}
+	}
+
+	protected static ByteBuffer readBytes(FileChannel channel, long position, int length) throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new EOFException("Unexpected end of model grid file");
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	protected int[] decodeTile(int tile, boolean rgba) throws DataSourceException
+	{
+		MappedByteBuffer[] windows = this.windows;
+		if (windows == null) {
+			throw new DataSourceException("Model grid has been disposed");
+		}
+
+		long offset = tileOffsets[tile] + (rgba ? elevationLengths[tile] : 0);
+		int length = rgba ? rgbaLengths[tile] : elevationLengths[tile];
+
+		ByteBuffer window = windows[(int) (offset / MAP_WINDOW_SIZE)].duplicate();
+		window.position((int) (offset % MAP_WINDOW_SIZE));
+		byte[] data = new byte[length];
+		window.get(data);
+
+		int tileColumn = tile % tileColumns;
+		int tileRow = tile / tileColumns;
+		int[] values = new int[getTileWidth(tileColumn) * getTileHeight(tileRow)];
+
+		try {
+			ModelGridTileCodec.decode(data, 0, length, values, values.length);
+		} catch (DataFormatException ex) {
+			throw new DataSourceException("Invalid model grid tile data: " + ex.getMessage(), ex);
+		}
+		return values;
+	}
+
+	protected DecodedTile getDecodedTile(int tile)
+	{
+		synchronized (tileCache) {
+			DecodedTile decoded = tileCache.get(tile);
+			if (decoded == null) {
+				decoded = new DecodedTile();
+				tileCache.put(tile, decoded);
+			}
+			return decoded;
+		}
+	}
+
+	protected float[] getTileElevations(int tile) throws DataSourceException
+	{
+		DecodedTile decoded = getDecodedTile(tile);
+		synchronized (decoded) {
+			if (decoded.elevations == null) {
+				int[] bits = decodeTile(tile, false);
+				float[] elevations = new float[bits.length];
+				for (int i = 0; i < bits.length; i++) {
+					elevations[i] = Float.intBitsToFloat(bits[i]);
+				}
+				decoded.elevations = elevations;
+			}
+			return decoded.elevations;
+		}
+	}
+
+	protected int[] getTileRgba(int tile) throws DataSourceException
+	{
+		DecodedTile decoded = getDecodedTile(tile);
+		synchronized (decoded) {
+			if (decoded.rgba == null) {
+				decoded.rgba = decodeTile(tile, true);
+			}
+			return decoded.rgba;
+		}
+	}
+
+	protected int getTileWidth(int tileColumn)
+	{
+		return Math.min(tileSize, width - tileColumn * tileSize);
+	}
+
+	protected int getTileHeight(int tileRow)
+	{
+		return Math.min(tileSize, height - tileRow * tileSize);
+	}
+
+	/** The position within its tile of the cell at the given index.
+	 */
+	protected int getTileCellOffset(int index)
+	{
+		int row = index / width;
+		int column = index - row * width;
+		return (row % tileSize) * getTileWidth(column / tileSize) + (column % tileSize);
+	}
+
+	protected int getTile(int index)
+	{
+		int row = index / width;
+		int column = index - row * width;
+		return (row / tileSize) * tileColumns + (column / tileSize);
+	}
+
+	/** Copies the cells of a row between two columns, a tile's width at a time.
+	 */
+	protected void copyRow(double latitude, int column, Object fill, int offset, int length, boolean rgba) throws DataSourceException
+	{
+		int row = getRow(latitude);
+		if (row < 0) {
+			return;
+		}
+
+		int tileRow = row / tileSize;
+		int last = Math.min(column + length, width);
+		int current = Math.max(column, 0);
+
+		while (current < last) {
+			int tileColumn = current / tileSize;
+			int tileWidth = getTileWidth(tileColumn);
+			int tileFirstColumn = tileColumn * tileSize;
+			int count = Math.min(tileFirstColumn + tileWidth, last) - current;
+
+			int tile = tileRow * tileColumns + tileColumn;
+			Object values = rgba ? (Object) getTileRgba(tile) : (Object) getTileElevations(tile);
+			System.arraycopy(values, (row - tileRow * tileSize) * tileWidth + (current - tileFirstColumn), fill, offset + (current - column), count);
+
+			current += count;
+		}
+	}
+
+	public File getFile()
+	{
+		return file;
+	}
+
+	public int getTileSize()
+	{
+		return tileSize;
+	}
+
+	/** Decodes the colors of the whole grid into a texture buffer when it is first requested.
+	 */
+	@Override
+	public synchronized IIntBuffer getModelTexture() throws DataSourceException
+	{
+		if (modelTexture == null) {
+			IIntBuffer texture = BufferFactory.allocateIntBuffer(gridLength);
+			int[] rgba = new int[width];
+			for (int row = 0; row < height; row++) {
+				copyRow(north - (double) row * latitudeResolution, 0, rgba, 0, width, true);
+				texture.put(rgba, (long) row * width, 0, width);
+			}
+			modelTexture = texture;
+		}
+		return modelTexture;
+	}
+
+	/** Releases the grid's tiles and closes its file. The file's mappings are only released
+	 * once they are garbage collected, and until then some platforms, Windows among them,
+	 * keep the file from being deleted or written over.
+	 */
+	@Override
+	public void dispose()
+	{
+		clearNormalPlanes();
+		windows = null;
+		synchronized (tileCache) {
+			tileCache.clear();
+		}
+		synchronized (this) {
+			modelTexture = null;
+		}
+
+		try {
+			randomAccessFile.close();
+		} catch (IOException ex) {
+			log.warn("Error closing model grid file: " + ex.getMessage(), ex);
+		}
+		isDisposed = true;
+	}
+
+	@Override
+	public boolean isDisposed()
+	{
+		return isDisposed;
+	}
+
+	@Override
+	public void reset()
+	{
+		// Nothing to clear. Mapped model grids are read-only
+		clearNormalPlanes();
+	}
+
+	@Override
+	public ElevationHistogramModel getElevationHistogramModel()
+	{
+		return (elevationHistogramModel != null) ? elevationHistogramModel : super.getElevationHistogramModel();
+	}
+
+	@Override
+	public double getElevationByIndex(int index) throws DataSourceException
+	{
+		if (index >= 0 && index < this.gridLength) {
+			return getTileElevations(getTile(index))[getTileCellOffset(index)];
+		} else {
+			return DemConstants.ELEV_NO_DATA;
+		}
+	}
+
+	@Override
+	public void setElevationByIndex(int index, double elevation) throws DataSourceException
+	{
+		throw new DataSourceException("Mapped model grids are read-only");
+	}
+
+	@Override
+	public double getElevation(double latitude, double longitude, boolean basic) throws DataSourceException
+	{
+		int index = getIndex(latitude, longitude);
+		return getElevationByIndex(index);
+	}
+
+	@Override
+	public void setElevation(double latitude, double longitude, double elevation) throws DataSourceException
+	{
+		throw new DataSourceException("Mapped model grids are read-only");
+	}
+
+	@Override
+	public void getRgbaByIndex(int index, int[] fill) throws DataSourceException
+	{
+		getRgbaByIndex(index).toArray(fill);
+	}
+
+	@Override
+	public IColor getRgbaByIndex(int index) throws DataSourceException
+	{
+		if (index >= 0 && index < this.gridLength) {
+			return new Color(getTileRgba(getTile(index))[getTileCellOffset(index)]);
+		} else {
+			return new Color(0x0);
+		}
+	}
+
+	@Override
+	public void setRgbaByIndex(int index, IColor rgba) throws DataSourceException
+	{
+		throw new DataSourceException("Mapped model grids are read-only");
+	}
+
+	@Override
+	public void setRgbaByIndex(int index, int[] rgba) throws DataSourceException
+	{
+		throw new DataSourceException("Mapped model grids are read-only");
+	}
+
+	public IColor getRgba(int x, int y) throws DataSourceException
+	{
+		int index = getIndex(x, y);
+		return getRgbaByIndex(index);
+	}
+
+	@Override
+	public void getRgba(double latitude, double longitude, int[] fill) throws DataSourceException
+	{
+		getRgba(latitude, longitude).toArray(fill);
+	}
+
+	@Override
+	public IColor getRgba(double latitude, double longitude) throws DataSourceException
+	{
+		int index = getIndex(latitude, longitude);
+		return getRgbaByIndex(index);
+	}
+
+	@Override
+	public void setRgba(double latitude, double longitude, IColor rgba) throws DataSourceException
+	{
+		throw new DataSourceException("Mapped model grids are read-only");
+	}
+
+	@Override
+	public void setRgba(double latitude, double longitude, int[] rgba) throws DataSourceException
+	{
+		throw new DataSourceException("Mapped model grids are read-only");
+	}
+
+	@Override
+	public void getElevationRow(double latitude, int column, float[] fill, int offset, int length, boolean basic) throws DataSourceException
+	{
+		Arrays.fill(fill, offset, offset + length, (float) DemConstants.ELEV_NO_DATA);
+		copyRow(latitude, column, fill, offset, length, false);
+	}
+
+	@Override
+	public void getRgbaRow(double latitude, int column, int[] fill, int offset, int length) throws DataSourceException
+	{
+		Arrays.fill(fill, offset, offset + length, 0x0);
+		copyRow(latitude, column, fill, offset, length, true);
+	}
+
+	@Override
+	public void setRgbaRow(double latitude, int column, int[] rgba, int offset, int length) throws DataSourceException
+	{
+		throw new DataSourceException("Mapped model grids are read-only");
+	}
+
+	static class DecodedTile
+	{
+		float[] elevations;
+		int[] rgba;
+	}
+}
@@ -1,8 +1,11 @@
 package us.wthr.jdem846.modelgrid;
 
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Arrays;
 
 import us.wthr.jdem846.ByteOrder;
 import us.wthr.jdem846.util.ByteConversions;
@@ -13,7 +16,55 @@ public abstract class ModelGridFileIO
 	public static final int FILE_HEADER_PREFIX_LENGTH = FILE_HEADER_PREFIX.getBytes().length;
 	public static final ByteOrder DEFAULT_BYTE_ORDER = ByteOrder.LSBFIRST;
 	
+	// Version 1 files have no signature and begin with the grid height and width. The whole eight
+	// bytes are compared, since no plausible height and width read the same as the signature.
+	public static final byte[] FILE_SIGNATURE = { (byte) 0x89, 'J', 'D', 'E', 'M', 'G', 'R', 'D' };
+	public static final int VERSION_1 = 1;
+	public static final int VERSION_2 = 2;
 	
+	// Signature, version, width, height, tile size and eight doubles
+	public static final int HEADER_LENGTH_V2 = 88;
+	public static final int DEFAULT_TILE_SIZE = 256;
+	
+	/** Determines the version of a grid file from its first bytes, leaving the stream where
+	 * it was. The stream must support mark.
+	 */
+	public static int readVersion(InputStream in) throws IOException
+	{
+		if (!in.markSupported()) {
+			throw new IOException("Grid file stream does not support mark");
+		}
+		
+		in.mark(FILE_SIGNATURE.length + 4);
+		try {
+			DataInputStream dataIn = new DataInputStream(in);
+			byte[] signature = new byte[FILE_SIGNATURE.length];
+			dataIn.readFully(signature);
+			if (Arrays.equals(signature, FILE_SIGNATURE)) {
+				return dataIn.readInt();
+			} else {
+				return VERSION_1;
+			}
+		} catch (EOFException ex) {
+			return VERSION_1;
+		} finally {
+			in.reset();
+		}
+	}
+	
+	
+	/** Checks a compressed tile length read from a version 2 file against the most that the
+	 * tile's cells could compress to, so that a corrupt length is not used to size a read.
+	 */
+	protected static void checkTileLength(int length, int count) throws IOException
+	{
+		if (length < 0 || length > ModelGridTileCodec.getMaximumEncodedLength(count)) {
+			throw new IOException("Invalid model grid tile length: " + length);
+		}
+	}
+	
+	/** The size of the grid written in the uncompressed version 1 format.
+	 */
 	public static long calculateEstimatedFileSize(IModelGrid modelGrid)
 	{
 		long headerSizeBytes = 72;
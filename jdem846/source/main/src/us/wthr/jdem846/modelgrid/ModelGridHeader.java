@@ -7,6 +7,9 @@ public class ModelGridHeader implements InputSourceData
 {
 	public String gridPrefix;
 	
+	public int version = ModelGridFileIO.VERSION_1;
+	public int tileSize;
+	
 	public double north;
 	public double south;
 	public double east;
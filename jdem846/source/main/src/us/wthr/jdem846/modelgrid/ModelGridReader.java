@@ -1,10 +1,12 @@
 package us.wthr.jdem846.modelgrid;
 
 import java.io.BufferedInputStream;
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.zip.DataFormatException;
 
 import us.wthr.jdem846.exception.DataSourceException;
 import us.wthr.jdem846.graphics.Color;
@@ -26,19 +28,37 @@ public class ModelGridReader extends ModelGridFileIO {
 		return read(f);
 	}
 	
+	/** Reads a grid file. Version 2 files are mapped and their tiles decoded as they are
+	 * accessed, while version 1 files are read in full.
+	 */
 	public static IModelGrid read(File filePath) throws IOException, DataSourceException
 	{
 		InputStream in = new BufferedInputStream(new FileInputStream(filePath));
-		IModelGrid modelGrid = read(in);
-		in.close();
-		return modelGrid;
+		try {
+			if (readVersion(in) == VERSION_2) {
+				return new MappedModelGrid(filePath);
+			} else {
+				return read(in);
+			}
+		} finally {
+			in.close();
+		}
 	}
 	
+	/** Reads a grid of either version in full.
+	 */
 	public static IModelGrid read(InputStream in) throws IOException, DataSourceException
 	{
-		IModelGrid modelGrid = null;
+		if (!in.markSupported()) {
+			in = new BufferedInputStream(in);
+		}
 		
 		ModelGridHeader header = readHeader(in);
+		if (header.version == VERSION_2) {
+			return readVersion2(in, header);
+		}
+		
+		IModelGrid modelGrid = null;
 		modelGrid = ModelGridFactory.createBufferedModelGrid(header.north, header.south, header.east, header.west, header.latitudeResolution, header.longitudeResolution, header.minimum, header.maximum, header.width, header.height);
 		
 		ModelGridCell cell = new ModelGridCell();
@@ -54,6 +74,76 @@ public class ModelGridReader extends ModelGridFileIO {
 		return modelGrid;
 	}
 	
+	/** Reads the tiles of a version 2 grid, following its header, into a buffered grid.
+	 */
+	protected static IModelGrid readVersion2(InputStream in, ModelGridHeader header) throws IOException, DataSourceException
+	{
+		DataInputStream dataIn = new DataInputStream(in);
+		
+		// The histogram is counted again as elevations are set, so it is skipped
+		int histogramLength = dataIn.readInt();
+		if (histogramLength < 0) {
+			throw new IOException("Invalid model grid histogram length: " + histogramLength);
+		}
+		byte[] skipped = new byte[4096];
+		for (int remaining = histogramLength; remaining > 0; remaining -= skipped.length) {
+			dataIn.readFully(skipped, 0, Math.min(remaining, skipped.length));
+		}
+		
+		IModelGrid modelGrid = ModelGridFactory.createBufferedModelGrid(header.north, header.south, header.east, header.west, header.latitudeResolution, header.longitudeResolution, header.minimum, header.maximum, header.width, header.height);
+		
+		int tileSize = header.tileSize;
+		int tileColumns = (header.width + tileSize - 1) / tileSize;
+		int tileRows = (header.height + tileSize - 1) / tileSize;
+		
+		int[] elevationLengths = new int[tileColumns];
+		int[] rgbaLengths = new int[tileColumns];
+		int[] elevationBits = new int[Math.min(tileSize, header.width) * Math.min(tileSize, header.height)];
+		int[] rgba = new int[elevationBits.length];
+		
+		try {
+			for (int tileRow = 0; tileRow < tileRows; tileRow++) {
+				for (int tileColumn = 0; tileColumn < tileColumns; tileColumn++) {
+					elevationLengths[tileColumn] = dataIn.readInt();
+					rgbaLengths[tileColumn] = dataIn.readInt();
+				}
+				
+				int firstRow = tileRow * tileSize;
+				int rows = Math.min(tileSize, header.height - firstRow);
+				
+				for (int tileColumn = 0; tileColumn < tileColumns; tileColumn++) {
+					int firstColumn = tileColumn * tileSize;
+					int columns = Math.min(tileSize, header.width - firstColumn);
+					int count = columns * rows;
+					checkTileLength(elevationLengths[tileColumn], count);
+					checkTileLength(rgbaLengths[tileColumn], count);
+					
+					byte[] data = new byte[elevationLengths[tileColumn]];
+					dataIn.readFully(data);
+					ModelGridTileCodec.decode(data, 0, data.length, elevationBits, count);
+					
+					data = new byte[rgbaLengths[tileColumn]];
+					dataIn.readFully(data);
+					ModelGridTileCodec.decode(data, 0, data.length, rgba, count);
+					
+					for (int row = 0; row < rows; row++) {
+						int index = (firstRow + row) * header.width + firstColumn;
+						for (int column = 0; column < columns; column++) {
+							modelGrid.setElevationByIndex(index + column, Float.intBitsToFloat(elevationBits[row * columns + column]));
+						}
+						
+						double latitude = header.north - (double) (firstRow + row) * header.latitudeResolution;
+						modelGrid.setRgbaRow(latitude, firstColumn, rgba, row * columns, columns);
+					}
+				}
+			}
+		} catch (DataFormatException ex) {
+			throw new IOException("Invalid model grid tile data: " + ex.getMessage(), ex);
+		}
+		
+		return modelGrid;
+	}
+	
 	public static ModelGridHeader readHeader(String filePath) throws IOException
 	{
 		return readHeader(new File(filePath));
@@ -67,10 +157,40 @@ public class ModelGridReader extends ModelGridFileIO {
 		return header;
 	}
 	
+	/** Reads the header of a grid of either version. The stream must support mark.
+	 */
 	public static ModelGridHeader readHeader(InputStream in) throws IOException
 	{
 		ModelGridHeader header = new ModelGridHeader();
 		header.gridPrefix = ModelGridFileIO.FILE_HEADER_PREFIX;//readString(ModelGridFileIO.FILE_HEADER_PREFIX.getBytes().length, in);
+		header.version = readVersion(in);
+		
+		if (header.version == VERSION_2) {
+			DataInputStream dataIn = new DataInputStream(in);
+			dataIn.readFully(new byte[FILE_SIGNATURE.length]);
+			dataIn.readInt();
+			
+			header.width = dataIn.readInt();
+			header.height = dataIn.readInt();
+			header.tileSize = dataIn.readInt();
+			if (header.width < 0 || header.height < 0) {
+				throw new IOException("Invalid model grid size: " + header.width + "x" + header.height);
+			}
+			if (header.tileSize <= 0) {
+				throw new IOException("Invalid model grid tile size: " + header.tileSize);
+			}
+			header.minimum = dataIn.readDouble();
+			header.maximum = dataIn.readDouble();
+			header.north = dataIn.readDouble();
+			header.south = dataIn.readDouble();
+			header.east = dataIn.readDouble();
+			header.west = dataIn.readDouble();
+			header.latitudeResolution = dataIn.readDouble();
+			header.longitudeResolution = dataIn.readDouble();
+			return header;
+		} else if (header.version != VERSION_1) {
+			throw new IOException("Unsupported model grid file version: " + header.version);
+		}
 		
 		header.height = readInt(in);
 		header.width = readInt(in);
@@ -0,0 +1,97 @@
+package us.wthr.jdem846.modelgrid;
+
+import us.wthr.jdem846.DemConstants;
+import us.wthr.jdem846.graphics.INormalsCalculator;
+import us.wthr.jdem846.math.Vector;
+
+/**
+ * A single latitude row of a model grid along with the rows directly north
+ * and south of it. The elevation arrays are padded by one column on either
+ * side so the elevation of grid column x is found at index x + 1, which keeps
+ * 3x3 neighborhoods in bounds at the east and west edges. The rgba array holds
+ * packed colors and is not padded.
+ */
+public class ModelGridRow
+{
+	public static final int PADDING = 1;
+
+	private double latitude;
+	private double west;
+	private double longitudeResolution;
+	private int columns;
+
+	public final float[] northElevations;
+	public final float[] elevations;
+	public final float[] southElevations;
+	public final int[] rgba;
+
+	public ModelGridRow(int columns, double west, double longitudeResolution)
+	{
+		this.columns = columns;
+		this.west = west;
+		this.longitudeResolution = longitudeResolution;
+
+		northElevations = new float[columns + (PADDING * 2)];
+		elevations = new float[columns + (PADDING * 2)];
+		southElevations = new float[columns + (PADDING * 2)];
+		rgba = new int[columns];
+	}
+
+	public double getLatitude()
+	{
+		return latitude;
+	}
+
+	public void setLatitude(double latitude)
+	{
+		this.latitude = latitude;
+	}
+
+	public double getLongitude(int column)
+	{
+		return west + ((double) column * longitudeResolution);
+	}
+
+	public double getWest()
+	{
+		return west;
+	}
+
+	public double getLongitudeResolution()
+	{
+		return longitudeResolution;
+	}
+
+	public int getColumns()
+	{
+		return columns;
+	}
+
+	public double getElevation(int column)
+	{
+		return elevations[column + PADDING];
+	}
+
+	/**
+	 * Calculates the surface normal of a column from its four direct
+	 * neighbors, substituting the center elevation for any neighbor without
+	 * data.
+	 */
+	public void calculateNormal(int column, INormalsCalculator normalsCalculator, Vector normal)
+	{
+		int i = column + PADDING;
+
+		double midElev = elevations[i];
+		double nElev = northElevations[i];
+		double sElev = southElevations[i];
+		double eElev = elevations[i + 1];
+		double wElev = elevations[i - 1];
+
+		eElev = (eElev == DemConstants.ELEV_NO_DATA) ? midElev : eElev;
+		sElev = (sElev == DemConstants.ELEV_NO_DATA) ? midElev : sElev;
+		wElev = (wElev == DemConstants.ELEV_NO_DATA) ? midElev : wElev;
+		nElev = (nElev == DemConstants.ELEV_NO_DATA) ? midElev : nElev;
+
+		normalsCalculator.calculateNormal(latitude, getLongitude(column), midElev, nElev, sElev, eElev, wElev, normal);
+	}
+}
@@ -0,0 +1,81 @@
+package us.wthr.jdem846.modelgrid;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/** Compresses the cells of a version 2 grid file tile. Each value is replaced by its
+ * difference from the value before it, which for neighboring elevations or colors leaves
+ * mostly small numbers. The bytes of those differences are then split into planes, high
+ * bytes first, and deflated. Elevations are encoded by their float bits.
+ */
+public class ModelGridTileCodec
+{
+
+	public static byte[] encode(int[] values, int count, Deflater deflater)
+	{
+		byte[] planes = new byte[count * 4];
+		int previous = 0;
+		for (int i = 0; i < count; i++) {
+			int difference = values[i] - previous;
+			previous = values[i];
+
+			planes[i] = (byte) (difference >>> 24);
+			planes[count + i] = (byte) (difference >>> 16);
+			planes[count * 2 + i] = (byte) (difference >>> 8);
+			planes[count * 3 + i] = (byte) difference;
+		}
+
+		deflater.reset();
+		deflater.setInput(planes);
+		deflater.finish();
+
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(planes.length / 4 + 64);
+		byte[] buffer = new byte[16384];
+		while (!deflater.finished()) {
+			int length = deflater.deflate(buffer);
+			compressed.write(buffer, 0, length);
+		}
+		return compressed.toByteArray();
+	}
+
+	/** The longest the encoded data of the given number of values may be: the planes stored
+	 * uncompressed, with room for deflate's block and stream overhead.
+	 */
+	public static long getMaximumEncodedLength(int count)
+	{
+		long planes = (long) count * 4L;
+		return planes + (planes >> 12) + (planes >> 14) + 64;
+	}
+	
+	public static void decode(byte[] data, int offset, int length, int[] values, int count) throws DataFormatException
+	{
+		byte[] planes = new byte[count * 4];
+
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(data, offset, length);
+			int inflated = 0;
+			while (inflated < planes.length) {
+				int read = inflater.inflate(planes, inflated, planes.length - inflated);
+				if (read == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+					throw new DataFormatException("Tile data ends after " + inflated + " of " + planes.length + " bytes");
+				}
+				inflated += read;
+			}
+		} finally {
+			inflater.end();
+		}
+
+		int previous = 0;
+		for (int i = 0; i < count; i++) {
+			int difference = ((planes[i] & 0xFF) << 24)
+							| ((planes[count + i] & 0xFF) << 16)
+							| ((planes[count * 2 + i] & 0xFF) << 8)
+							| (planes[count * 3 + i] & 0xFF);
+			previous += difference;
+			values[i] = previous;
+		}
+	}
+}
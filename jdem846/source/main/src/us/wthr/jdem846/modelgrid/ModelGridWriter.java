@@ -1,10 +1,22 @@
 package us.wthr.jdem846.modelgrid;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.Deflater;
 
 import us.wthr.jdem846.exception.DataSourceException;
 import us.wthr.jdem846.graphics.IColor;
@@ -35,15 +47,28 @@ public class ModelGridWriter extends ModelGridFileIO
 		out.close();
 	}
 	
+	/** Writes the grid in the version 2 format, compressed in tiles of the default size.
+	 */
 	public static void write(OutputStream out, IModelGrid modelGrid) throws IOException, DataSourceException
+	{
+		writeVersion2(out, modelGrid, DEFAULT_TILE_SIZE, Runtime.getRuntime().availableProcessors());
+	}
+	
+	/** Writes the grid cell by cell in the original, uncompressed format.
+	 */
+	public static void writeVersion1(OutputStream out, IModelGrid modelGrid) throws IOException, DataSourceException
 	{
 		long bytesWritten = 0;
 		
 		bytesWritten += writeHeader(modelGrid, out);
 
-		int gridLength = (int) modelGrid.getGridLength();
-		for (int i = 0; i < gridLength; i++) {
-			bytesWritten += writeCell(modelGrid, i, out);
+		int width = modelGrid.getWidth();
+		float[] elevations = new float[width];
+		int[] rgba = new int[width];
+		ByteBuffer rowBytes = ByteBuffer.allocate(width * 12).order(java.nio.ByteOrder.LITTLE_ENDIAN);
+		
+		for (int row = 0; row < modelGrid.getHeight(); row++) {
+			bytesWritten += writeRow(modelGrid, row, elevations, rgba, rowBytes, out);
 		}
 		
 		
@@ -57,6 +82,141 @@ public class ModelGridWriter extends ModelGridFileIO
 		
 	}	
 
+	/** Writes the grid in the version 2 format: a header, the grid's elevation histogram, then
+	 * the tiles one band, or row of tiles, at a time. Each band begins with the compressed
+	 * lengths of its tiles' elevations and colors, so that the file may be read as a stream
+	 * or its tiles located by skipping from band to band. All values are most significant
+	 * byte first.
+	 */
+	public static void writeVersion2(OutputStream out, final IModelGrid modelGrid, final int tileSize, int threads) throws IOException, DataSourceException
+	{
+		DataOutputStream dataOut = new DataOutputStream(out);
+		
+		dataOut.write(FILE_SIGNATURE);
+		dataOut.writeInt(VERSION_2);
+		dataOut.writeInt(modelGrid.getWidth());
+		dataOut.writeInt(modelGrid.getHeight());
+		dataOut.writeInt(tileSize);
+		dataOut.writeDouble(modelGrid.getMinimum());
+		dataOut.writeDouble(modelGrid.getMaximum());
+		dataOut.writeDouble(modelGrid.getNorth());
+		dataOut.writeDouble(modelGrid.getSouth());
+		dataOut.writeDouble(modelGrid.getEast());
+		dataOut.writeDouble(modelGrid.getWest());
+		dataOut.writeDouble(modelGrid.getLatitudeResolution());
+		dataOut.writeDouble(modelGrid.getLongitudeResolution());
+		
+		ByteArrayOutputStream histogramBytes = new ByteArrayOutputStream();
+		if (modelGrid.getElevationHistogramModel() != null) {
+			modelGrid.getElevationHistogramModel().write(histogramBytes);
+		}
+		dataOut.writeInt(histogramBytes.size());
+		histogramBytes.writeTo(dataOut);
+		
+		long bytesWritten = HEADER_LENGTH_V2 + 4 + histogramBytes.size();
+		
+		int tileColumns = (modelGrid.getWidth() + tileSize - 1) / tileSize;
+		int tileRows = (modelGrid.getHeight() + tileSize - 1) / tileSize;
+		
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(threads, 1), new GridWriterThreadFactory());
+		try {
+			for (int tileRow = 0; tileRow < tileRows; tileRow++) {
+				List<Callable<byte[][]>> tiles = new ArrayList<Callable<byte[][]>>();
+				for (int tileColumn = 0; tileColumn < tileColumns; tileColumn++) {
+					final int firstColumn = tileColumn * tileSize;
+					final int firstRow = tileRow * tileSize;
+					tiles.add(new Callable<byte[][]>() {
+						public byte[][] call() throws Exception
+						{
+							return compressTile(modelGrid, firstColumn, firstRow, tileSize);
+						}
+					});
+				}
+				
+				List<Future<byte[][]>> compressed = executor.invokeAll(tiles);
+				byte[][][] band = new byte[tileColumns][][];
+				for (int tileColumn = 0; tileColumn < tileColumns; tileColumn++) {
+					band[tileColumn] = compressed.get(tileColumn).get();
+				}
+				
+				for (int tileColumn = 0; tileColumn < tileColumns; tileColumn++) {
+					dataOut.writeInt(band[tileColumn][0].length);
+					dataOut.writeInt(band[tileColumn][1].length);
+				}
+				for (int tileColumn = 0; tileColumn < tileColumns; tileColumn++) {
+					dataOut.write(band[tileColumn][0]);
+					dataOut.write(band[tileColumn][1]);
+					bytesWritten += 8 + band[tileColumn][0].length + band[tileColumn][1].length;
+				}
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while writing model grid", ex);
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof DataSourceException) {
+				throw (DataSourceException) ex.getCause();
+			}
+			throw new IOException("Error compressing model grid tile: " + ex.getCause().getMessage(), ex.getCause());
+		} finally {
+			executor.shutdown();
+		}
+		
+		dataOut.flush();
+		log.info("Wrote " + bytesWritten + " bytes to disk, against " + calculateEstimatedFileSize(modelGrid) + " in the version 1 format");
+	}
+	
+	/** Compresses the elevations and colors of the tile whose upper left cell is given.
+	 */
+	protected static byte[][] compressTile(IModelGrid modelGrid, int firstColumn, int firstRow, int tileSize) throws DataSourceException
+	{
+		int columns = Math.min(tileSize, modelGrid.getWidth() - firstColumn);
+		int rows = Math.min(tileSize, modelGrid.getHeight() - firstRow);
+		int count = columns * rows;
+		
+		float[] elevations = new float[count];
+		int[] elevationBits = new int[count];
+		int[] rgba = new int[count];
+		
+		for (int row = 0; row < rows; row++) {
+			double latitude = modelGrid.getNorth() - (double) (firstRow + row) * modelGrid.getLatitudeResolution();
+			modelGrid.getElevationRow(latitude, firstColumn, elevations, row * columns, columns, true);
+			modelGrid.getRgbaRow(latitude, firstColumn, rgba, row * columns, columns);
+		}
+		
+		for (int i = 0; i < count; i++) {
+			elevationBits[i] = Float.floatToRawIntBits(elevations[i]);
+		}
+		
+		Deflater deflater = new Deflater();
+		try {
+			byte[][] compressed = new byte[2][];
+			compressed[0] = ModelGridTileCodec.encode(elevationBits, count, deflater);
+			compressed[1] = ModelGridTileCodec.encode(rgba, count, deflater);
+			return compressed;
+		} finally {
+			deflater.end();
+		}
+	}
+	
+	/** Writes the cells of a row, fetched through the grid's row accessors so that grids
+	 * whose elevations are tiled are read a tile's width at a time.
+	 */
+	protected static long writeRow(IModelGrid modelGrid, int row, float[] elevations, int[] rgba, ByteBuffer rowBytes, OutputStream out) throws IOException, DataSourceException
+	{
+		double latitude = modelGrid.getNorth() - (double) row * modelGrid.getLatitudeResolution();
+		modelGrid.getElevationRow(latitude, 0, elevations, 0, elevations.length, true);
+		modelGrid.getRgbaRow(latitude, 0, rgba, 0, rgba.length);
+		
+		// ByteConversions writes doubles least significant byte first but ints most significant byte first
+		rowBytes.clear();
+		for (int x = 0; x < elevations.length; x++) {
+			rowBytes.putDouble(elevations[x]);
+			rowBytes.putInt(Integer.reverseBytes(rgba[x]));
+		}
+		
+		return write(rowBytes.array(), rowBytes.position(), out);
+	}
+	
 	protected static long writeCell(IModelGrid modelGrid, int index, OutputStream out) throws IOException, DataSourceException
 	{
 		double elevation = modelGrid.getElevationByIndex(index);
@@ -90,7 +250,16 @@ public class ModelGridWriter extends ModelGridFileIO
 		return bytesWritten;
 	}
 	
-	
-	
+	static class GridWriterThreadFactory implements ThreadFactory
+	{
+		private int threadNumber = 0;
+		
+		public synchronized Thread newThread(Runnable runnable)
+		{
+			Thread thread = new Thread(runnable, "ModelGridWriter #" + (threadNumber++));
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
 
 }
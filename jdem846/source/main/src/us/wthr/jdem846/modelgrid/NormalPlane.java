@@ -0,0 +1,323 @@
+package us.wthr.jdem846.modelgrid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import us.wthr.jdem846.DemConstants;
+import us.wthr.jdem846.buffers.BufferFactory;
+import us.wthr.jdem846.buffers.IIntBuffer;
+import us.wthr.jdem846.exception.DataSourceException;
+import us.wthr.jdem846.gis.planets.Planet;
+import us.wthr.jdem846.graphics.FlatNormalsCalculator;
+import us.wthr.jdem846.graphics.INormalsCalculator;
+import us.wthr.jdem846.graphics.ScaledElevationFetchCallback;
+import us.wthr.jdem846.graphics.SphericalNormalsCalculator;
+import us.wthr.jdem846.logging.Log;
+import us.wthr.jdem846.logging.Logging;
+import us.wthr.jdem846.math.MathExt;
+import us.wthr.jdem846.math.Vector;
+import us.wthr.jdem846.scaling.ElevationScaler;
+
+/** Surface normals for each cell of a model grid, computed once from the loaded elevations.
+ * Normals are stored octahedron encoded in either 16 or 32 bits per cell. Each plane
+ * records the normals calculator settings it was computed with so that readers only use
+ * it in place of an equivalent calculator.
+ */
+public class NormalPlane
+{
+	private static Log log = Logging.getLog(NormalPlane.class);
+
+	public static final int BITS_16 = 16;
+	public static final int BITS_32 = 32;
+
+	// Decodes to straight down, which no elevation grid produces
+	private static final int MISSING = 0xFFFFFFFF;
+
+	private static final double CELL_TOLERANCE = 0.0001;
+
+	private final double north;
+	private final double west;
+	private final double latitudeResolution;
+	private final double longitudeResolution;
+	private final int width;
+	private final int height;
+	private final int bits;
+	private final int rowStride;
+
+	private final boolean flat;
+	private final ElevationScaler scaler;
+	private final Planet planet;
+
+	private IIntBuffer buffer;
+
+	public NormalPlane(IModelGrid modelGrid, int bits, boolean flat, ElevationScaler scaler, Planet planet)
+	{
+		if (bits != BITS_16 && bits != BITS_32) {
+			throw new DataSourceException("Invalid normal encoding size: " + bits);
+		}
+
+		this.north = modelGrid.getNorth();
+		this.west = modelGrid.getWest();
+		this.latitudeResolution = modelGrid.getLatitudeResolution();
+		this.longitudeResolution = modelGrid.getLongitudeResolution();
+		this.width = modelGrid.getWidth();
+		this.height = modelGrid.getHeight();
+		this.bits = bits;
+		this.flat = flat;
+		// Scalers are mutable, so keep the settings the normals were computed with
+		this.scaler = (scaler != null) ? scaler.copy() : null;
+		this.planet = planet;
+
+		// Two 16 bit normals share an int, but never across rows so that rows may be written concurrently
+		this.rowStride = (bits == BITS_32) ? width : (width + 1) / 2;
+		this.buffer = BufferFactory.allocateIntBuffer((long) rowStride * (long) height);
+	}
+
+	/** Determines if the plane holds the normals a calculator with the given settings
+	 * would produce at the specified resolution.
+	 */
+	public boolean matches(boolean flat, ElevationScaler scaler, Planet planet, double latitudeResolution, double longitudeResolution)
+	{
+		return (this.flat == flat
+				&& ((this.scaler == null) ? scaler == null : this.scaler.equals(scaler))
+				&& this.planet == planet
+				&& this.latitudeResolution == latitudeResolution
+				&& this.longitudeResolution == longitudeResolution);
+	}
+
+	/** Fetches the normal of the grid cell at the specified point.
+	 *
+	 * @return False if the point does not fall on a cell of the grid or the cell has no normal.
+	 */
+	public boolean getNormal(double latitude, double longitude, Vector normal)
+	{
+		double column = (longitude - west) / longitudeResolution;
+		double row = (north - latitude) / latitudeResolution;
+
+		int x = (int) MathExt.round(column);
+		int y = (int) MathExt.round(row);
+
+		// Points between cells are left to the calculator rather than snapped
+		if (Math.abs(column - x) > CELL_TOLERANCE || Math.abs(row - y) > CELL_TOLERANCE) {
+			return false;
+		}
+
+		return getNormal(x, y, normal);
+	}
+
+	public boolean getNormal(int x, int y, Vector normal)
+	{
+		if (buffer == null || x < 0 || x >= width || y < 0 || y >= height) {
+			return false;
+		}
+
+		int code;
+		if (bits == BITS_32) {
+			code = buffer.getInt((long) y * rowStride + x);
+		} else {
+			code = (buffer.getInt((long) y * rowStride + (x >> 1)) >>> ((x & 1) << 4)) & 0xFFFF;
+			code = (code == 0xFFFF) ? MISSING : code;
+		}
+
+		if (code == MISSING) {
+			return false;
+		}
+
+		decode(code, bits, normal);
+		return true;
+	}
+
+	/** Stores a row of normals, a null entry marking a cell without one.
+	 */
+	protected void setRow(int y, Vector[] normals)
+	{
+		if (bits == BITS_32) {
+			for (int x = 0; x < width; x++) {
+				buffer.putInt((long) y * rowStride + x, (normals[x] != null) ? encode(normals[x], bits) : MISSING);
+			}
+		} else {
+			for (int x = 0; x < width; x += 2) {
+				int low = (normals[x] != null) ? encode(normals[x], bits) : 0xFFFF;
+				int high = (x + 1 < width && normals[x + 1] != null) ? encode(normals[x + 1], bits) : 0xFFFF;
+				buffer.putInt((long) y * rowStride + (x >> 1), low | (high << 16));
+			}
+		}
+	}
+
+	/** Encodes a normal onto the octahedron, with each of the two coordinates quantized
+	 * to half of the given number of bits.
+	 */
+	public static int encode(Vector n, int bits)
+	{
+		double l1 = Math.abs(n.x) + Math.abs(n.y) + Math.abs(n.z);
+		double u = n.x / l1;
+		double v = n.y / l1;
+
+		if (n.z < 0) {
+			double foldedU = (1.0 - Math.abs(v)) * ((u >= 0) ? 1.0 : -1.0);
+			double foldedV = (1.0 - Math.abs(u)) * ((v >= 0) ? 1.0 : -1.0);
+			u = foldedU;
+			v = foldedV;
+		}
+
+		int half = bits / 2;
+		int max = (1 << half) - 1;
+
+		int qu = (int) MathExt.round((u * 0.5 + 0.5) * max);
+		int qv = (int) MathExt.round((v * 0.5 + 0.5) * max);
+
+		// Keep clear of the missing marker, which is the fold of (0, 0, -1)
+		if (qu == max && qv == max) {
+			qv = max - 1;
+		}
+
+		return qu | (qv << half);
+	}
+
+	public static void decode(int code, int bits, Vector n)
+	{
+		int half = bits / 2;
+		int max = (1 << half) - 1;
+
+		double u = ((double) (code & max) / max) * 2.0 - 1.0;
+		double v = ((double) ((code >>> half) & max) / max) * 2.0 - 1.0;
+		double z = 1.0 - Math.abs(u) - Math.abs(v);
+
+		if (z < 0) {
+			double foldedU = (1.0 - Math.abs(v)) * ((u >= 0) ? 1.0 : -1.0);
+			double foldedV = (1.0 - Math.abs(u)) * ((v >= 0) ? 1.0 : -1.0);
+			u = foldedU;
+			v = foldedV;
+		}
+
+		double length = Math.sqrt(u * u + v * v + z * z);
+		n.x = u / length;
+		n.y = v / length;
+		n.z = z / length;
+	}
+
+	/** Computes the normals of every cell of a grid whose elevations have been loaded.
+	 * Rows are divided between the given number of threads, each with its own calculator.
+	 */
+	public static NormalPlane compute(final IModelGrid modelGrid, int bits, final boolean flat, final ElevationScaler scaler, final Planet planet, int threads) throws DataSourceException
+	{
+		final NormalPlane plane = new NormalPlane(modelGrid, bits, flat, scaler, planet);
+		final AtomicInteger nextRow = new AtomicInteger(0);
+
+		List<Callable<Void>> workers = new ArrayList<Callable<Void>>();
+		for (int i = 0; i < threads; i++) {
+			workers.add(new Callable<Void>() {
+				public Void call()
+				{
+					INormalsCalculator calculator = createCalculator(modelGrid, flat, scaler, planet);
+
+					Vector[] normals = new Vector[plane.width];
+					Vector[] row = new Vector[plane.width];
+					for (int x = 0; x < plane.width; x++) {
+						normals[x] = new Vector();
+					}
+
+					int y;
+					while ((y = nextRow.getAndIncrement()) < plane.height) {
+						double latitude = plane.north - (double) y * plane.latitudeResolution;
+
+						for (int x = 0; x < plane.width; x++) {
+							double longitude = plane.west + (double) x * plane.longitudeResolution;
+
+							double elevation = modelGrid.getElevation(latitude, longitude, true);
+							if (elevation == DemConstants.ELEV_NO_DATA || elevation == DemConstants.ELEV_UNDETERMINED) {
+								row[x] = null;
+								continue;
+							}
+
+							Vector normal = normals[x];
+							calculator.calculateNormal(latitude, longitude, normal);
+							row[x] = (normal.length() > 0) ? normal : null;
+						}
+
+						plane.setRow(y, row);
+					}
+					return null;
+				}
+			});
+		}
+
+		long start = System.currentTimeMillis();
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new NormalPlaneThreadFactory());
+		try {
+			List<Future<Void>> futures = executor.invokeAll(workers);
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			plane.dispose();
+			throw new DataSourceException("Interrupted while computing surface normals", ex);
+		} catch (ExecutionException ex) {
+			plane.dispose();
+			throw new DataSourceException("Error computing surface normals: " + ex.getCause().getMessage(), ex.getCause());
+		} finally {
+			executor.shutdown();
+		}
+
+		log.info("Computed " + plane.width + "x" + plane.height + " surface normals in " + (System.currentTimeMillis() - start) + " ms");
+		return plane;
+	}
+
+	protected static INormalsCalculator createCalculator(IModelGrid modelGrid, boolean flat, ElevationScaler scaler, Planet planet)
+	{
+		ScaledElevationFetchCallback callback = new ScaledElevationFetchCallback(modelGrid, scaler);
+		if (flat) {
+			return new FlatNormalsCalculator(planet, modelGrid.getLatitudeResolution(), modelGrid.getLongitudeResolution(), callback);
+		} else {
+			return new SphericalNormalsCalculator(planet, modelGrid.getLatitudeResolution(), modelGrid.getLongitudeResolution(), callback);
+		}
+	}
+
+	public void dispose()
+	{
+		if (buffer != null) {
+			buffer.dispose();
+			buffer = null;
+		}
+	}
+
+	public int getBits()
+	{
+		return bits;
+	}
+
+	public boolean isFlat()
+	{
+		return flat;
+	}
+
+	public ElevationScaler getScaler()
+	{
+		return scaler;
+	}
+
+	public Planet getPlanet()
+	{
+		return planet;
+	}
+
+	static class NormalPlaneThreadFactory implements ThreadFactory
+	{
+		private int threadNumber = 0;
+
+		public synchronized Thread newThread(Runnable runnable)
+		{
+			Thread thread = new Thread(runnable, "NormalPlane #" + (threadNumber++));
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -5,11 +5,13 @@ import java.io.IOException;
 
 import us.wthr.jdem846.buffers.IIntBuffer;
 import us.wthr.jdem846.exception.DataSourceException;
+import us.wthr.jdem846.gis.planets.Planet;
 import us.wthr.jdem846.graphics.IColor;
 import us.wthr.jdem846.model.ElevationHistogramModel;
 import us.wthr.jdem846.model.processing.GridFilter;
 import us.wthr.jdem846.model.processing.GridFilterMethodStack;
 import us.wthr.jdem846.rasterdata.RasterDataContext;
+import us.wthr.jdem846.scaling.ElevationScaler;
 
 public class UserProvidedModelGrid implements IModelGrid, IFillControlledModelGrid
 {
@@ -71,6 +73,10 @@ public class UserProvidedModelGrid implements IModelGrid, IFillControlledModelGr
 	
 	public void unload()
 	{
+		// Mapped grids hold the file open until disposed
+		if (this.modelGrid != null) {
+			this.modelGrid.dispose();
+		}
 		this.modelGrid = null;
 	}
 	
@@ -194,6 +200,24 @@ public class UserProvidedModelGrid implements IModelGrid, IFillControlledModelGr
 		// Do nothing. user provided model grids are read-only
 	}
 
+	@Override
+	public void getElevationRow(double latitude, int column, float[] fill, int offset, int length, boolean basic) throws DataSourceException
+	{
+		getInternalModelGrid().getElevationRow(latitude, column, fill, offset, length, basic);
+	}
+
+	@Override
+	public void getRgbaRow(double latitude, int column, int[] fill, int offset, int length) throws DataSourceException
+	{
+		getInternalModelGrid().getRgbaRow(latitude, column, fill, offset, length);
+	}
+
+	@Override
+	public void setRgbaRow(double latitude, int column, int[] rgba, int offset, int length) throws DataSourceException
+	{
+		// Do nothing. user provided model grids are read-only
+	}
+
 	@Override
 	public ElevationHistogramModel getElevationHistogramModel() throws DataSourceException
 	{
@@ -303,6 +327,15 @@ public class UserProvidedModelGrid implements IModelGrid, IFillControlledModelGr
 		// Do nothing. user provided model grids are read-only
 	}
 
+	@Override
+	public void loadRow(ModelGridRow row) throws DataSourceException
+	{
+		int columns = row.getColumns();
+		getElevationRow(row.getLatitude() + getLatitudeResolution(), -ModelGridRow.PADDING, row.northElevations, 0, columns + (ModelGridRow.PADDING * 2), true);
+		getElevationRow(row.getLatitude(), -ModelGridRow.PADDING, row.elevations, 0, columns + (ModelGridRow.PADDING * 2), true);
+		getElevationRow(row.getLatitude() - getLatitudeResolution(), -ModelGridRow.PADDING, row.southElevations, 0, columns + (ModelGridRow.PADDING * 2), true);
+	}
+
 	@Override
 	public void setGridFilters(GridFilterMethodStack gridFilters)
 	{
@@ -315,6 +348,18 @@ public class UserProvidedModelGrid implements IModelGrid, IFillControlledModelGr
 		// Do nothing. user provided model grids are read-only
 	}
 
+	@Override
+	public NormalPlane getNormalPlane(boolean flat, ElevationScaler scaler, Planet planet, double latitudeResolution, double longitudeResolution)
+	{
+		return getInternalModelGrid().getNormalPlane(flat, scaler, planet, latitudeResolution, longitudeResolution);
+	}
+
+	@Override
+	public void addNormalPlane(NormalPlane normalPlane)
+	{
+		getInternalModelGrid().addNormalPlane(normalPlane);
+	}
+
 
 
 
@@ -20,6 +20,13 @@ public class RasterDataContext implements DataContext
 	private List<RasterData> rasterDataList = new LinkedList<RasterData>();
 	private List<RasterDataRowColumnBox> rasterDataRowColumnBoxes = new LinkedList<RasterDataRowColumnBox>();
 	
+	private RasterData[] rasterDataArray = new RasterData[0];
+	private RasterDataRowColumnBox[] rasterDataRowColumnBoxArray = new RasterDataRowColumnBox[0];
+	private RasterDataSpatialIndex spatialIndex = null;
+	
+	// Index of the raster which served the previous sample
+	private int lastHit = -1;
+	
 	private double east = DemConstants.COORDINATE_NOT_SET;
 	private double west = DemConstants.COORDINATE_NOT_SET;
 	private double north = DemConstants.COORDINATE_NOT_SET;
@@ -97,11 +104,27 @@ public class RasterDataContext implements DataContext
 		west = validateLongitude(west);
 		east = validateLongitude(east);
 		
+		buildSpatialIndex();
+		
 		log.info("Prepared RasterDataProxy to region N/S/E/W: " + north + "/" + south + "/" + east + "/" + west);
 		log.info("Prepared RasterDataProxy to lat/long resolutions: " + latitudeResolution + "/" + longitudeResolution);
 		log.info("Prepared Meters Resolution: " + metersResolution);
 	}
 	
+	protected void buildSpatialIndex()
+	{
+		rasterDataArray = rasterDataList.toArray(new RasterData[rasterDataList.size()]);
+		rasterDataRowColumnBoxArray = rasterDataRowColumnBoxes.toArray(new RasterDataRowColumnBox[rasterDataRowColumnBoxes.size()]);
+		lastHit = -1;
+		
+		if (rasterDataArray.length > 0) {
+			spatialIndex = new RasterDataSpatialIndex(rasterDataList, north, south, east, west);
+			log.info("Prepared raster spatial index with " + spatialIndex.getCellRows() + "x" + spatialIndex.getCellColumns() + " cells");
+		} else {
+			spatialIndex = null;
+		}
+	}
+	
 	protected double validateLongitude(double longitude)
 	{
 		if (longitude <= -180.0)
@@ -137,6 +160,9 @@ public class RasterDataContext implements DataContext
 		}
 		
 		rasterDataRowColumnBoxes.clear();
+		rasterDataArray = new RasterData[0];
+		rasterDataRowColumnBoxArray = new RasterDataRowColumnBox[0];
+		spatialIndex = null;
 		
 		// TODO: Finish
 		isDisposed = true;
@@ -280,6 +306,19 @@ public class RasterDataContext implements DataContext
 	
 	public boolean dataOverlaps(RasterDataRowColumnBox bounds)
 	{
+		RasterDataSpatialIndex spatialIndex = this.spatialIndex;
+		if (spatialIndex != null && spatialIndex.getRasterCount() == rasterDataRowColumnBoxArray.length) {
+			boolean[] candidates = new boolean[rasterDataRowColumnBoxArray.length];
+			spatialIndex.getCandidates(rowToLatitude(bounds.getTopY()), rowToLatitude(bounds.getBottomY()), columnToLongitude(bounds.getRightX()), columnToLongitude(bounds.getLeftX()), candidates);
+			
+			for (int i = 0; i < candidates.length; i++) {
+				if (candidates[i] && rasterDataRowColumnBoxArray[i].overlaps(bounds)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		
 		for (RasterDataRowColumnBox inputBounds : rasterDataRowColumnBoxes) {
 			if (inputBounds.overlaps(bounds))
 				return true;
@@ -347,6 +386,47 @@ public class RasterDataContext implements DataContext
 		double value = 0;
 		double dataMatches = 0;
 		
+		RasterDataSpatialIndex spatialIndex = this.spatialIndex;
+		int[] candidates = (spatialIndex != null) ? spatialIndex.getCandidates(latitude, longitude) : null;
+		
+		if (candidates != null) {
+			RasterData[] rasterDataArray = this.rasterDataArray;
+			
+			// Consecutive samples usually fall within the same raster
+			int lastHit = this.lastHit;
+			if (spatialIndex.isExclusiveHit(lastHit, latitude, longitude, avgOfAllRasterValues)) {
+				double rasterValue = rasterDataArray[lastHit].getData(latitude, longitude, interpolate);
+				if (!avgOfAllRasterValues || (rasterValue != DemConstants.ELEV_NO_DATA && !Double.isNaN(rasterValue))) {
+					return rasterValue;
+				} else {
+					return DemConstants.ELEV_NO_DATA;
+				}
+			}
+			
+			for (int index : candidates) {
+				RasterData rasterData = rasterDataArray[index];
+				if (rasterData.contains(latitude, longitude)) {
+					double rasterValue = rasterData.getData(latitude, longitude, interpolate);
+					this.lastHit = index;
+					
+					if (!avgOfAllRasterValues) {
+						return rasterValue;
+					}
+					
+					if (rasterValue != DemConstants.ELEV_NO_DATA && !Double.isNaN(rasterValue)) {
+						value += rasterValue;
+						dataMatches++;
+					}
+				}
+			}
+			
+			if (dataMatches > 0) {
+				return (value / dataMatches);
+			} else {
+				return DemConstants.ELEV_NO_DATA;
+			}
+		}
+		
 		for (RasterData rasterData : rasterDataList) {
 			if (rasterData.contains(latitude, longitude)) {
 				double rasterValue = rasterData.getData(latitude, longitude, interpolate);
@@ -652,6 +732,11 @@ public class RasterDataContext implements DataContext
 			clone.rasterDataRowColumnBoxes.add(box.copy());
 		}
 		
+		// The copies keep the same order and bounds, so the index can be shared
+		clone.rasterDataArray = clone.rasterDataList.toArray(new RasterData[clone.rasterDataList.size()]);
+		clone.rasterDataRowColumnBoxArray = clone.rasterDataRowColumnBoxes.toArray(new RasterDataRowColumnBox[clone.rasterDataRowColumnBoxes.size()]);
+		clone.spatialIndex = (clone.rasterDataArray.length > 0) ? this.spatialIndex : null;
+		
 		return clone;
 	}
 }
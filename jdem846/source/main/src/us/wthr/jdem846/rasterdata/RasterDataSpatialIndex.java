@@ -0,0 +1,246 @@
+package us.wthr.jdem846.rasterdata;
+
+import java.util.List;
+
+/** Uniform grid over the bounds of a raster data context, mapping each cell to
+ * the indexes (in list order) of the rasters whose bounds touch it. Cells are
+ * sized after the smallest raster, so a regular mosaic yields at most a handful
+ * of candidates per cell. The index is immutable and may be shared by copies of
+ * a context holding the same rasters in the same order.
+ */
+public class RasterDataSpatialIndex
+{
+	private static final int MAX_CELLS_PER_AXIS = 512;
+	private static final int[] NO_CANDIDATES = new int[0];
+
+	private final double north;
+	private final double south;
+	private final double east;
+	private final double west;
+
+	private final int cellRows;
+	private final int cellColumns;
+	private final double cellHeight;
+	private final double cellWidth;
+
+	private final int[][] cells;
+
+	private final double[] rasterNorth;
+	private final double[] rasterSouth;
+	private final double[] rasterEast;
+	private final double[] rasterWest;
+
+	private final boolean[] firstMatch;
+	private final boolean[] soleMatch;
+
+	public RasterDataSpatialIndex(List<RasterData> rasterDataList, double north, double south, double east, double west)
+	{
+		this.north = north;
+		this.south = south;
+		this.east = east;
+		this.west = west;
+
+		int count = rasterDataList.size();
+		rasterNorth = new double[count];
+		rasterSouth = new double[count];
+		rasterEast = new double[count];
+		rasterWest = new double[count];
+
+		double minHeight = Double.MAX_VALUE;
+		double minWidth = Double.MAX_VALUE;
+
+		int i = 0;
+		for (RasterData rasterData : rasterDataList) {
+			rasterNorth[i] = rasterData.getNorth();
+			rasterSouth[i] = rasterData.getSouth();
+			rasterEast[i] = rasterData.getEast();
+			rasterWest[i] = rasterData.getWest();
+
+			if (rasterNorth[i] - rasterSouth[i] > 0) {
+				minHeight = Math.min(minHeight, rasterNorth[i] - rasterSouth[i]);
+			}
+			if (rasterEast[i] - rasterWest[i] > 0) {
+				minWidth = Math.min(minWidth, rasterEast[i] - rasterWest[i]);
+			}
+			i++;
+		}
+
+		cellRows = getCellCount(north - south, minHeight);
+		cellColumns = getCellCount(east - west, minWidth);
+		cellHeight = (north > south) ? (north - south) / cellRows : 1.0;
+		cellWidth = (east > west) ? (east - west) / cellColumns : 1.0;
+
+		// Count, then fill, so each cell is a single exactly sized array
+		int[] cellSizes = new int[cellRows * cellColumns];
+		for (i = 0; i < count; i++) {
+			int top = getCellRow(rasterNorth[i]);
+			int bottom = getCellRow(rasterSouth[i]);
+			int left = getCellColumn(rasterWest[i]);
+			int right = getCellColumn(rasterEast[i]);
+
+			for (int row = top; row <= bottom; row++) {
+				for (int column = left; column <= right; column++) {
+					cellSizes[row * cellColumns + column]++;
+				}
+			}
+		}
+
+		cells = new int[cellSizes.length][];
+		for (int c = 0; c < cellSizes.length; c++) {
+			cells[c] = (cellSizes[c] > 0) ? new int[cellSizes[c]] : NO_CANDIDATES;
+			cellSizes[c] = 0;
+		}
+
+		for (i = 0; i < count; i++) {
+			int top = getCellRow(rasterNorth[i]);
+			int bottom = getCellRow(rasterSouth[i]);
+			int left = getCellColumn(rasterWest[i]);
+			int right = getCellColumn(rasterEast[i]);
+
+			for (int row = top; row <= bottom; row++) {
+				for (int column = left; column <= right; column++) {
+					int c = row * cellColumns + column;
+					cells[c][cellSizes[c]++] = i;
+				}
+			}
+		}
+
+		// A raster not overlapped by any earlier raster is always the first match for
+		// the points strictly inside it; one not overlapped at all is the only match.
+		// Rasters merely sharing an edge are not considered overlapping.
+		firstMatch = new boolean[count];
+		soleMatch = new boolean[count];
+		for (i = 0; i < count; i++) {
+			firstMatch[i] = true;
+			soleMatch[i] = true;
+		}
+
+		for (int[] candidates : cells) {
+			for (int a = 0; a < candidates.length; a++) {
+				for (int b = a + 1; b < candidates.length; b++) {
+					int first = candidates[a];
+					int second = candidates[b];
+					if (overlaps(first, second)) {
+						firstMatch[second] = false;
+						soleMatch[first] = false;
+						soleMatch[second] = false;
+					}
+				}
+			}
+		}
+	}
+
+	protected boolean overlaps(int first, int second)
+	{
+		double top = Math.min(rasterNorth[first], rasterNorth[second]);
+		double bottom = Math.max(rasterSouth[first], rasterSouth[second]);
+		double right = Math.min(rasterEast[first], rasterEast[second]);
+		double left = Math.max(rasterWest[first], rasterWest[second]);
+
+		if (isDegenerate(first) || isDegenerate(second)) {
+			return (top >= bottom && right >= left);
+		} else {
+			return (top > bottom && right > left);
+		}
+	}
+
+	protected boolean isDegenerate(int index)
+	{
+		return (rasterNorth[index] <= rasterSouth[index] || rasterEast[index] <= rasterWest[index]);
+	}
+
+	protected static int getCellCount(double extent, double cellSize)
+	{
+		if (extent <= 0 || cellSize == Double.MAX_VALUE) {
+			return 1;
+		}
+		double count = Math.ceil(extent / cellSize);
+		return (int) Math.max(1, Math.min(MAX_CELLS_PER_AXIS, count));
+	}
+
+	protected int getCellRow(double latitude)
+	{
+		int row = (int) Math.floor((north - latitude) / cellHeight);
+		return Math.max(0, Math.min(cellRows - 1, row));
+	}
+
+	protected int getCellColumn(double longitude)
+	{
+		int column = (int) Math.floor((longitude - west) / cellWidth);
+		return Math.max(0, Math.min(cellColumns - 1, column));
+	}
+
+	public boolean isInBounds(double latitude, double longitude)
+	{
+		return (latitude <= north && latitude >= south && longitude >= west && longitude <= east);
+	}
+
+	/** Returns the indexes, in list order, of the rasters which may contain the
+	 * specified coordinate, or null if the coordinate is outside of the indexed
+	 * bounds (callers should then fall back to checking every raster).
+	 */
+	public int[] getCandidates(double latitude, double longitude)
+	{
+		if (!isInBounds(latitude, longitude)) {
+			return null;
+		}
+		return cells[getCellRow(latitude) * cellColumns + getCellColumn(longitude)];
+	}
+
+	/** Collects the indexes of rasters which may intersect the specified region.
+	 * Each index is flagged at most once in the supplied array, which must be
+	 * sized to the number of indexed rasters.
+	 */
+	public void getCandidates(double north, double south, double east, double west, boolean[] candidates)
+	{
+		if (north < this.south || south > this.north || east < this.west || west > this.east) {
+			return;
+		}
+
+		// Pad by a cell to cover rounding on the region edges
+		int top = Math.max(0, getCellRow(north) - 1);
+		int bottom = Math.min(cellRows - 1, getCellRow(south) + 1);
+		int left = Math.max(0, getCellColumn(west) - 1);
+		int right = Math.min(cellColumns - 1, getCellColumn(east) + 1);
+
+		for (int row = top; row <= bottom; row++) {
+			for (int column = left; column <= right; column++) {
+				for (int index : cells[row * cellColumns + column]) {
+					candidates[index] = true;
+				}
+			}
+		}
+	}
+
+	/** Determines whether the specified raster is guaranteed to be the first (or,
+	 * if <code>sole</code> is set, the only) raster containing the coordinate. Used
+	 * to skip the candidate search for runs of samples falling in the same raster.
+	 */
+	public boolean isExclusiveHit(int index, double latitude, double longitude, boolean sole)
+	{
+		if (index < 0 || index >= firstMatch.length) {
+			return false;
+		}
+
+		if (!((sole) ? soleMatch[index] : firstMatch[index])) {
+			return false;
+		}
+
+		return (latitude < rasterNorth[index] && latitude > rasterSouth[index] && longitude > rasterWest[index] && longitude < rasterEast[index]);
+	}
+
+	public int getRasterCount()
+	{
+		return firstMatch.length;
+	}
+
+	public int getCellRows()
+	{
+		return cellRows;
+	}
+
+	public int getCellColumns()
+	{
+		return cellColumns;
+	}
+}
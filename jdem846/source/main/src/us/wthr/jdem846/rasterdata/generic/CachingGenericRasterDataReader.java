@@ -7,6 +7,9 @@ import us.wthr.jdem846.exception.DataSourceException;
 import us.wthr.jdem846.logging.Log;
 import us.wthr.jdem846.logging.Logging;
 
+/** Serves raster samples from tiles pinned in the shared RasterTileCache, so that
+ * copies of a provider working over the same region share a single copy of the data.
+ */
 public class CachingGenericRasterDataReader
 {
 	private static Log log = Logging.getLog(CachingGenericRasterDataReader.class);
@@ -14,11 +17,15 @@ public class CachingGenericRasterDataReader
 	private GenericRasterDataReader dataReader = null;
 	private boolean isDisposed = false;
 
-	private int bufferX = -1;
-	private int bufferY = -1;
-	private int bufferRows = -1;
-	private int bufferColumns = -1;
-	private Number[][] buffer = null;
+	private RasterTileCache tileCache;
+	private int tileSize;
+
+	private RasterTileEntry[] entries = null;
+	private RasterTile[] tiles = null;
+	private int firstTileRow;
+	private int firstTileColumn;
+	private int tileRows;
+	private int tileColumns;
 
 	private IRasterDefinition rasterDefinition;
 
@@ -26,7 +33,8 @@ public class CachingGenericRasterDataReader
 	{
 		this.rasterDefinition = rasterDefinition;
 		this.dataReader = GenericRasterDataReaderFactory.createInstance(dataFile, rasterDefinition);
-
+		this.tileCache = RasterTileCache.getInstance();
+		this.tileSize = tileCache.getTileSize();
 	}
 
 	public void dispose() throws DataSourceException
@@ -35,6 +43,8 @@ public class CachingGenericRasterDataReader
 			throw new DataSourceException("Raster data reader already disposed.");
 		}
 
+		clearBuffer();
+
 		if (dataReader != null) {
 			dataReader.dispose();
 		}
@@ -50,48 +60,99 @@ public class CachingGenericRasterDataReader
 
 	public boolean isBufferFilled()
 	{
-		return (buffer != null);
+		return (tiles != null);
 	}
 
+	/** Pins the cached tiles covering the specified region. Tiles pinned by a previous
+	 * fill are released only after the new ones are acquired, so tiles shared between
+	 * consecutive regions stay resident.
+	 */
 	public boolean fillBuffer(int x, int y, int columns, int rows) throws DataSourceException
 	{
-		if (isBufferFilled()) {
-			throw new DataSourceException("Buffer is already filled");
+		if (columns <= 0 || rows <= 0) {
+			return false;
 		}
 
-		bufferX = x;
-		bufferY = y;
-		bufferRows = rows;
-		bufferColumns = columns;
+		int firstTileRow = y / tileSize;
+		int firstTileColumn = x / tileSize;
+		int tileRows = ((y + rows - 1) / tileSize) - firstTileRow + 1;
+		int tileColumns = ((x + columns - 1) / tileSize) - firstTileColumn + 1;
+
+		log.info("Filling buffer with " + rows + " rows and " + columns + " columns (" + (tileRows * tileColumns) + " tiles)");
+
+		RasterTileEntry[] entries = new RasterTileEntry[tileRows * tileColumns];
+		RasterTile[] tiles = new RasterTile[entries.length];
+
+		try {
+			for (int tileRow = 0; tileRow < tileRows; tileRow++) {
+				for (int tileColumn = 0; tileColumn < tileColumns; tileColumn++) {
+					int index = tileRow * tileColumns + tileColumn;
+					entries[index] = tileCache.acquire(dataReader, firstTileRow + tileRow, firstTileColumn + tileColumn);
+					tiles[index] = entries[index].getTile();
+				}
+			}
+		} catch (DataSourceException ex) {
+			release(entries);
+			throw ex;
+		}
 
-		log.info("Filling buffer with " + rows + " rows and " + columns + " columns");
+		RasterTileEntry[] previous = this.entries;
 
-		buffer = DataTypeUtil.createDataArray(rasterDefinition.getDataType(), rows, columns);
+		this.firstTileRow = firstTileRow;
+		this.firstTileColumn = firstTileColumn;
+		this.tileRows = tileRows;
+		this.tileColumns = tileColumns;
+		this.entries = entries;
+		this.tiles = tiles;
 
-		dataReader.get(x, y, buffer);
+		release(previous);
 
 		return true;
 	}
 
 	public void clearBuffer() throws DataSourceException
 	{
-		bufferX = -1;
-		bufferY = -1;
-		bufferRows = -1;
-		bufferColumns = -1;
-		buffer = null;
+		RasterTileEntry[] previous = entries;
+		entries = null;
+		tiles = null;
+		release(previous);
 	}
 
-	public boolean isPointInBuffer(int row, int column)
+	protected void release(RasterTileEntry[] entries)
 	{
+		if (entries == null) {
+			return;
+		}
 
-		if (isBufferFilled() && column >= bufferX && column < bufferX + bufferColumns && row >= bufferY && row < bufferY + bufferRows) {
-			return true;
-		} else {
-			return false;
+		for (RasterTileEntry entry : entries) {
+			if (entry != null) {
+				tileCache.release(entry);
+			}
 		}
 	}
 
+	protected RasterTile getBufferTile(int row, int column)
+	{
+		if (tiles == null || row < 0 || column < 0) {
+			return null;
+		}
+
+		int tileRow = (row / tileSize) - firstTileRow;
+		int tileColumn = (column / tileSize) - firstTileColumn;
+
+		if (tileRow < 0 || tileRow >= tileRows || tileColumn < 0 || tileColumn >= tileColumns) {
+			return null;
+		}
+
+		RasterTile tile = tiles[tileRow * tileColumns + tileColumn];
+		return (tile.contains(row, column)) ? tile : null;
+	}
+
+	public boolean isPointInBuffer(int row, int column)
+	{
+		return (getBufferTile(row, column) != null);
+	}
+
 	public double get(int row, int column) throws DataSourceException
 	{
 		if (dataReader.isDisposed()) {
@@ -100,24 +161,14 @@ public class CachingGenericRasterDataReader
 
 		double value = DemConstants.ELEV_UNDETERMINED;
 
-		if (isPointInBuffer(row, column)) {
-			int bufferRow = row - bufferY;
-			int bufferColumn = column - bufferX;
-
-			if (bufferRow < 0 || bufferRow >= bufferRows) {
-				throw new DataSourceException("Invalid buffer row " + bufferRow);
-			}
-
-			if (bufferColumn < 0 || bufferColumn >= bufferColumns) {
-				throw new DataSourceException("Invalid buffer column " + bufferColumn);
-			}
-
-			value = (buffer[bufferRow][bufferColumn] != null) ? buffer[bufferRow][bufferColumn].doubleValue() : DemConstants.ELEV_UNDETERMINED;
+		RasterTile tile = getBufferTile(row, column);
+		if (tile != null) {
+			value = tile.get(row, column);
 		} else {
-			if (buffer != null) {
+			if (tiles != null) {
 				value = DemConstants.ELEV_NO_DATA;
 			} else {
-				value = dataReader.get(row, column).doubleValue();
+				value = dataReader.getDouble(row, column);
 			}
 		}
 
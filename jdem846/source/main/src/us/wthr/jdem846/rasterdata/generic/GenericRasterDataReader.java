@@ -4,7 +4,11 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
 
+import us.wthr.jdem846.ByteOrder;
+import us.wthr.jdem846.DataTypeEnum;
 import us.wthr.jdem846.exception.DataSourceException;
 import us.wthr.jdem846.logging.Log;
 import us.wthr.jdem846.logging.Logging;
@@ -67,17 +71,14 @@ public class GenericRasterDataReader
 
 	public Number get(int row, int column) throws DataSourceException
 	{
-		RandomAccessFile dataReader = getFileReader(row, column);
-
-		Number value = null;
-
-		try {
-			value = readSingleValue(dataReader);
-		} catch (IOException ex) {
-			throw new DataSourceException("Error reading data value: " + ex.getMessage(), ex);
-		}
-
-		return value;
+		readBytes(row, column, buffer8, rasterDefinition.getDataType().numberOfBytes());
+		return convertBytes(buffer8, 0);
+	}
+	
+	public double getDouble(int row, int column) throws DataSourceException
+	{
+		readBytes(row, column, buffer8, rasterDefinition.getDataType().numberOfBytes());
+		return decode(buffer8, 0);
 	}
 
 	public void get(int row, int startColumn, Number[] buffer) throws DataSourceException
@@ -86,17 +87,32 @@ public class GenericRasterDataReader
 			return;
 		}
 
-		RandomAccessFile dataReader = getFileReader(row, startColumn);
-		if (dataReader == null) {
-			log.info("Data reader is null... I should be throwing an exception here...");
+		int length = getLineLength(startColumn, buffer.length);
+		byte[] lineBuffer = readLineBytes(row, startColumn, length);
+		
+		int numBytes = rasterDefinition.getDataType().numberOfBytes();
+		for (int i = 0; i < length; i++) {
+			buffer[i] = convertBytes(lineBuffer, i * numBytes);
 		}
 
-		try {
-			readLine(dataReader, startColumn, buffer);
-		} catch (IOException ex) {
-			throw new DataSourceException("Error reading from data file: " + ex.getMessage(), ex);
+	}
+	
+	/** Reads up to <code>length</code> values of a row into a primitive buffer. Values past
+	 * the right edge of the raster are left untouched.
+	 */
+	public void getRow(int row, int startColumn, double[] buffer, int offset, int length) throws DataSourceException
+	{
+		if (row < 0 || row >= rasterDefinition.getImageHeight() || startColumn < 0 || startColumn >= rasterDefinition.getImageWidth()) {
+			return;
+		}
+		
+		length = getLineLength(startColumn, length);
+		byte[] lineBuffer = readLineBytes(row, startColumn, length);
+		
+		int numBytes = rasterDefinition.getDataType().numberOfBytes();
+		for (int i = 0; i < length; i++) {
+			buffer[offset + i] = decode(lineBuffer, i * numBytes);
 		}
-
 	}
 
 	public void get(int startColumn, int startRow, Number[][] buffer) throws DataSourceException
@@ -106,6 +122,16 @@ public class GenericRasterDataReader
 		}
 	}
 
+	protected File getDataFile()
+	{
+		return dataFile;
+	}
+	
+	protected IRasterDefinition getRasterDefinition()
+	{
+		return rasterDefinition;
+	}
+
 	public void open() throws DataSourceException
 	{
 		if (dataReader == null) {
@@ -166,46 +192,135 @@ public class GenericRasterDataReader
 		return dataReader;
 	}
 
-	protected Number readSingleValue(RandomAccessFile dataReader) throws DataSourceException, IOException
+	/** Reads a block of samples into a tile backed by a primitive array. The block is
+	 * clipped to the raster.
+	 */
+	public RasterTile readTile(int x, int y, int columns, int rows) throws DataSourceException
 	{
-		Number o = readNext(dataReader);
-
-		return o;
+		columns = Math.min(columns, rasterDefinition.getImageWidth() - x);
+		rows = Math.min(rows, rasterDefinition.getImageHeight() - y);
+		
+		if (x < 0 || y < 0 || columns <= 0 || rows <= 0) {
+			throw new DataSourceException("Invalid tile bounds: " + x + "/" + y + " (" + columns + " columns, " + rows + " rows)");
+		}
+		
+		RasterTile tile = new RasterTile(rasterDefinition.getDataType(), x, y, columns, rows);
+		for (int i = 0; i < rows; i++) {
+			tile.readRow(i, getRowView(y + i, x, columns));
+		}
+		
+		return tile;
 	}
-
 	
-	private Number readNext(RandomAccessFile dataReader) throws IOException
+	/** Returns a typed buffer positioned at the first of <code>length</code> samples
+	 * starting at the specified row and column.
+	 */
+	protected Buffer getRowView(int row, int startColumn, int length) throws DataSourceException
 	{
-		dataReader.readFully(buffer8, 0, rasterDefinition.getDataType().numberOfBytes());
-		return BytesUtil.fromBytes(buffer8
-				, 0
-				, rasterDefinition.getDataType()
-				, rasterDefinition.getByteOrder());
+		byte[] lineBuffer = readLineBytes(row, startColumn, length);
+		ByteBuffer bytes = ByteBuffer.wrap(lineBuffer);
+		bytes.order(getNativeByteOrder(rasterDefinition.getByteOrder()));
+		return createView(bytes);
 	}
 	
+	protected Buffer createView(ByteBuffer buffer) throws DataSourceException
+	{
+		switch (rasterDefinition.getDataType()) {
+		case Byte:
+			return buffer;
+		case UInt16:
+		case Int16:
+		case CInt16:
+			return buffer.asShortBuffer();
+		case Uint32:
+		case Int32:
+		case CInt32:
+			return buffer.asIntBuffer();
+		case Float32:
+		case CFloat32:
+			return buffer.asFloatBuffer();
+		case Float64:
+		case CFloat64:
+			return buffer.asDoubleBuffer();
+		default:
+			throw new DataSourceException("Invalid or unsupported data type specified: " + rasterDefinition.getDataType().name());
+		}
+	}
 
-
-
-	protected void readLine(RandomAccessFile dataReader, int startColumn, Number[] line) throws DataSourceException, IOException
+	protected static java.nio.ByteOrder getNativeByteOrder(ByteOrder byteOrder) throws DataSourceException
 	{
-		int bufferLength = line.length;
-		if (bufferLength + startColumn >= rasterDefinition.getImageWidth()) {
-			bufferLength = rasterDefinition.getImageWidth() - startColumn;
+		if (byteOrder == ByteOrder.LSBFIRST || byteOrder == ByteOrder.INTEL_BYTE_ORDER) {
+			return java.nio.ByteOrder.LITTLE_ENDIAN;
+		} else if (byteOrder == ByteOrder.MSBFIRST) {
+			return java.nio.ByteOrder.BIG_ENDIAN;
+		} else {
+			throw new DataSourceException("Unsupported byte ordering specified: " + byteOrder);
 		}
+	}
 
-		int readLength = bufferLength * (rasterDefinition.getDataType().numberOfBytes());
+	protected int getLineLength(int startColumn, int length)
+	{
+		if (length + startColumn >= rasterDefinition.getImageWidth()) {
+			length = rasterDefinition.getImageWidth() - startColumn;
+		}
+		return length;
+	}
+	
+	protected byte[] readLineBytes(int row, int startColumn, int length) throws DataSourceException
+	{
+		int readLength = length * (rasterDefinition.getDataType().numberOfBytes());
 		if (lineBuffer == null || lineBuffer.length != readLength) {
 			lineBuffer = new byte[readLength];
 		}
-
-		dataReader.readFully(lineBuffer, 0, readLength);
-
-		for (int i = 0; i < bufferLength; i++) {
-			int p = i * rasterDefinition.getDataType().numberOfBytes();
-			Number value = convertBytes(lineBuffer, p);
-			line[i] = value;
+		
+		readBytes(row, startColumn, lineBuffer, readLength);
+		return lineBuffer;
+	}
+	
+	/** Reads raw sample bytes starting at the specified row and column. Subclasses
+	 * providing a different storage access override this.
+	 */
+	protected void readBytes(int row, int column, byte[] buffer, int length) throws DataSourceException
+	{
+		RandomAccessFile dataReader = getFileReader(row, column);
+		if (dataReader == null) {
+			throw new DataSourceException("Invalid row/column: " + row + "/" + column);
+		}
+		
+		try {
+			dataReader.readFully(buffer, 0, length);
+		} catch (IOException ex) {
+			throw new DataSourceException("Error reading from data file: " + ex.getMessage(), ex);
 		}
+	}
 
+	protected double decode(byte[] buffer, int offset) throws DataSourceException
+	{
+		DataTypeEnum dataType = rasterDefinition.getDataType();
+		ByteOrder byteOrder = rasterDefinition.getByteOrder();
+		
+		switch (dataType) {
+		case Byte:
+			return buffer[offset];
+		case UInt16:
+			return BytesUtil.toUInt16(buffer, offset, byteOrder);
+		case Int16:
+		case CInt16:
+			return BytesUtil.toInt16(buffer, offset, byteOrder);
+		case Uint32:
+			return BytesUtil.toUInt32(buffer, offset, byteOrder);
+		case Int32:
+		case CInt32:
+			return BytesUtil.toInt32(buffer, offset, byteOrder);
+		case Float32:
+		case CFloat32:
+			return BytesUtil.toFloat32(buffer, offset, byteOrder);
+		case Float64:
+		case CFloat64:
+			return BytesUtil.toFloat64(buffer, offset, byteOrder);
+		default:
+			throw new DataSourceException("Invalid or unsupported data type specified: " + dataType.name());
+		}
 	}
 
 	protected Number convertBytes(byte[] buffer, int offset) throws DataSourceException
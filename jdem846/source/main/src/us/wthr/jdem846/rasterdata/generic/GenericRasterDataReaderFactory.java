@@ -2,6 +2,7 @@ package us.wthr.jdem846.rasterdata.generic;
 
 import java.io.File;
 
+import us.wthr.jdem846.JDem846Properties;
 import us.wthr.jdem846.exception.DataSourceException;
 
 public class GenericRasterDataReaderFactory
@@ -9,7 +10,11 @@ public class GenericRasterDataReaderFactory
 
 	public static GenericRasterDataReader createInstance(File dataFile, IRasterDefinition rasterDefinition) throws DataSourceException
 	{
-		return new GenericRasterDataReader(dataFile, rasterDefinition);
+		if (JDem846Properties.getBooleanProperty("us.wthr.jdem846.performance.mappedRasterReader")) {
+			return new MappedGenericRasterDataReader(dataFile, rasterDefinition);
+		} else {
+			return new GenericRasterDataReader(dataFile, rasterDefinition);
+		}
 	}
 
 }
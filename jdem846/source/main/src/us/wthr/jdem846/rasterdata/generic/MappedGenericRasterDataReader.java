@@ -0,0 +1,317 @@
+package us.wthr.jdem846.rasterdata.generic;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+
+import us.wthr.jdem846.ByteOrder;
+import us.wthr.jdem846.DataTypeEnum;
+import us.wthr.jdem846.exception.DataSourceException;
+import us.wthr.jdem846.logging.Log;
+import us.wthr.jdem846.logging.Logging;
+
+/** Reads raster samples through read-only memory mapped views of the data file rather than
+ * seeking and reading a handful of bytes per sample. The file is mapped in chunks of whole
+ * rows so that files larger than 2GB are supported and rows never span two chunks.
+ */
+public class MappedGenericRasterDataReader extends GenericRasterDataReader
+{
+	private static Log log = Logging.getLog(MappedGenericRasterDataReader.class);
+
+	protected static long MAX_CHUNK_BYTES = Integer.MAX_VALUE;
+
+	private DataTypeEnum dataType;
+	private int width;
+	private int height;
+	private int rowsPerChunk;
+
+	private volatile ByteBuffer[] chunks = null;
+	private volatile Buffer[] views = null;
+
+	public MappedGenericRasterDataReader(File dataFile, IRasterDefinition rasterDefinition)
+	{
+		super(dataFile, rasterDefinition);
+	}
+
+	@Override
+	protected void definitionChanged()
+	{
+		try {
+			close();
+		} catch (DataSourceException ex) {
+			log.warn("Error closing mapped raster data after definition change: " + ex.getMessage(), ex);
+		}
+	}
+
+	public boolean isOpen()
+	{
+		return (views != null);
+	}
+
+	@Override
+	public synchronized void open() throws DataSourceException
+	{
+		if (isOpen()) {
+			return;
+		}
+
+		IRasterDefinition rasterDefinition = getRasterDefinition();
+		dataType = rasterDefinition.getDataType();
+		width = rasterDefinition.getImageWidth();
+		height = rasterDefinition.getImageHeight();
+
+		java.nio.ByteOrder order = getNativeByteOrder(rasterDefinition.getByteOrder());
+
+		long rowBytes = (long) width * (long) dataType.numberOfBytes();
+		rowsPerChunk = (int) Math.max(1, Math.min(height, MAX_CHUNK_BYTES / rowBytes));
+		int chunkCount = (height + rowsPerChunk - 1) / rowsPerChunk;
+
+		ByteBuffer[] chunks = new ByteBuffer[chunkCount];
+		Buffer[] views = new Buffer[chunkCount];
+
+		RandomAccessFile file = null;
+		try {
+			file = new RandomAccessFile(getDataFile(), "r");
+			FileChannel channel = file.getChannel();
+			long fileLength = channel.size();
+
+			for (int i = 0; i < chunkCount; i++) {
+				long position = (long) i * (long) rowsPerChunk * rowBytes;
+				long size = Math.min((long) rowsPerChunk * rowBytes, fileLength - position);
+				if (size < 0) {
+					size = 0;
+				}
+
+				MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+				mapped.order(order);
+
+				chunks[i] = mapped;
+				views[i] = createView(mapped);
+			}
+		} catch (IOException ex) {
+			throw new DataSourceException("Failed to map raster data file: " + ex.getMessage(), ex);
+		} finally {
+			// The mappings remain valid after the channel is closed
+			if (file != null) {
+				try {
+					file.close();
+				} catch (IOException ex) {
+					log.warn("Error closing raster data file: " + ex.getMessage(), ex);
+				}
+			}
+		}
+
+		this.chunks = chunks;
+		this.views = views;
+	}
+
+	@Override
+	public synchronized void close() throws DataSourceException
+	{
+		chunks = null;
+		views = null;
+	}
+
+	@Override
+	public void dispose() throws DataSourceException
+	{
+		super.dispose();
+		close();
+	}
+
+	/** The views of the mapped chunks, opening the reader if needed. The field is read once so
+	 * that a concurrent close cannot leave the caller holding a null array.
+	 */
+	protected Buffer[] getViews() throws DataSourceException
+	{
+		Buffer[] views = this.views;
+		if (views == null) {
+			synchronized (this) {
+				open();
+				views = this.views;
+			}
+		}
+		return views;
+	}
+
+	protected ByteBuffer[] getChunks() throws DataSourceException
+	{
+		ByteBuffer[] chunks = this.chunks;
+		if (chunks == null) {
+			synchronized (this) {
+				open();
+				chunks = this.chunks;
+			}
+		}
+		return chunks;
+	}
+
+	protected void checkPosition(int row, int column) throws DataSourceException
+	{
+		if (row < 0 || row >= height || column < 0 || column >= width) {
+			throw new DataSourceException("Invalid row/column: " + row + "/" + column);
+		}
+	}
+
+	protected int getIndexWithinChunk(int row, int column)
+	{
+		return ((row % rowsPerChunk) * width) + column;
+	}
+
+	@Override
+	public double getDouble(int row, int column) throws DataSourceException
+	{
+		Buffer[] views = getViews();
+		checkPosition(row, column);
+
+		Buffer view = views[row / rowsPerChunk];
+		int index = getIndexWithinChunk(row, column);
+
+		if (index >= view.limit()) {
+			throw new DataSourceException("Cannot read past end of file (row/column " + row + "/" + column + ")");
+		}
+
+		switch (dataType) {
+		case Byte:
+			return ((ByteBuffer) view).get(index);
+		case UInt16:
+			return ((ShortBuffer) view).get(index) & 0xFFFF;
+		case Int16:
+		case CInt16:
+			return ((ShortBuffer) view).get(index);
+		case Uint32:
+			return ((IntBuffer) view).get(index) & 0xFFFFFFFFL;
+		case Int32:
+		case CInt32:
+			return ((IntBuffer) view).get(index);
+		case Float32:
+		case CFloat32:
+			return ((FloatBuffer) view).get(index);
+		case Float64:
+		case CFloat64:
+			return ((DoubleBuffer) view).get(index);
+		default:
+			throw new DataSourceException("Invalid or unsupported data type specified: " + dataType.name());
+		}
+	}
+
+	@Override
+	public void getRow(int row, int startColumn, double[] buffer, int offset, int length) throws DataSourceException
+	{
+		if (row < 0 || row >= getRasterDefinition().getImageHeight() || startColumn < 0 || startColumn >= getRasterDefinition().getImageWidth()) {
+			return;
+		}
+
+		length = getLineLength(startColumn, length);
+
+		Buffer view = getViews()[row / rowsPerChunk];
+		int index = getIndexWithinChunk(row, startColumn);
+
+		if (index + length > view.limit()) {
+			throw new DataSourceException("Cannot read past end of file (row " + row + ")");
+		}
+
+		switch (dataType) {
+		case Byte:
+			for (int i = 0; i < length; i++) {
+				buffer[offset + i] = ((ByteBuffer) view).get(index + i);
+			}
+			break;
+		case UInt16:
+			for (int i = 0; i < length; i++) {
+				buffer[offset + i] = ((ShortBuffer) view).get(index + i) & 0xFFFF;
+			}
+			break;
+		case Int16:
+		case CInt16:
+			for (int i = 0; i < length; i++) {
+				buffer[offset + i] = ((ShortBuffer) view).get(index + i);
+			}
+			break;
+		case Uint32:
+			for (int i = 0; i < length; i++) {
+				buffer[offset + i] = ((IntBuffer) view).get(index + i) & 0xFFFFFFFFL;
+			}
+			break;
+		case Int32:
+		case CInt32:
+			for (int i = 0; i < length; i++) {
+				buffer[offset + i] = ((IntBuffer) view).get(index + i);
+			}
+			break;
+		case Float32:
+		case CFloat32:
+			for (int i = 0; i < length; i++) {
+				buffer[offset + i] = ((FloatBuffer) view).get(index + i);
+			}
+			break;
+		case Float64:
+		case CFloat64:
+			DoubleBuffer doubles = ((DoubleBuffer) view).duplicate();
+			doubles.position(index);
+			doubles.get(buffer, offset, length);
+			break;
+		default:
+			throw new DataSourceException("Invalid or unsupported data type specified: " + dataType.name());
+		}
+	}
+
+	@Override
+	protected Buffer getRowView(int row, int startColumn, int length) throws DataSourceException
+	{
+		Buffer[] views = getViews();
+		checkPosition(row, startColumn);
+
+		Buffer view = views[row / rowsPerChunk];
+		int index = getIndexWithinChunk(row, startColumn);
+
+		if (index + length > view.limit()) {
+			throw new DataSourceException("Cannot read past end of file (row " + row + ")");
+		}
+
+		view = duplicate(view);
+		view.position(index);
+		return view;
+	}
+
+	protected static Buffer duplicate(Buffer view)
+	{
+		if (view instanceof ShortBuffer) {
+			return ((ShortBuffer) view).duplicate();
+		} else if (view instanceof IntBuffer) {
+			return ((IntBuffer) view).duplicate();
+		} else if (view instanceof FloatBuffer) {
+			return ((FloatBuffer) view).duplicate();
+		} else if (view instanceof DoubleBuffer) {
+			return ((DoubleBuffer) view).duplicate();
+		} else {
+			return ((ByteBuffer) view).duplicate();
+		}
+	}
+
+	@Override
+	protected void readBytes(int row, int column, byte[] buffer, int length) throws DataSourceException
+	{
+		ByteBuffer[] chunks = getChunks();
+		checkPosition(row, column);
+
+		ByteBuffer chunk = chunks[row / rowsPerChunk].duplicate();
+		int position = getIndexWithinChunk(row, column) * dataType.numberOfBytes();
+
+		if (position + length > chunk.limit()) {
+			throw new DataSourceException("Cannot read past end of file (row/column " + row + "/" + column + ")");
+		}
+
+		chunk.position(position);
+		chunk.get(buffer, 0, length);
+	}
+
+}
@@ -0,0 +1,151 @@
+package us.wthr.jdem846.rasterdata.generic;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+import us.wthr.jdem846.DataTypeEnum;
+import us.wthr.jdem846.exception.DataSourceException;
+
+/** A rectangular block of raster samples held in a primitive array matching the
+ * raster's data type. Unsigned types are stored in the signed array of the same
+ * width and widened on read.
+ */
+public class RasterTile
+{
+	private final DataTypeEnum dataType;
+
+	private final int x;
+	private final int y;
+	private final int columns;
+	private final int rows;
+
+	private byte[] bytes;
+	private short[] shorts;
+	private int[] ints;
+	private float[] floats;
+	private double[] doubles;
+
+	public RasterTile(DataTypeEnum dataType, int x, int y, int columns, int rows) throws DataSourceException
+	{
+		this.dataType = dataType;
+		this.x = x;
+		this.y = y;
+		this.columns = columns;
+		this.rows = rows;
+
+		int length = columns * rows;
+
+		switch (dataType) {
+		case Byte:
+			bytes = new byte[length];
+			break;
+		case UInt16:
+		case Int16:
+		case CInt16:
+			shorts = new short[length];
+			break;
+		case Uint32:
+		case Int32:
+		case CInt32:
+			ints = new int[length];
+			break;
+		case Float32:
+		case CFloat32:
+			floats = new float[length];
+			break;
+		case Float64:
+		case CFloat64:
+			doubles = new double[length];
+			break;
+		default:
+			throw new DataSourceException("Invalid or unsupported data type specified: " + dataType.name());
+		}
+	}
+
+	/** Copies a full tile row from a typed buffer, as returned by
+	 * GenericRasterDataReader.createView, positioned at the first sample.
+	 */
+	public void readRow(int tileRow, Buffer source)
+	{
+		int offset = tileRow * columns;
+
+		if (bytes != null) {
+			((ByteBuffer) source).get(bytes, offset, columns);
+		} else if (shorts != null) {
+			((ShortBuffer) source).get(shorts, offset, columns);
+		} else if (ints != null) {
+			((IntBuffer) source).get(ints, offset, columns);
+		} else if (floats != null) {
+			((FloatBuffer) source).get(floats, offset, columns);
+		} else {
+			((DoubleBuffer) source).get(doubles, offset, columns);
+		}
+	}
+
+	public boolean contains(int row, int column)
+	{
+		return (column >= x && column < x + columns && row >= y && row < y + rows);
+	}
+
+	/** Fetches the sample at the specified raster (not tile) row and column.
+	 */
+	public double get(int row, int column)
+	{
+		int index = ((row - y) * columns) + (column - x);
+
+		switch (dataType) {
+		case Byte:
+			return bytes[index];
+		case UInt16:
+			return shorts[index] & 0xFFFF;
+		case Int16:
+		case CInt16:
+			return shorts[index];
+		case Uint32:
+			return ints[index] & 0xFFFFFFFFL;
+		case Int32:
+		case CInt32:
+			return ints[index];
+		case Float32:
+		case CFloat32:
+			return floats[index];
+		default:
+			return doubles[index];
+		}
+	}
+
+	public long getSizeBytes()
+	{
+		return (long) columns * (long) rows * (long) dataType.numberOfBytes();
+	}
+
+	public DataTypeEnum getDataType()
+	{
+		return dataType;
+	}
+
+	public int getX()
+	{
+		return x;
+	}
+
+	public int getY()
+	{
+		return y;
+	}
+
+	public int getColumns()
+	{
+		return columns;
+	}
+
+	public int getRows()
+	{
+		return rows;
+	}
+
+}
@@ -0,0 +1,212 @@
+package us.wthr.jdem846.rasterdata.generic;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import us.wthr.jdem846.JDem846Properties;
+import us.wthr.jdem846.exception.DataSourceException;
+import us.wthr.jdem846.logging.Log;
+import us.wthr.jdem846.logging.Logging;
+
+/** Process-wide cache of raster tiles shared by every copy of a raster data provider.
+ * Tiles are square blocks of samples on a fixed grid over each raster file. A tile
+ * requested by several threads at once is read only once, and tiles pinned by a
+ * reader are never evicted. Unpinned tiles are evicted least recently used first
+ * once the cache exceeds its byte budget.
+ */
+public class RasterTileCache
+{
+	private static Log log = Logging.getLog(RasterTileCache.class);
+
+	public final static int DEFAULT_TILE_SIZE = 256;
+	public final static int DEFAULT_CACHE_MEGABYTES = 256;
+
+	private static RasterTileCache instance = null;
+
+	private final int tileSize;
+	private final long maxBytes;
+
+	private final LinkedHashMap<RasterTileKey, RasterTileEntry> entries = new LinkedHashMap<RasterTileKey, RasterTileEntry>(64, 0.75f, true);
+	private long usedBytes = 0;
+
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+
+	public RasterTileCache(int tileSize, long maxBytes)
+	{
+		if (tileSize <= 0) {
+			throw new IllegalArgumentException("Invalid tile size: " + tileSize);
+		}
+
+		this.tileSize = tileSize;
+		this.maxBytes = maxBytes;
+	}
+
+	public static synchronized RasterTileCache getInstance()
+	{
+		if (instance == null) {
+			int tileSize = getIntProperty("us.wthr.jdem846.performance.rasterTileSize", DEFAULT_TILE_SIZE);
+			int cacheMegabytes = getIntProperty("us.wthr.jdem846.performance.rasterTileCacheSize", DEFAULT_CACHE_MEGABYTES);
+			log.info("Creating raster tile cache with " + tileSize + "x" + tileSize + " tiles and a " + cacheMegabytes + "MB budget");
+			instance = new RasterTileCache(tileSize, (long) cacheMegabytes * 1024L * 1024L);
+		}
+		return instance;
+	}
+
+	protected static int getIntProperty(String name, int defaultValue)
+	{
+		if (JDem846Properties.hasProperty(name)) {
+			return JDem846Properties.getIntProperty(name);
+		} else {
+			return defaultValue;
+		}
+	}
+
+	/** Fetches and pins a tile, reading it through the specified reader if it is not
+	 * already cached or being loaded by another thread. Every acquired entry must be
+	 * handed back through release().
+	 */
+	public RasterTileEntry acquire(GenericRasterDataReader reader, int tileRow, int tileColumn) throws DataSourceException
+	{
+		RasterTileKey key = new RasterTileKey(reader.getDataFile(), reader.getRasterDefinition(), tileRow, tileColumn);
+
+		RasterTileEntry entry;
+		boolean load = false;
+
+		synchronized (this) {
+			entry = entries.get(key);
+			if (entry == null) {
+				entry = new RasterTileEntry(key);
+				entries.put(key, entry);
+				misses++;
+				load = true;
+			} else {
+				hits++;
+			}
+			entry.references++;
+		}
+
+		if (load) {
+			load(reader, entry);
+		}
+
+		entry.await();
+		return entry;
+	}
+
+	protected void load(GenericRasterDataReader reader, RasterTileEntry entry)
+	{
+		RasterTileKey key = entry.getKey();
+		RasterTile tile = null;
+		DataSourceException error = null;
+
+		try {
+			tile = reader.readTile(key.getTileColumn() * tileSize, key.getTileRow() * tileSize, tileSize, tileSize);
+		} catch (DataSourceException ex) {
+			error = ex;
+		} catch (RuntimeException ex) {
+			error = new DataSourceException("Error reading raster tile: " + ex.getMessage(), ex);
+		}
+
+		synchronized (this) {
+			if (entries.get(key) == entry) {
+				if (tile != null) {
+					usedBytes += tile.getSizeBytes();
+				} else {
+					// Let the next request retry
+					entries.remove(key);
+				}
+			}
+		}
+
+		entry.complete(tile, error);
+
+		if (tile != null) {
+			synchronized (this) {
+				evict();
+			}
+		}
+	}
+
+	/** Unpins a tile acquired through acquire().
+	 */
+	public void release(RasterTileEntry entry)
+	{
+		synchronized (this) {
+			if (entry.references > 0) {
+				entry.references--;
+			}
+
+			if (entry.references == 0) {
+				evict();
+			}
+		}
+	}
+
+	/** Drops unpinned tiles until the cache is within its budget. The caller must
+	 * hold the lock on the cache.
+	 */
+	protected void evict()
+	{
+		Iterator<RasterTileEntry> iter = entries.values().iterator();
+		while (usedBytes > maxBytes && iter.hasNext()) {
+			RasterTileEntry entry = iter.next();
+			if (entry.references == 0 && entry.isLoaded()) {
+				iter.remove();
+				usedBytes -= entry.getTile().getSizeBytes();
+				evictions++;
+			}
+		}
+	}
+
+	/** Drops every unpinned tile.
+	 */
+	public synchronized void clear()
+	{
+		Iterator<RasterTileEntry> iter = entries.values().iterator();
+		while (iter.hasNext()) {
+			RasterTileEntry entry = iter.next();
+			if (entry.references == 0 && entry.isLoaded()) {
+				iter.remove();
+				usedBytes -= entry.getTile().getSizeBytes();
+			}
+		}
+	}
+
+	public int getTileSize()
+	{
+		return tileSize;
+	}
+
+	public long getMaxBytes()
+	{
+		return maxBytes;
+	}
+
+	public synchronized long getUsedBytes()
+	{
+		return usedBytes;
+	}
+
+	public synchronized int getTileCount()
+	{
+		return entries.size();
+	}
+
+	public synchronized long getHits()
+	{
+		return hits;
+	}
+
+	public synchronized long getMisses()
+	{
+		return misses;
+	}
+
+	public synchronized long getEvictions()
+	{
+		return evictions;
+	}
+
+}
@@ -0,0 +1,70 @@
+package us.wthr.jdem846.rasterdata.generic;
+
+import us.wthr.jdem846.exception.DataSourceException;
+
+/** A pinned reference to a tile held by the RasterTileCache. The tile remains
+ * resident until the entry is handed back through RasterTileCache.release().
+ */
+public class RasterTileEntry
+{
+	private final RasterTileKey key;
+
+	private volatile RasterTile tile = null;
+	private DataSourceException error = null;
+	private boolean loading = true;
+
+	// Guarded by the owning cache
+	int references = 0;
+
+	RasterTileEntry(RasterTileKey key)
+	{
+		this.key = key;
+	}
+
+	RasterTileKey getKey()
+	{
+		return key;
+	}
+
+	synchronized void complete(RasterTile tile, DataSourceException error)
+	{
+		this.tile = tile;
+		this.error = error;
+		this.loading = false;
+		notifyAll();
+	}
+
+	/** Blocks until the thread loading the tile has finished.
+	 */
+	synchronized RasterTile await() throws DataSourceException
+	{
+		boolean interrupted = false;
+		while (loading) {
+			try {
+				wait();
+			} catch (InterruptedException ex) {
+				interrupted = true;
+			}
+		}
+
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+
+		if (error != null) {
+			throw new DataSourceException("Failed to load raster tile " + key + ": " + error.getMessage(), error);
+		}
+		return tile;
+	}
+
+	synchronized boolean isLoaded()
+	{
+		return (!loading && tile != null);
+	}
+
+	public RasterTile getTile()
+	{
+		return tile;
+	}
+
+}
@@ -0,0 +1,98 @@
+package us.wthr.jdem846.rasterdata.generic;
+
+import java.io.File;
+
+import us.wthr.jdem846.ByteOrder;
+import us.wthr.jdem846.DataTypeEnum;
+
+/** Identifies a tile of a raster file. The sample layout is part of the key so
+ * that differently defined views of the same file never share tiles, and the file's
+ * length and modification time so that a file replaced at the same path is read anew.
+ */
+class RasterTileKey
+{
+	private final String filePath;
+	private final long fileLength;
+	private final long lastModified;
+	private final DataTypeEnum dataType;
+	private final ByteOrder byteOrder;
+	private final int imageWidth;
+	private final int imageHeight;
+	private final int tileRow;
+	private final int tileColumn;
+	private final int hashCode;
+
+	public RasterTileKey(File file, IRasterDefinition rasterDefinition, int tileRow, int tileColumn)
+	{
+		this.filePath = file.getAbsolutePath();
+		this.fileLength = file.length();
+		this.lastModified = file.lastModified();
+		this.dataType = rasterDefinition.getDataType();
+		this.byteOrder = rasterDefinition.getByteOrder();
+		this.imageWidth = rasterDefinition.getImageWidth();
+		this.imageHeight = rasterDefinition.getImageHeight();
+		this.tileRow = tileRow;
+		this.tileColumn = tileColumn;
+
+		int hash = filePath.hashCode();
+		hash = 31 * hash + (int) (fileLength ^ (fileLength >>> 32));
+		hash = 31 * hash + (int) (lastModified ^ (lastModified >>> 32));
+		hash = 31 * hash + ((dataType != null) ? dataType.hashCode() : 0);
+		hash = 31 * hash + ((byteOrder != null) ? byteOrder.hashCode() : 0);
+		hash = 31 * hash + imageWidth;
+		hash = 31 * hash + imageHeight;
+		hash = 31 * hash + tileRow;
+		hash = 31 * hash + tileColumn;
+		this.hashCode = hash;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return hashCode;
+	}
+
+	@Override
+	public boolean equals(Object o)
+	{
+		if (this == o) {
+			return true;
+		}
+
+		if (!(o instanceof RasterTileKey)) {
+			return false;
+		}
+
+		RasterTileKey other = (RasterTileKey) o;
+		return (tileRow == other.tileRow
+				&& tileColumn == other.tileColumn
+				&& imageWidth == other.imageWidth
+				&& imageHeight == other.imageHeight
+				&& dataType == other.dataType
+				&& byteOrder == other.byteOrder
+				&& fileLength == other.fileLength
+				&& lastModified == other.lastModified
+				&& filePath.equals(other.filePath));
+	}
+
+	public String getFilePath()
+	{
+		return filePath;
+	}
+
+	public int getTileRow()
+	{
+		return tileRow;
+	}
+
+	public int getTileColumn()
+	{
+		return tileColumn;
+	}
+
+	@Override
+	public String toString()
+	{
+		return filePath + " [" + tileRow + ", " + tileColumn + "]";
+	}
+}
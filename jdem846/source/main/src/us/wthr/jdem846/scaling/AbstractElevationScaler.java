@@ -45,6 +45,31 @@ public abstract class AbstractElevationScaler implements ElevationScaler
 	
 	
 	
+	@Override
+	public boolean equals(Object object)
+	{
+		if (object == this) {
+			return true;
+		}
+		if (object == null || object.getClass() != getClass()) {
+			return false;
+		}
+		
+		AbstractElevationScaler other = (AbstractElevationScaler) object;
+		return (other.elevationMultiple == elevationMultiple
+				&& other.elevationMinimum == elevationMinimum
+				&& other.elevationMaximum == elevationMaximum);
+	}
+	
+	@Override
+	public int hashCode()
+	{
+		long bits = Double.doubleToLongBits(elevationMultiple);
+		bits = bits * 31 + Double.doubleToLongBits(elevationMinimum);
+		bits = bits * 31 + Double.doubleToLongBits(elevationMaximum);
+		return getClass().hashCode() ^ (int) (bits ^ (bits >>> 32));
+	}
+	
 	protected void copyTo(AbstractElevationScaler scaler)
 	{
 		scaler.elevationMaximum = this.elevationMaximum;
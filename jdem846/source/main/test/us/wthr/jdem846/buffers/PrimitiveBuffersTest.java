@@ -0,0 +1,118 @@
+package us.wthr.jdem846.buffers;
+
+import junit.framework.TestCase;
+import us.wthr.jdem846.AbstractTestMain;
+import us.wthr.jdem846.buffers.impl.HighCapacityMappedFloatBuffer;
+import us.wthr.jdem846.buffers.impl.HighCapacityMappedIntBuffer;
+import us.wthr.jdem846.buffers.impl.StandardCapacityFloatBuffer;
+import us.wthr.jdem846.buffers.impl.StandardCapacityIntBuffer;
+import us.wthr.jdem846.util.TempFiles;
+
+public class PrimitiveBuffersTest extends TestCase
+{
+
+	private int capacity = 10000;
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		try {
+			AbstractTestMain.initialize(false);
+		} catch (Exception e) {
+			e.printStackTrace();
+			return;
+		}
+	}
+
+	@Override
+	protected void tearDown() throws Exception
+	{
+		super.tearDown();
+		TempFiles.cleanUpTemporaryFiles(true);
+	}
+
+
+	public void testStandardCapacityFloatBuffer()
+	{
+		testFloatBuffer(new StandardCapacityFloatBuffer(capacity));
+		testFloatBuffer(new StandardCapacityFloatBuffer(capacity, true));
+	}
+
+	public void testHighCapacityMappedFloatBuffer()
+	{
+		testFloatBuffer(new HighCapacityMappedFloatBuffer(capacity));
+	}
+
+	public void testStandardCapacityIntBuffer()
+	{
+		testIntBuffer(new StandardCapacityIntBuffer(capacity));
+		testIntBuffer(new StandardCapacityIntBuffer(capacity, true));
+	}
+
+	public void testHighCapacityMappedIntBuffer()
+	{
+		testIntBuffer(new HighCapacityMappedIntBuffer(capacity));
+	}
+
+
+	protected void testFloatBuffer(IFloatBuffer buffer)
+	{
+		buffer.fill(0, capacity, -1.0f);
+		buffer.fill(100, 200, 2.5f);
+
+		assertEquals(-1.0f, buffer.getFloat(99));
+		assertEquals(2.5f, buffer.getFloat(100));
+		assertEquals(2.5f, buffer.getFloat(199));
+		assertEquals(-1.0f, buffer.getFloat(200));
+
+		buffer.putFloat(5000, 1234.5f);
+		assertEquals(1234.5f, buffer.getFloat(5000));
+		assertEquals(1234.5f, buffer.get(5000).floatValue());
+
+		float[] values = new float[50];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = i * 0.5f;
+		}
+		buffer.put(values, 300, 10, 40);
+
+		float[] read = new float[60];
+		buffer.getFloats(295, read, 5, 50);
+		for (int i = 0; i < 5; i++) {
+			assertEquals(-1.0f, read[5 + i]);
+		}
+		for (int i = 0; i < 40; i++) {
+			assertEquals(values[10 + i], read[10 + i]);
+		}
+		for (int i = 50; i < 55; i++) {
+			assertEquals(-1.0f, read[i]);
+		}
+
+		buffer.dispose();
+	}
+
+	protected void testIntBuffer(IIntBuffer buffer)
+	{
+		buffer.fill(0, capacity, 0x0);
+		buffer.fill(capacity - 10, capacity, 0xFF00FF00);
+
+		assertEquals(0x0, buffer.getInt(capacity - 11));
+		assertEquals(0xFF00FF00, buffer.getInt(capacity - 1));
+
+		buffer.putInt(42, 0x12345678);
+		assertEquals(0x12345678, buffer.getInt(42));
+		assertEquals(0x12345678, buffer.get(42).intValue());
+
+		int[] values = {1, 2, 3, 4, 5, 6, 7, 8};
+		buffer.put(values, 1000, 0, values.length);
+
+		int[] read = new int[values.length];
+		buffer.getInts(1000, read, 0, read.length);
+		for (int i = 0; i < values.length; i++) {
+			assertEquals(values[i], read[i]);
+		}
+
+		buffer.dispose();
+	}
+
+}
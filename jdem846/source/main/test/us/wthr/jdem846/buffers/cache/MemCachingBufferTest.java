@@ -0,0 +1,121 @@
+package us.wthr.jdem846.buffers.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import us.wthr.jdem846.buffers.IFloatBuffer;
+import us.wthr.jdem846.buffers.impl.StandardCapacityFloatBuffer;
+
+public class MemCachingBufferTest extends TestCase
+{
+
+	private int capacity = 10000;
+
+
+	public void testReadThroughAndWriteBack()
+	{
+		IFloatBuffer disk = new StandardCapacityFloatBuffer(capacity);
+		for (int i = 0; i < capacity; i++) {
+			disk.putFloat(i, i);
+		}
+
+		MemCachingFloatBuffer cache = new MemCachingFloatBuffer(disk, 100, 4, 2);
+
+		for (int i = 0; i < capacity; i++) {
+			assertEquals((float) i, cache.getFloat(i));
+		}
+
+		for (int i = 0; i < capacity; i++) {
+			cache.putFloat(i, -i);
+		}
+		cache.flush();
+
+		for (int i = 0; i < capacity; i++) {
+			assertEquals((float) -i, disk.getFloat(i));
+		}
+	}
+
+	public void testAlternatingRegionsDoNotThrash()
+	{
+		IFloatBuffer disk = new StandardCapacityFloatBuffer(capacity);
+		MemCachingFloatBuffer cache = new MemCachingFloatBuffer(disk, 100, 4, 2);
+
+		for (int i = 0; i < 1000; i++) {
+			cache.getFloat(150);
+			cache.getFloat(9050);
+		}
+
+		assertEquals(2, cache.getMisses());
+		assertEquals(1998, cache.getHits());
+		assertEquals(0, cache.getEvictions());
+	}
+
+	public void testEvictionWritesDirtyPages()
+	{
+		IFloatBuffer disk = new StandardCapacityFloatBuffer(capacity);
+		MemCachingFloatBuffer cache = new MemCachingFloatBuffer(disk, 100, 2, 1);
+
+		cache.putFloat(5, 1.0f);
+		cache.putFloat(105, 2.0f);
+		cache.putFloat(205, 3.0f); // Evicts the least recently used page holding index 5
+
+		assertEquals(1.0f, disk.getFloat(5));
+		assertEquals(0.0f, disk.getFloat(105));
+		assertEquals(1, cache.getEvictions());
+	}
+
+	public void testBulkTransferAcrossPages()
+	{
+		IFloatBuffer disk = new StandardCapacityFloatBuffer(capacity);
+		MemCachingFloatBuffer cache = new MemCachingFloatBuffer(disk, 64, 8, 4);
+
+		cache.fill(0, capacity, 3.0f);
+
+		float[] values = new float[1000];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = i;
+		}
+		cache.put(values, 1234, 0, values.length);
+
+		float[] read = new float[1002];
+		cache.getFloats(1233, read, 0, read.length);
+		assertEquals(3.0f, read[0]);
+		for (int i = 0; i < values.length; i++) {
+			assertEquals(values[i], read[i + 1]);
+		}
+		assertEquals(3.0f, read[1001]);
+	}
+
+	public void testConcurrentAccess() throws Exception
+	{
+		final IFloatBuffer disk = new StandardCapacityFloatBuffer(capacity);
+		final MemCachingFloatBuffer cache = new MemCachingFloatBuffer(disk, 50, 8, 4);
+		final int threadCount = 4;
+
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < threadCount; t++) {
+			final int offset = t;
+			Thread thread = new Thread() {
+				public void run()
+				{
+					for (int i = offset; i < capacity; i += threadCount) {
+						cache.putFloat(i, i * 2.0f);
+					}
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		cache.flush();
+		for (int i = 0; i < capacity; i++) {
+			assertEquals(i * 2.0f, disk.getFloat(i));
+		}
+	}
+
+}
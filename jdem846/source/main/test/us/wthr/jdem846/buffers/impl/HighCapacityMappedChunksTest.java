@@ -0,0 +1,129 @@
+package us.wthr.jdem846.buffers.impl;
+
+import junit.framework.TestCase;
+import us.wthr.jdem846.AbstractTestMain;
+import us.wthr.jdem846.util.TempFiles;
+
+/** Exercises the mapped buffers with tiny chunks so that single values and bulk
+ * transfers cross chunk boundaries.
+ */
+public class HighCapacityMappedChunksTest extends TestCase
+{
+
+	private long maxChunkCapacity = 1000; // Deliberately not a multiple of 8
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		try {
+			AbstractTestMain.initialize(false);
+		} catch (Exception e) {
+			e.printStackTrace();
+			return;
+		}
+	}
+
+	@Override
+	protected void tearDown() throws Exception
+	{
+		super.tearDown();
+		TempFiles.cleanUpTemporaryFiles(true);
+	}
+
+
+	public void testFloatChunkBoundaries()
+	{
+		int capacity = 1234;
+		HighCapacityMappedFloatBuffer buffer = new HighCapacityMappedFloatBuffer(capacity, maxChunkCapacity);
+
+		for (int i = 0; i < capacity; i++) {
+			buffer.putFloat(i, i * 0.25f);
+		}
+
+		float[] read = new float[capacity];
+		buffer.getFloats(0, read, 0, capacity);
+		for (int i = 0; i < capacity; i++) {
+			assertEquals(i * 0.25f, read[i]);
+		}
+
+		float[] values = new float[700];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = -i;
+		}
+		buffer.put(values, 200, 0, values.length);
+		for (int i = 0; i < values.length; i++) {
+			assertEquals(values[i], buffer.getFloat(200 + i));
+		}
+		assertEquals(199 * 0.25f, buffer.getFloat(199));
+		assertEquals(900 * 0.25f, buffer.getFloat(900));
+
+		buffer.fill(10, 1100, 7.0f);
+		assertEquals(9 * 0.25f, buffer.getFloat(9));
+		for (int i = 10; i < 1100; i++) {
+			assertEquals(7.0f, buffer.getFloat(i));
+		}
+		assertEquals(1100 * 0.25f, buffer.getFloat(1100));
+
+		buffer.dispose();
+	}
+
+	public void testDoubleChunkBoundaries()
+	{
+		int capacity = 500;
+		HighCapacityMappedDoubleBuffer buffer = new HighCapacityMappedDoubleBuffer(capacity, maxChunkCapacity);
+
+		double[] values = new double[capacity];
+		for (int i = 0; i < capacity; i++) {
+			values[i] = i * 1.5;
+		}
+		buffer.put(values, 0, 0, capacity);
+
+		for (int i = 0; i < capacity; i++) {
+			assertEquals(values[i], buffer.getDouble(i));
+		}
+
+		buffer.dispose();
+	}
+
+	public void testByteRange()
+	{
+		HighCapacityMappedByteBuffer buffer = new HighCapacityMappedByteBuffer(2500, 1, maxChunkCapacity);
+
+		byte[] values = new byte[2500];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = (byte) i;
+		}
+		buffer.put(values, 0, 0, values.length);
+
+		byte[] read = new byte[1500];
+		buffer.getBytes(900, read, 0, read.length);
+		for (int i = 0; i < read.length; i++) {
+			assertEquals((byte) (900 + i), read[i]);
+		}
+
+		buffer.dispose();
+	}
+
+	public void testOutOfBounds()
+	{
+		HighCapacityMappedIntBuffer buffer = new HighCapacityMappedIntBuffer(100, maxChunkCapacity);
+
+		try {
+			buffer.getInt(100);
+			fail("Expected an out of bounds exception");
+		} catch (Exception ex) {
+			// Expected
+		}
+
+		try {
+			buffer.getInts(90, new int[20], 0, 20);
+			fail("Expected an out of bounds exception");
+		} catch (Exception ex) {
+			// Expected
+		}
+
+		buffer.dispose();
+	}
+
+}
@@ -0,0 +1,269 @@
+package us.wthr.jdem846.graphics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import us.wthr.jdem846.buffers.impl.StandardCapacityIntBuffer;
+import us.wthr.jdem846.math.Vector;
+import us.wthr.jdem846.model.GlobalOptionModel;
+
+public class AdaptiveMeshTest extends TestCase
+{
+
+	private double resolution = 0.01;
+	private double north = 41.0;
+	private double south = 39.5;
+	private double east = -103.005;
+	private double west = -105.0;
+
+	private int projections = 0;
+
+
+	public void testPlaneErrorsAreZero()
+	{
+		int rows = 20;
+		int columns = 25;
+		double[][] points = new double[rows][columns * 3];
+		boolean[][] valid = new boolean[rows][columns];
+		double[] longitudes = new double[columns];
+
+		for (int column = 0; column < columns; column++) {
+			longitudes[column] = column;
+		}
+		longitudes[columns - 1] = columns - 1.6;
+
+		for (int row = 0; row < rows; row++) {
+			for (int column = 0; column < columns; column++) {
+				valid[row][column] = true;
+				points[row][column * 3] = longitudes[column];
+				points[row][column * 3 + 1] = -row;
+				points[row][column * 3 + 2] = 3 * longitudes[column] - 2 * row;
+			}
+		}
+
+		double[] errors = AdaptiveMesh.getLevelErrors(points, valid, 0, rows - 1, 0, columns - 1, longitudes);
+		for (int level = 0; level <= AdaptiveMesh.MAX_LEVEL; level++) {
+			assertEquals(0.0, errors[level], 1e-9);
+		}
+
+		points[7][9 * 3 + 2] += 2.0;
+		errors = AdaptiveMesh.getLevelErrors(points, valid, 0, rows - 1, 0, columns - 1, longitudes);
+		assertEquals(0.0, errors[0], 1e-9);
+		assertEquals(2.0, errors[1], 1e-9);
+		assertEquals(AdaptiveMesh.MAX_LEVEL, AdaptiveMesh.selectLevel(errors, 0.2, 0.5));
+		assertEquals(0, AdaptiveMesh.selectLevel(errors, 1.0, 0.5));
+
+		valid[3][3] = false;
+		errors = AdaptiveMesh.getLevelErrors(points, valid, 0, rows - 1, 0, columns - 1, longitudes);
+		assertEquals(0, AdaptiveMesh.selectLevel(errors, 0.0, 0.5));
+	}
+
+	public void testMeshIsWatertight()
+	{
+		RecordingRenderer uniform = render(0.0);
+		RecordingRenderer adaptive = render(0.5);
+
+		double area = (north - uniform.getBottom()) * (east - west);
+		assertEquals(uniform.getBottom(), adaptive.getBottom());
+		assertEquals(area, checkMesh(uniform), 1e-9);
+		assertEquals(area, checkMesh(adaptive), 1e-9);
+
+		// Most of the terrain is flat, so most of it is meshed coarsely
+		assertTrue(adaptive.countTriangles() * 4 < uniform.countTriangles());
+	}
+
+	public void testVerticesAreProjectedOnce()
+	{
+		render(0.0);
+		int uniform = projections;
+		projections = 0;
+		render(0.5);
+
+		// Vertices projected to select the levels of detail are kept and emitted
+		assertEquals(uniform, projections);
+	}
+
+
+	/** Checks that no edge is shared by more than two triangles, that edges used once lie
+	 * on the border, and that every triangle has the same winding.
+	 *
+	 * @return The total area of the triangles
+	 */
+	protected double checkMesh(RecordingRenderer renderer)
+	{
+		Map<String, Integer> edges = new HashMap<String, Integer>();
+		Map<String, double[]> edgeVertices = new HashMap<String, double[]>();
+		double area = 0;
+		double winding = 0;
+
+		for (List<double[]> strip : renderer.strips) {
+			for (int k = 0; k < strip.size() - 2; k++) {
+				double[] a = strip.get(k);
+				double[] b = strip.get(k + 1);
+				double[] c = strip.get(k + 2);
+				if (key(a).equals(key(b)) || key(b).equals(key(c)) || key(a).equals(key(c))) {
+					continue;
+				}
+
+				double signed = (b[0] - a[0]) * (c[1] - a[1]) - (b[1] - a[1]) * (c[0] - a[0]);
+				if (k % 2 == 1) {
+					signed = -signed;
+				}
+				if (winding == 0) {
+					winding = Math.signum(signed);
+				}
+				assertTrue(signed * winding > 0);
+				area += Math.abs(signed) / 2.0;
+
+				addEdge(edges, edgeVertices, a, b);
+				addEdge(edges, edgeVertices, b, c);
+				addEdge(edges, edgeVertices, c, a);
+			}
+		}
+
+		double bottom = renderer.getBottom();
+		for (Map.Entry<String, Integer> edge : edges.entrySet()) {
+			assertTrue(edge.getValue() <= 2);
+			if (edge.getValue() == 1) {
+				double[] v = edgeVertices.get(edge.getKey());
+				boolean onBorder = (v[0] == west && v[2] == west)
+								|| (v[0] == east && v[2] == east)
+								|| (v[1] == north && v[3] == north)
+								|| (v[1] == bottom && v[3] == bottom);
+				assertTrue("Unmatched edge " + edge.getKey(), onBorder);
+			}
+		}
+
+		return area;
+	}
+
+	protected void addEdge(Map<String, Integer> edges, Map<String, double[]> edgeVertices, double[] a, double[] b)
+	{
+		String edge = (key(a).compareTo(key(b)) < 0) ? key(a) + "-" + key(b) : key(b) + "-" + key(a);
+		Integer count = edges.get(edge);
+		edges.put(edge, (count == null) ? 1 : count + 1);
+		edgeVertices.put(edge, new double[] { a[0], a[1], b[0], b[1] });
+	}
+
+	protected String key(double[] v)
+	{
+		return v[0] + "/" + v[1];
+	}
+
+	protected RecordingRenderer render(double maximumPixelError)
+	{
+		RecordingRenderer renderer = new RecordingRenderer();
+		Texture texture = new Texture(8, 8, north, south, east, west, new StandardCapacityIntBuffer(64));
+
+		GlobalOptionModel globalOptionModel = new GlobalOptionModel();
+		globalOptionModel.setNorthLimit(north);
+		globalOptionModel.setSouthLimit(south);
+		globalOptionModel.setEastLimit(east);
+		globalOptionModel.setWestLimit(west);
+
+		ElevationFetchCallback elevations = new ElevationFetchCallback() {
+			public double getElevation(double latitude, double longitude)
+			{
+				// A hill on an otherwise flat plain
+				double dx = longitude + 104.5;
+				double dy = latitude - 40.6;
+				double d = dx * dx + dy * dy;
+				return (d < 0.04) ? 500.0 * (0.04 - d) / 0.04 : 0.0;
+			}
+		};
+
+		TextureRenderer textureRenderer = new TextureRenderer(texture, renderer, createView(), resolution, resolution, globalOptionModel, elevations);
+		textureRenderer.setMaximumPixelError(maximumPixelError);
+		textureRenderer.render();
+		return renderer;
+	}
+
+	/** A view placing vertices at their longitude and latitude, with elevations in the
+	 * same units as a degree of latitude, and normals straight up.
+	 */
+	protected View createView()
+	{
+		return (View) Proxy.newProxyInstance(View.class.getClassLoader(), new Class<?>[] { View.class }, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args)
+			{
+				if (method.getName().equals("project")) {
+					projections++;
+					Vector point = (Vector) args[3];
+					point.x = (Double) args[1];
+					point.y = (Double) args[0];
+					point.z = (Double) args[2] / 111000.0;
+				} else if (method.getName().equals("getNormal")) {
+					Vector normal = (Vector) args[2];
+					normal.x = 0;
+					normal.y = 0;
+					normal.z = 1;
+				}
+				return null;
+			}
+		});
+	}
+
+	static class RecordingRenderer extends GraphicsRenderer
+	{
+		List<List<double[]>> strips = new ArrayList<List<double[]>>();
+
+		public void begin(PrimitiveModeEnum mode)
+		{
+			strips.add(new ArrayList<double[]>());
+		}
+
+		public void end()
+		{
+
+		}
+
+		public void vertex(Vector v)
+		{
+			strips.get(strips.size() - 1).add(new double[] { v.x, v.y, v.z });
+		}
+
+		// A degree spans 500 pixels
+		public boolean project(Vector v)
+		{
+			v.x *= 500.0;
+			v.y *= 500.0;
+			v.z *= 500.0;
+			return true;
+		}
+
+		double getBottom()
+		{
+			double bottom = Double.MAX_VALUE;
+			for (List<double[]> strip : strips) {
+				for (double[] v : strip) {
+					bottom = Math.min(bottom, v[1]);
+				}
+			}
+			return bottom;
+		}
+
+		int countTriangles()
+		{
+			int triangles = 0;
+			for (List<double[]> strip : strips) {
+				for (int k = 0; k < strip.size() - 2; k++) {
+					if (!equal(strip.get(k), strip.get(k + 1)) && !equal(strip.get(k + 1), strip.get(k + 2)) && !equal(strip.get(k), strip.get(k + 2))) {
+						triangles++;
+					}
+				}
+			}
+			return triangles;
+		}
+
+		boolean equal(double[] a, double[] b)
+		{
+			return a[0] == b[0] && a[1] == b[1];
+		}
+	}
+}
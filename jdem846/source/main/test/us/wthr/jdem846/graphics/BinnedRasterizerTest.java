@@ -0,0 +1,114 @@
+package us.wthr.jdem846.graphics;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import us.wthr.jdem846.JDem846Properties;
+import us.wthr.jdem846.buffers.IIntBuffer;
+import us.wthr.jdem846.buffers.impl.StandardCapacityIntBuffer;
+import us.wthr.jdem846.graphics.framebuffer.FrameBufferModeEnum;
+
+public class BinnedRasterizerTest extends TestCase
+{
+
+	private int width = 301;
+	private int height = 217;
+
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		if (!JDem846Properties.hasProperty("us.wthr.jdem846.general.buffers.maxHeapBufferSizeBytes")) {
+			JDem846Properties.setProperty("us.wthr.jdem846.general.buffers.maxHeapBufferSizeBytes", "100000000");
+		}
+	}
+
+	public void testStandardBufferMatchesSequential() throws Exception
+	{
+		compareRenderers(FrameBufferModeEnum.STANDARD);
+	}
+
+	public void testTiledZBufferMatchesSequential() throws Exception
+	{
+		compareRenderers(FrameBufferModeEnum.TILED_Z_BUFFER);
+	}
+
+
+	protected void compareRenderers(FrameBufferModeEnum bufferMode) throws Exception
+	{
+		ImageCapture expected = render(new GraphicsRenderer(), bufferMode);
+		ImageCapture actual = render(new GraphicsRenderer(4), bufferMode);
+
+		int drawn = 0;
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				assertEquals(expected.get(x, y), actual.get(x, y));
+				if (expected.get(x, y) != 0xFF000000) {
+					drawn++;
+				}
+			}
+		}
+		assertTrue(drawn > width * height / 4);
+	}
+
+	protected ImageCapture render(GraphicsRenderer renderer, FrameBufferModeEnum bufferMode) throws Exception
+	{
+		Texture texture = createTexture(40, 30);
+
+		renderer.viewPort(0, 0, width, height, bufferMode);
+		renderer.matrixMode(MatrixModeEnum.PROJECTION);
+		renderer.loadIdentity();
+		renderer.perspective(45, (double) width / (double) height, 1, 100);
+		renderer.matrixMode(MatrixModeEnum.MODELVIEW);
+		renderer.loadIdentity();
+		renderer.translate(0, 0, -3);
+		renderer.rotate(30, AxisEnum.X_AXIS);
+		renderer.clearColorBuffer(0xFF000000);
+
+		Random random = new Random(7);
+		int rows = 60;
+		int columns = 80;
+		for (int row = 0; row < rows; row++) {
+			if (row == rows / 2) {
+				// Later strips are drawn under a different transform
+				renderer.rotate(10, AxisEnum.Z_AXIS);
+			}
+
+			if (row % 3 == 0) {
+				renderer.bindTexture(texture);
+			} else {
+				renderer.unbindTexture();
+			}
+
+			renderer.begin(PrimitiveModeEnum.TRIANGLE_STRIP);
+			for (int column = 0; column <= columns; column++) {
+				double x = -1.5 + 3.0 * column / columns;
+				for (int i = 0; i < 2; i++) {
+					double y = -1.0 + 2.0 * (row + i) / rows;
+					double z = random.nextDouble() * 0.2;
+
+					// Some translucent fragments, so that drawing order shows
+					int alpha = (random.nextInt(4) == 0) ? 0x80 : 0xFF;
+					renderer.color((alpha << 24) | random.nextInt(0xFFFFFF));
+					renderer.texCoord((double) column / columns, (double) (row + i) / rows);
+					renderer.vertex(x, y, z);
+				}
+			}
+			renderer.end();
+		}
+
+		ImageCapture image = renderer.captureImage();
+		renderer.dispose();
+		return image;
+	}
+
+	protected Texture createTexture(int width, int height)
+	{
+		IIntBuffer buffer = new StandardCapacityIntBuffer(width * height);
+		for (int i = 0; i < width * height; i++) {
+			buffer.putInt(i, 0xFF000000 | (int) ((i * 2654435761L) & 0xFFFFFF));
+		}
+		return new Texture(width, height, buffer);
+	}
+}
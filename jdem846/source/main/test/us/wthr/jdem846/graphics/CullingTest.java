@@ -0,0 +1,148 @@
+package us.wthr.jdem846.graphics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import junit.framework.TestCase;
+import us.wthr.jdem846.buffers.impl.StandardCapacityIntBuffer;
+import us.wthr.jdem846.math.Vector;
+import us.wthr.jdem846.model.GlobalOptionModel;
+
+public class CullingTest extends TestCase
+{
+
+	private double resolution = 0.25;
+	private Vector origin = new Vector(0, 0, 0);
+
+
+	public void testFrustum() throws Exception
+	{
+		GraphicsRenderer renderer = createPerspectiveRenderer();
+
+		assertTrue(renderer.isVisible(new Vector(0, 0, 0), 1.0));
+		assertTrue(renderer.isVisible(new Vector(7, 0, 0), 3.0));
+		assertFalse(renderer.isVisible(new Vector(0, 0, 20), 1.0));
+		assertFalse(renderer.isVisible(new Vector(100, 0, 0), 1.0));
+		assertFalse(renderer.isVisible(new Vector(0, 0, -200), 1.0));
+	}
+
+	public void testPerspectiveHorizon() throws Exception
+	{
+		GraphicsRenderer renderer = createPerspectiveRenderer();
+
+		assertTrue(renderer.isOccluded(new Vector(0, 0, -5), 0.5, origin, 3.0));
+		assertFalse(renderer.isOccluded(new Vector(0, 0, 4), 0.5, origin, 3.0));
+		// Beyond the limb of the occluder as seen from the eye
+		assertFalse(renderer.isOccluded(new Vector(0, 4, -1), 0.5, origin, 3.0));
+		assertFalse(renderer.isOccluded(new Vector(0, 0, -5), 0.5, origin, 0.0));
+	}
+
+	public void testOrthographicHorizon() throws Exception
+	{
+		GraphicsRenderer renderer = new GraphicsRenderer();
+		renderer.matrixMode(MatrixModeEnum.PROJECTION);
+		renderer.loadIdentity();
+		renderer.ortho(-5, 5, -5, 5, 1, 100);
+		renderer.matrixMode(MatrixModeEnum.MODELVIEW);
+		renderer.loadIdentity();
+		renderer.translate(0, 0, -10);
+
+		assertTrue(renderer.isOccluded(new Vector(0, 2.4, -5), 0.5, origin, 3.0));
+		assertFalse(renderer.isOccluded(new Vector(0, 3.2, -5), 0.5, origin, 3.0));
+		assertFalse(renderer.isOccluded(new Vector(0, 0, 5), 0.5, origin, 3.0));
+	}
+
+	public void testCulledRegionsAreNotFetched() throws Exception
+	{
+		// Entirely to the right of the view
+		assertEquals(0, render(20.0, 24.0, 0.0));
+		assertEquals(0, render(20.0, 24.0, 0.5));
+
+		// Straddling the center of the view
+		assertEquals(17 * 17, render(-2.0, 2.0, 0.0));
+	}
+
+
+	/** Renders a region of terrain with culling enabled.
+	 *
+	 * @return The number of elevations fetched
+	 */
+	protected int render(double west, double east, double maximumPixelError) throws Exception
+	{
+		double north = 2.0;
+		double south = -2.0;
+
+		TextureRendererTest.RecordingRenderer renderer = new TextureRendererTest.RecordingRenderer();
+		renderer.matrixMode(MatrixModeEnum.PROJECTION);
+		renderer.loadIdentity();
+		renderer.perspective(60, 1, 1, 100);
+		renderer.matrixMode(MatrixModeEnum.MODELVIEW);
+		renderer.loadIdentity();
+		renderer.translate(0, 0, -10);
+
+		Texture texture = new Texture(8, 8, north, south, east, west, new StandardCapacityIntBuffer(64));
+
+		GlobalOptionModel globalOptionModel = new GlobalOptionModel();
+		globalOptionModel.setNorthLimit(north);
+		globalOptionModel.setSouthLimit(south);
+		globalOptionModel.setEastLimit(east);
+		globalOptionModel.setWestLimit(west);
+
+		final int[] fetches = new int[1];
+		ElevationFetchCallback elevations = new ElevationFetchCallback() {
+			public double getElevation(double latitude, double longitude)
+			{
+				fetches[0]++;
+				return 0.5;
+			}
+		};
+
+		TextureRenderer textureRenderer = new TextureRenderer(texture, renderer, createView(), resolution, resolution, globalOptionModel, elevations);
+		textureRenderer.setMaximumPixelError(maximumPixelError);
+		textureRenderer.enableCulling(0.0, 1.0);
+		textureRenderer.render();
+
+		if (fetches[0] == 0) {
+			assertEquals(0, renderer.vertices.size());
+		}
+		return fetches[0];
+	}
+
+	protected GraphicsRenderer createPerspectiveRenderer() throws Exception
+	{
+		GraphicsRenderer renderer = new GraphicsRenderer();
+		renderer.matrixMode(MatrixModeEnum.PROJECTION);
+		renderer.loadIdentity();
+		renderer.perspective(60, 1, 1, 100);
+		renderer.matrixMode(MatrixModeEnum.MODELVIEW);
+		renderer.loadIdentity();
+		renderer.translate(0, 0, -10);
+		return renderer;
+	}
+
+	/** A flat view placing vertices at their longitude and latitude, raised by their elevation.
+	 */
+	protected View createView()
+	{
+		return (View) Proxy.newProxyInstance(View.class.getClassLoader(), new Class<?>[] { View.class }, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args)
+			{
+				if (method.getName().equals("project")) {
+					Vector point = (Vector) args[3];
+					point.x = (Double) args[1];
+					point.y = (Double) args[0];
+					point.z = (Double) args[2];
+				} else if (method.getName().equals("getNormal")) {
+					Vector normal = (Vector) args[2];
+					normal.x = 0;
+					normal.y = 0;
+					normal.z = 1;
+				} else if (method.getName().equals("getOccluderRadius")) {
+					return 0.0;
+				}
+				return null;
+			}
+		});
+	}
+}
@@ -0,0 +1,131 @@
+package us.wthr.jdem846.graphics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import us.wthr.jdem846.DemConstants;
+import us.wthr.jdem846.buffers.impl.StandardCapacityIntBuffer;
+import us.wthr.jdem846.math.Vector;
+import us.wthr.jdem846.model.GlobalOptionModel;
+
+public class TextureRendererTest extends TestCase
+{
+
+	private double resolution = 0.25;
+	private double north = 10.0;
+	private double south = 8.0;
+	private double east = 21.1;
+	private double west = 20.0;
+
+
+	public void testEachGridVertexIsProjectedOnce()
+	{
+		final List<double[]> projected = new ArrayList<double[]>();
+		View view = createView(projected);
+
+		RecordingRenderer renderer = new RecordingRenderer();
+		Texture texture = new Texture(8, 8, north, south, east, west, new StandardCapacityIntBuffer(64));
+
+		GlobalOptionModel globalOptionModel = new GlobalOptionModel();
+		globalOptionModel.setNorthLimit(north);
+		globalOptionModel.setSouthLimit(south);
+		globalOptionModel.setEastLimit(east);
+		globalOptionModel.setWestLimit(west);
+
+		ElevationFetchCallback elevations = new ElevationFetchCallback() {
+			public double getElevation(double latitude, double longitude)
+			{
+				// A hole in the grid
+				if (latitude == 9.0 && longitude == 20.5) {
+					return DemConstants.ELEV_NO_DATA;
+				}
+				return latitude * 100 + longitude;
+			}
+		};
+
+		TextureRenderer textureRenderer = new TextureRenderer(texture, renderer, view, resolution, resolution, globalOptionModel, elevations);
+		textureRenderer.render();
+
+		int rows = 9; // 10.0 down to 8.0
+		int columns = 6; // 20.0 to 21.0 plus the eastern edge
+		assertEquals(rows * columns - 1, projected.size());
+		assertEquals(8, renderer.strips);
+
+		// Both strips sharing the row holding the hole skip it
+		assertEquals(8 * columns * 2 - 2, renderer.vertices.size());
+
+		int i = 0;
+		for (double latitude = north; latitude > south; latitude -= resolution) {
+			for (int column = 0; column < columns; column++) {
+				double longitude = (column < columns - 1) ? west + column * resolution : east;
+				for (double rowLatitude : new double[] {latitude, latitude - resolution}) {
+					if (rowLatitude == 9.0 && longitude == 20.5) {
+						continue;
+					}
+					double[] vertex = renderer.vertices.get(i++);
+					assertEquals(longitude, vertex[0]);
+					assertEquals(rowLatitude, vertex[1]);
+					assertEquals(rowLatitude * 100 + longitude, vertex[2]);
+					assertEquals((longitude - west) / (east - west), vertex[3]);
+					assertEquals((north - rowLatitude) / (north - south), vertex[4]);
+				}
+			}
+		}
+	}
+
+
+	protected View createView(final List<double[]> projected)
+	{
+		return (View) Proxy.newProxyInstance(View.class.getClassLoader(), new Class<?>[] { View.class }, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args)
+			{
+				if (method.getName().equals("project")) {
+					Vector point = (Vector) args[3];
+					point.x = (Double) args[1];
+					point.y = (Double) args[0];
+					point.z = (Double) args[2];
+					projected.add(new double[] { point.x, point.y, point.z });
+				} else if (method.getName().equals("getNormal")) {
+					Vector normal = (Vector) args[2];
+					normal.x = 0;
+					normal.y = 0;
+					normal.z = 1;
+				}
+				return null;
+			}
+		});
+	}
+
+	static class RecordingRenderer extends GraphicsRenderer
+	{
+		List<double[]> vertices = new ArrayList<double[]>();
+		int strips = 0;
+		double left;
+		double front;
+
+		public void begin(PrimitiveModeEnum mode)
+		{
+			strips++;
+		}
+
+		public void end()
+		{
+
+		}
+
+		public void texCoord(double left, double front)
+		{
+			this.left = left;
+			this.front = front;
+		}
+
+		public void vertex(double x, double y, double z)
+		{
+			vertices.add(new double[] { x, y, z, left, front });
+		}
+	}
+}
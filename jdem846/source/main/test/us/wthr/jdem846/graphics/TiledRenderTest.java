@@ -0,0 +1,121 @@
+package us.wthr.jdem846.graphics;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import us.wthr.jdem846.JDem846Properties;
+import us.wthr.jdem846.exception.GraphicsRenderException;
+import us.wthr.jdem846.graphics.framebuffer.FrameBufferModeEnum;
+
+public class TiledRenderTest extends TestCase
+{
+
+	private int width = 301;
+	private int height = 217;
+
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		if (!JDem846Properties.hasProperty("us.wthr.jdem846.general.buffers.maxHeapBufferSizeBytes")) {
+			JDem846Properties.setProperty("us.wthr.jdem846.general.buffers.maxHeapBufferSizeBytes", "100000000");
+		}
+	}
+
+	public void testPerspectiveTilesMatchFullRender() throws Exception
+	{
+		compareTiles(true);
+	}
+
+	public void testOrthographicTilesMatchFullRender() throws Exception
+	{
+		compareTiles(false);
+	}
+
+	public void testInvalidTilesAreRejected()
+	{
+		int[][] invalid = { { 0, 4 }, { -64, 4 }, { 64, -1 } };
+		for (int[] settings : invalid) {
+			try {
+				new TiledRender(width, height, settings[0], settings[1]);
+				fail("Tile size " + settings[0] + " with guard band " + settings[1] + " was accepted");
+			} catch (IllegalArgumentException ex) {
+			}
+		}
+	}
+
+
+	protected void compareTiles(final boolean perspective) throws Exception
+	{
+		ImageCapture expected = render(perspective, 0, 0, width, height);
+
+		TiledRender tiledRender = new TiledRender(width, height, 64, 4);
+		assertEquals(5, tiledRender.getTileColumns());
+		assertEquals(4, tiledRender.getTileRows());
+
+		ImageCapture actual = tiledRender.render(new RegionRenderCallback() {
+			public ImageCapture renderRegion(int x, int y, int regionWidth, int regionHeight) throws GraphicsRenderException
+			{
+				assertTrue(regionWidth <= 64 + 8 && regionHeight <= 64 + 8);
+				return render(perspective, x, y, regionWidth, regionHeight);
+			}
+		});
+
+		// Tiles are transformed by a different matrix, so a few pixels along triangle edges
+		// may round the other way
+		int drawn = 0;
+		int differing = 0;
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				if (expected.get(x, y) != actual.get(x, y)) {
+					differing++;
+				}
+				if (expected.get(x, y) != 0xFF000000) {
+					drawn++;
+				}
+			}
+		}
+		assertTrue(drawn > width * height / 4);
+		assertTrue("Differing pixels: " + differing, differing < width * height / 500);
+	}
+
+	protected ImageCapture render(boolean perspective, int x, int y, int regionWidth, int regionHeight) throws GraphicsRenderException
+	{
+		GraphicsRenderer renderer = new GraphicsRenderer();
+		renderer.viewPort(0, 0, regionWidth, regionHeight, FrameBufferModeEnum.TILED_Z_BUFFER);
+		renderer.matrixMode(MatrixModeEnum.PROJECTION);
+		renderer.loadIdentity();
+		if (regionWidth != width || regionHeight != height) {
+			renderer.multMatrix(TiledRender.getRegionMatrix(x, y, regionWidth, regionHeight, width, height));
+		}
+		if (perspective) {
+			renderer.perspective(45, (double) width / (double) height, 1, 100);
+		} else {
+			renderer.ortho(-1.6, 1.6, -1.2, 1.2, 1, 100);
+		}
+		renderer.matrixMode(MatrixModeEnum.MODELVIEW);
+		renderer.loadIdentity();
+		renderer.translate(0, 0, -3);
+		renderer.rotate(30, AxisEnum.X_AXIS);
+		renderer.clearColorBuffer(0xFF000000);
+
+		Random random = new Random(7);
+		int rows = 30;
+		int columns = 40;
+		for (int row = 0; row < rows; row++) {
+			renderer.color(0xFF000000 | random.nextInt(0xFFFFFF));
+			renderer.begin(PrimitiveModeEnum.TRIANGLE_STRIP);
+			for (int column = 0; column <= columns; column++) {
+				for (int i = 0; i < 2; i++) {
+					renderer.vertex(-1.5 + 3.0 * column / columns, -1.0 + 2.0 * (row + i) / rows, Math.sin(column + row + i) * 0.1);
+				}
+			}
+			renderer.end();
+		}
+
+		ImageCapture image = renderer.captureImage();
+		renderer.dispose();
+		return image;
+	}
+}
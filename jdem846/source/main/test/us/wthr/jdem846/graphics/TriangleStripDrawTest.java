@@ -0,0 +1,151 @@
+package us.wthr.jdem846.graphics;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import us.wthr.jdem846.geom.util.TriangleInterpolator;
+import us.wthr.jdem846.graphics.framebuffer.AbstractFrameBuffer;
+import us.wthr.jdem846.graphics.framebuffer.BufferPoint;
+
+public class TriangleStripDrawTest extends TestCase
+{
+
+	private int width = 120;
+	private int height = 90;
+
+
+	public void testSharedEdgesAreFilledOnce()
+	{
+		CountingFrameBuffer frameBuffer = new CountingFrameBuffer(width, height);
+
+		int rows = 12;
+		int columns = 15;
+		double left = 3.5;
+		double top = 2.25;
+		double columnWidth = 7.25;
+		double rowHeight = 6.5;
+
+		for (int row = 0; row < rows; row++) {
+			TriangleStripDraw drawer = new TriangleStripDraw(frameBuffer);
+			drawer.setColor(0xFFFFFFFF);
+			for (int column = 0; column <= columns; column++) {
+				// Skew the interior vertices so that edges run at a variety of angles
+				double skew = (column > 0 && column < columns) ? ((row + column) % 3) * 0.8 : 0;
+				drawer.vertex(left + column * columnWidth + skew, top + row * rowHeight, 0);
+				drawer.vertex(left + column * columnWidth + skew, top + (row + 1) * rowHeight, 0);
+			}
+		}
+
+		double right = left + columns * columnWidth;
+		double bottom = top + rows * rowHeight;
+
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int count = frameBuffer.counts[y * width + x];
+				if (x > left && x < right && y > top && y < bottom) {
+					assertEquals("Pixel " + x + "/" + y, 1, count);
+				} else if (x < left || x > right || y < top || y > bottom) {
+					assertEquals("Pixel " + x + "/" + y, 0, count);
+				} else {
+					assertTrue(count <= 1);
+				}
+			}
+		}
+	}
+
+	public void testInterpolationMatchesTrianglePlanes()
+	{
+		Random random = new Random(11);
+
+		for (int i = 0; i < 200; i++) {
+			CountingFrameBuffer frameBuffer = new CountingFrameBuffer(width, height);
+			TriangleStripDraw drawer = new TriangleStripDraw(frameBuffer);
+			drawer.setColor(0xFF204060);
+
+			double[] x = new double[3];
+			double[] y = new double[3];
+			double[] z = new double[3];
+			for (int v = 0; v < 3; v++) {
+				x[v] = random.nextDouble() * (width + 40) - 20;
+				y[v] = random.nextDouble() * (height + 40) - 20;
+				z[v] = random.nextDouble() * 100;
+				drawer.vertex(x[v], y[v], z[v]);
+			}
+
+			TriangleInterpolator interpolator = new TriangleInterpolator(x[0], y[0], z[0], x[1], y[1], z[1], x[2], y[2], z[2]);
+
+			for (int py = 0; py < height; py++) {
+				for (int px = 0; px < width; px++) {
+					double s0 = sign(px, py, x[0], y[0], x[1], y[1]);
+					double s1 = sign(px, py, x[1], y[1], x[2], y[2]);
+					double s2 = sign(px, py, x[2], y[2], x[0], y[0]);
+
+					boolean inside = (s0 > 0 && s1 > 0 && s2 > 0) || (s0 < 0 && s1 < 0 && s2 < 0);
+					boolean outside = (s0 > 0 || s1 > 0 || s2 > 0) && (s0 < 0 || s1 < 0 || s2 < 0);
+					int count = frameBuffer.counts[py * width + px];
+
+					// Pixels within rounding of an edge may go either way
+					double margin = 0.01 * (Math.abs(x[1] - x[0]) + Math.abs(y[1] - y[0]) + Math.abs(x[2] - x[1]) + Math.abs(y[2] - y[1]) + Math.abs(x[0] - x[2]) + Math.abs(y[0] - y[2]));
+					boolean nearEdge = Math.abs(s0) < margin || Math.abs(s1) < margin || Math.abs(s2) < margin;
+
+					if (inside && !nearEdge) {
+						assertEquals(1, count);
+						assertEquals(interpolator.getInterpolatedValue(px, py), frameBuffer.depths[py * width + px], 1e-6);
+						assertEquals(0xFF204060, frameBuffer.colors[py * width + px]);
+					} else if (outside && !nearEdge) {
+						assertEquals(0, count);
+					}
+				}
+			}
+		}
+	}
+
+
+	protected double sign(double px, double py, double ax, double ay, double bx, double by)
+	{
+		return (px - bx) * (ay - by) - (ax - bx) * (py - by);
+	}
+
+	static class CountingFrameBuffer extends AbstractFrameBuffer
+	{
+		int[] counts;
+		int[] colors;
+		double[] depths;
+
+		CountingFrameBuffer(int width, int height)
+		{
+			super(width, height);
+			counts = new int[width * height];
+			colors = new int[width * height];
+			depths = new double[width * height];
+		}
+
+		public boolean isVisible(double x, double y, double z, int rgba)
+		{
+			return true;
+		}
+
+		public void reset(boolean setBackground, int background)
+		{
+
+		}
+
+		public void set(int x, int y, double z, int rgba)
+		{
+			int i = index(x, y);
+			counts[i]++;
+			colors[i] = rgba;
+			depths[i] = z;
+		}
+
+		public void set(int x, int y, BufferPoint point)
+		{
+			set(x, y, point.z, point.rgba);
+		}
+
+		public int get(double x, double y)
+		{
+			return colors[index(x, y)];
+		}
+	}
+}
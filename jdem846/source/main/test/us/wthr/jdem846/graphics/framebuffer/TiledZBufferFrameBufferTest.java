@@ -0,0 +1,136 @@
+package us.wthr.jdem846.graphics.framebuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import us.wthr.jdem846.JDem846Properties;
+import us.wthr.jdem846.graphics.ImageCapture;
+import us.wthr.jdem846.util.ColorUtil;
+
+public class TiledZBufferFrameBufferTest extends TestCase
+{
+
+	private int width = 150;
+	private int height = 97;
+
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		if (!JDem846Properties.hasProperty("us.wthr.jdem846.general.buffers.maxHeapBufferSizeBytes")) {
+			JDem846Properties.setProperty("us.wthr.jdem846.general.buffers.maxHeapBufferSizeBytes", "100000000");
+		}
+	}
+
+	public void testOpaqueFragmentsMatchStandardBuffer()
+	{
+		StandardFrameBuffer standard = new StandardFrameBuffer(width, height);
+		TiledZBufferFrameBuffer tiled = new TiledZBufferFrameBuffer(width, height, 32);
+
+		standard.reset(true, 0xFF102030);
+		tiled.reset(true, 0xFF102030);
+
+		Random random = new Random(42);
+		for (int i = 0; i < 50000; i++) {
+			int x = random.nextInt(width + 10) - 5;
+			int y = random.nextInt(height + 10) - 5;
+			double z = random.nextInt(1000);
+			int rgba = 0xFF000000 | random.nextInt(0xFFFFFF);
+
+			standard.set(x, y, z, rgba);
+			tiled.set(x, y, z, rgba);
+		}
+
+		ImageCapture expected = standard.captureImage();
+		ImageCapture actual = tiled.captureImage();
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				assertEquals(expected.get(x, y), actual.get(x, y));
+				assertEquals(standard.get(x, y), tiled.get(x, y));
+			}
+		}
+	}
+
+	public void testTranslucentFragmentsBlendOverOpaque()
+	{
+		TiledZBufferFrameBuffer tiled = new TiledZBufferFrameBuffer(width, height);
+		tiled.reset(false, 0x0);
+
+		// Translucent drawn first but in front
+		tiled.set(10, 10, 5.0, 0x80FF0000);
+		tiled.set(10, 10, 1.0, 0xFF0000FF);
+
+		// Opaque in front hides both
+		tiled.set(20, 20, 1.0, 0x80FF0000);
+		tiled.set(20, 20, 5.0, 0xFF00FF00);
+
+		// Transparent fragments are ignored
+		tiled.set(30, 30, 9.0, 0x00FFFFFF);
+
+		assertEquals(ColorUtil.overlayColor(0x80FF0000, 0xFF0000FF), tiled.get(10, 10));
+		assertEquals(0xFF00FF00, tiled.get(20, 20));
+		assertEquals(0x0, tiled.get(30, 30));
+		assertEquals(5.0, tiled.getDepth(10, 10), 0.0);
+
+		assertFalse(tiled.isVisible(20, 20, 4.0, 0xFF00FF00));
+		assertTrue(tiled.isVisible(20, 20, 6.0, 0xFF00FF00));
+	}
+
+	public void testDepthResolutionAtPlanetaryScale()
+	{
+		TiledZBufferFrameBuffer tiled = new TiledZBufferFrameBuffer(width, height);
+		tiled.reset(false, 0x0);
+
+		// Depths about an earth radius from the eye, closer together than a float can tell apart
+		double far = 6371000.0;
+		double near = far + 0.01;
+		assertEquals((float) far, (float) near);
+
+		tiled.set(40, 40, far, 0xFF0000FF);
+		tiled.set(40, 40, near, 0xFF00FF00);
+		tiled.set(41, 40, near, 0xFF00FF00);
+		tiled.set(41, 40, far, 0xFF0000FF);
+
+		assertEquals(0xFF00FF00, tiled.get(40, 40));
+		assertEquals(0xFF00FF00, tiled.get(41, 40));
+		assertEquals(near, tiled.getDepth(41, 40), 0.0);
+		assertFalse(tiled.isVisible(41, 40, far, 0xFF0000FF));
+	}
+
+	public void testConcurrentWriters() throws Exception
+	{
+		final TiledZBufferFrameBuffer tiled = new TiledZBufferFrameBuffer(width, height, 16);
+		final int threadCount = 4;
+
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < threadCount; t++) {
+			final int layer = t;
+			Thread thread = new Thread() {
+				public void run()
+				{
+					for (int y = 0; y < height; y++) {
+						for (int x = 0; x < width; x++) {
+							tiled.set(x, y, layer, 0xFF000000 | layer);
+						}
+					}
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				assertEquals(0xFF000000 | (threadCount - 1), tiled.get(x, y));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,114 @@
+package us.wthr.jdem846.image;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import junit.framework.TestCase;
+import us.wthr.jdem846.buffers.IIntBuffer;
+import us.wthr.jdem846.buffers.impl.StandardCapacityIntBuffer;
+import us.wthr.jdem846.util.ColorIntFormatEnum;
+import us.wthr.jdem846.util.ColorUtil;
+
+public class ImageBuffersTest extends TestCase
+{
+
+	private int width = 97;
+	private int height = 61;
+
+
+	public void testImageSharesHeapPixels()
+	{
+		IIntBuffer pixels = createPixels(false);
+		assertTrue(pixels.hasArray());
+
+		BufferedImage image = ImageBuffers.createImage(pixels, width, height);
+		checkImage(pixels, image);
+
+		pixels.putInt(5 * width + 3, ColorUtil.rgbaToInt(0x12, 0x34, 0x56, 0x78));
+		assertEquals(0x78123456, image.getRGB(3, 5));
+	}
+
+	public void testStreamedPngMatchesPixels() throws Exception
+	{
+		IIntBuffer pixels = createPixels(true);
+		assertFalse(pixels.hasArray());
+
+		// Bands of a few rows each, compressed serially and on several threads
+		for (int threads : new int[] { 1, 4 }) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			new PngStreamWriter(threads, 3 * width * 4, 6).write(pixels, width, height, out);
+			checkImage(pixels, ImageIO.read(new ByteArrayInputStream(out.toByteArray())));
+		}
+
+		// As on runtimes without a sync flush
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new PngStreamWriter(4, 3 * width * 4, 6) {
+			protected boolean isBandFlushSupported()
+			{
+				return false;
+			}
+		}.write(pixels, width, height, out);
+		checkImage(pixels, ImageIO.read(new ByteArrayInputStream(out.toByteArray())));
+	}
+
+	public void testParallelPngMatchesPixelsOnFileChannel() throws Exception
+	{
+		IIntBuffer pixels = createPixels(false);
+
+		File file = File.createTempFile("jdem846", ".png");
+		try {
+			FileOutputStream out = new FileOutputStream(file);
+			try {
+				new PngStreamWriter(3, 1024, 9).write(pixels, width, height, out.getChannel());
+			} finally {
+				out.close();
+			}
+			checkImage(pixels, ImageIO.read(file));
+		} finally {
+			file.delete();
+		}
+	}
+
+	public void testSavedPngMatchesPixels() throws Exception
+	{
+		for (boolean direct : new boolean[] { false, true }) {
+			IIntBuffer pixels = createPixels(direct);
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			ImageWriter.saveImage(pixels, width, height, out, ImageTypeEnum.PNG);
+			checkImage(pixels, ImageIO.read(new ByteArrayInputStream(out.toByteArray())));
+		}
+	}
+
+
+	protected IIntBuffer createPixels(boolean direct)
+	{
+		Random random = new Random(3);
+		IIntBuffer pixels = new StandardCapacityIntBuffer(width * height, direct);
+		for (int i = 0; i < width * height; i++) {
+			pixels.putInt(i, random.nextInt());
+		}
+		return pixels;
+	}
+
+	protected void checkImage(IIntBuffer pixels, BufferedImage image)
+	{
+		assertEquals(width, image.getWidth());
+		assertEquals(height, image.getHeight());
+
+		int[] rgba = new int[4];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				ColorUtil.intToRGBA(pixels.getInt(y * width + x), rgba);
+				int argb = ColorUtil.rgbaToInt(rgba[0], rgba[1], rgba[2], rgba[3], ColorIntFormatEnum.ARGB);
+				assertEquals("Pixel " + x + "/" + y, argb, image.getRGB(x, y));
+			}
+		}
+	}
+}
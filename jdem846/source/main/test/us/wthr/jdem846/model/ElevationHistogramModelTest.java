@@ -0,0 +1,65 @@
+package us.wthr.jdem846.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class ElevationHistogramModelTest extends TestCase
+{
+
+	public void testConcurrentCountsAreExact() throws Exception
+	{
+		final ElevationHistogramModel histogram = new ElevationHistogramModel(100, 0, 99);
+		final int rows = 2000;
+
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < 8; t++) {
+			final boolean bulk = (t % 2 == 0);
+			threads.add(new Thread() {
+				public void run()
+				{
+					float[] row = new float[100];
+					for (int i = 0; i < row.length; i++) {
+						row[i] = i;
+					}
+
+					for (int r = 0; r < rows; r++) {
+						if (bulk) {
+							histogram.addAll(row);
+						} else {
+							for (float elevation : row) {
+								histogram.add(elevation);
+							}
+						}
+					}
+				}
+			});
+		}
+
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		ElevationHistogramModel expected = new ElevationHistogramModel(100, 0, 99);
+		for (int r = 0; r < rows * 8; r++) {
+			for (int i = 0; i < 100; i++) {
+				expected.add(i);
+			}
+		}
+
+		int[] distribution = histogram.getDistribution();
+		assertTrue(Arrays.equals(expected.getDistribution(), distribution));
+		assertEquals(8 * rows, distribution[49]);
+		assertEquals(expected.getCountWithinElevationRange(10, 19), histogram.getCountWithinElevationRange(10, 19));
+
+		// Counts are merged only once
+		assertEquals(8 * rows, histogram.getCountAtElevation(49));
+		histogram.add(49);
+		assertEquals(8 * rows + 1, histogram.getCountAtElevation(49));
+	}
+}
@@ -0,0 +1,83 @@
+package us.wthr.jdem846.model;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import junit.framework.TestCase;
+
+public class RowBandSchedulerTest extends TestCase
+{
+
+	public void testSingleWorkerClaimsAllRows()
+	{
+		RowBandScheduler scheduler = new RowBandScheduler(1000, 1, 7);
+		RowBandScheduler.Band band = new RowBandScheduler.Band();
+
+		int expectedStart = 0;
+		while (scheduler.next(0, band)) {
+			assertEquals(expectedStart, band.start);
+			assertTrue(band.end > band.start);
+			expectedStart = band.end;
+		}
+
+		assertEquals(1000, expectedStart);
+	}
+
+	public void testIdleWorkerStealsRemainingRows()
+	{
+		RowBandScheduler scheduler = new RowBandScheduler(100, 2, 10);
+		RowBandScheduler.Band band = new RowBandScheduler.Band();
+
+		int claimed = 0;
+		while (scheduler.next(1, band)) {
+			claimed += band.end - band.start;
+		}
+
+		assertEquals(100, claimed);
+		assertFalse(scheduler.next(0, band));
+	}
+
+	public void testConcurrentWorkersClaimEachRowOnce() throws Exception
+	{
+		final int rows = 10007;
+		final int workers = 8;
+		final RowBandScheduler scheduler = new RowBandScheduler(rows, workers, 3);
+		final AtomicIntegerArray counts = new AtomicIntegerArray(rows);
+
+		Thread[] threads = new Thread[workers];
+		for (int i = 0; i < workers; i++) {
+			final int worker = i;
+			threads[i] = new Thread() {
+				public void run()
+				{
+					RowBandScheduler.Band band = new RowBandScheduler.Band();
+					while (scheduler.next(worker, band)) {
+						for (int y = band.start; y < band.end; y++) {
+							counts.incrementAndGet(y);
+						}
+					}
+				}
+			};
+			threads[i].start();
+		}
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		for (int y = 0; y < rows; y++) {
+			assertEquals(1, counts.get(y));
+		}
+	}
+
+	public void testAbortStopsClaims()
+	{
+		RowBandScheduler scheduler = new RowBandScheduler(100, 4);
+		RowBandScheduler.Band band = new RowBandScheduler.Band();
+
+		assertTrue(scheduler.next(0, band));
+		scheduler.abort();
+		assertFalse(scheduler.next(0, band));
+		assertFalse(scheduler.next(3, band));
+	}
+
+}
@@ -0,0 +1,142 @@
+package us.wthr.jdem846.model.processing;
+
+import us.wthr.jdem846.AbstractTestMain;
+import us.wthr.jdem846.exception.RenderEngineException;
+import us.wthr.jdem846.logging.Log;
+import us.wthr.jdem846.logging.Logging;
+
+/**
+ * Compares points per second between the reflective GridMethodStack dispatch
+ * and the bound GridProcessMethodStack dispatch.
+ */
+public class GridMethodStackBenchmarkTestMain extends AbstractTestMain
+{
+	private static Log log = null;
+
+	private int numberOfProcessors = 4;
+	private int width = 4000;
+	private int height = 2000;
+	private int passes = 3;
+
+	public static void main(String[] args)
+	{
+		try {
+			initialize(false);
+		} catch (Exception ex) {
+			ex.printStackTrace();
+		}
+
+		log = Logging.getLog(GridMethodStackBenchmarkTestMain.class);
+
+		try {
+			GridMethodStackBenchmarkTestMain testMain = new GridMethodStackBenchmarkTestMain();
+			testMain.doTesting();
+		} catch (Exception ex) {
+			log.error("Uncaught exception while running test main: " + ex.getMessage(), ex);
+		}
+
+	}
+
+	public void doTesting() throws Exception
+	{
+		GridMethodStack reflectiveLatitudeStart = new GridMethodStack();
+		GridMethodStack reflectivePoint = new GridMethodStack();
+		GridMethodStack reflectiveLatitudeEnd = new GridMethodStack();
+		GridProcessMethodStack boundStack = new GridProcessMethodStack();
+
+		for (int i = 0; i < numberOfProcessors; i++) {
+			BenchmarkProcessor processor = new BenchmarkProcessor();
+			reflectiveLatitudeStart.addMethod(processor, processor.getClass().getMethod("onLatitudeStart", double.class));
+			reflectivePoint.addMethod(processor, processor.getClass().getMethod("onModelPoint", double.class, double.class));
+			reflectiveLatitudeEnd.addMethod(processor, processor.getClass().getMethod("onLatitudeEnd", double.class));
+			boundStack.add(processor);
+		}
+		boundStack.prepare();
+
+		for (int pass = 0; pass < passes; pass++) {
+
+			long start = System.nanoTime();
+			for (int y = 0; y < height; y++) {
+				double latitude = 90.0 - y * 0.01;
+				reflectiveLatitudeStart.invoke(latitude);
+				for (int x = 0; x < width; x++) {
+					reflectivePoint.invoke(latitude, -180.0 + x * 0.01);
+				}
+				reflectiveLatitudeEnd.invoke(latitude);
+			}
+			long reflectiveNanos = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for (int y = 0; y < height; y++) {
+				double latitude = 90.0 - y * 0.01;
+				boundStack.onLatitudeStart(latitude);
+				for (int x = 0; x < width; x++) {
+					boundStack.onModelPoint(latitude, -180.0 + x * 0.01);
+				}
+				boundStack.onLatitudeEnd(latitude);
+			}
+			long boundNanos = System.nanoTime() - start;
+
+			double points = (double) width * (double) height;
+			log.info("Pass #" + (pass + 1) + ": reflective " + pointsPerSecond(points, reflectiveNanos) + " points/sec, bound " + pointsPerSecond(points, boundNanos)
+					+ " points/sec (" + (reflectiveNanos / (double) boundNanos) + "x)");
+		}
+	}
+
+	protected long pointsPerSecond(double points, long nanos)
+	{
+		return (long) (points / (nanos / 1000000000.0));
+	}
+
+	public static class BenchmarkProcessor extends GridProcessor
+	{
+		private double sum = 0;
+
+		@Override
+		public void prepare() throws RenderEngineException
+		{
+
+		}
+
+		@Override
+		public void onProcessBefore() throws RenderEngineException
+		{
+
+		}
+
+		@Override
+		public void onLatitudeStart(double latitude) throws RenderEngineException
+		{
+			sum += latitude;
+		}
+
+		@Override
+		public void onModelPoint(double latitude, double longitude) throws RenderEngineException
+		{
+			sum += longitude;
+		}
+
+		@Override
+		public void onLatitudeEnd(double latitude) throws RenderEngineException
+		{
+			sum -= latitude;
+		}
+
+		@Override
+		public void onProcessAfter() throws RenderEngineException
+		{
+
+		}
+
+		@Override
+		public void dispose() throws RenderEngineException
+		{
+
+		}
+
+		public double getSum()
+		{
+			return sum;
+		}
+	}
+}
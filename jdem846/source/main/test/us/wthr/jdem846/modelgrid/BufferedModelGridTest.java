@@ -0,0 +1,202 @@
+package us.wthr.jdem846.modelgrid;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import us.wthr.jdem846.DemConstants;
+import us.wthr.jdem846.JDem846Properties;
+import us.wthr.jdem846.buffers.BufferFactory;
+import us.wthr.jdem846.buffers.IIntBuffer;
+import us.wthr.jdem846.buffers.ParallelBufferFill;
+import us.wthr.jdem846.graphics.Color;
+import us.wthr.jdem846.model.ElevationHistogramModel;
+
+public class BufferedModelGridTest extends TestCase
+{
+
+	private double north = 40.0;
+	private double south = 39.0;
+	private double east = -104.0;
+	private double west = -105.2;
+	private double resolution = 0.02;
+
+	private int width = 61;
+	private int height = 51;
+
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		if (!JDem846Properties.hasProperty("us.wthr.jdem846.general.buffers.maxHeapBufferSizeBytes")) {
+			JDem846Properties.setProperty("us.wthr.jdem846.general.buffers.maxHeapBufferSizeBytes", "100000000");
+		}
+	}
+
+	public void testTiledLayoutOffsetsAreDistinct()
+	{
+		GridLayout layout = new GridLayout(width, height, 16);
+		assertEquals(4 * 4 * 16 * 16, layout.getLength());
+
+		Set<Long> offsets = new HashSet<Long>();
+		for (int row = 0; row < height; row++) {
+			for (int column = 0; column < width; column += layout.getRunLength(column)) {
+				long offset = layout.getOffset(column, row);
+				for (int i = 0; i < layout.getRunLength(column); i++) {
+					assertEquals(offset + i, layout.getOffset(column + i, row));
+					assertEquals(offset + i, layout.getOffset((long) row * width + column + i));
+					assertTrue(offsets.add(offset + i));
+					assertTrue(offset + i < layout.getLength());
+				}
+			}
+		}
+		assertEquals(width * height, offsets.size());
+	}
+
+	public void testTiledGridMatchesRowMajorGrid() throws Exception
+	{
+		BufferedModelGrid rowMajor = createModelGrid(GridLayout.ROW_MAJOR);
+		BufferedModelGrid tiled = createModelGrid(16);
+		assertTrue(tiled.getElevationLayout().isTiled());
+
+		// Each elevation is counted once
+		ElevationHistogramModel histogram = new ElevationHistogramModel(500, 1000, 4000);
+		for (int i = 0; i < width * height; i++) {
+			histogram.add(tiled.getElevationByIndex(i));
+		}
+		assertTrue(Arrays.equals(histogram.getDistribution(), tiled.getElevationHistogramModel().getDistribution()));
+
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				double latitude = north - y * resolution;
+				double longitude = west + x * resolution;
+				assertEquals(rowMajor.getElevationByIndex(y * width + x), tiled.getElevationByIndex(y * width + x));
+				assertEquals(rowMajor.getElevation(latitude, longitude), tiled.getElevation(latitude, longitude));
+			}
+		}
+
+		// Rows read past both edges of the grid
+		int length = width + 10;
+		float[] expected = new float[length];
+		float[] actual = new float[length];
+		for (int y = 0; y < height; y++) {
+			double latitude = north - y * resolution;
+			rowMajor.getElevationRow(latitude, -5, expected, 0, length, true);
+			tiled.getElevationRow(latitude, -5, actual, 0, length, true);
+			for (int x = 0; x < length; x++) {
+				assertEquals(expected[x], actual[x]);
+			}
+			assertEquals((float) DemConstants.ELEV_NO_DATA, actual[0]);
+		}
+
+		ByteArrayOutputStream rowMajorFile = new ByteArrayOutputStream();
+		ByteArrayOutputStream tiledFile = new ByteArrayOutputStream();
+		ModelGridWriter.writeVersion1(rowMajorFile, rowMajor);
+		ModelGridWriter.writeVersion1(tiledFile, tiled);
+		assertTrue(Arrays.equals(rowMajorFile.toByteArray(), tiledFile.toByteArray()));
+
+		// Rows are written as they were cell by cell
+		ByteArrayOutputStream cellFile = new ByteArrayOutputStream();
+		ModelGridWriter.writeHeader(rowMajor, cellFile);
+		for (int i = 0; i < width * height; i++) {
+			ModelGridWriter.writeCell(rowMajor, i, cellFile);
+		}
+		assertTrue(Arrays.equals(cellFile.toByteArray(), tiledFile.toByteArray()));
+
+		IModelGrid read = ModelGridReader.read(new ByteArrayInputStream(tiledFile.toByteArray()));
+		for (int i = 0; i < width * height; i++) {
+			assertEquals(rowMajor.getElevationByIndex(i), read.getElevationByIndex(i));
+			assertEquals(rowMajor.getRgbaByIndex(i).asInt(), read.getRgbaByIndex(i).asInt());
+		}
+	}
+
+	public void testQuantizedElevationsAreWithinError() throws Exception
+	{
+		BufferedModelGrid exact = createModelGrid(GridLayout.ROW_MAJOR);
+
+		for (int tileSize : new int[] { GridLayout.ROW_MAJOR, 16 }) {
+			BufferedModelGrid quantized = createModelGrid(tileSize, BufferedModelGrid.ELEVATION_BITS_16);
+			assertEquals(3000.0 / 65533.0 / 2.0, quantized.getElevationError(), 1e-9);
+
+			// Neighboring cells share an int
+			for (double special : new double[] { DemConstants.ELEV_NO_DATA, DemConstants.ELEV_UNDETERMINED }) {
+				quantized.setElevationByIndex(width + 1, special);
+				assertEquals(special, quantized.getElevationByIndex(width + 1));
+				assertEquals(exact.getElevationByIndex(width), quantized.getElevationByIndex(width), quantized.getElevationError() + 1e-3);
+				assertEquals(exact.getElevationByIndex(width + 2), quantized.getElevationByIndex(width + 2), quantized.getElevationError() + 1e-3);
+			}
+			quantized.setElevationByIndex(width + 1, exact.getElevationByIndex(width + 1));
+
+			float[] row = new float[width];
+			for (int y = 0; y < height; y++) {
+				quantized.getElevationRow(north - y * resolution, 0, row, 0, width, true);
+				for (int x = 0; x < width; x++) {
+					int index = y * width + x;
+					assertEquals(exact.getElevationByIndex(index), quantized.getElevationByIndex(index), quantized.getElevationError() + 1e-3);
+					assertEquals((float) quantized.getElevationByIndex(index), row[x]);
+				}
+			}
+		}
+	}
+
+	public void testResetClearsGrid() throws Exception
+	{
+		for (int elevationBits : new int[] { BufferedModelGrid.ELEVATION_BITS_32, BufferedModelGrid.ELEVATION_BITS_16 }) {
+			// New buffers are read as reset without having been filled
+			BufferedModelGrid modelGrid = new BufferedModelGrid(north, south, east, west, resolution, resolution, 1000, 4000, width, height, true, 16, elevationBits);
+			checkCleared(modelGrid);
+
+			modelGrid = createModelGrid(16, elevationBits);
+			modelGrid.reset();
+			checkCleared(modelGrid);
+		}
+	}
+
+	public void testParallelFill()
+	{
+		IIntBuffer buffer = BufferFactory.allocateStandardCapacityIntBuffer(3000001);
+		ParallelBufferFill.fill(buffer, 1, 3000000, 7, 4);
+		assertEquals(0, buffer.getInt(0));
+		assertEquals(0, buffer.getInt(3000000));
+		for (int i = 1; i < 3000000; i++) {
+			assertEquals(7, buffer.getInt(i));
+		}
+	}
+
+
+	protected void checkCleared(BufferedModelGrid modelGrid)
+	{
+		float[] row = new float[width];
+		for (int y = 0; y < height; y++) {
+			modelGrid.getElevationRow(north - y * resolution, 0, row, 0, width, true);
+			for (int x = 0; x < width; x++) {
+				assertEquals((float) DemConstants.ELEV_UNDETERMINED, row[x]);
+				assertEquals(DemConstants.ELEV_UNDETERMINED, modelGrid.getElevationByIndex(y * width + x), 0.5);
+				assertEquals(0, modelGrid.getRgbaByIndex(y * width + x).asInt());
+			}
+		}
+	}
+
+	protected BufferedModelGrid createModelGrid(int tileSize)
+	{
+		return createModelGrid(tileSize, BufferedModelGrid.ELEVATION_BITS_32);
+	}
+
+	protected BufferedModelGrid createModelGrid(int tileSize, int elevationBits)
+	{
+		BufferedModelGrid modelGrid = new BufferedModelGrid(north, south, east, west, resolution, resolution, 1000, 4000, width, height, true, tileSize, elevationBits);
+		modelGrid.reset();
+
+		Random random = new Random(3);
+		for (int i = 0; i < width * height; i++) {
+			modelGrid.setElevationByIndex(i, 1000 + random.nextDouble() * 3000);
+			modelGrid.setRgbaByIndex(i, new Color(random.nextInt()));
+		}
+		return modelGrid;
+	}
+}
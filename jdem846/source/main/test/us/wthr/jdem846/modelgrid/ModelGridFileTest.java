@@ -0,0 +1,197 @@
+package us.wthr.jdem846.modelgrid;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import us.wthr.jdem846.DemConstants;
+import us.wthr.jdem846.JDem846Properties;
+import us.wthr.jdem846.buffers.IIntBuffer;
+import us.wthr.jdem846.exception.DataSourceException;
+import us.wthr.jdem846.graphics.Color;
+
+public class ModelGridFileTest extends TestCase
+{
+
+	private double north = 40.0;
+	private double south = 38.3;
+	private double east = -102.0;
+	private double west = -108.0;
+	private double resolution = 0.01;
+
+	private int width = 601;
+	private int height = 171;
+
+	private IModelGrid modelGrid;
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		if (!JDem846Properties.hasProperty("us.wthr.jdem846.general.buffers.maxHeapBufferSizeBytes")) {
+			JDem846Properties.setProperty("us.wthr.jdem846.general.buffers.maxHeapBufferSizeBytes", "100000000");
+		}
+
+		modelGrid = new BufferedModelGrid(north, south, east, west, resolution, resolution, 1000, 4000, width, height, true);
+		modelGrid.reset();
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int index = y * width + x;
+				if (x % 97 == 0) {
+					modelGrid.setElevationByIndex(index, DemConstants.ELEV_NO_DATA);
+				} else {
+					modelGrid.setElevationByIndex(index, 2500 + 1000 * Math.sin(x * 0.05) * Math.cos(y * 0.07));
+				}
+				modelGrid.setRgbaByIndex(index, new Color(x % 256, y % 256, 128, 255));
+			}
+		}
+	}
+
+	public void testVersion2StreamRoundTrip() throws Exception
+	{
+		ByteArrayOutputStream version1 = new ByteArrayOutputStream();
+		ByteArrayOutputStream version2 = new ByteArrayOutputStream();
+		ModelGridWriter.writeVersion1(version1, modelGrid);
+		ModelGridWriter.writeVersion2(version2, modelGrid, 64, 3);
+		assertTrue(version2.size() < version1.size());
+
+		ModelGridHeader header = ModelGridReader.readHeader(new ByteArrayInputStream(version2.toByteArray()));
+		assertEquals(ModelGridFileIO.VERSION_2, header.version);
+		assertEquals(64, header.tileSize);
+		assertEquals(width, header.width);
+		assertEquals(height, header.height);
+		assertEquals(north, header.north);
+		assertEquals(west, header.west);
+		assertEquals(ModelGridFileIO.VERSION_1, ModelGridReader.readHeader(new ByteArrayInputStream(version1.toByteArray())).version);
+
+		assertGridsEqual(modelGrid, ModelGridReader.read(new ByteArrayInputStream(version2.toByteArray())));
+		assertGridsEqual(modelGrid, ModelGridReader.read(new ByteArrayInputStream(version1.toByteArray())));
+
+		// A zero tile size, following the signature, version, width and height, is rejected
+		byte[] corrupt = version2.toByteArray();
+		Arrays.fill(corrupt, 20, 24, (byte) 0);
+		try {
+			ModelGridReader.read(new ByteArrayInputStream(corrupt));
+			fail("Zero tile size was accepted");
+		} catch (IOException ex) {
+		}
+	}
+
+	public void testMappedGridDecodesTilesOnDemand() throws Exception
+	{
+		File file = File.createTempFile("jdem846-grid", ".jdemgrid");
+		file.deleteOnExit();
+		OutputStream out = new FileOutputStream(file);
+		ModelGridWriter.writeVersion2(out, modelGrid, 64, 2);
+		out.close();
+
+		IModelGrid mapped = ModelGridReader.read(file);
+		assertTrue(mapped instanceof MappedModelGrid);
+		assertGridsEqual(modelGrid, mapped);
+		assertTrue(Arrays.equals(modelGrid.getElevationHistogramModel().getDistribution(), mapped.getElevationHistogramModel().getDistribution()));
+
+		// A window crossing tile edges and the west edge of the grid
+		float[] expected = new float[100];
+		float[] actual = new float[100];
+		int[] expectedRgba = new int[100];
+		int[] actualRgba = new int[100];
+		for (int y = 60; y < 70; y++) {
+			double latitude = north - y * resolution;
+			for (int column = -3; column < width; column += 120) {
+				modelGrid.getElevationRow(latitude, column, expected, 0, 100, true);
+				mapped.getElevationRow(latitude, column, actual, 0, 100, true);
+				modelGrid.getRgbaRow(latitude, column, expectedRgba, 0, 100);
+				mapped.getRgbaRow(latitude, column, actualRgba, 0, 100);
+				assertTrue(Arrays.equals(expected, actual));
+				assertTrue(Arrays.equals(expectedRgba, actualRgba));
+			}
+		}
+
+		IIntBuffer texture = mapped.getModelTexture();
+		for (int i = 0; i < width * height; i += 37) {
+			assertEquals(modelGrid.getModelTexture().getInt(i), texture.getInt(i));
+		}
+
+		try {
+			mapped.setElevationByIndex(0, 1.0);
+			fail("Mapped model grids are read-only");
+		} catch (DataSourceException ex) {
+		}
+
+		// The file stays mapped until collected, so it is left to be deleted on exit
+		mapped.dispose();
+		assertTrue(mapped.isDisposed());
+	}
+
+	public void testCorruptLengthsAreRejected() throws Exception
+	{
+		ByteArrayOutputStream version2 = new ByteArrayOutputStream();
+		ModelGridWriter.writeVersion2(version2, modelGrid, 64, 2);
+		byte[] bytes = version2.toByteArray();
+
+		int histogramLength = ByteBuffer.wrap(bytes).getInt(ModelGridFileIO.HEADER_LENGTH_V2);
+		int firstTileLength = ModelGridFileIO.HEADER_LENGTH_V2 + 4 + histogramLength;
+
+		assertCorruptLengthRejected(bytes, ModelGridFileIO.HEADER_LENGTH_V2, -1);
+		assertCorruptLengthRejected(bytes, ModelGridFileIO.HEADER_LENGTH_V2, Integer.MAX_VALUE);
+		assertCorruptLengthRejected(bytes, firstTileLength, -1);
+		assertCorruptLengthRejected(bytes, firstTileLength + 4, Integer.MAX_VALUE);
+	}
+
+	public void testVersion1FilesAreReadInFull() throws Exception
+	{
+		File file = File.createTempFile("jdem846-grid", ".jdemgrid");
+		file.deleteOnExit();
+		OutputStream out = new FileOutputStream(file);
+		ModelGridWriter.writeVersion1(out, modelGrid);
+		out.close();
+
+		IModelGrid read = ModelGridReader.read(file);
+		assertTrue(read instanceof BufferedModelGrid);
+		assertGridsEqual(modelGrid, read);
+		assertTrue(file.delete());
+	}
+
+	protected void assertCorruptLengthRejected(byte[] bytes, int offset, int length) throws Exception
+	{
+		byte[] corrupt = bytes.clone();
+		ByteBuffer.wrap(corrupt).putInt(offset, length);
+
+		try {
+			ModelGridReader.read(new ByteArrayInputStream(corrupt));
+			fail("Length of " + length + " at " + offset + " was accepted");
+		} catch (IOException ex) {
+		}
+
+		File file = File.createTempFile("jdem846-grid", ".jdemgrid");
+		file.deleteOnExit();
+		OutputStream out = new FileOutputStream(file);
+		out.write(corrupt);
+		out.close();
+
+		try {
+			ModelGridReader.read(file);
+			fail("Length of " + length + " at " + offset + " was accepted from a mapped file");
+		} catch (IOException ex) {
+		}
+	}
+
+	protected void assertGridsEqual(IModelGrid expected, IModelGrid actual) throws Exception
+	{
+		assertEquals(expected.getWidth(), actual.getWidth());
+		assertEquals(expected.getHeight(), actual.getHeight());
+		assertEquals(expected.getMinimum(), actual.getMinimum());
+		assertEquals(expected.getMaximum(), actual.getMaximum());
+
+		for (int i = 0; i < width * height; i++) {
+			assertEquals(expected.getElevationByIndex(i), actual.getElevationByIndex(i));
+			assertEquals(expected.getRgbaByIndex(i).asInt(), actual.getRgbaByIndex(i).asInt());
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package us.wthr.jdem846.modelgrid;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import us.wthr.jdem846.DemConstants;
+import us.wthr.jdem846.JDem846Properties;
+import us.wthr.jdem846.gis.planets.Planet;
+import us.wthr.jdem846.gis.planets.PlanetsRegistry;
+import us.wthr.jdem846.graphics.INormalsCalculator;
+import us.wthr.jdem846.math.Vector;
+import us.wthr.jdem846.scaling.ElevationScaler;
+import us.wthr.jdem846.scaling.ElevationScalerEnum;
+import us.wthr.jdem846.scaling.ElevationScalerFactory;
+
+public class NormalPlaneTest extends TestCase
+{
+
+	private double north = 40.0;
+	private double south = 39.0;
+	private double east = -104.0;
+	private double west = -105.2;
+	private double resolution = 0.02;
+
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		if (!JDem846Properties.hasProperty("us.wthr.jdem846.general.buffers.maxHeapBufferSizeBytes")) {
+			JDem846Properties.setProperty("us.wthr.jdem846.general.buffers.maxHeapBufferSizeBytes", "100000000");
+		}
+	}
+
+	public void testEncodingRoundTrip()
+	{
+		Random random = new Random(3);
+		Vector normal = new Vector();
+		Vector decoded = new Vector();
+
+		for (int i = 0; i < 10000; i++) {
+			normal.x = random.nextDouble() * 2.0 - 1.0;
+			normal.y = random.nextDouble() * 2.0 - 1.0;
+			normal.z = random.nextDouble() * 2.0 - 1.0;
+
+			NormalPlane.decode(NormalPlane.encode(normal, NormalPlane.BITS_32), NormalPlane.BITS_32, decoded);
+			assertEquals(1.0, angleCosine(normal, decoded), 1e-8);
+
+			NormalPlane.decode(NormalPlane.encode(normal, NormalPlane.BITS_16), NormalPlane.BITS_16, decoded);
+			assertEquals(1.0, angleCosine(normal, decoded), 1e-3);
+		}
+	}
+
+	public void testSphericalPlaneMatchesCalculator() throws Exception
+	{
+		comparePlane(false, null, NormalPlane.BITS_32, 1e-8);
+	}
+
+	public void testFlatScaledPlaneMatchesCalculator() throws Exception
+	{
+		ElevationScaler scaler = ElevationScalerFactory.createElevationScaler(ElevationScalerEnum.LINEAR, 3.0, 1000, 4000);
+		comparePlane(true, scaler, NormalPlane.BITS_16, 1e-3);
+	}
+
+	public void testPlaneIsDroppedOnReset() throws Exception
+	{
+		BufferedModelGrid modelGrid = createModelGrid();
+		Planet planet = PlanetsRegistry.getPlanet("earth");
+
+		modelGrid.addNormalPlane(NormalPlane.compute(modelGrid, NormalPlane.BITS_32, false, null, planet, 2));
+		assertNotNull(modelGrid.getNormalPlane(false, null, planet, resolution, resolution));
+		assertNull(modelGrid.getNormalPlane(true, null, planet, resolution, resolution));
+
+		modelGrid.reset();
+		assertNull(modelGrid.getNormalPlane(false, null, planet, resolution, resolution));
+	}
+
+
+	protected void comparePlane(boolean flat, ElevationScaler scaler, int bits, double tolerance) throws Exception
+	{
+		BufferedModelGrid modelGrid = createModelGrid();
+		Planet planet = PlanetsRegistry.getPlanet("earth");
+
+		NormalPlane normalPlane = NormalPlane.compute(modelGrid, bits, flat, scaler, planet, 3);
+		assertTrue(normalPlane.matches(flat, (scaler != null) ? scaler.copy() : null, planet, resolution, resolution));
+		assertFalse(normalPlane.matches(!flat, scaler, planet, resolution, resolution));
+
+		INormalsCalculator calculator = NormalPlane.createCalculator(modelGrid, flat, scaler, planet);
+		Vector expected = new Vector();
+		Vector actual = new Vector();
+
+		for (int y = 0; y < modelGrid.getHeight(); y++) {
+			for (int x = 0; x < modelGrid.getWidth(); x++) {
+				double latitude = north - y * resolution;
+				double longitude = west + x * resolution;
+
+				double elevation = modelGrid.getElevation(latitude, longitude);
+				if (elevation == DemConstants.ELEV_NO_DATA || elevation == DemConstants.ELEV_UNDETERMINED) {
+					assertFalse(normalPlane.getNormal(latitude, longitude, actual));
+					continue;
+				}
+
+				assertTrue("Cell " + x + "/" + y, normalPlane.getNormal(latitude, longitude, actual));
+				calculator.calculateNormal(latitude, longitude, expected);
+				assertEquals(1.0, angleCosine(expected, actual), tolerance);
+			}
+		}
+
+		assertFalse(normalPlane.getNormal(north - 5 * resolution, west + 7 * resolution, actual));
+
+		// Points between cells are not snapped to a neighbor
+		assertFalse(normalPlane.getNormal(north - resolution * 0.5, west + resolution, actual));
+		normalPlane.dispose();
+	}
+
+	protected BufferedModelGrid createModelGrid()
+	{
+		int width = (int) Math.round((east - west) / resolution);
+		int height = (int) Math.round((north - south) / resolution);
+		BufferedModelGrid modelGrid = new BufferedModelGrid(north, south, east, west, resolution, resolution, 1000, 4000, width, height, true);
+		modelGrid.reset();
+
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				double latitude = north - y * resolution;
+				double longitude = west + x * resolution;
+				if (x == 7 && y == 5) {
+					continue;
+				}
+				modelGrid.setElevation(latitude, longitude, 2500 + 1000 * Math.sin(x * 0.3) * Math.cos(y * 0.2));
+			}
+		}
+		return modelGrid;
+	}
+
+	protected double angleCosine(Vector a, Vector b)
+	{
+		double lengthA = Math.sqrt(a.x * a.x + a.y * a.y + a.z * a.z);
+		double lengthB = Math.sqrt(b.x * b.x + b.y * b.y + b.z * b.z);
+		return (a.x * b.x + a.y * b.y + a.z * b.z) / (lengthA * lengthB);
+	}
+}
@@ -0,0 +1,129 @@
+package us.wthr.jdem846.rasterdata;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import us.wthr.jdem846.DemConstants;
+import us.wthr.jdem846.exception.DataSourceException;
+import us.wthr.jdem846.rasterdata.generic.IRasterDefinition;
+
+public class RasterDataSpatialIndexTest extends TestCase
+{
+
+	public void testMosaicMatchesLinearScan() throws Exception
+	{
+		RasterDataContext context = new RasterDataContext();
+		for (int lat = 30; lat < 40; lat++) {
+			for (int lon = -110; lon < -95; lon++) {
+				context.addRasterData(new ConstantRasterData(lat + 1, lat, lon + 1, lon, lat * 1000 + lon));
+			}
+		}
+
+		compareWithLinearScan(context, false);
+		compareWithLinearScan(context, true);
+	}
+
+	public void testOverlappingRastersMatchLinearScan() throws Exception
+	{
+		RasterDataContext context = new RasterDataContext();
+		context.addRasterData(new ConstantRasterData(40, 30, -95, -110, 1));
+		context.addRasterData(new ConstantRasterData(35.5, 32.25, -100, -104.5, 2));
+		context.addRasterData(new ConstantRasterData(38, 37, -96, -97, DemConstants.ELEV_NO_DATA));
+		context.addRasterData(new ConstantRasterData(44, 39.5, -90, -98, 3));
+
+		compareWithLinearScan(context, false);
+		compareWithLinearScan(context, true);
+	}
+
+	public void testDataOverlaps() throws Exception
+	{
+		RasterDataContext context = new RasterDataContext();
+		context.addRasterData(new ConstantRasterData(40, 39, -109, -110, 1));
+		context.addRasterData(new ConstantRasterData(31, 30, -96, -97, 2));
+
+		Random random = new Random(1234);
+		int rows = context.getDataRows();
+		int columns = context.getDataColumns();
+
+		for (int i = 0; i < 2000; i++) {
+			int x = random.nextInt(columns + 20) - 10;
+			int y = random.nextInt(rows + 20) - 10;
+			int width = random.nextInt(columns / 4) + 1;
+			int height = random.nextInt(rows / 4) + 1;
+			RasterDataRowColumnBox bounds = new RasterDataRowColumnBox(x, y, width, height);
+
+			boolean expected = false;
+			for (RasterDataRowColumnBox box : context.getRasterDataRowColumnBoxes()) {
+				expected |= box.overlaps(bounds);
+			}
+			assertEquals(expected, context.dataOverlaps(bounds));
+		}
+	}
+
+	protected void compareWithLinearScan(RasterDataContext context, boolean average) throws Exception
+	{
+		RasterDataContext copy = context.copy();
+
+		for (double latitude = context.getNorth() + 0.5; latitude >= context.getSouth() - 0.5; latitude -= 0.05) {
+			for (double longitude = context.getWest() - 0.5; longitude <= context.getEast() + 0.5; longitude += 0.05) {
+				double expected = getLinearScan(context, latitude, longitude, average);
+				assertEquals(expected, context.getDataStandardResolution(latitude, longitude, average, false, false));
+				assertEquals(expected, copy.getDataStandardResolution(latitude, longitude, average, false, false));
+			}
+		}
+	}
+
+	protected double getLinearScan(RasterDataContext context, double latitude, double longitude, boolean average) throws DataSourceException
+	{
+		double value = 0;
+		double dataMatches = 0;
+		for (RasterData rasterData : context.getRasterDataList()) {
+			if (rasterData.contains(latitude, longitude)) {
+				double rasterValue = rasterData.getData(latitude, longitude, false);
+				if (!average) {
+					return rasterValue;
+				}
+				if (rasterValue != DemConstants.ELEV_NO_DATA) {
+					value += rasterValue;
+					dataMatches++;
+				}
+			}
+		}
+		return (dataMatches > 0) ? value / dataMatches : DemConstants.ELEV_NO_DATA;
+	}
+
+
+	static class ConstantRasterData extends AbstractRasterDataProvider
+	{
+		private double value;
+
+		public ConstantRasterData(double north, double south, double east, double west, double value)
+		{
+			this.value = value;
+			setLatitudeResolution(0.01);
+			setLongitudeResolution(0.01);
+			setNorth(north);
+			setSouth(south);
+			setEast(east);
+			setWest(west);
+			setRows((int) Math.round((north - south) / 0.01));
+			setColumns((int) Math.round((east - west) / 0.01));
+		}
+
+		public void create(String file, IRasterDefinition rasterDefinition) { }
+		public void dispose() { }
+		public boolean isDisposed() { return false; }
+		public String getFilePath() { return null; }
+		public double getData(int row, int column) { return value; }
+		public boolean fillBuffer(double north, double south, double east, double west) { return false; }
+		public boolean isBufferFilled() { return false; }
+		public void clearBuffer() { }
+		public IRasterDataValidator getValidator() { return null; }
+		public IRasterDefinition getRasterDefinition() { return null; }
+
+		public RasterData copy()
+		{
+			return new ConstantRasterData(getNorth(), getSouth(), getEast(), getWest(), value);
+		}
+	}
+}
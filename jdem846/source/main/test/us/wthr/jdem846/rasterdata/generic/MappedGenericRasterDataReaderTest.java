@@ -0,0 +1,152 @@
+package us.wthr.jdem846.rasterdata.generic;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+
+import junit.framework.TestCase;
+import us.wthr.jdem846.ByteOrder;
+import us.wthr.jdem846.DataTypeEnum;
+
+public class MappedGenericRasterDataReaderTest extends TestCase
+{
+
+	private int width = 37;
+	private int height = 23;
+
+	private File dataFile;
+
+
+	@Override
+	protected void tearDown() throws Exception
+	{
+		super.tearDown();
+		if (dataFile != null) {
+			dataFile.delete();
+		}
+	}
+
+
+	public void testInt16LittleEndian() throws Exception
+	{
+		compareReaders(DataTypeEnum.Int16, ByteOrder.LSBFIRST);
+	}
+
+	public void testInt16BigEndian() throws Exception
+	{
+		compareReaders(DataTypeEnum.Int16, ByteOrder.MSBFIRST);
+	}
+
+	public void testUInt16() throws Exception
+	{
+		compareReaders(DataTypeEnum.UInt16, ByteOrder.LSBFIRST);
+	}
+
+	public void testFloat32() throws Exception
+	{
+		compareReaders(DataTypeEnum.Float32, ByteOrder.MSBFIRST);
+	}
+
+	public void testFloat64() throws Exception
+	{
+		compareReaders(DataTypeEnum.Float64, ByteOrder.LSBFIRST);
+	}
+
+	public void testSmallChunks() throws Exception
+	{
+		long maxChunkBytes = MappedGenericRasterDataReader.MAX_CHUNK_BYTES;
+		try {
+			// Five rows per mapped chunk
+			MappedGenericRasterDataReader.MAX_CHUNK_BYTES = width * 4 * 5 + 3;
+			compareReaders(DataTypeEnum.Float32, ByteOrder.LSBFIRST);
+		} finally {
+			MappedGenericRasterDataReader.MAX_CHUNK_BYTES = maxChunkBytes;
+		}
+	}
+
+
+	protected void compareReaders(DataTypeEnum dataType, ByteOrder byteOrder) throws Exception
+	{
+		dataFile = writeRaster(dataType, byteOrder);
+
+		IRasterDefinition rasterDefinition = new RasterDefinition();
+		rasterDefinition.setDataType(dataType);
+		rasterDefinition.setByteOrder(byteOrder);
+		rasterDefinition.setImageWidth(width);
+		rasterDefinition.setImageHeight(height);
+
+		GenericRasterDataReader streamReader = new GenericRasterDataReader(dataFile, rasterDefinition);
+		MappedGenericRasterDataReader mappedReader = new MappedGenericRasterDataReader(dataFile, rasterDefinition);
+
+		double[] streamRow = new double[width];
+		double[] mappedRow = new double[width];
+
+		for (int row = 0; row < height; row++) {
+			for (int column = 0; column < width; column++) {
+				double expected = getValue(dataType, row, column);
+				assertEquals(expected, streamReader.getDouble(row, column));
+				assertEquals(expected, mappedReader.getDouble(row, column));
+				assertEquals(expected, mappedReader.get(row, column).doubleValue());
+			}
+
+			streamReader.getRow(row, 3, streamRow, 1, width - 4);
+			mappedReader.getRow(row, 3, mappedRow, 1, width - 4);
+			for (int i = 1; i < width - 3; i++) {
+				assertEquals(streamRow[i], mappedRow[i]);
+			}
+		}
+
+		// The last tile is clipped to the raster edges
+		RasterTile streamTile = streamReader.readTile(5, 4, 20, height);
+		RasterTile mappedTile = mappedReader.readTile(5, 4, 20, height);
+		assertEquals(height - 4, streamTile.getRows());
+		assertEquals(height - 4, mappedTile.getRows());
+		for (int row = 4; row < height; row++) {
+			for (int column = 5; column < 25; column++) {
+				double expected = getValue(dataType, row, column);
+				assertEquals(expected, streamTile.get(row, column));
+				assertEquals(expected, mappedTile.get(row, column));
+			}
+		}
+
+		streamReader.close();
+		mappedReader.dispose();
+	}
+
+	protected double getValue(DataTypeEnum dataType, int row, int column)
+	{
+		int i = row * width + column;
+		if (dataType == DataTypeEnum.Int16) {
+			return (short) (i * 37 - 10000);
+		} else if (dataType == DataTypeEnum.UInt16) {
+			return (i * 97) & 0xFFFF;
+		} else {
+			return (float) (i * 1.25 - 300.5);
+		}
+	}
+
+	protected File writeRaster(DataTypeEnum dataType, ByteOrder byteOrder) throws Exception
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(width * height * dataType.numberOfBytes());
+		buffer.order((byteOrder == ByteOrder.MSBFIRST) ? java.nio.ByteOrder.BIG_ENDIAN : java.nio.ByteOrder.LITTLE_ENDIAN);
+
+		for (int row = 0; row < height; row++) {
+			for (int column = 0; column < width; column++) {
+				double value = getValue(dataType, row, column);
+				if (dataType == DataTypeEnum.Int16 || dataType == DataTypeEnum.UInt16) {
+					buffer.putShort((short) value);
+				} else if (dataType == DataTypeEnum.Float32) {
+					buffer.putFloat((float) value);
+				} else {
+					buffer.putDouble(value);
+				}
+			}
+		}
+
+		File file = File.createTempFile("jdem-raster-test", ".bin");
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(buffer.array());
+		out.close();
+		return file;
+	}
+}
@@ -0,0 +1,218 @@
+package us.wthr.jdem846.rasterdata.generic;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import us.wthr.jdem846.ByteOrder;
+import us.wthr.jdem846.DataTypeEnum;
+
+public class RasterTileCacheTest extends TestCase
+{
+
+	private int width = 100;
+	private int height = 70;
+	private int tileSize = 16;
+
+	private File dataFile;
+	private IRasterDefinition rasterDefinition;
+
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+
+		ByteBuffer buffer = ByteBuffer.allocate(width * height * 4);
+		buffer.order(java.nio.ByteOrder.LITTLE_ENDIAN);
+		for (int i = 0; i < width * height; i++) {
+			buffer.putFloat(i);
+		}
+
+		dataFile = File.createTempFile("jdem-raster-test", ".bin");
+		FileOutputStream out = new FileOutputStream(dataFile);
+		out.write(buffer.array());
+		out.close();
+
+		rasterDefinition = new RasterDefinition();
+		rasterDefinition.setDataType(DataTypeEnum.Float32);
+		rasterDefinition.setByteOrder(ByteOrder.LSBFIRST);
+		rasterDefinition.setImageWidth(width);
+		rasterDefinition.setImageHeight(height);
+	}
+
+	@Override
+	protected void tearDown() throws Exception
+	{
+		super.tearDown();
+		dataFile.delete();
+	}
+
+
+	public void testTileContents() throws Exception
+	{
+		RasterTileCache cache = new RasterTileCache(tileSize, Long.MAX_VALUE);
+		GenericRasterDataReader reader = new GenericRasterDataReader(dataFile, rasterDefinition);
+
+		// Bottom right tile is clipped to the raster
+		RasterTileEntry entry = cache.acquire(reader, height / tileSize, width / tileSize);
+		RasterTile tile = entry.getTile();
+		assertEquals(width % tileSize, tile.getColumns());
+		assertEquals(height % tileSize, tile.getRows());
+
+		for (int row = tile.getY(); row < height; row++) {
+			for (int column = tile.getX(); column < width; column++) {
+				assertEquals((double) (row * width + column), tile.get(row, column));
+			}
+		}
+
+		cache.release(entry);
+		reader.dispose();
+	}
+
+	public void testSharedAcrossReaders() throws Exception
+	{
+		RasterTileCache cache = new RasterTileCache(tileSize, Long.MAX_VALUE);
+		GenericRasterDataReader reader0 = new GenericRasterDataReader(dataFile, rasterDefinition);
+		GenericRasterDataReader reader1 = new GenericRasterDataReader(dataFile, rasterDefinition.copy());
+
+		RasterTileEntry entry0 = cache.acquire(reader0, 1, 2);
+		RasterTileEntry entry1 = cache.acquire(reader1, 1, 2);
+
+		assertSame(entry0.getTile(), entry1.getTile());
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, cache.getHits());
+
+		cache.release(entry0);
+		cache.release(entry1);
+		reader0.dispose();
+		reader1.dispose();
+	}
+
+	public void testReplacedFileIsReadAgain() throws Exception
+	{
+		RasterTileCache cache = new RasterTileCache(tileSize, Long.MAX_VALUE);
+		GenericRasterDataReader reader = new GenericRasterDataReader(dataFile, rasterDefinition);
+
+		RasterTileEntry entry = cache.acquire(reader, 0, 0);
+		assertEquals(1.0, entry.getTile().get(0, 1));
+		cache.release(entry);
+		reader.dispose();
+
+		ByteBuffer buffer = ByteBuffer.allocate(width * height * 4);
+		buffer.order(java.nio.ByteOrder.LITTLE_ENDIAN);
+		for (int i = 0; i < width * height; i++) {
+			buffer.putFloat(-i);
+		}
+		long lastModified = dataFile.lastModified();
+		FileOutputStream out = new FileOutputStream(dataFile);
+		out.write(buffer.array());
+		out.close();
+		dataFile.setLastModified(lastModified + 10000);
+
+		reader = new GenericRasterDataReader(dataFile, rasterDefinition);
+		entry = cache.acquire(reader, 0, 0);
+		assertEquals(-1.0, entry.getTile().get(0, 1));
+		assertEquals(2, cache.getMisses());
+		cache.release(entry);
+		reader.dispose();
+	}
+
+	public void testPinnedTilesAreNotEvicted() throws Exception
+	{
+		long tileBytes = tileSize * tileSize * 4;
+		RasterTileCache cache = new RasterTileCache(tileSize, tileBytes * 2);
+		GenericRasterDataReader reader = new GenericRasterDataReader(dataFile, rasterDefinition);
+
+		RasterTileEntry pinned = cache.acquire(reader, 0, 0);
+		for (int column = 1; column < 4; column++) {
+			cache.release(cache.acquire(reader, 0, column));
+		}
+
+		assertEquals(2, cache.getTileCount());
+		assertEquals(tileBytes * 2, cache.getUsedBytes());
+		assertEquals(2, cache.getEvictions());
+
+		// Still resident
+		RasterTileEntry again = cache.acquire(reader, 0, 0);
+		assertSame(pinned.getTile(), again.getTile());
+
+		cache.release(pinned);
+		cache.release(again);
+
+		// Least recently used tiles are evicted first
+		cache.release(cache.acquire(reader, 1, 0));
+		assertEquals(2, cache.getTileCount());
+		long misses = cache.getMisses();
+		cache.release(cache.acquire(reader, 0, 0));
+		assertEquals(misses, cache.getMisses());
+
+		reader.dispose();
+	}
+
+	public void testSingleFlightLoading() throws Exception
+	{
+		final RasterTileCache cache = new RasterTileCache(tileSize, Long.MAX_VALUE);
+		final List<RasterTile> loaded = new ArrayList<RasterTile>();
+		final int threadCount = 8;
+
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < threadCount; t++) {
+			Thread thread = new Thread() {
+				public void run()
+				{
+					try {
+						GenericRasterDataReader reader = new GenericRasterDataReader(dataFile, rasterDefinition.copy());
+						RasterTileEntry entry = cache.acquire(reader, 2, 3);
+						synchronized (loaded) {
+							loaded.add(entry.getTile());
+						}
+						cache.release(entry);
+						reader.dispose();
+					} catch (Exception ex) {
+						ex.printStackTrace();
+					}
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(threadCount, loaded.size());
+		assertEquals(1, cache.getMisses());
+		for (RasterTile tile : loaded) {
+			assertSame(loaded.get(0), tile);
+		}
+	}
+
+	public void testCachingReaderSpansTiles() throws Exception
+	{
+		CachingGenericRasterDataReader reader = new CachingGenericRasterDataReader(dataFile, rasterDefinition);
+
+		assertTrue(reader.fillBuffer(5, 10, 60, 30));
+		for (int row = 10; row < 40; row++) {
+			for (int column = 5; column < 65; column++) {
+				assertEquals((double) (row * width + column), reader.get(row, column));
+			}
+		}
+
+		// Refilling replaces the pinned region
+		assertTrue(reader.fillBuffer(0, 50, width, 20));
+		assertEquals((double) (69 * width + 99), reader.get(69, 99));
+		assertTrue(reader.isBufferFilled());
+
+		reader.clearBuffer();
+		assertFalse(reader.isBufferFilled());
+		assertEquals((double) (10 * width + 5), reader.get(10, 5));
+
+		reader.dispose();
+	}
+
+}